@@ -56,9 +56,19 @@ public class CastlingRightsSummary {
 	public static boolean kingsSideCastlingRightsGoneAfterMove(CastlingRightsSummary castlingRights,
 			Colour sideToMove,
 			Move move) {
-		if (castlingRights.canCastleKingsSide() && PieceType.ROOK == move.getPiece()) {
+		return kingsSideCastlingRightsGoneAfterMove(castlingRights, sideToMove, PackedMove.fromMove(move));
+	}
+
+	/**
+	 * As {@link #kingsSideCastlingRightsGoneAfterMove(CastlingRightsSummary, Colour, Move)}, for a move encoded as per
+	 * {@link PackedMove}.
+	 */
+	public static boolean kingsSideCastlingRightsGoneAfterMove(CastlingRightsSummary castlingRights,
+			Colour sideToMove,
+			int move) {
+		if (castlingRights.canCastleKingsSide() && PieceType.ROOK == PackedMove.piece(move)) {
 			Square targetSquare = (sideToMove == Colour.WHITE) ? Square.h1 : Square.h8;
-			return move.from() == targetSquare;
+			return PackedMove.from(move) == targetSquare.bitIndex();
 		} else {
 			return false;
 		}
@@ -79,9 +89,19 @@ public class CastlingRightsSummary {
 	public static boolean queensSideCastlingRightsGoneAfterMove(CastlingRightsSummary castlingRights,
 			Colour sideToMove,
 			Move move) {
-		if (castlingRights.canCastleQueensSide() && PieceType.ROOK == move.getPiece()) {
+		return queensSideCastlingRightsGoneAfterMove(castlingRights, sideToMove, PackedMove.fromMove(move));
+	}
+
+	/**
+	 * As {@link #queensSideCastlingRightsGoneAfterMove(CastlingRightsSummary, Colour, Move)}, for a move encoded as per
+	 * {@link PackedMove}.
+	 */
+	public static boolean queensSideCastlingRightsGoneAfterMove(CastlingRightsSummary castlingRights,
+			Colour sideToMove,
+			int move) {
+		if (castlingRights.canCastleQueensSide() && PieceType.ROOK == PackedMove.piece(move)) {
 			Square targetSquare = (sideToMove == Colour.WHITE) ? Square.a1 : Square.a8;
-			return move.from() == targetSquare;
+			return PackedMove.from(move) == targetSquare.bitIndex();
 		} else {
 			return false;
 		}
@@ -100,9 +120,19 @@ public class CastlingRightsSummary {
 	public static boolean opponentKingsSideCastlingRightsGoneAfterMove(CastlingRightsSummary opponentsCastlingRights,
 			Colour sideToMove,
 			Move move) {
-		if (move.isCapture() && opponentsCastlingRights.canCastleKingsSide()) {
+		return opponentKingsSideCastlingRightsGoneAfterMove(opponentsCastlingRights, sideToMove, PackedMove.fromMove(move));
+	}
+
+	/**
+	 * As {@link #opponentKingsSideCastlingRightsGoneAfterMove(CastlingRightsSummary, Colour, Move)}, for a move encoded
+	 * as per {@link PackedMove}.
+	 */
+	public static boolean opponentKingsSideCastlingRightsGoneAfterMove(CastlingRightsSummary opponentsCastlingRights,
+			Colour sideToMove,
+			int move) {
+		if (PackedMove.isCapture(move) && opponentsCastlingRights.canCastleKingsSide()) {
 			Square targetSquare = (sideToMove == Colour.WHITE) ? Square.h8 : Square.h1;
-			return move.to() == targetSquare;
+			return PackedMove.to(move) == targetSquare.bitIndex();
 		} else {
 			return false;
 		}
@@ -121,9 +151,19 @@ public class CastlingRightsSummary {
 	public static boolean opponentQueensSideCastlingRightsGoneAfterMove(CastlingRightsSummary opponentsCastlingRights,
 			Colour sideToMove,
 			Move move) {
-		if (move.isCapture() && opponentsCastlingRights.canCastleQueensSide()) {
+		return opponentQueensSideCastlingRightsGoneAfterMove(opponentsCastlingRights, sideToMove, PackedMove.fromMove(move));
+	}
+
+	/**
+	 * As {@link #opponentQueensSideCastlingRightsGoneAfterMove(CastlingRightsSummary, Colour, Move)}, for a move encoded
+	 * as per {@link PackedMove}.
+	 */
+	public static boolean opponentQueensSideCastlingRightsGoneAfterMove(CastlingRightsSummary opponentsCastlingRights,
+			Colour sideToMove,
+			int move) {
+		if (PackedMove.isCapture(move) && opponentsCastlingRights.canCastleQueensSide()) {
 			Square targetSquare = (sideToMove == Colour.WHITE) ? Square.a8 : Square.a1;
-			return move.to() == targetSquare;
+			return PackedMove.to(move) == targetSquare.bitIndex();
 		} else {
 			return false;
 		}
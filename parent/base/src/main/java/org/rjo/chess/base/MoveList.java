@@ -0,0 +1,144 @@
+package org.rjo.chess.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A list of moves, encoded as per {@link PackedMove}, backed by a primitive <code>int</code> array.
+ * <p>
+ * The list is intended to be reused: move generation appends to the list, {@link #clear()} resets it without freeing
+ * the storage. Use {@link #createPerPly(int)} to preallocate one list per ply for a search (one set per thread, since
+ * the lists are not thread-safe).
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public final class MoveList {
+
+	/** more than the maximum number of legal moves in any chess position */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private int[] moves;
+	private int size;
+
+	public MoveList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public MoveList(int capacity) {
+		this.moves = new int[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * Creates a set of move lists, one per ply.
+	 *
+	 * @param maxPly maximum number of plies
+	 * @return array of <code>maxPly</code> move lists
+	 */
+	public static MoveList[] createPerPly(int maxPly) {
+		MoveList[] lists = new MoveList[maxPly];
+		for (int i = 0; i < maxPly; i++) {
+			lists[i] = new MoveList();
+		}
+		return lists;
+	}
+
+	/**
+	 * Appends a move. The underlying array grows if necessary.
+	 *
+	 * @param move the encoded move
+	 */
+	public void add(int move) {
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		}
+		moves[size++] = move;
+	}
+
+	public int get(int index) {
+		return moves[index];
+	}
+
+	public void set(int index,
+			int move) {
+		moves[index] = move;
+	}
+
+	/**
+	 * Swaps the moves at the given positions.
+	 */
+	public void swap(int i,
+			int j) {
+		int tmp = moves[i];
+		moves[i] = moves[j];
+		moves[j] = tmp;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Empties the list. The storage is retained.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Shortens the list to the given size.
+	 *
+	 * @param newSize new size, must be <= size()
+	 */
+	public void truncate(int newSize) {
+		if (newSize > size) {
+			throw new IllegalArgumentException("cannot truncate list of size " + size + " to " + newSize);
+		}
+		size = newSize;
+	}
+
+	/**
+	 * @param move the encoded move. The check flag is ignored.
+	 * @return true if the move is present in the list.
+	 */
+	public boolean contains(int move) {
+		int m = PackedMove.withoutCheck(move);
+		for (int i = 0; i < size; i++) {
+			if (PackedMove.withoutCheck(moves[i]) == m) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return a list of {@link Move} objects corresponding to the moves in this list.
+	 */
+	public List<Move> toMoves() {
+		List<Move> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(PackedMove.toMove(moves[i]));
+		}
+		return list;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(size * 8);
+		sb.append('[');
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(PackedMove.toString(moves[i]));
+		}
+		sb.append(']');
+		return sb.toString();
+	}
+}
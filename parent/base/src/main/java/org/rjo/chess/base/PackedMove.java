@@ -0,0 +1,338 @@
+package org.rjo.chess.base;
+
+/**
+ * Static, allocation-free operations on a move stored as a primitive <code>int</code>.
+ * <p>
+ * Layout:
+ *
+ * <pre>
+ *  bits  0- 5  from square (bit index)
+ *  bits  6-11  to square (bit index)
+ *  bits 12-14  moving piece (PieceType ordinal)
+ *  bits 15-17  captured piece (PieceType ordinal + 1; 0 == no capture)
+ *  bits 18-20  promoted piece (PieceType ordinal + 1; 0 == no promotion)
+ *  bit  21     colour (0 == white, 1 == black)
+ *  bit  22     enpassant
+ *  bit  23     castling king's side
+ *  bit  24     castling queen's side
+ *  bit  25     check
+ *  bit  26     set if bit 25 is valid, i.e. it has been determined whether the move gives check
+ * </pre>
+ *
+ * Whether a move gives check is not calculated when the move is generated, but on demand (see e.g.
+ * <code>Position.givesCheck(int)</code>); the result can then be stored in the move with
+ * {@link #withCheckStatus(int, boolean)}.
+ * <p>
+ * The value {@link #NONE} (0) is never a valid move, since the from and to squares would be identical.
+ * <p>
+ * {@link #toMove(int)} and {@link #fromMove(Move)} convert to and from the {@link Move} object representation.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public final class PackedMove {
+
+	/** 'no move' */
+	public static final int NONE = 0;
+
+	private static final int TO_SHIFT = 6;
+	private static final int PIECE_SHIFT = 12;
+	private static final int CAPTURE_SHIFT = 15;
+	private static final int PROMOTION_SHIFT = 18;
+
+	private static final int SQUARE_MASK = 0x3F;
+	private static final int PIECE_MASK = 0x7;
+
+	private static final int COLOUR_FLAG = 1 << 21;
+	private static final int ENPASSANT_FLAG = 1 << 22;
+	private static final int CASTLE_KINGS_SIDE_FLAG = 1 << 23;
+	private static final int CASTLE_QUEENS_SIDE_FLAG = 1 << 24;
+	private static final int CHECK_FLAG = 1 << 25;
+	private static final int CHECK_KNOWN_FLAG = 1 << 26;
+
+	private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+	private PackedMove() {
+	}
+
+	/**
+	 * Encodes a normal (non-capture) move.
+	 *
+	 * @param piece which piece is moving
+	 * @param colour colour of the moving piece
+	 * @param from bit index of start square
+	 * @param to bit index of destination square
+	 * @return the encoded move
+	 */
+	public static int of(PieceType piece,
+			Colour colour,
+			int from,
+			int to) {
+		return from | (to << TO_SHIFT) | (piece.ordinal() << PIECE_SHIFT) | (colour == Colour.BLACK ? COLOUR_FLAG : 0);
+	}
+
+	/**
+	 * Encodes a capture.
+	 *
+	 * @param piece which piece is moving
+	 * @param colour colour of the moving piece
+	 * @param from bit index of start square
+	 * @param to bit index of destination square
+	 * @param capturedPiece the captured piece
+	 * @return the encoded move
+	 */
+	public static int capture(PieceType piece,
+			Colour colour,
+			int from,
+			int to,
+			PieceType capturedPiece) {
+		return of(piece, colour, from, to) | ((capturedPiece.ordinal() + 1) << CAPTURE_SHIFT);
+	}
+
+	/**
+	 * Encodes a pawn promotion.
+	 *
+	 * @param colour colour of the moving pawn
+	 * @param from bit index of start square
+	 * @param to bit index of destination square
+	 * @param capturedPiece the captured piece, or null if not a capture
+	 * @param promotedPiece the piece the pawn gets promoted to
+	 * @return the encoded move
+	 */
+	public static int promotion(Colour colour,
+			int from,
+			int to,
+			PieceType capturedPiece,
+			PieceType promotedPiece) {
+		int move = of(PieceType.PAWN, colour, from, to) | ((promotedPiece.ordinal() + 1) << PROMOTION_SHIFT);
+		return capturedPiece == null ? move : move | ((capturedPiece.ordinal() + 1) << CAPTURE_SHIFT);
+	}
+
+	/**
+	 * Encodes an enpassant capture.
+	 *
+	 * @param colour colour of the moving pawn
+	 * @param from bit index of start square
+	 * @param to bit index of destination square (the enpassant square)
+	 * @return the encoded move
+	 */
+	public static int enpassant(Colour colour,
+			int from,
+			int to) {
+		return capture(PieceType.PAWN, colour, from, to, PieceType.PAWN) | ENPASSANT_FLAG;
+	}
+
+	/**
+	 * Encodes a king's side castling move (as the king's move).
+	 *
+	 * @param colour colour of the side castling
+	 * @return the encoded move
+	 */
+	public static int castleKingsSide(Colour colour) {
+		return colour == Colour.WHITE ? of(PieceType.KING, colour, Square.e1.bitIndex(), Square.g1.bitIndex()) | CASTLE_KINGS_SIDE_FLAG
+				: of(PieceType.KING, colour, Square.e8.bitIndex(), Square.g8.bitIndex()) | CASTLE_KINGS_SIDE_FLAG;
+	}
+
+	/**
+	 * Encodes a queen's side castling move (as the king's move).
+	 *
+	 * @param colour colour of the side castling
+	 * @return the encoded move
+	 */
+	public static int castleQueensSide(Colour colour) {
+		return colour == Colour.WHITE ? of(PieceType.KING, colour, Square.e1.bitIndex(), Square.c1.bitIndex()) | CASTLE_QUEENS_SIDE_FLAG
+				: of(PieceType.KING, colour, Square.e8.bitIndex(), Square.c8.bitIndex()) | CASTLE_QUEENS_SIDE_FLAG;
+	}
+
+	public static int from(int move) {
+		return move & SQUARE_MASK;
+	}
+
+	public static int to(int move) {
+		return (move >>> TO_SHIFT) & SQUARE_MASK;
+	}
+
+	public static PieceType piece(int move) {
+		return PIECE_TYPES[(move >>> PIECE_SHIFT) & PIECE_MASK];
+	}
+
+	public static Colour colour(int move) {
+		return (move & COLOUR_FLAG) != 0 ? Colour.BLACK : Colour.WHITE;
+	}
+
+	public static boolean isCapture(int move) {
+		return ((move >>> CAPTURE_SHIFT) & PIECE_MASK) != 0;
+	}
+
+	/**
+	 * @param move the move
+	 * @return the captured piece, or null if not a capture
+	 */
+	public static PieceType capturedPiece(int move) {
+		int captured = (move >>> CAPTURE_SHIFT) & PIECE_MASK;
+		return captured == 0 ? null : PIECE_TYPES[captured - 1];
+	}
+
+	public static boolean isPromotion(int move) {
+		return ((move >>> PROMOTION_SHIFT) & PIECE_MASK) != 0;
+	}
+
+	/**
+	 * @param move the move
+	 * @return the promoted piece, or null if not a promotion
+	 */
+	public static PieceType promotedPiece(int move) {
+		int promoted = (move >>> PROMOTION_SHIFT) & PIECE_MASK;
+		return promoted == 0 ? null : PIECE_TYPES[promoted - 1];
+	}
+
+	public static boolean isEnpassant(int move) {
+		return (move & ENPASSANT_FLAG) != 0;
+	}
+
+	/**
+	 * @param move the move
+	 * @return bit index of the pawn which gets captured by an enpassant move. Only valid if {@link #isEnpassant(int)}.
+	 */
+	public static int pawnCapturedEnpassant(int move) {
+		return colour(move) == Colour.WHITE ? to(move) - 8 : to(move) + 8;
+	}
+
+	/**
+	 * @param move the move
+	 * @return true if this is a pawn moving two squares forward from its starting square
+	 */
+	public static boolean isPawnMoveTwoSquaresForward(int move) {
+		return piece(move) == PieceType.PAWN && Math.abs(to(move) - from(move)) == 16;
+	}
+
+	public static boolean isCastleKingsSide(int move) {
+		return (move & CASTLE_KINGS_SIDE_FLAG) != 0;
+	}
+
+	public static boolean isCastleQueensSide(int move) {
+		return (move & CASTLE_QUEENS_SIDE_FLAG) != 0;
+	}
+
+	public static boolean isCastle(int move) {
+		return (move & (CASTLE_KINGS_SIDE_FLAG | CASTLE_QUEENS_SIDE_FLAG)) != 0;
+	}
+
+	/**
+	 * @param move the move (must be a castling move)
+	 * @return bit index of the square where the rook ends up after castling.
+	 */
+	public static int rooksCastlingDestination(int move) {
+		return isCastleKingsSide(move) ? to(move) - 1 : to(move) + 1;
+	}
+
+	/**
+	 * @param move the move (must be a castling move)
+	 * @return bit index of the square where the rook starts from when castling.
+	 */
+	public static int rooksCastlingOrigin(int move) {
+		return isCastleKingsSide(move) ? to(move) + 1 : to(move) - 2;
+	}
+
+	/**
+	 * @param move the move
+	 * @return true if the move is known to give check. False if it does not give check, or if this has not been
+	 *         determined (see {@link #isCheckKnown(int)}).
+	 */
+	public static boolean isCheck(int move) {
+		return (move & CHECK_FLAG) != 0;
+	}
+
+	/**
+	 * @param move the move
+	 * @return true if it has been determined whether the move gives check, i.e. {@link #isCheck(int)} is valid.
+	 */
+	public static boolean isCheckKnown(int move) {
+		return (move & CHECK_KNOWN_FLAG) != 0;
+	}
+
+	/**
+	 * @param move the move
+	 * @return the move with the 'check' flag set.
+	 */
+	public static int withCheck(int move) {
+		return move | CHECK_FLAG | CHECK_KNOWN_FLAG;
+	}
+
+	/**
+	 * @param move the move
+	 * @param check whether the move gives check
+	 * @return the move, marked as giving check or not giving check.
+	 */
+	public static int withCheckStatus(int move,
+			boolean check) {
+		return check ? withCheck(move) : (move & ~CHECK_FLAG) | CHECK_KNOWN_FLAG;
+	}
+
+	/**
+	 * @param move the move
+	 * @return the move without the 'check' information, i.e. the value which identifies the move irrespective of its
+	 *         effect.
+	 */
+	public static int withoutCheck(int move) {
+		return move & ~(CHECK_FLAG | CHECK_KNOWN_FLAG);
+	}
+
+	/**
+	 * Creates a {@link Move} object from the encoded move.
+	 *
+	 * @param move the encoded move
+	 * @return a new Move object
+	 */
+	public static Move toMove(int move) {
+		Colour colour = colour(move);
+		Move m;
+		if (isCastleKingsSide(move)) {
+			m = Move.castleKingsSide(colour);
+		} else if (isCastleQueensSide(move)) {
+			m = Move.castleQueensSide(colour);
+		} else if (isEnpassant(move)) {
+			m = Move.enpassant(colour, Square.fromBitIndex(from(move)), Square.fromBitIndex(to(move)));
+		} else {
+			m = new Move(piece(move), colour, Square.fromBitIndex(from(move)), Square.fromBitIndex(to(move)), capturedPiece(move));
+			if (isPromotion(move)) {
+				m.setPromotionPiece(promotedPiece(move));
+			}
+		}
+		m.setCheck(isCheck(move));
+		return m;
+	}
+
+	/**
+	 * Encodes a {@link Move} object.
+	 *
+	 * @param move the move
+	 * @return the encoded move
+	 */
+	public static int fromMove(Move move) {
+		int encoded;
+		if (move.isCastleKingsSide()) {
+			encoded = castleKingsSide(move.getColour());
+		} else if (move.isCastleQueensSide()) {
+			encoded = castleQueensSide(move.getColour());
+		} else if (move.isEnpassant()) {
+			encoded = enpassant(move.getColour(), move.from().bitIndex(), move.to().bitIndex());
+		} else if (move.isPromotion()) {
+			encoded = promotion(move.getColour(), move.from().bitIndex(), move.to().bitIndex(),
+					move.isCapture() ? move.getCapturedPiece() : null, move.getPromotedPiece());
+		} else if (move.isCapture()) {
+			encoded = capture(move.getPiece(), move.getColour(), move.from().bitIndex(), move.to().bitIndex(), move.getCapturedPiece());
+		} else {
+			encoded = of(move.getPiece(), move.getColour(), move.from().bitIndex(), move.to().bitIndex());
+		}
+		return move.isCheck() ? withCheck(encoded) : encoded;
+	}
+
+	/**
+	 * @param move the encoded move
+	 * @return string representation, as {@link Move#toString()}.
+	 */
+	public static String toString(int move) {
+		return toMove(move).toString();
+	}
+}
@@ -0,0 +1,255 @@
+package org.rjo.chess.base.bits;
+
+import org.rjo.chess.base.Square;
+
+/**
+ * Static, allocation-free operations on a bitboard stored as a primitive <code>long</code>. Uses the same mapping as
+ * {@link BitBoard}, i.e. bit index 0 == a1, 7 == h1, 56 == a8, 63 == h8.
+ * <p>
+ * To iterate over the set bits of a bitboard:
+ *
+ * <pre>
+ * for (long bb = pieces; bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+ * 	int bitIndex = LongBitBoard.lowestBit(bb);
+ * 	...
+ * }
+ * </pre>
+ *
+ * @author rich
+ * @since 2026-10-16
+ */
+public final class LongBitBoard {
+
+	/** no bits set */
+	public static final long EMPTY = 0L;
+
+	/** all bits set */
+	public static final long ALL = -1L;
+
+	/** the first file (a-file) */
+	public static final long FILE_A = 0x0101010101010101L;
+
+	/** the last file (h-file) */
+	public static final long FILE_H = FILE_A << 7;
+
+	/** the first rank */
+	public static final long RANK_1 = 0xFFL;
+
+	/** the last rank */
+	public static final long RANK_8 = RANK_1 << 56;
+
+	/**
+	 * Each <code>file</code> of the board. FILE[0] == a-file.
+	 */
+	public static final long[] FILE = new long[8];
+
+	/**
+	 * Every <code>file</code> of the board <b>except</b> the file of the array index. The opposite of FILE.
+	 */
+	public static final long[] EXCEPT_FILE = new long[8];
+
+	/**
+	 * Each <code>rank</code> of the board. RANK[0] == first rank.
+	 */
+	public static final long[] RANK = new long[8];
+
+	/**
+	 * Every <code>rank</code> of the board <b>except</b> the rank of the array index. The opposite of RANK.
+	 */
+	public static final long[] EXCEPT_RANK = new long[8];
+
+	static {
+		for (int i = 0; i < 8; i++) {
+			FILE[i] = FILE_A << i;
+			EXCEPT_FILE[i] = ~FILE[i];
+			RANK[i] = RANK_1 << (8 * i);
+			EXCEPT_RANK[i] = ~RANK[i];
+		}
+	}
+
+	private LongBitBoard() {
+	}
+
+	/**
+	 * @param bitIndex the bit index (0..63)
+	 * @return a bitboard with just the given bit set.
+	 */
+	public static long bit(int bitIndex) {
+		return 1L << bitIndex;
+	}
+
+	/**
+	 * @param square the square
+	 * @return a bitboard with just the bit of the given square set.
+	 */
+	public static long bit(Square square) {
+		return 1L << square.bitIndex();
+	}
+
+	/**
+	 * @param squares a number of squares
+	 * @return a bitboard with the bits of all the given squares set.
+	 */
+	public static long of(Square... squares) {
+		long bb = 0L;
+		for (Square sq : squares) {
+			bb |= 1L << sq.bitIndex();
+		}
+		return bb;
+	}
+
+	/**
+	 * @param bb the bitboard
+	 * @param bitIndex the bit index
+	 * @return true if the given bit is set.
+	 */
+	public static boolean isSet(long bb,
+			int bitIndex) {
+		return (bb & (1L << bitIndex)) != 0;
+	}
+
+	/**
+	 * @param bb the bitboard
+	 * @param bitIndex the bit index
+	 * @return the bitboard with the given bit set.
+	 */
+	public static long set(long bb,
+			int bitIndex) {
+		return bb | (1L << bitIndex);
+	}
+
+	/**
+	 * @param bb the bitboard
+	 * @param bitIndex the bit index
+	 * @return the bitboard with the given bit cleared.
+	 */
+	public static long clear(long bb,
+			int bitIndex) {
+		return bb & ~(1L << bitIndex);
+	}
+
+	/**
+	 * @param bb the bitboard
+	 * @return the number of set bits.
+	 */
+	public static int popCount(long bb) {
+		return Long.bitCount(bb);
+	}
+
+	/**
+	 * Bit-scan forward.
+	 *
+	 * @param bb the bitboard
+	 * @return the index of the lowest set bit, or 64 if <code>bb</code> is empty.
+	 */
+	public static int lowestBit(long bb) {
+		return Long.numberOfTrailingZeros(bb);
+	}
+
+	/**
+	 * Bit-scan reverse.
+	 *
+	 * @param bb the bitboard
+	 * @return the index of the highest set bit, or -1 if <code>bb</code> is empty.
+	 */
+	public static int highestBit(long bb) {
+		return 63 - Long.numberOfLeadingZeros(bb);
+	}
+
+	/**
+	 * @param bb the bitboard
+	 * @return the bitboard with its lowest set bit cleared.
+	 */
+	public static long clearLowestBit(long bb) {
+		return bb & (bb - 1);
+	}
+
+	/**
+	 * General method to shift bits.
+	 *
+	 * @param bb the bitboard
+	 * @param shift how much to shift. Positive == towards h8 (<<). Negative == towards a1 (>>>).
+	 * @return the shifted bitboard. Bits shifted off the board are lost; no wrapping-check on the files is done.
+	 */
+	public static long shift(long bb,
+			int shift) {
+		return shift < 0 ? bb >>> -shift : bb << shift;
+	}
+
+	/** one rank to the north. */
+	public static long shiftNorth(long bb) {
+		return bb << 8;
+	}
+
+	/** one rank to the south. */
+	public static long shiftSouth(long bb) {
+		return bb >>> 8;
+	}
+
+	/** one file to the east. The h-file does not get wrapped. */
+	public static long shiftEast(long bb) {
+		return (bb & ~FILE_H) << 1;
+	}
+
+	/** one file to the west. The a-file does not get wrapped. */
+	public static long shiftWest(long bb) {
+		return (bb & ~FILE_A) >>> 1;
+	}
+
+	/** one square to the north-east. The h-file does not get wrapped. */
+	public static long shiftNorthEast(long bb) {
+		return (bb & ~FILE_H) << 9;
+	}
+
+	/** one square to the north-west. The a-file does not get wrapped. */
+	public static long shiftNorthWest(long bb) {
+		return (bb & ~FILE_A) << 7;
+	}
+
+	/** one square to the south-east. The h-file does not get wrapped. */
+	public static long shiftSouthEast(long bb) {
+		return (bb & ~FILE_H) >>> 7;
+	}
+
+	/** one square to the south-west. The a-file does not get wrapped. */
+	public static long shiftSouthWest(long bb) {
+		return (bb & ~FILE_A) >>> 9;
+	}
+
+	/** the set bits and all squares to the north of them. */
+	public static long northFill(long bb) {
+		bb |= bb << 8;
+		bb |= bb << 16;
+		bb |= bb << 32;
+		return bb;
+	}
+
+	/** the set bits and all squares to the south of them. */
+	public static long southFill(long bb) {
+		bb |= bb >>> 8;
+		bb |= bb >>> 16;
+		bb |= bb >>> 32;
+		return bb;
+	}
+
+	/** all squares on the files of the set bits. */
+	public static long fileFill(long bb) {
+		return northFill(bb) | southFill(bb);
+	}
+
+	/**
+	 * @param bb the bitboard
+	 * @return a BitBoard object with the same bits set. Mainly for display purposes and legacy code.
+	 */
+	public static BitBoard toBitBoard(long bb) {
+		return new BitBoard(bb);
+	}
+
+	/**
+	 * @param bb the bitboard
+	 * @return a string representation of the bitboard.
+	 */
+	public static String display(long bb) {
+		return BitBoard.display(BitSetFactory.createBitSet(new long[] { bb }));
+	}
+}
@@ -0,0 +1,216 @@
+package org.rjo.chess.base.bits;
+
+/**
+ * Precomputed sliding-piece attack tables using 'fancy' magic bitboards.
+ * <p>
+ * For each square, the relevant occupancy (the squares along the rook or bishop rays, excluding the edge of the board)
+ * is multiplied by a magic number and shifted down to give an index into a table of attack bitboards. The attack set
+ * of a rook, bishop or queen for any occupancy is therefore found with one multiplication and one table lookup.
+ * <p>
+ * The magic numbers are found at class-initialisation time by a seeded random search, so the tables are identical on
+ * each run. See https://www.chessprogramming.org/Magic_Bitboards.
+ * <p>
+ * Bit layout as {@link LongBitBoard}, i.e. bit index 0 == a1, 63 == h8.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public final class MagicBitBoard {
+
+	/** directions (file delta, rank delta) of the rook rays */
+	private static final int[][] ROOK_DIRECTIONS = { { 0, 1 }, { 1, 0 }, { 0, -1 }, { -1, 0 } };
+	/** directions (file delta, rank delta) of the bishop rays */
+	private static final int[][] BISHOP_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, -1 }, { -1, 1 } };
+
+	private static final long[] ROOK_MASK = new long[64];
+	private static final long[] ROOK_MAGIC = new long[64];
+	private static final int[] ROOK_SHIFT = new int[64];
+	private static final long[][] ROOK_ATTACKS = new long[64][];
+
+	private static final long[] BISHOP_MASK = new long[64];
+	private static final long[] BISHOP_MAGIC = new long[64];
+	private static final int[] BISHOP_SHIFT = new int[64];
+	private static final long[][] BISHOP_ATTACKS = new long[64][];
+
+	static {
+		// fixed seed: the same magics are found each time
+		long[] seed = { 0x9E3779B97F4A7C15L };
+		for (int sq = 0; sq < 64; sq++) {
+			ROOK_MASK[sq] = relevantOccupancyMask(sq, ROOK_DIRECTIONS);
+			ROOK_SHIFT[sq] = 64 - Long.bitCount(ROOK_MASK[sq]);
+			ROOK_ATTACKS[sq] = new long[1 << Long.bitCount(ROOK_MASK[sq])];
+			ROOK_MAGIC[sq] = findMagic(sq, ROOK_MASK[sq], ROOK_SHIFT[sq], ROOK_DIRECTIONS, ROOK_ATTACKS[sq], seed);
+
+			BISHOP_MASK[sq] = relevantOccupancyMask(sq, BISHOP_DIRECTIONS);
+			BISHOP_SHIFT[sq] = 64 - Long.bitCount(BISHOP_MASK[sq]);
+			BISHOP_ATTACKS[sq] = new long[1 << Long.bitCount(BISHOP_MASK[sq])];
+			BISHOP_MAGIC[sq] = findMagic(sq, BISHOP_MASK[sq], BISHOP_SHIFT[sq], BISHOP_DIRECTIONS, BISHOP_ATTACKS[sq], seed);
+		}
+	}
+
+	private MagicBitBoard() {
+	}
+
+	/**
+	 * The squares attacked by a rook on the given square.
+	 *
+	 * @param bitIndex where the rook is
+	 * @param occupied bitboard of all occupied squares
+	 * @return bitboard of attacked squares. This includes the first occupied square on each ray, regardless of colour.
+	 */
+	public static long rookAttacks(int bitIndex,
+			long occupied) {
+		return ROOK_ATTACKS[bitIndex][(int) (((occupied & ROOK_MASK[bitIndex]) * ROOK_MAGIC[bitIndex]) >>> ROOK_SHIFT[bitIndex])];
+	}
+
+	/**
+	 * The squares attacked by a bishop on the given square.
+	 *
+	 * @param bitIndex where the bishop is
+	 * @param occupied bitboard of all occupied squares
+	 * @return bitboard of attacked squares. This includes the first occupied square on each ray, regardless of colour.
+	 */
+	public static long bishopAttacks(int bitIndex,
+			long occupied) {
+		return BISHOP_ATTACKS[bitIndex][(int) (((occupied & BISHOP_MASK[bitIndex]) * BISHOP_MAGIC[bitIndex]) >>> BISHOP_SHIFT[bitIndex])];
+	}
+
+	/**
+	 * The squares attacked by a queen on the given square.
+	 *
+	 * @param bitIndex where the queen is
+	 * @param occupied bitboard of all occupied squares
+	 * @return bitboard of attacked squares. This includes the first occupied square on each ray, regardless of colour.
+	 */
+	public static long queenAttacks(int bitIndex,
+			long occupied) {
+		return rookAttacks(bitIndex, occupied) | bishopAttacks(bitIndex, occupied);
+	}
+
+	/**
+	 * Calculates the attacks by walking each ray from the given square until the edge of the board or an occupied square
+	 * is reached. Only used to fill the tables (and in tests).
+	 *
+	 * @param bitIndex start square
+	 * @param occupied occupied squares
+	 * @param directions the ray directions
+	 * @return the attacked squares
+	 */
+	static long slowAttacks(int bitIndex,
+			long occupied,
+			int[][] directions) {
+		long attacks = 0;
+		int file = bitIndex & 7;
+		int rank = bitIndex >>> 3;
+		for (int[] dir : directions) {
+			int f = file + dir[0];
+			int r = rank + dir[1];
+			while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+				int sq = r * 8 + f;
+				attacks |= 1L << sq;
+				if ((occupied & (1L << sq)) != 0) {
+					break;
+				}
+				f += dir[0];
+				r += dir[1];
+			}
+		}
+		return attacks;
+	}
+
+	static long slowRookAttacks(int bitIndex,
+			long occupied) {
+		return slowAttacks(bitIndex, occupied, ROOK_DIRECTIONS);
+	}
+
+	static long slowBishopAttacks(int bitIndex,
+			long occupied) {
+		return slowAttacks(bitIndex, occupied, BISHOP_DIRECTIONS);
+	}
+
+	/**
+	 * The squares along the rays from the given square which can influence the attacks, i.e. without the last square on
+	 * each ray (a piece on the edge of the board blocks nothing).
+	 */
+	private static long relevantOccupancyMask(int bitIndex,
+			int[][] directions) {
+		long mask = 0;
+		int file = bitIndex & 7;
+		int rank = bitIndex >>> 3;
+		for (int[] dir : directions) {
+			int f = file + dir[0];
+			int r = rank + dir[1];
+			while (f + dir[0] >= 0 && f + dir[0] < 8 && r + dir[1] >= 0 && r + dir[1] < 8) {
+				mask |= 1L << (r * 8 + f);
+				f += dir[0];
+				r += dir[1];
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Searches for a magic number for the given square and fills the attack table.
+	 *
+	 * @param bitIndex the square
+	 * @param mask relevant occupancy mask
+	 * @param shift 64 - number of bits in the mask
+	 * @param directions the ray directions
+	 * @param table the attack table to fill, size 2^(bits in mask)
+	 * @param seed random seed, updated in place
+	 * @return the magic number
+	 */
+	private static long findMagic(int bitIndex,
+			long mask,
+			int shift,
+			int[][] directions,
+			long[] table,
+			long[] seed) {
+		int size = table.length;
+		long[] occupancies = new long[size];
+		long[] attacks = new long[size];
+		// enumerate all subsets of the mask (Carry-Rippler)
+		long subset = 0;
+		for (int i = 0; i < size; i++) {
+			occupancies[i] = subset;
+			attacks[i] = slowAttacks(bitIndex, subset, directions);
+			subset = (subset - mask) & mask;
+		}
+
+		int[] epoch = new int[size];
+		for (int attempt = 1;; attempt++) {
+			long magic = sparseRandom(seed);
+			if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+				continue;
+			}
+			boolean ok = true;
+			for (int i = 0; ok && i < size; i++) {
+				int index = (int) ((occupancies[i] * magic) >>> shift);
+				if (epoch[index] < attempt) {
+					epoch[index] = attempt;
+					table[index] = attacks[i];
+				} else if (table[index] != attacks[i]) {
+					ok = false;
+				}
+			}
+			if (ok) {
+				return magic;
+			}
+		}
+	}
+
+	/** a random number with relatively few bits set, which makes a good magic candidate */
+	private static long sparseRandom(long[] seed) {
+		return nextRandom(seed) & nextRandom(seed) & nextRandom(seed);
+	}
+
+	/** xorshift64* */
+	private static long nextRandom(long[] seed) {
+		long x = seed[0];
+		x ^= x >>> 12;
+		x ^= x << 25;
+		x ^= x >>> 27;
+		seed[0] = x;
+		return x * 0x2545F4914F6CDD1DL;
+	}
+}
@@ -7,8 +7,9 @@ import java.util.List;
 
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitBoard;
+import org.rjo.chess.base.bits.BitSetFactory;
 import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.base.ray.impl.EastRay;
 import org.rjo.chess.base.ray.impl.NorthEastRay;
 import org.rjo.chess.base.ray.impl.NorthRay;
@@ -33,8 +34,11 @@ public class RayUtils {
 	// SQUARES_ON_RAY[a1][c3] delivers the squares between a1 and c3 -- b2 and c3 in this case.
 	private final static List<Integer>[][] SQUARES_ON_RAY = new List[64][64];
 
-	// this is the same info as SQUARES_ON_RAY, but stored as a bitset
-	private final static BitSetUnifier[][] BITSET_SQUARES_ON_RAY = new BitSetUnifier[64][64];
+	// this is the same info as SQUARES_ON_RAY, but stored as a bitboard
+	private final static long[][] BITBOARD_SQUARES_ON_RAY = new long[64][64];
+
+	// for each ray type and start square, a bitboard of the squares on the ray (start square not included)
+	private final static long[][] RAY_MASKS = new long[RayType.values().length][64];
 
 	private static final Ray[] rays = new Ray[RayType.values().length];
 
@@ -61,6 +65,14 @@ public class RayUtils {
 
 	// set up static lookups
 	static {
+		for (RayType rayType : RayType.values()) {
+			for (int sq = 0; sq < 64; sq++) {
+				Iterator<Integer> iter = getRay(rayType).squaresFrom(sq);
+				while (iter.hasNext()) {
+					RAY_MASKS[rayType.getIndex()][sq] |= LongBitBoard.bit(iter.next());
+				}
+			}
+		}
 		for (int sq1 = 0; sq1 < 64; sq1++) {
 			for (int sq2 = 0; sq2 < 64; sq2++) {
 				if (sq1 == sq2) {
@@ -91,9 +103,9 @@ public class RayUtils {
 					if (found) {
 						SQUARES_ON_RAY[sq1][sq2] = Collections.unmodifiableList(squaresFound);
 						// System.out.println(sq1 + " -> " + sq2 + ": " + SQUARES_ON_RAY[sq1][sq2]);
-						BitBoard bb = new BitBoard();
-						squaresFound.forEach(sq -> bb.setBitsAt(Square.fromBitIndex(sq)));
-						BITSET_SQUARES_ON_RAY[sq1][sq2] = bb.getBitSet();
+						for (int sq : squaresFound) {
+							BITBOARD_SQUARES_ON_RAY[sq1][sq2] |= LongBitBoard.bit(sq);
+						}
 					}
 				}
 			}
@@ -104,6 +116,55 @@ public class RayUtils {
 
 	}
 
+	/**
+	 * The squares along a ray.
+	 *
+	 * @param rayType the ray type
+	 * @param startSquare index of start square
+	 * @return bitboard of all squares on the ray from <code>startSquare</code> to the edge of the board (not including
+	 *         <code>startSquare</code>).
+	 */
+	public static long rayMask(RayType rayType,
+			int startSquare) {
+		return RAY_MASKS[rayType.getIndex()][startSquare];
+	}
+
+	/**
+	 * Finds the first occupied square on the ray from <code>startSquare</code>, by masking the occupied squares with the
+	 * ray and bit-scanning in the direction of the ray.
+	 *
+	 * @param rayType the ray type
+	 * @param startSquare index of start square
+	 * @param occupied bitboard of occupied squares
+	 * @return index of the first occupied square on the ray (not including <code>startSquare</code>), or -1 if all squares
+	 *         on the ray are empty.
+	 */
+	public static int firstBlocker(RayType rayType,
+			int startSquare,
+			long occupied) {
+		long blockers = RAY_MASKS[rayType.getIndex()][startSquare] & occupied;
+		if (rayType.isBitIndicesIncrease()) {
+			return blockers == 0 ? -1 : LongBitBoard.lowestBit(blockers);
+		}
+		return LongBitBoard.highestBit(blockers);
+	}
+
+	/**
+	 * The squares on the ray from <code>startSquare</code> up to and including the first occupied square.
+	 *
+	 * @param rayType the ray type
+	 * @param startSquare index of start square
+	 * @param occupied bitboard of occupied squares
+	 * @return bitboard of the squares reachable along this ray, including the blocking square (if any).
+	 */
+	public static long squaresUpToFirstBlocker(RayType rayType,
+			int startSquare,
+			long occupied) {
+		int blocker = firstBlocker(rayType, startSquare, occupied);
+		long ray = RAY_MASKS[rayType.getIndex()][startSquare];
+		return blocker == -1 ? ray : ray & ~RAY_MASKS[rayType.getIndex()][blocker];
+	}
+
 	/**
 	 * Inspects the squares returned by the ray's iterator. A square with a piece on it gets recorded and the routine
 	 * returns immediately. Otherwise, the empty square is recorded and the search repeats for the next value.
@@ -112,6 +173,9 @@ public class RayUtils {
 	 * The piece type is not recorded here since this would require an extra lookup. Instead, the square and the colour of
 	 * the piece are recorded.
 	 * <p>
+	 * This allocates a RayInfo object and walks the ray square by square. Where the empty squares are not required, use
+	 * {@link #firstBlocker(RayType, int, long)} instead.
+	 * <p>
 	 * Special case: if called with emptySquares=BitSet(-1) and myPieces=opponentsPieces=BitSet(0), then this routine will
 	 * return all squares for this ray.
 	 * <p>
@@ -177,13 +241,28 @@ public class RayUtils {
 		return ORTHOGONAL_RAYS_BETWEEN_SQUARES[sq1.bitIndex()][sq2.bitIndex()];
 	}
 
+	/**
+	 * @param sq1 first square
+	 * @param sq2 second square
+	 * @return bitboard of the squares between sq1 and sq2 (not including sq1 or sq2). Empty if not on a ray.
+	 */
+	public static long squaresBetween(Square sq1,
+			Square sq2) {
+		return BITBOARD_SQUARES_ON_RAY[sq1.bitIndex()][sq2.bitIndex()];
+	}
+
+	public static long squaresBetween(int sq1,
+			int sq2) {
+		return BITBOARD_SQUARES_ON_RAY[sq1][sq2];
+	}
+
 	public static BitSetUnifier getBitSetOfSquaresBetween(Square sq1,
 			Square sq2) {
-		return BITSET_SQUARES_ON_RAY[sq1.bitIndex()][sq2.bitIndex()];
+		return getBitSetOfSquaresBetween(sq1.bitIndex(), sq2.bitIndex());
 	}
 
 	public static BitSetUnifier getBitSetOfSquaresBetween(int sq1,
 			int sq2) {
-		return BITSET_SQUARES_ON_RAY[sq1][sq2];
+		return BitSetFactory.createBitSet(new long[] { BITBOARD_SQUARES_ON_RAY[sq1][sq2] });
 	}
 }
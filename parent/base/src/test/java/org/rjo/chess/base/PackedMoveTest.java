@@ -0,0 +1,98 @@
+package org.rjo.chess.base;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PackedMoveTest {
+
+	@Test
+	public void normalMove() {
+		int move = PackedMove.of(PieceType.KNIGHT, Colour.BLACK, Square.g8.bitIndex(), Square.f6.bitIndex());
+		assertEquals(Square.g8.bitIndex(), PackedMove.from(move));
+		assertEquals(Square.f6.bitIndex(), PackedMove.to(move));
+		assertEquals(PieceType.KNIGHT, PackedMove.piece(move));
+		assertEquals(Colour.BLACK, PackedMove.colour(move));
+		assertFalse(PackedMove.isCapture(move));
+		assertNull(PackedMove.capturedPiece(move));
+		assertFalse(PackedMove.isPromotion(move));
+		assertFalse(PackedMove.isCheck(move));
+		assertEquals("Ng8-f6", PackedMove.toString(move));
+	}
+
+	@Test
+	public void captureWithPromotionAndCheck() {
+		int move = PackedMove.withCheck(PackedMove.promotion(Colour.WHITE, Square.b7.bitIndex(), Square.a8.bitIndex(), PieceType.ROOK,
+				PieceType.QUEEN));
+		assertEquals(PieceType.PAWN, PackedMove.piece(move));
+		assertEquals(PieceType.ROOK, PackedMove.capturedPiece(move));
+		assertEquals(PieceType.QUEEN, PackedMove.promotedPiece(move));
+		assertTrue(PackedMove.isCheck(move));
+		assertFalse(PackedMove.isCheck(PackedMove.withoutCheck(move)));
+		assertEquals("b7xa8=Q+", PackedMove.toString(move));
+	}
+
+	@Test
+	public void checkStatus() {
+		int move = PackedMove.of(PieceType.QUEEN, Colour.WHITE, Square.d1.bitIndex(), Square.h5.bitIndex());
+		// not determined when the move is created
+		assertFalse(PackedMove.isCheckKnown(move));
+		assertTrue(PackedMove.isCheckKnown(PackedMove.withCheckStatus(move, false)));
+		assertFalse(PackedMove.isCheck(PackedMove.withCheckStatus(move, false)));
+		assertTrue(PackedMove.isCheck(PackedMove.withCheckStatus(move, true)));
+		assertTrue(PackedMove.isCheckKnown(PackedMove.withCheck(move)));
+		// the move itself is the same
+		assertEquals(move, PackedMove.withoutCheck(PackedMove.withCheckStatus(move, false)));
+		assertEquals(move, PackedMove.withoutCheck(PackedMove.withCheckStatus(move, true)));
+	}
+
+	@Test
+	public void castlingAndEnpassant() {
+		int castle = PackedMove.castleQueensSide(Colour.BLACK);
+		assertTrue(PackedMove.isCastle(castle));
+		assertEquals(Square.d8.bitIndex(), PackedMove.rooksCastlingDestination(castle));
+		assertEquals(Square.f1.bitIndex(), PackedMove.rooksCastlingDestination(PackedMove.castleKingsSide(Colour.WHITE)));
+
+		int ep = PackedMove.enpassant(Colour.WHITE, Square.e5.bitIndex(), Square.d6.bitIndex());
+		assertTrue(PackedMove.isEnpassant(ep));
+		assertEquals(PieceType.PAWN, PackedMove.capturedPiece(ep));
+		assertEquals(Square.d5.bitIndex(), PackedMove.pawnCapturedEnpassant(ep));
+	}
+
+	@Test
+	public void roundTrip() {
+		Move[] moves = new Move[] { new Move(PieceType.ROOK, Colour.WHITE, Square.a1, Square.a5),
+				new Move(PieceType.BISHOP, Colour.BLACK, Square.c8, Square.h3, PieceType.KNIGHT, true), Move.castleKingsSide(Colour.WHITE),
+				Move.castleQueensSide(Colour.BLACK), Move.enpassant(Colour.BLACK, Square.d4, Square.e3) };
+		for (Move move : moves) {
+			int packed = PackedMove.fromMove(move);
+			assertEquals(move.toString(), PackedMove.toString(packed));
+			assertEquals(packed, PackedMove.fromMove(PackedMove.toMove(packed)));
+		}
+	}
+
+	@Test
+	public void moveList() {
+		MoveList list = new MoveList(2);
+		int move1 = PackedMove.of(PieceType.PAWN, Colour.WHITE, Square.e2.bitIndex(), Square.e4.bitIndex());
+		int move2 = PackedMove.of(PieceType.KNIGHT, Colour.WHITE, Square.g1.bitIndex(), Square.f3.bitIndex());
+		int move3 = PackedMove.capture(PieceType.QUEEN, Colour.WHITE, Square.d1.bitIndex(), Square.d8.bitIndex(), PieceType.QUEEN);
+		list.add(move1);
+		list.add(move2);
+		list.add(move3); // grows the list
+		assertEquals(3, list.size());
+		assertTrue(list.contains(PackedMove.withCheck(move2)));
+		list.swap(0, 2);
+		assertEquals(move3, list.get(0));
+		assertEquals("[Qd1xd8, Ng1-f3, e2-e4]", list.toString());
+		list.truncate(1);
+		assertEquals(1, list.toMoves().size());
+		assertThrows(IllegalArgumentException.class, () -> list.truncate(2));
+		list.clear();
+		assertTrue(list.isEmpty());
+	}
+}
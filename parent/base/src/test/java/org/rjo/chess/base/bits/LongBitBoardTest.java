@@ -0,0 +1,82 @@
+package org.rjo.chess.base.bits;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.Square;
+
+public class LongBitBoardTest {
+
+	@Test
+	public void fileAndRankMasksMatchBitBoard() {
+		for (int i = 0; i < 8; i++) {
+			assertEquals(new BitBoard(BitBoard.FILE[i]).toLong(), LongBitBoard.FILE[i], "file " + i);
+			assertEquals(new BitBoard(BitBoard.EXCEPT_FILE[i]).toLong(), LongBitBoard.EXCEPT_FILE[i], "except file " + i);
+			assertEquals(new BitBoard(BitBoard.RANK[i]).toLong(), LongBitBoard.RANK[i], "rank " + i);
+			assertEquals(new BitBoard(BitBoard.EXCEPT_RANK[i]).toLong(), LongBitBoard.EXCEPT_RANK[i], "except rank " + i);
+		}
+	}
+
+	@Test
+	public void setAndClear() {
+		long bb = LongBitBoard.set(0L, Square.e4.bitIndex());
+		assertTrue(LongBitBoard.isSet(bb, Square.e4.bitIndex()));
+		assertFalse(LongBitBoard.isSet(bb, Square.e5.bitIndex()));
+		assertEquals(0L, LongBitBoard.clear(bb, Square.e4.bitIndex()));
+		assertEquals(LongBitBoard.of(Square.a1, Square.h8), LongBitBoard.bit(Square.a1) | LongBitBoard.bit(63));
+	}
+
+	@Test
+	public void bitScan() {
+		long bb = LongBitBoard.of(Square.b2, Square.e4, Square.g7);
+		assertEquals(3, LongBitBoard.popCount(bb));
+		assertEquals(Square.b2.bitIndex(), LongBitBoard.lowestBit(bb));
+		assertEquals(Square.g7.bitIndex(), LongBitBoard.highestBit(bb));
+		assertEquals(-1, LongBitBoard.highestBit(0L));
+		assertEquals(64, LongBitBoard.lowestBit(0L));
+
+		List<Integer> found = new ArrayList<>();
+		for (long tmp = bb; tmp != 0; tmp = LongBitBoard.clearLowestBit(tmp)) {
+			found.add(LongBitBoard.lowestBit(tmp));
+		}
+		assertEquals(List.of(Square.b2.bitIndex(), Square.e4.bitIndex(), Square.g7.bitIndex()), found);
+	}
+
+	@Test
+	public void fills() {
+		long bb = LongBitBoard.of(Square.c3);
+		assertEquals(LongBitBoard.of(Square.c3, Square.c4, Square.c5, Square.c6, Square.c7, Square.c8), LongBitBoard.northFill(bb));
+		assertEquals(LongBitBoard.of(Square.c1, Square.c2, Square.c3), LongBitBoard.southFill(bb));
+		assertEquals(LongBitBoard.FILE[2], LongBitBoard.fileFill(bb));
+		assertEquals(LongBitBoard.FILE_A | LongBitBoard.FILE_H, LongBitBoard.fileFill(LongBitBoard.of(Square.a8, Square.h1)));
+	}
+
+	@Test
+	public void shiftsMatchBitSetHelper() {
+		long[] testValues = { -1L, 0x8100000000000081L, LongBitBoard.of(Square.a1, Square.h1, Square.d4, Square.a8, Square.h8),
+				0x123456789ABCDEFL };
+		for (long bb : testValues) {
+			BitSetUnifier bs = BitSetFactory.createBitSet(new long[] { bb });
+			assertEquals(toLong(BitSetHelper.shiftOneNorth(bs)), LongBitBoard.shiftNorth(bb));
+			assertEquals(toLong(BitSetHelper.shiftOneSouth(bs)), LongBitBoard.shiftSouth(bb));
+			assertEquals(toLong(BitSetHelper.shiftOneEast(bs)), LongBitBoard.shiftEast(bb));
+			assertEquals(toLong(BitSetHelper.shiftOneWest(bs)), LongBitBoard.shiftWest(bb));
+			assertEquals(toLong(BitSetHelper.shiftOneNorthEast(bs)), LongBitBoard.shiftNorthEast(bb));
+			assertEquals(toLong(BitSetHelper.shiftOneNorthWest(bs)), LongBitBoard.shiftNorthWest(bb));
+			assertEquals(toLong(BitSetHelper.shiftOneSouthEast(bs)), LongBitBoard.shiftSouthEast(bb));
+			assertEquals(toLong(BitSetHelper.shiftOneSouthWest(bs)), LongBitBoard.shiftSouthWest(bb));
+			assertEquals(toLong(BitSetHelper.shift(bs, 3)), LongBitBoard.shift(bb, 3));
+			assertEquals(toLong(BitSetHelper.shift(bs, -3)), LongBitBoard.shift(bb, -3));
+		}
+	}
+
+	private static long toLong(BitSetUnifier bs) {
+		long[] arr = bs.toLongArray();
+		return arr.length == 0 ? 0L : arr[0];
+	}
+}
@@ -0,0 +1,47 @@
+package org.rjo.chess.base.bits;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.Square;
+
+public class MagicBitBoardTest {
+
+	@Test
+	public void rookOnEmptyBoard() {
+		long expected = (LongBitBoard.FILE[Square.d4.file()] | LongBitBoard.RANK[Square.d4.rank()]) & ~LongBitBoard.bit(Square.d4);
+		assertEquals(expected, MagicBitBoard.rookAttacks(Square.d4.bitIndex(), 0L));
+	}
+
+	@Test
+	public void bishopIsBlocked() {
+		long occupied = LongBitBoard.of(Square.f6, Square.b2, Square.g1);
+		long expected = LongBitBoard.of(Square.e5, Square.f6, Square.c3, Square.b2, Square.e3, Square.f2, Square.g1,
+				Square.c5, Square.b6, Square.a7);
+		assertEquals(expected, MagicBitBoard.bishopAttacks(Square.d4.bitIndex(), occupied));
+	}
+
+	@Test
+	public void queenIsRookPlusBishop() {
+		long occupied = LongBitBoard.of(Square.d7, Square.h4, Square.b6, Square.d2);
+		assertEquals(MagicBitBoard.rookAttacks(Square.d4.bitIndex(), occupied)
+				| MagicBitBoard.bishopAttacks(Square.d4.bitIndex(), occupied),
+				MagicBitBoard.queenAttacks(Square.d4.bitIndex(), occupied));
+	}
+
+	@Test
+	public void matchesRayWalkForRandomOccupancies() {
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			long occupied = random.nextLong() & random.nextLong();
+			for (int sq = 0; sq < 64; sq++) {
+				assertEquals(MagicBitBoard.slowRookAttacks(sq, occupied), MagicBitBoard.rookAttacks(sq, occupied),
+						"rook on " + sq);
+				assertEquals(MagicBitBoard.slowBishopAttacks(sq, occupied), MagicBitBoard.bishopAttacks(sq, occupied),
+						"bishop on " + sq);
+			}
+		}
+	}
+}
@@ -10,6 +10,7 @@ import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.bits.BitSetFactory;
 import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 
 public class RayTest {
 
@@ -20,6 +21,34 @@ public class RayTest {
 		assertEquals(RayType.SOUTHEAST, ray.getRayType());
 	}
 
+	@Test
+	public void firstBlocker() {
+		long occupied = LongBitBoard.of(Square.d7, Square.b4, Square.a1);
+		assertEquals(Square.d7.bitIndex(), RayUtils.firstBlocker(RayType.NORTH, Square.d2.bitIndex(), occupied));
+		assertEquals(Square.b4.bitIndex(), RayUtils.firstBlocker(RayType.WEST, Square.h4.bitIndex(), occupied));
+		assertEquals(Square.a1.bitIndex(), RayUtils.firstBlocker(RayType.SOUTHWEST, Square.h8.bitIndex(), occupied));
+		assertEquals(-1, RayUtils.firstBlocker(RayType.SOUTH, Square.d2.bitIndex(), occupied));
+		assertEquals(LongBitBoard.of(Square.d3, Square.d4, Square.d5, Square.d6, Square.d7),
+				RayUtils.squaresUpToFirstBlocker(RayType.NORTH, Square.d2.bitIndex(), occupied));
+		assertEquals(LongBitBoard.of(Square.c2, Square.d3, Square.e4, Square.f5), RayUtils.squaresBetween(Square.b1, Square.g6));
+	}
+
+	@Test
+	public void firstBlockerMatchesRayWalk() {
+		Random rnd = new Random(17);
+		for (int i = 0; i < 500; i++) {
+			long occupied = rnd.nextLong() & rnd.nextLong();
+			BitSetUnifier emptySquares = BitSetFactory.createBitSet(new long[] { ~occupied });
+			BitSetUnifier myPieces = BitSetFactory.createBitSet(new long[] { occupied });
+			for (RayType rayType : RayType.values()) {
+				for (int sq = 0; sq < 64; sq++) {
+					RayInfo info = RayUtils.findFirstPieceOnRay(Colour.WHITE, emptySquares, myPieces, RayUtils.getRay(rayType), sq);
+					assertEquals(info.getIndexOfPiece(), RayUtils.firstBlocker(rayType, sq, occupied), rayType + " from " + sq);
+				}
+			}
+		}
+	}
+
 	@Test
 	public void speedOfGetRay() {
 		long start = System.currentTimeMillis();
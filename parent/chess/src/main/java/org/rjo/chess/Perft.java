@@ -19,6 +19,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.position.Fen;
 import org.rjo.chess.position.Game;
 import org.rjo.chess.position.Position;
@@ -176,7 +178,11 @@ public class Perft {
 	 * Find the number of possible moves at the given depth, starting at the current position given by <code>game</code>.
 	 * I.e., for a depth of 2 and start colour white, all of black's moves will be returned for each of the possible white
 	 * moves. NB: Only leaf nodes are counted.
+	 * <p>
+	 * Each call uses its own set of move lists (one per ply) and its own mutable copy of the position, so can be called
+	 * from several threads at once.
 	 *
+	 * @param move the move which led to this position
 	 * @param posn the game position
 	 * @param sideToMove the starting colour
 	 * @param depth the required depth to search
@@ -186,17 +192,44 @@ public class Perft {
 			final Position posn,
 			Colour sideToMove,
 			int depth) {
+		return new MoveResult(move,
+				countLeafNodes(posn.mutableCopy(), sideToMove, depth, MoveList.createPerPly(Math.max(depth, 1))));
+	}
+
+	/**
+	 * Counts the leaf nodes at the given depth.
+	 *
+	 * @param posn the game position. Must be mutable (see {@link Position#mutableCopy()}), the moves are made and unmade
+	 *           in place.
+	 * @param sideToMove the starting colour
+	 * @param depth the required depth to search
+	 * @param moveLists a preallocated move list for each ply. moveLists[depth-1] is used at this level.
+	 * @return the total number of moves (leaf nodes) found from this position.
+	 */
+	private static int countLeafNodes(final Position posn,
+			Colour sideToMove,
+			int depth,
+			MoveList[] moveLists) {
 		if (depth == 0) {
-			return new MoveResult(move, 1);
+			return 1;
+		}
+		MoveList moves = moveLists[depth - 1];
+		posn.findMoves(sideToMove, moves);
+		// no need to make the moves at the last ply (unless they're being logged)
+		if (depth == 1 && !isMoveLoggingEnabled()) {
+			return moves.size();
 		}
 		int totalMoves = 0;
-		for (Move newMove : posn.findMoves(sideToMove)) {
-			logMove(depth, newMove, posn);
-			Position posnAfterMove = posn.move(newMove);
-			MoveResult moveResult = findMovesInternal(newMove, posnAfterMove, Colour.oppositeColour(sideToMove), depth - 1);
-			totalMoves += moveResult.nbrMoves;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if (isMoveLoggingEnabled()) {
+				logMove(depth, PackedMove.toMove(move), posn);
+			}
+			posn.makeMove(move);
+			totalMoves += countLeafNodes(posn, Colour.oppositeColour(sideToMove), depth - 1, moveLists);
+			posn.unmakeMove();
 		}
-		return new MoveResult(move, totalMoves);
+		return totalMoves;
 	}
 
 	/**
@@ -210,10 +243,14 @@ public class Perft {
 		return nbrMoves;
 	}
 
+	private static boolean isMoveLoggingEnabled() {
+		return LOG_MOVES && MOVE_LOGGER.isDebugEnabled();
+	}
+
 	private static void logMove(int depth,
 			Move move,
 			Position posn) {
-		if (LOG_MOVES && MOVE_LOGGER.isDebugEnabled()) {
+		if (isMoveLoggingEnabled()) {
 			//			MOVE_LOGGER.debug(depth + " " + move + " " + Fen.encode(posn) + "\n" + posn.getCheckState()[0] + "\n" + posn.getCheckState()[1]);
 			MOVE_LOGGER.debug(depth + " " + move + " " + Fen.encode(posn));
 		}
@@ -24,10 +24,10 @@ public class SystemFlags {
 	public static final boolean USE_ZOBRIST = Boolean.parseBoolean(System.getProperty("useZobrist", "true"));
 
 	/**
-	 * if TRUE, the pre-calculated data structures moveMap, vertMoveMap are used (in Rook.java). Otherwise the ray algorithm
-	 * will be used.
+	 * if TRUE, the mobility in the evaluation only counts squares which are not attacked by enemy pawns. Otherwise all
+	 * squares which are not occupied by own pieces are counted.
 	 */
-	public static final boolean USE_MOVE_MAP = Boolean.parseBoolean(System.getProperty("useMoveMap", "false"));
+	public static final boolean SAFE_MOBILITY = Boolean.parseBoolean(System.getProperty("safeMobility", "true"));
 
 	/** if TRUE, the 'checkState' will be examined after a move to make sure everything's correct */
 	public static final boolean DEBUG_CHECK_STATE = false;
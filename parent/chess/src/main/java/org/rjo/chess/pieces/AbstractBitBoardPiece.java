@@ -1,14 +1,11 @@
 package org.rjo.chess.pieces;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 
 /**
  * Base class for all pieces which use a BitBoard to store the piece locations.
@@ -19,100 +16,100 @@ import org.rjo.chess.base.bits.BitSetUnifier;
 public abstract class AbstractBitBoardPiece extends AbstractPiece {
 
     /**
-     * stores position of the piece(s) of a particular kind (queen, pawns, ...)
+     * stores position of the piece(s) of a particular kind (queen, pawns, ...). See {@link LongBitBoard}.
      */
-    protected BitBoard pieces;
+    protected long pieces;
 
     protected AbstractBitBoardPiece(Colour colour, PieceType type) {
         super(colour, type);
         // pieces is set in initPosition
     }
 
-    @Override
-    public Object clone() throws CloneNotSupportedException {
-        AbstractBitBoardPiece piece = (AbstractBitBoardPiece) super.clone();
-        piece.pieces = new BitBoard(pieces);
-        return piece;
-    }
-
     @Override
     public void move(Move move) {
-        if (!pieces.get(move.from().bitIndex())) {
+        if (!LongBitBoard.isSet(pieces, move.from().bitIndex())) {
             throw new IllegalArgumentException("no " + getType() + " found on square " + move.from() + ". Move: " + move);
         }
-        pieces.clear(move.from().bitIndex());
+        pieces = LongBitBoard.clear(pieces, move.from().bitIndex());
         if (!move.isPromotion()) {
-            pieces.set(move.to().bitIndex());
+            pieces = LongBitBoard.set(pieces, move.to().bitIndex());
         }
     }
 
     @Override
     public void removePiece(Square square) {
-        if (!pieces.get(square.bitIndex())) {
+        if (!LongBitBoard.isSet(pieces, square.bitIndex())) {
             throw new IllegalArgumentException("no " + getType() + " found on square " + square);
         }
-        pieces.clear(square.bitIndex());
+        pieces = LongBitBoard.clear(pieces, square.bitIndex());
     }
 
     @Override
     public void addPiece(Square square) {
-        pieces.set(square.bitIndex());
+        pieces = LongBitBoard.set(pieces, square.bitIndex());
+    }
+
+    @Override
+    public void move(int fromBitIndex,
+                     int toBitIndex) {
+        if (!LongBitBoard.isSet(pieces, fromBitIndex)) {
+            throw new IllegalArgumentException("no " + getType() + " found on square " + Square.fromBitIndex(fromBitIndex));
+        }
+        pieces = LongBitBoard.set(LongBitBoard.clear(pieces, fromBitIndex), toBitIndex);
     }
 
     @Override
     public BitBoard getBitBoard() {
+        return new BitBoard(pieces);
+    }
+
+    @Override
+    public long getBits() {
         return pieces;
     }
 
     @Override
     public void initPosition(Square... requiredSquares) {
-        pieces = new BitBoard();
-        if (requiredSquares != null) {
-            pieces.setBitsAt(requiredSquares);
-        }
+        pieces = requiredSquares == null ? LongBitBoard.EMPTY : LongBitBoard.of(requiredSquares);
     }
 
     @Override
     public int numberOfPieces() {
-        return pieces.cardinality();
+        return LongBitBoard.popCount(pieces);
     }
 
     @Override
     public Square[] getLocations() {
-        Set<Square> set = new HashSet<>();
-        for (int i = pieces.getBitSet().nextSetBit(0); i >= 0; i = pieces.getBitSet().nextSetBit(i + 1)) {
-            set.add(Square.fromBitIndex(i));
+        Square[] locations = new Square[LongBitBoard.popCount(pieces)];
+        int i = 0;
+        for (long bb = pieces; bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+            locations[i++] = Square.fromBitIndex(LongBitBoard.lowestBit(bb));
         }
-        return set.toArray(new Square[0]);
+        return locations;
     }
 
     @Override
     public boolean pieceAt(Square targetSquare) {
-        return pieces.get(targetSquare.bitIndex());
+        return LongBitBoard.isSet(pieces, targetSquare.bitIndex());
     }
 
     /**
      * Calculates the piece-square value in centipawns. For each piece, its piece_value is added to the square_value of the
      * square where it currently is.
      *
+     * @param endgame if true, the endgame square values are used, otherwise the middlegame values.
      * @return the piece-square value in centipawns (for all pieces of this type).
      */
     @Override
-    public abstract int calculatePieceSquareValue();
-
-    public static int pieceSquareValue(final BitBoard pieces,
-                                       final Colour colour,
-                                       final int pieceValue,
-                                       final int[] squareValue) {
-        return pieceSquareValue(pieces.getBitSet(), colour, pieceValue, squareValue);
-    }
+    public abstract int calculatePieceSquareValue(boolean endgame);
 
-    public static int pieceSquareValue(final BitSetUnifier piecesBitSet,
+    public static int pieceSquareValue(final long pieces,
                                        final Colour colour,
                                        final int pieceValue,
                                        final int[] squareValue) {
         int value = 0;
-        for (int i = piecesBitSet.nextSetBit(0); i >= 0; i = piecesBitSet.nextSetBit(i + 1)) {
+        for (long bb = pieces; bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+            int i = LongBitBoard.lowestBit(bb);
             int sqValue;
             if (colour == Colour.WHITE) {
                 sqValue = squareValue[i];
@@ -124,4 +121,11 @@ public abstract class AbstractBitBoardPiece extends AbstractPiece {
         return value;
     }
 
+    public static int pieceSquareValue(final Colour colour,
+                                       final int pieceValue,
+                                       final int[] squareValue,
+                                       final int bitIndex) {
+        return pieceValue + squareValue[colour == Colour.WHITE ? bitIndex : 63 - bitIndex];
+    }
+
 }
@@ -2,9 +2,6 @@ package org.rjo.chess.pieces;
 
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.PieceType;
-import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitSetUnifier;
-import org.rjo.chess.position.PositionCheckState;
 
 /**
  * Stores the type and colour of a piece.
@@ -66,10 +63,4 @@ public abstract class AbstractPiece implements Piece {
 		return type;
 	}
 
-	@Override
-	public final boolean attacksSquare(BitSetUnifier emptySquares,
-			Square targetSq) {
-		return attacksSquare(emptySquares, targetSq, new PositionCheckState());
-	}
-
 }
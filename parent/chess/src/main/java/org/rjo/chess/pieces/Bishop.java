@@ -1,18 +1,11 @@
 package org.rjo.chess.pieces;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.rjo.chess.base.Colour;
-import org.rjo.chess.base.Move;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetUnifier;
-import org.rjo.chess.base.ray.RayType;
-import org.rjo.chess.position.Position;
-import org.rjo.chess.position.PositionCheckState;
-import org.rjo.chess.position.PositionInfo;
+import org.rjo.chess.base.bits.LongBitBoard;
+import org.rjo.chess.base.bits.MagicBitBoard;
 
 /**
  * Stores information about the bishops (still) in the game.
@@ -28,7 +21,7 @@ public class Bishop extends SlidingPiece {
 	 * stores the piece-square values. http://chessprogramming.wikispaces.com/Simplified+evaluation+function
 	 */
 	// Important: array value [0] corresponds to square a1; [63] == h8.
-	private static int[] SQUARE_VALUE =
+	private static final int[] SQUARE_VALUE_MIDDLEGAME =
 	// @formatter:off
 			new int[] {
 					-20, -10, -10, -10, -10, -10, -10, -20,
@@ -41,9 +34,20 @@ public class Bishop extends SlidingPiece {
 					-20, -10, -10, -10, -10, -10, -10, -20, };
 	// @formatter:on
 
+	/** no separate endgame values for bishops */
+	private static final int[] SQUARE_VALUE_ENDGAME = SQUARE_VALUE_MIDDLEGAME;
+
 	@Override
-	public int calculatePieceSquareValue() {
-		return AbstractBitBoardPiece.pieceSquareValue(pieces, getColour(), PIECE_VALUE, SQUARE_VALUE);
+	public int calculatePieceSquareValue(boolean endgame) {
+		return AbstractBitBoardPiece.pieceSquareValue(pieces, getColour(), PIECE_VALUE,
+				endgame ? SQUARE_VALUE_ENDGAME : SQUARE_VALUE_MIDDLEGAME);
+	}
+
+	@Override
+	public int pieceSquareValue(int bitIndex,
+			boolean endgame) {
+		return AbstractBitBoardPiece.pieceSquareValue(getColour(), PIECE_VALUE,
+				endgame ? SQUARE_VALUE_ENDGAME : SQUARE_VALUE_MIDDLEGAME, bitIndex);
 	}
 
 	/**
@@ -104,76 +108,30 @@ public class Bishop extends SlidingPiece {
 	}
 
 	@Override
-	public List<Move> findMoves(Position posn,
-			boolean kingInCheck,
-			PositionInfo posnInfo) {
-		List<Move> moves = new ArrayList<>(30);
-
-		for (int indexOfPiece = pieces.getBitSet().nextSetBit(0); indexOfPiece >= 0; indexOfPiece = pieces.getBitSet()
-				.nextSetBit(indexOfPiece + 1)) {
-			RayType[] raysToSearch;
-			var pinnedPiece = posnInfo.isPiecePinned(PieceType.BISHOP, Square.fromBitIndex(indexOfPiece));
-			if (pinnedPiece.isPresent()) {
-				// if pinned horizontally/vertically, can't move
-				if (!pinnedPiece.get().getRay().isDiagonal()) {
-					continue;
-				}
-				// search only the pinned ray and its opposite
-				raysToSearch = new RayType[2];
-				raysToSearch[0] = pinnedPiece.get().getRay();
-				raysToSearch[1] = pinnedPiece.get().getRay().getOpposite();
-			} else {
-				raysToSearch = new RayType[] { RayType.SOUTHWEST, RayType.SOUTHEAST, RayType.NORTHWEST, RayType.NORTHEAST };
-			}
-			moves.addAll(searchByPiece(posn, indexOfPiece, posnInfo, raysToSearch));
-		}
-
-		//		// make sure king is not/no longer in check
-		//		Square myKing = posn.getKingPosition(colour);
-		//		KingCheck kingChecker = new KingCheck(posn, Colour.oppositeColour(colour), myKing);
-		//		moves.removeIf(move -> kingChecker.isKingInCheck(move, kingInCheck.isCheck()));
-		return moves;
+	protected long attacks(int bitIndex,
+			long occupied) {
+		return MagicBitBoard.bishopAttacks(bitIndex, occupied);
 	}
 
 	@Override
-	public boolean doesMoveLeaveOpponentInCheck(Move move,
+	public boolean doesMoveLeaveOpponentInCheck(int move,
 			@SuppressWarnings("unused") Piece[] pieces,
 			@SuppressWarnings("unused") Square opponentsKing,
-			BitBoard[] checkingBitboards) {
-		return checkingBitboards[1].get(move.to().bitIndex());
-	}
-
-	@Override
-	public boolean attacksSquare(BitSetUnifier emptySquares,
-			Square targetSq,
-			PositionCheckState checkCache) {
-		for (int i = pieces.getBitSet().nextSetBit(0); i >= 0; i = pieces.getBitSet().nextSetBit(i + 1)) {
-			if (attacksSquare(emptySquares, Square.fromBitIndex(i), targetSq, checkCache, false/* TODO */
-					, false)) {
-				return true;
-			}
-		}
-		return false;
+			long[] checkingBitboards) {
+		return LongBitBoard.isSet(checkingBitboards[1], PackedMove.to(move));
 	}
 
 	/**
-	 * static version of {@link #attacksSquare(BitSetUnifier, Square, PositionCheckState)}, for use from Pawn.
+	 * static version of {@link #attacksSquare(long, Square)} for one bishop.
 	 *
 	 * @param emptySquares the empty squares
 	 * @param startSquare start square (i.e. where the bishop is)
 	 * @param targetSquare square being attacked (i.e. where the king is)
-	 * @param checkCache cache of previously found results
-	 * @param isCapture if the move is a capture
-	 * @param isPromotion if the move is a pawn promotion
 	 * @return true if targetSquare is attacked from startSquare, otherwise false.
 	 */
-	public static boolean attacksSquare(BitSetUnifier emptySquares,
+	public static boolean attacksSquare(long emptySquares,
 			Square startSquare,
-			Square targetSquare,
-			PositionCheckState checkCache,
-			boolean isCapture,
-			boolean isPromotion) {
-		return attacksSquareDiagonally(emptySquares, startSquare, targetSquare, checkCache, isCapture, isPromotion);
+			Square targetSquare) {
+		return attacksSquareDiagonally(emptySquares, startSquare, targetSquare);
 	}
-
 }
@@ -1,23 +1,17 @@
 package org.rjo.chess.pieces;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
 import org.rjo.chess.base.CastlingRightsSummary.CastlingRights;
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
 import org.rjo.chess.base.MoveDistance;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetFactory;
-import org.rjo.chess.base.bits.BitSetHelper;
-import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.position.Position;
-import org.rjo.chess.position.PositionCheckState;
 import org.rjo.chess.position.PositionInfo;
-import org.rjo.chess.position.check.KingCheck;
 
 /**
  * Stores information about the king in the game.
@@ -32,11 +26,6 @@ public class King extends AbstractPiece {
 	 */
 	private static final int PIECE_VALUE = 20000;
 
-	/**
-	 * set true when we're in the endgame
-	 */
-	public static boolean IN_ENDGAME = false;
-
 	/**
 	 * stores the piece-square values. http://chessprogramming.wikispaces.com/Simplified+evaluation+function
 	 */
@@ -71,64 +60,57 @@ public class King extends AbstractPiece {
 	 * Which squares cannot be attacked when castling. <br>
 	 * 1st dimension: Colour.<br>
 	 * 2nd: CastlingRights:<br>
-	 * 3rd: Squares
+	 * value: bitboard of the squares
 	 */
-	private static final Square[][][] CASTLING_SQUARES_NOT_IN_CHECK;
+	private static final long[][] CASTLING_SQUARES_NOT_IN_CHECK;
 
 	static {
-		CASTLING_SQUARES_NOT_IN_CHECK = new Square[Colour.values().length][CastlingRights.values().length][];
-		CASTLING_SQUARES_NOT_IN_CHECK[Colour.WHITE.ordinal()][CastlingRights.KINGS_SIDE.ordinal()] = new Square[] { Square.f1, Square.g1 };
-		CASTLING_SQUARES_NOT_IN_CHECK[Colour.WHITE.ordinal()][CastlingRights.QUEENS_SIDE.ordinal()] = new Square[] { Square.c1, Square.d1 };
-		CASTLING_SQUARES_NOT_IN_CHECK[Colour.BLACK.ordinal()][CastlingRights.KINGS_SIDE.ordinal()] = new Square[] { Square.f8, Square.g8 };
-		CASTLING_SQUARES_NOT_IN_CHECK[Colour.BLACK.ordinal()][CastlingRights.QUEENS_SIDE.ordinal()] = new Square[] { Square.c8, Square.d8 };
+		CASTLING_SQUARES_NOT_IN_CHECK = new long[Colour.values().length][CastlingRights.values().length];
+		CASTLING_SQUARES_NOT_IN_CHECK[Colour.WHITE.ordinal()][CastlingRights.KINGS_SIDE.ordinal()] = LongBitBoard.of(Square.f1, Square.g1);
+		CASTLING_SQUARES_NOT_IN_CHECK[Colour.WHITE.ordinal()][CastlingRights.QUEENS_SIDE.ordinal()] = LongBitBoard.of(Square.c1, Square.d1);
+		CASTLING_SQUARES_NOT_IN_CHECK[Colour.BLACK.ordinal()][CastlingRights.KINGS_SIDE.ordinal()] = LongBitBoard.of(Square.f8, Square.g8);
+		CASTLING_SQUARES_NOT_IN_CHECK[Colour.BLACK.ordinal()][CastlingRights.QUEENS_SIDE.ordinal()] = LongBitBoard.of(Square.c8, Square.d8);
 	}
 
 	/**
 	 * Which squares need to be empty when castling.<br>
 	 * 1st dimension: Colour.<br>
 	 * 2nd: CastlingRights:<br>
-	 * 3rd: bitindices of Squares
+	 * value: bitboard of the squares
 	 */
-	private static final int[][][] CASTLING_SQUARES_WHICH_MUST_BE_EMPTY;
+	private static final long[][] CASTLING_SQUARES_WHICH_MUST_BE_EMPTY;
 
 	static {
-		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY = new int[Colour.values().length][CastlingRights.values().length][];
-		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[Colour.WHITE.ordinal()][CastlingRights.KINGS_SIDE.ordinal()] = new int[] { Square.f1.bitIndex(),
-				Square.g1.bitIndex() };
-		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[Colour.WHITE.ordinal()][CastlingRights.QUEENS_SIDE.ordinal()] = new int[] { Square.b1.bitIndex(),
-				Square.c1.bitIndex(), Square.d1.bitIndex() };
-		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[Colour.BLACK.ordinal()][CastlingRights.KINGS_SIDE.ordinal()] = new int[] { Square.f8.bitIndex(),
-				Square.g8.bitIndex() };
-		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[Colour.BLACK.ordinal()][CastlingRights.QUEENS_SIDE.ordinal()] = new int[] { Square.b8.bitIndex(),
-				Square.c8.bitIndex(), Square.d8.bitIndex() };
+		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY = new long[Colour.values().length][CastlingRights.values().length];
+		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[Colour.WHITE.ordinal()][CastlingRights.KINGS_SIDE.ordinal()] = LongBitBoard.of(Square.f1,
+				Square.g1);
+		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[Colour.WHITE.ordinal()][CastlingRights.QUEENS_SIDE.ordinal()] = LongBitBoard.of(Square.b1,
+				Square.c1, Square.d1);
+		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[Colour.BLACK.ordinal()][CastlingRights.KINGS_SIDE.ordinal()] = LongBitBoard.of(Square.f8,
+				Square.g8);
+		CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[Colour.BLACK.ordinal()][CastlingRights.QUEENS_SIDE.ordinal()] = LongBitBoard.of(Square.b8,
+				Square.c8, Square.d8);
 	}
 
 	/**
 	 * Valid squares to move to
 	 */
-	private static final BitSetUnifier[] MOVES = new BitSetUnifier[64];
+	private static final long[] MOVES = new long[64];
 
 	static {
 		for (int i = 0; i < 64; i++) {
-			BitSetUnifier myBitSet = BitSetFactory.createBitSet(64);
-			myBitSet.set(i);
+			long kingsSquare = LongBitBoard.bit(i);
 
 			/*
 			 * calculate left and right attack then shift up and down one rank
 			 */
-			BitSetUnifier combined = BitSetHelper.shiftOneWest(myBitSet);
-			BitSetUnifier east = BitSetHelper.shiftOneEast(myBitSet);
-			combined.or(east);
-
+			long combined = LongBitBoard.shiftWest(kingsSquare) | LongBitBoard.shiftEast(kingsSquare);
 			// save the current state
-			BitSetUnifier possibleMoves = (BitSetUnifier) combined.clone();
+			long possibleMoves = combined;
 			// now add the king's position again and shift up and down one rank
-			combined.or(myBitSet);
-			BitSetUnifier north = BitSetHelper.shiftOneNorth(combined);
-			BitSetUnifier south = BitSetHelper.shiftOneSouth(combined);
-			// add to result
-			possibleMoves.or(north);
-			possibleMoves.or(south);
+			combined |= kingsSquare;
+			possibleMoves |= LongBitBoard.shiftNorth(combined);
+			possibleMoves |= LongBitBoard.shiftSouth(combined);
 
 			MOVES[i] = possibleMoves;
 		}
@@ -203,11 +185,14 @@ public class King extends AbstractPiece {
 	}
 
 	@Override
-	public int calculatePieceSquareValue() {
-
-		int bitIndex = kingsLocation.bitIndex();
+	public int calculatePieceSquareValue(boolean endgame) {
+		return pieceSquareValue(kingsLocation.bitIndex(), endgame);
+	}
 
-		int[] values = IN_ENDGAME ? SQUARE_VALUE_ENDGAME : SQUARE_VALUE_MIDDLEGAME;
+	@Override
+	public int pieceSquareValue(int bitIndex,
+			boolean endgame) {
+		int[] values = endgame ? SQUARE_VALUE_ENDGAME : SQUARE_VALUE_MIDDLEGAME;
 		int offset = getColour() == Colour.WHITE ? bitIndex : 63 - bitIndex;
 
 		return PIECE_VALUE + values[offset];
@@ -227,6 +212,16 @@ public class King extends AbstractPiece {
 		kingsLocation = move.to();
 	}
 
+	@Override
+	public void move(int fromBitIndex,
+			int toBitIndex) {
+		if (kingsLocation.bitIndex() != fromBitIndex) {
+			throw new IllegalArgumentException("no " + this.getType() + " found on square " + Square.fromBitIndex(fromBitIndex)
+					+ ", king's square: " + kingsLocation);
+		}
+		kingsLocation = Square.fromBitIndex(toBitIndex);
+	}
+
 	@Override
 	public void removePiece(@SuppressWarnings("unused") Square square) {
 		throw new IllegalStateException("cannot remove king!?");
@@ -249,9 +244,12 @@ public class King extends AbstractPiece {
 
 	@Override
 	public BitBoard getBitBoard() {
-		BitBoard bb = new BitBoard();
-		bb.set(kingsLocation);
-		return bb;
+		return new BitBoard(getBits());
+	}
+
+	@Override
+	public long getBits() {
+		return LongBitBoard.bit(kingsLocation);
 	}
 
 	/**
@@ -259,94 +257,81 @@ public class King extends AbstractPiece {
 	 *
 	 * @param posn the current position
 	 * @param myColour my colour
-	 * @param oppositeColour opponent's colour
+	 * @param attackedSquares the squares attacked by the opponent, see {@link Position#attackedSquares(Colour, long)}
 	 * @param castlingRights which way to castle
 	 * @return true if castling is possible
 	 */
 	public static boolean isCastlingLegal(Position posn,
 			Colour myColour,
-			Colour oppositeColour,
+			long attackedSquares,
 			CastlingRights castlingRights) {
-		boolean canCastle = true;
-		// check squares are empty
-		BitSetUnifier totalPiecesBitSet = posn.getTotalPieces().getBitSet();
-		for (int bitIndex : CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[myColour.ordinal()][castlingRights.ordinal()]) {
-			if (canCastle) {
-				canCastle = !totalPiecesBitSet.get(bitIndex);
-			} else {
-				break;
-			}
-		}
-		if (!canCastle) {
-			return false;
-		}
-		// check squares are not attacked by an enemy piece
-		for (Square sq : CASTLING_SQUARES_NOT_IN_CHECK[myColour.ordinal()][castlingRights.ordinal()]) {
-			if (canCastle) {
-				canCastle = !posn.squareIsAttacked(sq, oppositeColour);
-			} else {
-				break;
-			}
-		}
-		return canCastle;
+		// check squares are empty and not attacked by an enemy piece
+		return (posn.getTotalPiecesBits() & CASTLING_SQUARES_WHICH_MUST_BE_EMPTY[myColour.ordinal()][castlingRights.ordinal()]) == 0
+				&& (attackedSquares & CASTLING_SQUARES_NOT_IN_CHECK[myColour.ordinal()][castlingRights.ordinal()]) == 0;
 	}
 
 	/**
-	 * For each move in 'moves', make sure king is no longer in check. If it is still in check, the move is removed from the
-	 * list.
-	 *
-	 * @param posn
-	 * @param kingInCheck
-	 * @param moves list of candidate moves. Will be changed by this method to remove any moves which leave the king in
-	 *           check.
-	 * @param oppositeColour
+	 * Finds the king moves. Only legal moves are generated: the squares attacked by the opponent (with the king removed
+	 * from the board, so that the king cannot move away from a sliding piece along the checking ray) are removed from the
+	 * possible squares.
 	 */
-	private void isKingNowInCheck(Position posn,
+	@Override
+	public void findMoves(Position position,
 			boolean kingInCheck,
-			List<Move> moves,
-			final Colour oppositeColour) {
-		// make sure king is not/no longer in check
-		Iterator<Move> iter = moves.listIterator();
-		while (iter.hasNext()) {
-			Move move = iter.next();
-			// castling -- can't castle out of check or over a square in check
-			if (move.isCastleKingsSide() || move.isCastleQueensSide()) {
-				if (kingInCheck) {
-					iter.remove();
-				} else {
-					if (move.isCastleKingsSide() && !isCastlingLegal(posn, getColour(), oppositeColour, CastlingRights.KINGS_SIDE)) {
-						iter.remove();
-					} else if (move.isCastleQueensSide() && !isCastlingLegal(posn, getColour(), oppositeColour, CastlingRights.QUEENS_SIDE)) {
-						iter.remove();
-					}
-				}
-			} else {
-				Square myKing = move.to();
-				if (KingCheck.isKingInCheck(posn, move, Colour.oppositeColour(getColour()), myKing, kingInCheck)) {
-					iter.remove();
-				}
-			}
-		}
+			PositionInfo boardInfo,
+			MoveList moves) {
+		final Colour oppositeColour = Colour.oppositeColour(colour);
+		// when generating pseudo-legal moves, the king's target squares are checked by Position.isLegal
+		final long attackedSquares = boardInfo.isPseudoLegal() ? LongBitBoard.EMPTY
+				: attackedSquares(position, oppositeColour, boardInfo.isKingInCheck());
+		long possibleSquares = calculatePossibleSquares(position, kingsLocation, position.getKingPosition(oppositeColour))
+				& ~attackedSquares;
+		// can't castle out of check
+		processMoves(position, kingsLocation, oppositeColour, !boardInfo.isKingInCheck(), attackedSquares, possibleSquares,
+				moves);
 	}
 
 	@Override
-	public List<Move> findMoves(Position position,
+	public void findCaptures(Position position,
 			boolean kingInCheck,
-			PositionInfo boardInfo) {
-		Square kingsSquare = kingsLocation;
+			PositionInfo boardInfo,
+			MoveList moves) {
 		final Colour oppositeColour = Colour.oppositeColour(colour);
-		Square opponentsKingSquare = position.getKingPosition(oppositeColour);
+		final long attackedSquares = boardInfo.isPseudoLegal() ? LongBitBoard.EMPTY
+				: attackedSquares(position, oppositeColour, boardInfo.isKingInCheck());
+		long possibleSquares = calculatePossibleSquares(position, kingsLocation, position.getKingPosition(oppositeColour))
+				& position.getAllPiecesBits(oppositeColour) & ~attackedSquares;
+		processMoves(position, kingsLocation, oppositeColour, false, attackedSquares, possibleSquares, moves);
+	}
 
-		BitSetUnifier possibleSquares = calculatePossibleSquares(position, kingsSquare, opponentsKingSquare);
+	/**
+	 * Finds the king moves to empty squares, and castling.
+	 */
+	@Override
+	public void findQuietMoves(Position position,
+			boolean kingInCheck,
+			PositionInfo boardInfo,
+			MoveList moves) {
+		final Colour oppositeColour = Colour.oppositeColour(colour);
+		final long attackedSquares = boardInfo.isPseudoLegal() ? LongBitBoard.EMPTY
+				: attackedSquares(position, oppositeColour, boardInfo.isKingInCheck());
+		long possibleSquares = calculatePossibleSquares(position, kingsLocation, position.getKingPosition(oppositeColour))
+				& ~position.getAllPiecesBits(oppositeColour) & ~attackedSquares;
+		processMoves(position, kingsLocation, oppositeColour, !boardInfo.isKingInCheck(), attackedSquares, possibleSquares,
+				moves);
+	}
 
-		boolean addCastlingMoves = true;
-		if (boardInfo.isKingInCheck()) {
-			addCastlingMoves = false;
-			possibleSquares.andNot(boardInfo.getCheckRestrictedSquaresForKing().getBitSet());
+	/**
+	 * The squares attacked by the opponent, with this king removed from the board. This only makes a difference for a
+	 * sliding piece which is giving check; otherwise the position's (shared) attack map is used.
+	 */
+	private long attackedSquares(Position position,
+			Colour oppositeColour,
+			boolean kingInCheck) {
+		if (!kingInCheck) {
+			return position.attackedSquares(oppositeColour);
 		}
-		List<Move> moves = processMoves(position, kingsSquare, oppositeColour, addCastlingMoves, possibleSquares);
-		isKingNowInCheck(position, kingInCheck, moves, oppositeColour);
-		return moves;
+		return position.attackedSquares(oppositeColour, position.getTotalPiecesBits() & ~getBits());
 	}
 
 	/**
@@ -354,76 +339,78 @@ public class King extends AbstractPiece {
 	 * <p>
 	 * Moves to occupied squares or adjacent to opponent's king will not be included.
 	 */
-	private BitSetUnifier calculatePossibleSquares(Position posn,
+	private long calculatePossibleSquares(Position posn,
 			Square kingsSquare,
 			Square opponentsKingSquare) {
-		BitSetUnifier possibleSquares = (BitSetUnifier) MOVES[kingsSquare.bitIndex()].clone();
-
 		// move can't be to a square with a piece of the same colour on it
-		possibleSquares.andNot(posn.getAllPieces(colour).getBitSet());
-
-		// can't move adjacent to opponent's king
-		possibleSquares.andNot(MOVES[opponentsKingSquare.bitIndex()]);
-
-		return possibleSquares;
+		// and can't move adjacent to opponent's king
+		return MOVES[kingsSquare.bitIndex()] & ~posn.getAllPiecesBits(colour) & ~MOVES[opponentsKingSquare.bitIndex()];
 	}
 
 	/**
-	 * makes 'moves' out of the squares in 'possibleSquares'. NB: also adds in castling if potentially possible and wanted
-	 * (even if illegal).
+	 * makes 'moves' out of the squares in 'possibleSquares'. Also adds in castling if legal and wanted.
 	 *
-	 * @param addCastling if true, castling moves will be added if they are potentially possible (could however still be
-	 *           illegal e.g. castling into check).
+	 * @param addCastling if true, castling moves will be added if they are legal.
+	 * @param attackedSquares the squares attacked by the opponent
 	 */
-	private List<Move> processMoves(Position posn,
+	private void processMoves(Position posn,
 			Square kingsSquare,
 			final Colour oppositeColour,
 			final boolean addCastling,
-			BitSetUnifier possibleSquares) {
-		List<Move> moves = new ArrayList<>();
-		BitSetUnifier opponentsPieces = posn.getAllPieces(oppositeColour).getBitSet();
+			long attackedSquares,
+			long possibleSquares,
+			MoveList moves) {
+		long opponentsPieces = posn.getAllPiecesBits(oppositeColour);
+		int from = kingsSquare.bitIndex();
 		// check the possibleMoves and store them as moves / captures.
-		for (int i = possibleSquares.nextSetBit(0); i >= 0; i = possibleSquares.nextSetBit(i + 1)) {
-			Square targetSquare = Square.fromBitIndex(i);
+		for (long bb = possibleSquares; bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+			int i = LongBitBoard.lowestBit(bb);
 			/*
 			 * store move as 'move' or 'capture'
 			 */
-			if (opponentsPieces.get(i)) {
-				moves.add(new Move(PieceType.KING, getColour(), kingsSquare, targetSquare, posn.pieceAt(targetSquare, oppositeColour)));
+			if (LongBitBoard.isSet(opponentsPieces, i)) {
+				moves.add(PackedMove.capture(PieceType.KING, getColour(), from, i, posn.pieceAt(Square.fromBitIndex(i), oppositeColour)));
 			} else {
-				moves.add(new Move(PieceType.KING, getColour(), kingsSquare, targetSquare));
+				moves.add(PackedMove.of(PieceType.KING, getColour(), from, i));
 			}
 		}
-
 		if (addCastling) {
-			// castling added if possible (without checking if legal)
-			if (posn.canCastle(getColour(), CastlingRights.KINGS_SIDE)) {
-				moves.add(Move.castleKingsSide(getColour()));
+			if (posn.canCastle(getColour(), CastlingRights.KINGS_SIDE)
+					&& isCastlingLegal(posn, getColour(), attackedSquares, CastlingRights.KINGS_SIDE)) {
+				moves.add(PackedMove.castleKingsSide(getColour()));
 			}
-			if (posn.canCastle(getColour(), CastlingRights.QUEENS_SIDE)) {
-				moves.add(Move.castleQueensSide(getColour()));
+			if (posn.canCastle(getColour(), CastlingRights.QUEENS_SIDE)
+					&& isCastlingLegal(posn, getColour(), attackedSquares, CastlingRights.QUEENS_SIDE)) {
+				moves.add(PackedMove.castleQueensSide(getColour()));
 			}
 		}
+	}
 
-		return moves;
+	/**
+	 * Returns the squares attacked by a king on the given square.
+	 *
+	 * @param bitIndex the king's square
+	 * @return bitboard of the attacked squares
+	 */
+	public static long attacks(int bitIndex) {
+		return MOVES[bitIndex];
 	}
 
 	@Override
-	public boolean doesMoveLeaveOpponentInCheck(Move move,
+	public boolean doesMoveLeaveOpponentInCheck(int move,
 			@SuppressWarnings("unused") Piece[] pieces,
 			@SuppressWarnings("unused") Square opponentsKing,
-			BitBoard[] checkingBitboards) {
+			long[] checkingBitboards) {
 		// 'castles' could leave the opponent in check
-		if (move.isCastleKingsSide() || move.isCastleQueensSide()) {
-			return checkingBitboards[0].get(move.getRooksCastlingMove().to().bitIndex());
+		if (PackedMove.isCastle(move)) {
+			return LongBitBoard.isSet(checkingBitboards[0], PackedMove.rooksCastlingDestination(move));
 		}
 		return false;
 	}
 
 	@Override
-	public boolean attacksSquare(@SuppressWarnings("unused") BitSetUnifier emptySquares,
-			Square sq,
-			@SuppressWarnings("unused") PositionCheckState checkCache) {
+	public boolean attacksSquare(@SuppressWarnings("unused") long emptySquares,
+			Square sq) {
 		return MoveDistance.calculateDistance(kingsLocation, sq) == 1;
 	}
 }
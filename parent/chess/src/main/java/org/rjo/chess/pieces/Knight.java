@@ -1,19 +1,12 @@
 package org.rjo.chess.pieces;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-
 import org.rjo.chess.base.Colour;
-import org.rjo.chess.base.Move;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetFactory;
-import org.rjo.chess.base.bits.BitSetHelper;
-import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.position.Position;
-import org.rjo.chess.position.PositionCheckState;
 import org.rjo.chess.position.PositionInfo;
 
 /**
@@ -21,7 +14,7 @@ import org.rjo.chess.position.PositionInfo;
  *
  * @author rich
  */
-public class Knight extends AbstractSetPiece {
+public class Knight extends AbstractBitBoardPiece {
 
 	/** piece value in centipawns */
 	private static final int PIECE_VALUE = 320;
@@ -30,7 +23,7 @@ public class Knight extends AbstractSetPiece {
 	 * stores the piece-square values. http://chessprogramming.wikispaces.com/Simplified+evaluation+function
 	 */
 	// Important: array value [0] corresponds to square a1; [63] == h8.
-	private static int[] SQUARE_VALUE =
+	private static final int[] SQUARE_VALUE_MIDDLEGAME =
 	// @formatter:off
 		new int[] {
 				-50, -40, -30, -30, -30, -30, -40, -50,
@@ -43,61 +36,35 @@ public class Knight extends AbstractSetPiece {
 				-50, -40, -30, -30, -30, -30, -40, -50, };
 	// @formatter:on
 
+	/** 'a knight on the rim is dim' applies to the endgame as well: same values */
+	private static final int[] SQUARE_VALUE_ENDGAME = SQUARE_VALUE_MIDDLEGAME;
+
 	/**
 	 * Stores for each square on the board the possible moves for a knight on that square.
 	 */
-	private static final BitSetUnifier[] knightMoves = new BitSetUnifier[64];
+	private static final long[] knightMoves = new long[64];
 
 	// set up knight moves look up table
 	static {
 		for (int i = 0; i < 64; i++) {
-			knightMoves[i] = BitSetFactory.createBitSet(64);
-			knightMoves[i].set(i);
+			long knight = LongBitBoard.bit(i);
 
 			// LHS: blank first file for -10 and +6 - blank first and 2nd file for -17 and +15
 			// RHS: blank last file for +10 and -6 - blank 7th and 8th file for +17 and -15.
 			// Don't need to blank ranks, these just 'drop off' during the bit shift.
-
-			BitSetUnifier[] work = new BitSetUnifier[8];
-
-			// to avoid wrapping:
-			// - work[0,1] == file one blanked
-			// - work[2,3] == file two blanked as well
-			// - work[4,5] == file 8 blanked
-			// - work[6,7] == file 7 blanked as well
-			work[0] = (BitSetUnifier) knightMoves[i].clone();
-			work[0].and(BitBoard.EXCEPT_FILE[0]);
-			work[2] = (BitSetUnifier) work[0].clone();
-			work[2].and(BitBoard.EXCEPT_FILE[1]);
-
-			// store another copy
-			work[1] = (BitSetUnifier) work[0].clone();
-			work[3] = (BitSetUnifier) work[2].clone();
-
-			work[0] = BitSetHelper.shift(work[0], 15); // file-1,rank+2
-			work[1] = BitSetHelper.shift(work[1], -17);// file-1,rank-2
-			work[2] = BitSetHelper.shift(work[2], 6);// file-2,rank+1
-			work[3] = BitSetHelper.shift(work[3], -10);// file-2,rank-1
-
-			work[4] = (BitSetUnifier) knightMoves[i].clone();
-			work[4].and(BitBoard.EXCEPT_FILE[7]);
-			work[6] = (BitSetUnifier) work[4].clone();
-			work[6].and(BitBoard.EXCEPT_FILE[6]);
-
-			// store another copy
-			work[5] = (BitSetUnifier) work[4].clone();
-			work[7] = (BitSetUnifier) work[6].clone();
-
-			work[4] = BitSetHelper.shift(work[4], 17); // file+1,rank+2
-			work[5] = BitSetHelper.shift(work[5], -15);// file+1,rank-2
-			work[6] = BitSetHelper.shift(work[6], 10);// file+2,rank+1
-			work[7] = BitSetHelper.shift(work[7], -6);// file+2,rank-1
-
-			// store results
-			knightMoves[i].clear(i); // clear the start position
-			for (BitSetUnifier element : work) {
-				knightMoves[i].or(element);
-			}
+			long notFileA = knight & LongBitBoard.EXCEPT_FILE[0];
+			long notFileAB = notFileA & LongBitBoard.EXCEPT_FILE[1];
+			long notFileH = knight & LongBitBoard.EXCEPT_FILE[7];
+			long notFileGH = notFileH & LongBitBoard.EXCEPT_FILE[6];
+
+			knightMoves[i] = LongBitBoard.shift(notFileA, 15) // file-1,rank+2
+					| LongBitBoard.shift(notFileA, -17) // file-1,rank-2
+					| LongBitBoard.shift(notFileAB, 6) // file-2,rank+1
+					| LongBitBoard.shift(notFileAB, -10) // file-2,rank-1
+					| LongBitBoard.shift(notFileH, 17) // file+1,rank+2
+					| LongBitBoard.shift(notFileH, -15) // file+1,rank-2
+					| LongBitBoard.shift(notFileGH, 10) // file+2,rank+1
+					| LongBitBoard.shift(notFileGH, -6); // file+2,rank-1
 		}
 	}
 
@@ -159,126 +126,138 @@ public class Knight extends AbstractSetPiece {
 	}
 
 	@Override
-	public int calculatePieceSquareValue() {
-		return pieceSquareValue(pieces, getColour(), PIECE_VALUE, SQUARE_VALUE);
+	public int calculatePieceSquareValue(boolean endgame) {
+		return pieceSquareValue(pieces, getColour(), PIECE_VALUE,
+				endgame ? SQUARE_VALUE_ENDGAME : SQUARE_VALUE_MIDDLEGAME);
+	}
+
+	@Override
+	public int pieceSquareValue(int bitIndex,
+			boolean endgame) {
+		return pieceSquareValue(getColour(), PIECE_VALUE,
+				endgame ? SQUARE_VALUE_ENDGAME : SQUARE_VALUE_MIDDLEGAME, bitIndex);
+	}
+
+	@Override
+	public void findMoves(Position posn,
+			boolean kingInCheck,
+			PositionInfo boardInfo,
+			MoveList moves) {
+		findMoves(posn, boardInfo, ~posn.getAllPiecesBits(getColour()), moves);
+	}
+
+	@Override
+	public void findCaptures(Position posn,
+			boolean kingInCheck,
+			PositionInfo boardInfo,
+			MoveList moves) {
+		findMoves(posn, boardInfo, posn.getAllPiecesBits(Colour.oppositeColour(getColour())), moves);
 	}
 
 	@Override
-	public List<Move> findMoves(Position posn,
+	public void findQuietMoves(Position posn,
 			boolean kingInCheck,
-			PositionInfo boardInfo) {
-		List<Move> moves = new ArrayList<>(20);
+			PositionInfo boardInfo,
+			MoveList moves) {
+		findMoves(posn, boardInfo, ~posn.getTotalPiecesBits(), moves);
+	}
+
+	/**
+	 * @param targetSquares the squares which the knights may move to (i.e. empty or opponent's squares, or only the
+	 *           opponent's squares for captures, or only the empty squares for quiet moves)
+	 */
+	private void findMoves(Position posn,
+			PositionInfo boardInfo,
+			long targetSquares,
+			MoveList moves) {
 		final Colour oppositeColour = Colour.oppositeColour(getColour());
-		final Square myKing = posn.getKingPosition(colour);
-		final BitSetUnifier allMyPiecesBitSet = posn.getAllPieces(getColour()).getBitSet();
-		final BitSetUnifier allOpponentsPiecesBitSet = posn.getAllPieces(oppositeColour).getBitSet();
+		final long allOpponentsPieces = posn.getAllPiecesBits(oppositeColour);
 
 		/*
 		 * for each knight on the board, finds its moves using the lookup table
 		 */
-		for (Square knightStartSquare : pieces) {
+		for (long knights = pieces; knights != 0; knights = LongBitBoard.clearLowestBit(knights)) {
+			final int knightIndex = LongBitBoard.lowestBit(knights);
 			// stop processing this knight if it's pinned
-			if (boardInfo.isPiecePinned(PieceType.KNIGHT, knightStartSquare).isPresent()) {
+			if (LongBitBoard.isSet(boardInfo.getPinnedPiecesBits(), knightIndex)) {
 				continue;
 			}
-			BitSetUnifier possibleMoves = (BitSetUnifier) knightMoves[knightStartSquare.bitIndex()].clone();
-			// remove target squares occupied by my own pieces
-			possibleMoves.andNot(allMyPiecesBitSet);
-			// take into account squares restricted because of check
-			possibleMoves.and(boardInfo.getSquaresToBlockCheck().getBitSet());
+			// restrict to the target squares
+			// and take into account squares restricted because of check
+			long possibleMoves = knightMoves[knightIndex] & targetSquares & boardInfo.getSquaresToBlockCheck();
 			/*
 			 * Iterates over all possible moves and stores them as moves or captures
 			 */
-			List<Move> oneKnightMoves = new ArrayList<>(8);
-			for (int k = possibleMoves.nextSetBit(0); k >= 0; k = possibleMoves.nextSetBit(k + 1)) {
-				oneKnightMoves.add(createMove(k, posn, allOpponentsPiecesBitSet, knightStartSquare, oppositeColour));
+			for (; possibleMoves != 0; possibleMoves = LongBitBoard.clearLowestBit(possibleMoves)) {
+				moves.add(createMove(LongBitBoard.lowestBit(possibleMoves), posn, allOpponentsPieces, knightIndex, oppositeColour));
 			}
-
-			//			 DEBUG if piece was pinned but moves!=empty, --> problemo (remove 'continue' above to test here)
-			//			if (boardInfo.isPiecePinned(PieceType.KNIGHT, knightStartSquare) && !oneKnightMoves.isEmpty()) {
-			//				System.out.println("??");
-			//			}
-			moves.addAll(oneKnightMoves);
 		}
-
-		return moves;
 	}
 
-	private Move createMove(int bitIndex,
+	private int createMove(int bitIndex,
 			Position posn,
-			BitSetUnifier allOpponentsPiecesBitSet,
-			Square knightStartSquare,
+			long allOpponentsPieces,
+			int knightStartSquare,
 			Colour oppositeColour) {
-		Move move;
 		// decide if capture or not
-		Square targetSquare = Square.fromBitIndex(bitIndex);
-		if (allOpponentsPiecesBitSet.get(bitIndex)) {
-			// capture
-			move = new Move(PieceType.KNIGHT, getColour(), knightStartSquare, targetSquare, posn.pieceAt(targetSquare, oppositeColour));
+		if (LongBitBoard.isSet(allOpponentsPieces, bitIndex)) {
+			return PackedMove.capture(PieceType.KNIGHT, getColour(), knightStartSquare, bitIndex,
+					posn.pieceAt(Square.fromBitIndex(bitIndex), oppositeColour));
 		} else {
-			move = new Move(PieceType.KNIGHT, getColour(), knightStartSquare, targetSquare);
+			return PackedMove.of(PieceType.KNIGHT, getColour(), knightStartSquare, bitIndex);
 		}
-		return move;
 	}
 
 	@Override
-	public boolean doesMoveLeaveOpponentInCheck(Move move,
+	public boolean doesMoveLeaveOpponentInCheck(int move,
 			@SuppressWarnings("unused") Piece[] pieces,
 			Square opponentsKing,
-			@SuppressWarnings("unused") BitBoard[] checkingBitboards) {
+			@SuppressWarnings("unused") long[] checkingBitboards) {
 		return checkIfMoveAttacksSquare(move, opponentsKing.bitIndex());
 	}
 
 	/**
 	 * Checks whether the given move attacks the given square.
 	 *
-	 * @param move the move
+	 * @param move the move (see {@link PackedMove})
 	 * @param targetSquareIndex index of the target square
 	 * @return true if the given move attacks the given square.
 	 */
 	// also required by Pawn
-	public static boolean checkIfMoveAttacksSquare(Move move,
+	public static boolean checkIfMoveAttacksSquare(int move,
 			int targetSquareIndex) {
 		// check if the target square is a knight move away from the destination
 		// square of the move
-		return knightMoves[move.to().bitIndex()].get(targetSquareIndex);
+		return LongBitBoard.isSet(knightMoves[PackedMove.to(move)], targetSquareIndex);
 	}
 
 	@Override
-	public boolean attacksSquare(@SuppressWarnings("unused") BitSetUnifier emptySquares,
-			Square targetSq,
-			@SuppressWarnings("unused") PositionCheckState checkCache) {
-		Optional<Square> found = pieces.stream().filter(sq -> squareIsReachableFromSquare(sq, targetSq)).findAny();
-		return found.isPresent();
-	}
-
-	/**
-	 * returns true if a knight on <code>startSq</code> attacks <code>targetSq</code>.
-	 *
-	 * @param startSq start square
-	 * @param targetSq target square
-	 * @return true if target square is attaced
-	 */
-	private boolean squareIsReachableFromSquare(Square startSq,
+	public boolean attacksSquare(@SuppressWarnings("unused") long emptySquares,
 			Square targetSq) {
-		BitSetUnifier possibleMovesFromTargetSquare = knightMoves[targetSq.bitIndex()];
-		return possibleMovesFromTargetSquare.get(startSq.bitIndex());
+		return (knightMoves[targetSq.bitIndex()] & pieces) != 0;
 	}
 
 	/**
 	 * Whether one or more of the knights described in <code>knights</code> attack the square <code>targetSq</code>.
 	 *
 	 * @param targetSq square to be attacked
-	 * @param knights bitset describing where the knights are
+	 * @param knights bitboard describing where the knights are
 	 * @return the index of the square occupied by a knight which attacks <code>targetSq</code>, or -1.
 	 */
 	public static int attacksSquare(Square targetSq,
-			BitSetUnifier knights) {
-		// we want the square where the knight is, therefore can't use possibleMovesFromTargetSquare.intersects(knights)
-		// and have to clone the knightMoves value
-		BitSetUnifier possibleMovesFromTargetSquare = (BitSetUnifier) knightMoves[targetSq.bitIndex()].clone();
-		possibleMovesFromTargetSquare.and(knights);
-		return possibleMovesFromTargetSquare.nextSetBit(0);
+			long knights) {
+		long attackers = knightMoves[targetSq.bitIndex()] & knights;
+		return attackers == 0 ? -1 : LongBitBoard.lowestBit(attackers);
+	}
+
+	/**
+	 * Returns the squares attacked by a knight on the given square.
+	 *
+	 * @param bitIndex the knight's square
+	 * @return bitboard of the attacked squares
+	 */
+	public static long attacks(int bitIndex) {
+		return knightMoves[bitIndex];
 	}
 
 }
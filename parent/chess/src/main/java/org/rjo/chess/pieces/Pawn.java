@@ -1,21 +1,13 @@
 package org.rjo.chess.pieces;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.rjo.chess.base.Colour;
-import org.rjo.chess.base.Move;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetFactory;
-import org.rjo.chess.base.bits.BitSetHelper;
-import org.rjo.chess.base.bits.BitSetUnifier;
-import org.rjo.chess.base.ray.RayType;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.position.Position;
-import org.rjo.chess.position.PositionCheckState;
 import org.rjo.chess.position.PositionInfo;
-import org.rjo.chess.position.check.KingCheck;
 
 /**
  * Stores information about the pawns (still) in the game.
@@ -35,7 +27,7 @@ public class Pawn extends AbstractBitBoardPiece {
 	 * corresponds to square a1; [63] == h8. For black, the position as given below corresponds to the actual board, i.e. a1
 	 * is bottom RHS [63]
 	 */
-	private static int[] SQUARE_VALUE =
+	private static final int[] SQUARE_VALUE_MIDDLEGAME =
 	// @formatter:off
             new int[]{
                     0, 0, 0, 0, 0, 0, 0, 0,
@@ -48,6 +40,20 @@ public class Pawn extends AbstractBitBoardPiece {
                     0, 0, 0, 0, 0, 0, 0, 0};
     // @formatter:on
 
+	/** in the endgame, advanced pawns are worth more, regardless of the file */
+	private static final int[] SQUARE_VALUE_ENDGAME =
+	// @formatter:off
+            new int[]{
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 5, 5, 5, 5, 5, 5, 5,
+                    10, 10, 10, 10, 10, 10, 10, 10,
+                    20, 20, 20, 20, 20, 20, 20, 20,
+                    35, 35, 35, 35, 35, 35, 35, 35,
+                    60, 60, 60, 60, 60, 60, 60, 60,
+                    0, 0, 0, 0, 0, 0, 0, 0};
+    // @formatter:on
+
 	private static MoveHelper[] helper;
 
 	static {
@@ -57,8 +63,16 @@ public class Pawn extends AbstractBitBoardPiece {
 	}
 
 	@Override
-	public int calculatePieceSquareValue() {
-		return AbstractBitBoardPiece.pieceSquareValue(pieces, getColour(), PIECE_VALUE, SQUARE_VALUE);
+	public int calculatePieceSquareValue(boolean endgame) {
+		return AbstractBitBoardPiece.pieceSquareValue(pieces, getColour(), PIECE_VALUE,
+				endgame ? SQUARE_VALUE_ENDGAME : SQUARE_VALUE_MIDDLEGAME);
+	}
+
+	@Override
+	public int pieceSquareValue(int bitIndex,
+			boolean endgame) {
+		return AbstractBitBoardPiece.pieceSquareValue(getColour(), PIECE_VALUE,
+				endgame ? SQUARE_VALUE_ENDGAME : SQUARE_VALUE_MIDDLEGAME, bitIndex);
 	}
 
 	/**
@@ -136,28 +150,53 @@ public class Pawn extends AbstractBitBoardPiece {
 	}
 
 	@Override
-	public List<Move> findMoves(Position posn,
+	public void findMoves(Position posn,
 			boolean kingInCheck,
-			PositionInfo posnInfo) {
-		List<Move> moves = _findPotentialMoves(posn, posnInfo, posnInfo.getSquaresToBlockCheck(), posnInfo.isKingInCheck());
-
-		final Square myKing = posn.getKingPosition(colour);
-		final Colour opponentsColour = Colour.oppositeColour(colour);
-		// make sure my king is not/no longer in check
-		moves.removeIf(move -> KingCheck.isKingInCheck(posn, move, opponentsColour, myKing, kingInCheck));
-		return moves;
+			PositionInfo posnInfo,
+			MoveList moves) {
+		findMoves(posn, posnInfo, true, true, moves);
 	}
 
-	private List<Move> _findPotentialMoves(Position posn,
+	/**
+	 * Finds captures (including enpassant) and promotions. Non-promoting pawn advances are not generated.
+	 */
+	@Override
+	public void findCaptures(Position posn,
+			boolean kingInCheck,
 			PositionInfo posnInfo,
-			BitBoard checkRestriction,
-			boolean isInCheck) {
+			MoveList moves) {
+		findMoves(posn, posnInfo, true, false, moves);
+	}
+
+	/**
+	 * Finds the pawn advances which don't promote.
+	 */
+	@Override
+	public void findQuietMoves(Position posn,
+			boolean kingInCheck,
+			PositionInfo posnInfo,
+			MoveList moves) {
+		findMoves(posn, posnInfo, false, true, moves);
+	}
+
+	/**
+	 * Only legal moves are generated: pinned pawns can only move along the pin ray (see
+	 * {@link PositionInfo#getPinMask(int)}), and if the king is in check only to the squares which block the check or
+	 * capture the checking piece. Enpassant is the only move which needs to be verified separately.
+	 *
+	 * @param capturesAndPromotions if true, captures (including enpassant) and promotions are generated
+	 * @param quietMoves if true, the pawn advances which don't promote are generated
+	 */
+	private void findMoves(Position posn,
+			PositionInfo posnInfo,
+			boolean capturesAndPromotions,
+			boolean quietMoves,
+			MoveList moves) {
 		/*
 		 * The pawn move is complicated by the different directions for white and black pawns. This is the only piece to have
 		 * this complication. This difference is catered for by the <code>MoveHelper</code> implementations.
 		 */
 
-		List<Move> moves = new ArrayList<>();
 		//
 		// 1) one square forward
 		// 2) two squares forward
@@ -166,245 +205,197 @@ public class Pawn extends AbstractBitBoardPiece {
 		// 5) enpassant
 		// 6) promotion
 		//
-		moves.addAll(calculateForwardMoves(posn, posnInfo, helper[getColour().ordinal()], checkRestriction, isInCheck));
-		moves.addAll(captureLeft(posn, posnInfo, helper[getColour().ordinal()], checkRestriction, isInCheck));
-		moves.addAll(captureRight(posn, posnInfo, helper[getColour().ordinal()], checkRestriction, isInCheck));
-
-		return moves;
+		final MoveHelper moveHelper = helper[getColour().ordinal()];
+		final long checkRestriction = posnInfo.getSquaresToBlockCheck();
+		calculateForwardMoves(moves, posn, posnInfo, moveHelper, checkRestriction, capturesAndPromotions, quietMoves);
+		if (capturesAndPromotions) {
+			capture(moves, posn, posnInfo, moveHelper, true, checkRestriction);
+			capture(moves, posn, posnInfo, moveHelper, false, checkRestriction);
+		}
 	}
 
 	@Override
-	public boolean doesMoveLeaveOpponentInCheck(Move move,
+	public boolean doesMoveLeaveOpponentInCheck(int move,
 			Piece[] pieces,
 			Square opponentsKing,
-			BitBoard[] checkingBitboards) {
-		if (move.isPromotion()) {
-			return pieces[move.getPromotedPiece().ordinal()].doesMoveLeaveOpponentInCheck(move, pieces, opponentsKing, checkingBitboards);
+			long[] checkingBitboards) {
+		if (PackedMove.isPromotion(move)) {
+			return pieces[PackedMove.promotedPiece(move).ordinal()].doesMoveLeaveOpponentInCheck(move, pieces, opponentsKing,
+					checkingBitboards);
 		} else {
-			return helper[getColour().ordinal()].doesPawnAttackSquare(opponentsKing, move.to());
+			return helper[getColour().ordinal()].doesPawnAttackSquare(opponentsKing, Square.fromBitIndex(PackedMove.to(move)));
 		}
 	}
 
-	private List<Move> calculateForwardMoves(Position posn,
+	private void calculateForwardMoves(MoveList moves,
+			Position posn,
 			PositionInfo posnInfo,
 			MoveHelper helper,
-			BitBoard checkRestriction,
-			boolean isInCheck) {
-
-		BitSetUnifier pawnsMinusPinnedPawns = pieces.cloneBitSet();
-		// remove pinned pawns -- pinned if the pin ray is not north/south
-		posnInfo.getPinnedPieces().stream()
-				.filter(pi -> pi.getPiece() == PieceType.PAWN)
-				.filter(pi -> !pi.getRay().isVertical())
-				.forEach(pi -> pawnsMinusPinnedPawns.clear(pi.getBitIndex()));
-
-		BitSetUnifier tmpBits = helper.moveOneRank(pawnsMinusPinnedPawns);
-		tmpBits.andNot(posn.getTotalPieces().getBitSet()); // move must be to an empty square
-		// clone tmpBits, to be able to carry on using it for 2 squares forward
-		var oneSquareForward = ((BitSetUnifier) tmpBits.clone());
-		if (isInCheck) {
-			oneSquareForward.and(checkRestriction.getBitSet()); // respect square restrictions
-		}
-
-		var twoSquaresForward = helper.moveOneRank(tmpBits);
-		twoSquaresForward.andNot(posn.getTotalPieces().getBitSet()); // move must be to an empty square
+			long checkRestriction,
+			boolean promotions,
+			boolean quietMoves) {
+
+		final long pinnedPawns = pieces & posnInfo.getPinnedPiecesBits();
+		long oneSquareForward = helper.moveOneRank(pieces & ~pinnedPawns);
+		// a pinned pawn can only advance along the pin ray
+		for (long bb = pinnedPawns; bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+			int i = LongBitBoard.lowestBit(bb);
+			oneSquareForward |= helper.moveOneRank(LongBitBoard.bit(i)) & posnInfo.getPinMask(i);
+		}
+
+		final long emptySquares = ~posn.getTotalPiecesBits();
+		// move must be to an empty square
+		oneSquareForward &= emptySquares;
+		// move must be to an empty square;
 		// just take the pawns now on the 4th rank (relative to colour), since only these can have moved two squares
-		twoSquaresForward.and(helper.fourthRank());
-		if (isInCheck) {
-			twoSquaresForward.and(checkRestriction.getBitSet()); // respect square restrictions
-		}
+		long twoSquaresForward = helper.moveOneRank(oneSquareForward) & emptySquares & helper.fourthRank();
+		// respect square restrictions (all squares are allowed if not in check)
+		oneSquareForward &= checkRestriction;
+		twoSquaresForward &= checkRestriction;
 
-		List<Move> moves = new ArrayList<>();
-		moves.addAll(generateOneSquareForwardMoves(oneSquareForward, helper));
-		moves.addAll(generateTwoSquareForwardMoves(twoSquaresForward, helper));
-		return moves;
+		generateOneSquareForwardMoves(moves, oneSquareForward, helper, promotions, quietMoves);
+		if (quietMoves) {
+			generateTwoSquareForwardMoves(moves, twoSquaresForward, helper);
+		}
 	}
 
 	/**
-	 * generates pawn moves from the given bitset. This only contains pawns which have moved one square forward to a
+	 * generates pawn moves from the given bitboard. This only contains pawns which have moved one square forward to a
 	 * non-empty square.
 	 *
-	 * @param oneSquareForward the bitset containing the pawns
+	 * @param moves the moves (including promotion if applicable) will be added to this list
+	 * @param oneSquareForward the bitboard containing the pawns
 	 * @param helper distinguishes between white and black sides, since the pawns move in different directions
-	 * @return the moves (including promotion if applicable)
+	 * @param promotions if true, promotions will be generated
+	 * @param quietMoves if true, the moves which don't promote will be generated
 	 */
-	private List<Move> generateOneSquareForwardMoves(BitSetUnifier oneSquareForward,
-			MoveHelper helper) {
-		List<Move> moves = new ArrayList<>(10);
+	private void generateOneSquareForwardMoves(MoveList moves,
+			long oneSquareForward,
+			MoveHelper helper,
+			boolean promotions,
+			boolean quietMoves) {
 		int offset = helper.getColour() == Colour.WHITE ? -8 : 8;
-		for (int i = oneSquareForward.nextSetBit(0); i >= 0; i = oneSquareForward.nextSetBit(i + 1)) {
-			Square from = Square.fromBitIndex(i + offset);
-			Square to = Square.fromBitIndex(i);
+		for (long bb = oneSquareForward; bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+			int i = LongBitBoard.lowestBit(bb);
 			// promotion: extra check for pawns on the 8th rank
 			if (helper.onLastRank(i)) {
-				for (PieceType type : PieceType.getPieceTypesForPromotion()) {
-					Move move = new Move(PieceType.PAWN, getColour(), from, to);
-					move.setPromotionPiece(type);
-					moves.add(move);
+				if (promotions) {
+					for (PieceType type : PieceType.getPieceTypesForPromotion()) {
+						moves.add(PackedMove.promotion(getColour(), i + offset, i, null, type));
+					}
 				}
-			} else {
-				moves.add(new Move(PieceType.PAWN, getColour(), from, to));
+			} else if (quietMoves) {
+				moves.add(PackedMove.of(PieceType.PAWN, getColour(), i + offset, i));
 			}
 		}
-		return moves;
 	}
 
 	/**
-	 * generates pawn moves from the given bitset. This should only contain pawns which have moved two squares forward to a
-	 * non-empty square.
+	 * generates pawn moves from the given bitboard. This should only contain pawns which have moved two squares forward to
+	 * a non-empty square.
 	 *
-	 * @param twoSquaresForward the bitset containing the pawns
+	 * @param moves the moves will be added to this list
+	 * @param twoSquaresForward the bitboard containing the pawns
 	 * @param helper distinguishes between white and black sides, since the pawns move in different directions
-	 * @return the moves
 	 */
-	private List<Move> generateTwoSquareForwardMoves(BitSetUnifier twoSquaresForward,
+	private void generateTwoSquareForwardMoves(MoveList moves,
+			long twoSquaresForward,
 			MoveHelper helper) {
-		List<Move> moves = new ArrayList<>(10);
 		int offset = helper.getColour() == Colour.WHITE ? -16 : 16;
-		for (int i = twoSquaresForward.nextSetBit(0); i >= 0; i = twoSquaresForward.nextSetBit(i + 1)) {
-			moves.add(new Move(PieceType.PAWN, getColour(), Square.fromBitIndex(i + offset), Square.fromBitIndex(i)));
+		for (long bb = twoSquaresForward; bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+			int i = LongBitBoard.lowestBit(bb);
+			moves.add(PackedMove.of(PieceType.PAWN, getColour(), i + offset, i));
 		}
-		return moves;
 	}
 
 	/**
-	 * Helper method to check for captures 'left' or 'right'.
+	 * Helper method to check for captures 'left' or 'right'. Captures 'left' from white's POV are e.g. b3xa4 or for a
+	 * black move e.g. b6xa5.
 	 *
+	 * @param moves the moves found by this method will be added to this list
 	 * @param position state of the board
-	 * @param clonedPieces an already cloned bitset of the pawns (pinned pawns could already be removed here)
+	 * @param posnInfo info about pinned pieces
 	 * @param helper distinguishes between white and black sides, since the pawns move in different directions
 	 * @param captureLeft if true, check for captures 'left'. Otherwise, 'right'.
 	 * @param checkRestriction info about the squares which come into consideration (e.g. when in check). Normally all are
 	 *           allowed.
-	 * @return list of moves found by this method
 	 */
-	private List<Move> capture(Position position,
-			BitSetUnifier clonedPieces,
+	private void capture(MoveList moves,
+			Position position,
+			PositionInfo posnInfo,
 			MoveHelper helper,
 			boolean captureLeft,
-			BitBoard checkRestriction,
-			boolean isInCheck) {
+			long checkRestriction) {
 
-		BitSetUnifier captures;
-		// generate bitset of pawn captures
-		if (captureLeft) {
-			captures = helper.pawnCaptureLeft(clonedPieces);
-		} else {
-			captures = helper.pawnCaptureRight(clonedPieces);
+		// generate bitboard of pawn captures
+		final long pinnedPawns = pieces & posnInfo.getPinnedPiecesBits();
+		long captures = captureLeft ? helper.pawnCaptureLeft(pieces & ~pinnedPawns) : helper.pawnCaptureRight(pieces & ~pinnedPawns);
+		// a pinned pawn can only capture along the pin ray, i.e. the pinning piece
+		for (long bb = pinnedPawns; bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+			int i = LongBitBoard.lowestBit(bb);
+			long pawn = LongBitBoard.bit(i);
+			captures |= (captureLeft ? helper.pawnCaptureLeft(pawn) : helper.pawnCaptureRight(pawn)) & posnInfo.getPinMask(i);
 		}
 
-		BitBoard opponentsPieces = position.getAllPieces(Colour.oppositeColour(helper.getColour()));
-		// enpassant: add in enpassant square if necessary (cloning first)
-		BitBoard squareRestrictionCloned = checkRestriction;
+		long opponentsPieces = position.getAllPiecesBits(Colour.oppositeColour(helper.getColour()));
+		// enpassant: add in enpassant square if necessary. This is always allowed here, see isEnpassantLegal
+		long squareRestriction = checkRestriction;
 		if (position.getEnpassantSquare() != null) {
-			opponentsPieces = new BitBoard(opponentsPieces); // clone
-			opponentsPieces.set(position.getEnpassantSquare().bitIndex());
-			// no need to set enpassant square (and therefore clone) if all squares are allowed already
-			if (isInCheck) {
-				squareRestrictionCloned = new BitBoard(checkRestriction); // clone
-				squareRestrictionCloned.set(position.getEnpassantSquare());
-			}
+			opponentsPieces |= LongBitBoard.bit(position.getEnpassantSquare());
+			squareRestriction |= LongBitBoard.bit(position.getEnpassantSquare());
 		}
 
 		// move must be a capture, therefore AND with opponent's pieces (plus enpassant square)
-		captures.and(opponentsPieces.getBitSet());
-
-		// remove square restrictions (no point if not in check, since then we're 'and'ing with a completely set bitset)
-		if (isInCheck) {
-			captures.and(squareRestrictionCloned.getBitSet());
+		captures &= opponentsPieces;
 
-		}
+		// remove square restrictions (all squares are allowed if not in check)
+		captures &= squareRestriction;
 
 		int offset = captureLeft ? helper.captureLeftOffset() : helper.captureRightOffset();
 
-		List<Move> moves = new ArrayList<>();
 		Colour oppositeColour = Colour.oppositeColour(getColour());
-		for (int i = captures.nextSetBit(0); i >= 0; i = captures.nextSetBit(i + 1)) {
+		for (; captures != 0; captures = LongBitBoard.clearLowestBit(captures)) {
+			int i = LongBitBoard.lowestBit(captures);
 			Square targetSquare = Square.fromBitIndex(i);
 			if (helper.onLastRank(i)) {
 				// capture with promotion
-				Square fromSquare = Square.fromBitIndex(i + offset);
 				PieceType capturedPiece = position.pieceAt(targetSquare, oppositeColour);
 				for (PieceType type : PieceType.getPieceTypesForPromotion()) {
-					Move move = new Move(PieceType.PAWN, getColour(), fromSquare, targetSquare, capturedPiece);
-					move.setPromotionPiece(type);
+					moves.add(PackedMove.promotion(getColour(), i + offset, i, capturedPiece, type));
+				}
+			} else if (targetSquare == position.getEnpassantSquare()) {
+				int move = PackedMove.enpassant(getColour(), i + offset, i);
+				if (isEnpassantLegal(position, move)) {
 					moves.add(move);
 				}
 			} else {
-				PieceType capturedPiece;
-				boolean enpassant = false;
-				if (targetSquare == position.getEnpassantSquare()) {
-					capturedPiece = PieceType.PAWN;
-					enpassant = true;
-				} else {
-					capturedPiece = position.pieceAt(targetSquare, oppositeColour);
-				}
-				Move move;
-				if (enpassant) {
-					move = Move.enpassant(getColour(), Square.fromBitIndex(i + offset), targetSquare);
-				} else {
-					move = new Move(PieceType.PAWN, getColour(), Square.fromBitIndex(i + offset), targetSquare, capturedPiece);
-				}
-				moves.add(move);
+				moves.add(PackedMove.capture(PieceType.PAWN, getColour(), i + offset, i, position.pieceAt(targetSquare, oppositeColour)));
 			}
 		}
-		return moves;
 	}
 
 	/**
-	 * Captures 'left' from white's POV e.g. b3xa4 or for a black move e.g. b6xa5.
+	 * Enpassant removes two pieces from the same rank, and the captured pawn could have been blocking a check on a
+	 * diagonal. Neither case is covered by the pin information, therefore the move is checked explicitly: after the move,
+	 * is the king attacked by a piece other than the captured pawn?
 	 *
-	 * @param chessboard state of the board
-	 * @param helper distinguishes between white and black sides, since the pawns move in different directions
-	 * @param checkRestriction a bitboard of squares which come into consideration (e.g. when in check). Normally all are
-	 *           allowed.
-	 * @return list of moves found by this method
-	 */
-	private List<Move> captureLeft(Position chessboard,
-			PositionInfo posnInfo,
-			MoveHelper helper,
-			BitBoard checkRestriction,
-			boolean isInCheck) {
-		BitSetUnifier pawnsMinusPinnedPawns = pieces.cloneBitSet();
-		// remove pinned pawns -- pinned if not pinned along the direction of the capture or its opposite
-		posnInfo.getPinnedPieces().stream()
-				.filter(pi -> pi.getPiece() == PieceType.PAWN)
-				.filter(pi -> !helper.isCaptureLeftRayOrOpposite(pi.getRay()))
-				.forEach(pi -> pawnsMinusPinnedPawns.clear(pi.getBitIndex()));
-
-		return capture(chessboard, pawnsMinusPinnedPawns, helper, true, checkRestriction, isInCheck);
-	}
-
-	/**
-	 * Captures 'right' from white's POV e.g. b3xc4 or for a black move e.g. b6xc5.
-	 *
-	 * @param chessboard state of the board
-	 * @param helper distinguishes between white and black sides, since the pawns move in different directions
-	 * @param checkRestriction a bitboard of squares which come into consideration (e.g. when in check). Normally all are
-	 *           allowed.
-	 * @return list of moves found by this method
+	 * @param position state of the board
+	 * @param move the enpassant move
+	 * @return true if the move does not leave the king in check
 	 */
-	private List<Move> captureRight(Position chessboard,
-			PositionInfo posnInfo,
-			MoveHelper helper,
-			BitBoard checkRestriction,
-			boolean isInCheck) {
-
-		BitSetUnifier pawnsMinusPinnedPawns = pieces.cloneBitSet();
-		// remove pinned pawns -- pinned if not pinned along the direction of the capture or its opposite
-		posnInfo.getPinnedPieces().stream()
-				.filter(pi -> pi.getPiece() == PieceType.PAWN)
-				.filter(pi -> !helper.isCaptureRightRayOrOpposite(pi.getRay()))
-				.forEach(pi -> pawnsMinusPinnedPawns.clear(pi.getBitIndex()));
-
-		return capture(chessboard, pawnsMinusPinnedPawns, helper, false, checkRestriction, isInCheck);
+	private boolean isEnpassantLegal(Position position,
+			int move) {
+		final long capturedPawn = LongBitBoard.bit(PackedMove.pawnCapturedEnpassant(move));
+		final long occupied = (position.getTotalPiecesBits() & ~LongBitBoard.bit(PackedMove.from(move)) & ~capturedPawn)
+				| LongBitBoard.bit(PackedMove.to(move));
+		final long opponentsPieces = position.getAllPiecesBits(Colour.oppositeColour(getColour())) & ~capturedPawn;
+		return (position.attackersTo(position.getKingPosition(getColour()).bitIndex(), occupied) & opponentsPieces) == 0;
 	}
 
 	@Override
-	public boolean attacksSquare(@SuppressWarnings("unused") BitSetUnifier emptySquares,
-			Square targetSq,
-			@SuppressWarnings("unused") PositionCheckState checkCache) {
-		return helper[getColour().ordinal()].doPawnsAttackSquare(targetSq, pieces.getBitSet()) != -1;
+	public boolean attacksSquare(@SuppressWarnings("unused") long emptySquares,
+			Square targetSq) {
+		return helper[getColour().ordinal()].doPawnsAttackSquare(targetSq, pieces) != -1;
 	}
 
 	/**
@@ -412,33 +403,45 @@ public class Pawn extends AbstractBitBoardPiece {
 	 *
 	 * @param targetSq square to be attacked
 	 * @param colour colour of the pawns in <code>pawns</code>.
-	 * @param pawns bitset describing where the pawns are
+	 * @param pawns bitboard describing where the pawns are
 	 * @return bit index of the pawn which attacks <code>targetSq</code>, or -1.
 	 */
 	public static int attacksSquare(Square targetSq,
 			Colour colour,
-			BitSetUnifier pawns) {
+			long pawns) {
 		return helper[colour.ordinal()].doPawnsAttackSquare(targetSq, pawns);
 	}
 
+	/**
+	 * Returns the squares attacked by the given pawns.
+	 *
+	 * @param colour colour of the pawns in <code>pawns</code>.
+	 * @param pawns bitboard describing where the pawns are
+	 * @return bitboard of all squares attacked by these pawns
+	 */
+	public static long attacks(Colour colour,
+			long pawns) {
+		return helper[colour.ordinal()].pawnCaptureLeft(pawns) | helper[colour.ordinal()].pawnCaptureRight(pawns);
+	}
+
 	/**
 	 * Factors out the differences between white pawn moves (going up the board) and black pawn moves (going down).
 	 */
 	private interface MoveHelper {
 		/**
-		 * Shifts the given bitset one rank north or south.
+		 * Shifts the given bitboard one rank north or south.
 		 *
-		 * @param bs start bitset
-		 * @return shifted bitset
+		 * @param bb start bitboard
+		 * @return shifted bitboard
 		 */
-		BitSetUnifier moveOneRank(BitSetUnifier bs);
+		long moveOneRank(long bb);
 
 		/**
 		 * The fourth rank (4th or 5th depending on the colour). Used when calculating pawn moves 2 squares forward.
 		 *
 		 * @return The fourth rank
 		 */
-		BitSetUnifier fourthRank();
+		long fourthRank();
 
 		/**
 		 * returns true if the given bitIndex is on the 'last rank' of the board.
@@ -449,58 +452,37 @@ public class Pawn extends AbstractBitBoardPiece {
 		boolean onLastRank(int bitIndex);
 
 		/**
-		 * Given the starting bitset, returns a new bitset representing the pawn capture 'to the right' as seen from white's
+		 * Given the starting bitboard, returns a bitboard representing the pawn capture 'to the right' as seen from white's
 		 * POV, e.g. b3xc4 or for a black move e.g. b6xc5.
 		 *
-		 * @param startPosn starting bitset
-		 * @return the shifted bitset
+		 * @param pawns starting bitboard
+		 * @return the shifted bitboard
 		 */
-		BitSetUnifier pawnCaptureRight(BitSetUnifier startPosn);
+		long pawnCaptureRight(long pawns);
 
 		/**
-		 * Given the starting bitset, returns a new bitset representing the pawn capture 'to the left' as seen from white's POV,
-		 * e.g. b3xa4 or for a black move e.g. b6xa5.
+		 * Given the starting bitboard, returns a bitboard representing the pawn capture 'to the left' as seen from white's
+		 * POV, e.g. b3xa4 or for a black move e.g. b6xa5.
 		 *
-		 * @param captureLeft starting bitset
-		 * @return the shifted bitset
+		 * @param pawns starting bitboard
+		 * @return the shifted bitboard
 		 */
-		BitSetUnifier pawnCaptureLeft(BitSetUnifier captureLeft);
+		long pawnCaptureLeft(long pawns);
 
 		/**
 		 * @return the colour represented by this helper class.
 		 */
 		Colour getColour();
 
-		/**
-		 * The last rank (1st or 8th depending on the colour).
-		 *
-		 * @return The last rank
-		 */
-		BitSetUnifier lastRank();
-
-		/**
-		 * All ranks apart from the last rank (1st or 8th depending on the colour).
-		 *
-		 * @return The last rank flipped, i.e. all ranks apart from the last rank.
-		 */
-		BitSetUnifier lastRankFlipped();
-
-		/**
-		 * The starting rank for the pawns (2nd or 6th) depending on the colour.
-		 *
-		 * @return The starting rank
-		 */
-		BitSetUnifier startRank();
-
 		/**
 		 * Returns true if at least one pawn attacks the given square.
 		 *
 		 * @param targetSq square to be considered
-		 * @param pawns the pawn bitset
+		 * @param pawns the pawn bitboard
 		 * @return bit index of the pawn which attacks the given square, or -1
 		 */
 		int doPawnsAttackSquare(Square targetSq,
-				BitSetUnifier pawns);
+				long pawns);
 
 		/**
 		 * Returns true if a pawn on 'pawnSq' attacks 'targetSq'.
@@ -526,19 +508,6 @@ public class Pawn extends AbstractBitBoardPiece {
 		 */
 		int captureLeftOffset();
 
-		/**
-		 * Returns true if the given ray matches the ray reflecting a capture 'left' or its opposite.
-		 *
-		 * @param true if the ray is the capture left ray (or its opposite)
-		 */
-		boolean isCaptureLeftRayOrOpposite(RayType ray);
-
-		/**
-		 * Returns true if the given ray matches the ray reflecting a capture 'right' or its opposite.
-		 *
-		 * @param true if the ray is the capture right ray (or its opposite)
-		 */
-		boolean isCaptureRightRayOrOpposite(RayType ray);
 	}
 
 	/**
@@ -547,18 +516,8 @@ public class Pawn extends AbstractBitBoardPiece {
 	static class WhiteMoveHelper implements MoveHelper {
 
 		@Override
-		public BitSetUnifier moveOneRank(BitSetUnifier bs) {
-			return BitSetHelper.shiftOneNorth(bs);
-		}
-
-		@Override
-		public BitSetUnifier lastRank() {
-			return BitBoard.RANK[7];
-		}
-
-		@Override
-		public BitSetUnifier lastRankFlipped() {
-			return BitBoard.EXCEPT_RANK[7];
+		public long moveOneRank(long bb) {
+			return LongBitBoard.shiftNorth(bb);
 		}
 
 		@Override
@@ -567,39 +526,18 @@ public class Pawn extends AbstractBitBoardPiece {
 		}
 
 		@Override
-		public BitSetUnifier startRank() {
-			return BitBoard.RANK[1];
-		}
-
-		@Override
-		public BitSetUnifier fourthRank() {
-			return BitBoard.RANK[3];
+		public long fourthRank() {
+			return LongBitBoard.RANK[3];
 		}
 
 		@Override
-		public BitSetUnifier pawnCaptureLeft(BitSetUnifier startPosn) {
-			if (startPosn.isEmpty()) {
-				return startPosn;
-			}
-			startPosn.and(BitBoard.EXCEPT_FILE[0]); // only the pawns on the 2nd to 8th files (to avoid wraparound)
-			long[] longArray = startPosn.toLongArray();
-			if (longArray.length == 0) {
-				return BitSetFactory.createBitSet(64);
-			}
-			return BitSetFactory.createBitSet(new long[] { longArray[0] << 7 });
+		public long pawnCaptureLeft(long pawns) {
+			return LongBitBoard.shiftNorthWest(pawns);
 		}
 
 		@Override
-		public BitSetUnifier pawnCaptureRight(BitSetUnifier startPosn) {
-			if (startPosn.isEmpty()) {
-				return startPosn;
-			}
-			startPosn.and(BitBoard.EXCEPT_FILE[7]); // only the pawns on the 1st to 7th files (to avoid wraparound)
-			long[] longArray = startPosn.toLongArray();
-			if (longArray.length == 0) {
-				return BitSetFactory.createBitSet(64);
-			}
-			return BitSetFactory.createBitSet(new long[] { longArray[0] << 9 });
+		public long pawnCaptureRight(long pawns) {
+			return LongBitBoard.shiftNorthEast(pawns);
 		}
 
 		@Override
@@ -609,17 +547,17 @@ public class Pawn extends AbstractBitBoardPiece {
 
 		@Override
 		public int doPawnsAttackSquare(Square targetSq,
-				BitSetUnifier pawns) {
+				long pawns) {
 			if (targetSq.rank() < 2) {
 				return -1;
 			}
 			final int index = targetSq.bitIndex();
 			// attack from left
-			if (targetSq.file() > 0 && pawns.get(index - 9)) {
+			if (targetSq.file() > 0 && LongBitBoard.isSet(pawns, index - 9)) {
 				return index - 9;
 			}
 			// attack from right
-			if (targetSq.file() < 7 && pawns.get(index - 7)) {
+			if (targetSq.file() < 7 && LongBitBoard.isSet(pawns, index - 7)) {
 				return index - 7;
 			}
 			return -1;
@@ -650,15 +588,7 @@ public class Pawn extends AbstractBitBoardPiece {
 			return -7;
 		}
 
-		@Override
-		public boolean isCaptureLeftRayOrOpposite(RayType ray) {
-			return ray == RayType.NORTHWEST || ray == RayType.SOUTHEAST;
-		}
 
-		@Override
-		public boolean isCaptureRightRayOrOpposite(RayType ray) {
-			return ray == RayType.NORTHEAST || ray == RayType.SOUTHWEST;
-		}
 
 	}
 
@@ -668,34 +598,18 @@ public class Pawn extends AbstractBitBoardPiece {
 	static class BlackMoveHelper implements MoveHelper {
 
 		@Override
-		public BitSetUnifier moveOneRank(BitSetUnifier bs) {
-			return BitSetHelper.shiftOneSouth(bs);
+		public long moveOneRank(long bb) {
+			return LongBitBoard.shiftSouth(bb);
 		}
 
 		@Override
-		public BitSetUnifier pawnCaptureRight(BitSetUnifier startPosn) {
-			if (startPosn.isEmpty()) {
-				return startPosn;
-			}
-			startPosn.and(BitBoard.EXCEPT_FILE[7]); // only the pawns on the 1st to 7th files (to avoid wraparound)
-			long[] longArray = startPosn.toLongArray();
-			if (longArray.length == 0) {
-				return BitSetFactory.createBitSet(64);
-			}
-			return BitSetFactory.createBitSet(new long[] { longArray[0] >>> 7 });
+		public long pawnCaptureRight(long pawns) {
+			return LongBitBoard.shiftSouthEast(pawns);
 		}
 
 		@Override
-		public BitSetUnifier pawnCaptureLeft(BitSetUnifier startPosn) {
-			if (startPosn.isEmpty()) {
-				return startPosn;
-			}
-			startPosn.and(BitBoard.EXCEPT_FILE[0]); // only the pawns on the 2nd to 8th files (to avoid wraparound)
-			long[] longArray = startPosn.toLongArray();
-			if (longArray.length == 0) {
-				return BitSetFactory.createBitSet(64);
-			}
-			return BitSetFactory.createBitSet(new long[] { longArray[0] >>> 9 });
+		public long pawnCaptureLeft(long pawns) {
+			return LongBitBoard.shiftSouthWest(pawns);
 		}
 
 		@Override
@@ -704,23 +618,8 @@ public class Pawn extends AbstractBitBoardPiece {
 		}
 
 		@Override
-		public BitSetUnifier lastRank() {
-			return BitBoard.RANK[0];
-		}
-
-		@Override
-		public BitSetUnifier lastRankFlipped() {
-			return BitBoard.EXCEPT_RANK[0];
-		}
-
-		@Override
-		public BitSetUnifier startRank() {
-			return BitBoard.RANK[6];
-		}
-
-		@Override
-		public BitSetUnifier fourthRank() {
-			return BitBoard.RANK[4];
+		public long fourthRank() {
+			return LongBitBoard.RANK[4];
 		}
 
 		@Override
@@ -730,17 +629,17 @@ public class Pawn extends AbstractBitBoardPiece {
 
 		@Override
 		public int doPawnsAttackSquare(Square targetSq,
-				BitSetUnifier pawns) {
+				long pawns) {
 			if (targetSq.rank() > 5) {
 				return -1;
 			}
 			final int index = targetSq.bitIndex();
 			// attack from left
-			if (targetSq.file() > 0 && pawns.get(index + 7)) {
+			if (targetSq.file() > 0 && LongBitBoard.isSet(pawns, index + 7)) {
 				return index + 7;
 			}
 			// attack from right
-			if (targetSq.file() < 7 && pawns.get(index + 9)) {
+			if (targetSq.file() < 7 && LongBitBoard.isSet(pawns, index + 9)) {
 				return index + 9;
 			}
 			return -1;
@@ -771,15 +670,7 @@ public class Pawn extends AbstractBitBoardPiece {
 			return 9;
 		}
 
-		@Override
-		public boolean isCaptureLeftRayOrOpposite(RayType ray) {
-			return ray == RayType.SOUTHWEST || ray == RayType.NORTHEAST;
-		}
 
-		@Override
-		public boolean isCaptureRightRayOrOpposite(RayType ray) {
-			return ray == RayType.SOUTHEAST || ray == RayType.NORTHWEST;
-		}
 	}
 
 }
@@ -4,12 +4,12 @@ import java.util.List;
 
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetUnifier;
 import org.rjo.chess.position.Position;
-import org.rjo.chess.position.PositionCheckState;
 import org.rjo.chess.position.PositionInfo;
 
 /**
@@ -41,9 +41,7 @@ public interface Piece extends Cloneable {
 	void initPosition(Square... requiredSquares);
 
 	/**
-	 * New version of findMoves.
-	 * <p>
-	 * Finds all possible moves for this piece type in the given position.
+	 * Finds all possible moves for this piece type in the given position and appends them to <code>moves</code>.
 	 * <p>
 	 * <b>Moves returned are legal. However, this method does not check to see if the _opponent_'s king is in check after
 	 * the move.</b>
@@ -52,48 +50,81 @@ public interface Piece extends Cloneable {
 	 * @param kingInCheck indicates if the king is currently in check. This limits the available moves.
 	 * @param posnInfo info about pieces checking the king, pinned pieces, etc. Normally all squares are allowed. If the
 	 *           king is in check then this object contains the squares which will potentially get out of check.
+	 * @param moves the moves found (encoded as per {@link PackedMove}) will be added to this list.
+	 */
+	void findMoves(Position position,
+			boolean kingInCheck,
+			PositionInfo posnInfo,
+			MoveList moves);
+
+	/**
+	 * As {@link #findMoves(Position, boolean, PositionInfo, MoveList)}, but only finds captures (including enpassant) and
+	 * promotions. Quiet moves are not generated at all. This is intended for the quiescence search.
+	 *
+	 * @param position current position.
+	 * @param kingInCheck indicates if the king is currently in check. This limits the available moves.
+	 * @param posnInfo info about pieces checking the king, pinned pieces, etc.
+	 * @param moves the moves found (encoded as per {@link PackedMove}) will be added to this list.
+	 */
+	void findCaptures(Position position,
+			boolean kingInCheck,
+			PositionInfo posnInfo,
+			MoveList moves);
+
+	/**
+	 * As {@link #findMoves(Position, boolean, PositionInfo, MoveList)}, but only finds the quiet moves, i.e. neither
+	 * captures nor promotions. Together with {@link #findCaptures(Position, boolean, PositionInfo, MoveList)}, all moves are
+	 * generated exactly once. This is intended for a staged move generation.
+	 *
+	 * @param position current position.
+	 * @param kingInCheck indicates if the king is currently in check. This limits the available moves.
+	 * @param posnInfo info about pieces checking the king, pinned pieces, etc.
+	 * @param moves the moves found (encoded as per {@link PackedMove}) will be added to this list.
+	 */
+	void findQuietMoves(Position position,
+			boolean kingInCheck,
+			PositionInfo posnInfo,
+			MoveList moves);
+
+	/**
+	 * As {@link #findMoves(Position, boolean, PositionInfo, MoveList)}, but returns the moves as Move objects.
+	 *
+	 * @param position current position.
+	 * @param kingInCheck indicates if the king is currently in check. This limits the available moves.
+	 * @param posnInfo info about pieces checking the king, pinned pieces, etc.
 	 * @return a list of all possible moves.
 	 */
-	List<Move> findMoves(Position position,
+	default List<Move> findMoves(Position position,
 			boolean kingInCheck,
-			PositionInfo posnInfo);
+			PositionInfo posnInfo) {
+		MoveList moves = new MoveList();
+		findMoves(position, kingInCheck, posnInfo, moves);
+		return moves.toMoves();
+	}
 
 	/**
 	 * After the move, is the opponent's king in check. <b>DOES NOT look for discovered checks.</b>
 	 *
-	 * @param move the move
+	 * @param move the move (see {@link PackedMove})
 	 * @param pieces all my pieces (is required by the pawn implementation)
 	 * @param opponentsKing where the opponent's king is
 	 * @param checkingBitboards the bitboards of squares which check the opponent's king [0]=rook,[1]=bishop
 	 * @return true if the opponent's king is in check as a direct result of this move (disregarding any possible discovered
 	 *         checks)
 	 */
-	boolean doesMoveLeaveOpponentInCheck(Move move,
+	boolean doesMoveLeaveOpponentInCheck(int move,
 			Piece[] pieces,
 			Square opponentsKing,
-			BitBoard[] checkingBitboards);
+			long[] checkingBitboards);
 
 	/**
 	 * Checks to see if the given square is attacked by one or more pieces of this piece type.
 	 *
-	 * @param emptySquares empty square bitset
-	 * @param targetSq the square to check.
-	 * @param checkCache check cache
-	 * @return true if it is attacked, otherwise false.
-	 */
-	boolean attacksSquare(BitSetUnifier emptySquares,
-			Square targetSq,
-			PositionCheckState checkCache);
-
-	/**
-	 * Checks to see if the given square is attacked by one or more pieces of this piece type. <B>without check cache --
-	 * usually just for tests</b>.
-	 *
-	 * @param emptySquares empty square bitset
+	 * @param emptySquares empty square bitboard
 	 * @param targetSq the square to check.
 	 * @return true if it is attacked, otherwise false.
 	 */
-	boolean attacksSquare(BitSetUnifier emptySquares,
+	boolean attacksSquare(long emptySquares,
 			Square targetSq);
 
 	/**
@@ -119,6 +150,16 @@ public interface Piece extends Cloneable {
 	 */
 	void addPiece(Square square);
 
+	/**
+	 * Moves a piece of this type from one square to another. Unlike {@link #move(Move)}, promotions are not catered for,
+	 * and no Move object is required. Used when making and unmaking moves in place.
+	 *
+	 * @param fromBitIndex bit index of the square where the piece is
+	 * @param toBitIndex bit index of the destination square
+	 */
+	void move(int fromBitIndex,
+			int toBitIndex);
+
 	/**
 	 * @return the colour of the piece.
 	 */
@@ -126,6 +167,14 @@ public interface Piece extends Cloneable {
 
 	BitBoard getBitBoard();
 
+	/**
+	 * Returns the squares currently occupied by this piece type as a bitboard (see
+	 * {@link org.rjo.chess.base.bits.LongBitBoard}). Unlike {@link #getBitBoard()}, no object is created.
+	 *
+	 * @return the squares currently occupied by this piece type
+	 */
+	long getBits();
+
 	/**
 	 * Returns all the squares currently occupied by this piece type.
 	 *
@@ -150,13 +199,45 @@ public interface Piece extends Cloneable {
 	 */
 	boolean pieceAt(Square targetSquare);
 
+	/**
+	 * Calculates the middlegame piece-square value in centipawns, see {@link #calculatePieceSquareValue(boolean)}.
+	 *
+	 * @return the piece-square value in centipawns (for all pieces of this type).
+	 */
+	default int calculatePieceSquareValue() {
+		return calculatePieceSquareValue(false);
+	}
+
 	/**
 	 * Calculates the piece-square value in centipawns. For each piece, its piece_value is added to the square_value of the
 	 * square where it currently is.
 	 *
+	 * @param endgame if true, the endgame square values are used, otherwise the middlegame values. The evaluation
+	 *           interpolates between the two according to the game phase.
 	 * @return the piece-square value in centipawns (for all pieces of this type).
 	 */
-	int calculatePieceSquareValue();
+	int calculatePieceSquareValue(boolean endgame);
+
+	/**
+	 * The middlegame piece-square value of one piece on the given square, see {@link #pieceSquareValue(int, boolean)}.
+	 *
+	 * @param bitIndex the square
+	 * @return the piece-square value in centipawns
+	 */
+	default int pieceSquareValue(int bitIndex) {
+		return pieceSquareValue(bitIndex, false);
+	}
+
+	/**
+	 * The piece-square value in centipawns of one piece of this type and colour on the given square, i.e. piece_value
+	 * plus square_value. Used to update an evaluation incrementally.
+	 *
+	 * @param bitIndex the square
+	 * @param endgame if true, the endgame square values are used, otherwise the middlegame values
+	 * @return the piece-square value in centipawns
+	 */
+	int pieceSquareValue(int bitIndex,
+			boolean endgame);
 
 	/**
 	 * returns the number of pieces of this type still on the board.
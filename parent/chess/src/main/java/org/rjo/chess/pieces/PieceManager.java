@@ -6,7 +6,6 @@ import java.util.stream.Collectors;
 
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.PieceType;
-import org.rjo.chess.base.bits.BitSetUnifier;
 
 /**
  * @author rich
@@ -84,6 +83,21 @@ public class PieceManager {
 		}
 	}
 
+	/**
+	 * Clones all pieces up front. Afterwards {@link #getClonedPiece(Colour, PieceType)} returns the (already cloned)
+	 * piece without further copying. Required for a position which is changed in place, see
+	 * {@link org.rjo.chess.position.Position#makeMove(int)}.
+	 */
+	public void cloneAllPieces() {
+		for (Colour colour : Colour.ALL_COLOURS) {
+			for (PieceType pieceType : PieceType.ALL_PIECE_TYPES) {
+				if (getPiece(colour, pieceType) != null) {
+					getClonedPiece(colour, pieceType);
+				}
+			}
+		}
+	}
+
 	/**
 	 * returns the pieces for the given colour.
 	 *
@@ -95,18 +109,30 @@ public class PieceManager {
 	}
 
 	/**
-	 * Returns an array of all the bitsets of all of the pieces for the given
+	 * Returns an array of all the bitboards of all of the pieces for the given
 	 * colour.
 	 *
 	 * @param colour the required colour
-	 * @return an array containing all the bitsets of all of the pieces
+	 * @return an array containing all the bitboards of all of the pieces
+	 */
+	public long[] setupBitboards(Colour colour) {
+		return setupBitboards(colour, new long[PieceType.ALL_PIECE_TYPES.length]);
+	}
+
+	/**
+	 * As {@link #setupBitboards(Colour)}, but fills the given array instead of
+	 * allocating a new one.
+	 *
+	 * @param colour          the required colour
+	 * @param piecesBitboards will contain the bitboards, indexed by PieceType
+	 *                        ordinal
+	 * @return <code>piecesBitboards</code>
 	 */
-	public BitSetUnifier[] setupBitsets(Colour colour) {
-		BitSetUnifier[] piecesBitsets = new BitSetUnifier[PieceType.ALL_PIECE_TYPES.length];
+	public long[] setupBitboards(Colour colour, long[] piecesBitboards) {
 		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
-			piecesBitsets[type.ordinal()] = pieces[colour.ordinal()][type.ordinal()].getBitBoard().getBitSet();
+			piecesBitboards[type.ordinal()] = pieces[colour.ordinal()][type.ordinal()].getBits();
 		}
-		return piecesBitsets;
+		return piecesBitboards;
 	}
 
 	/**
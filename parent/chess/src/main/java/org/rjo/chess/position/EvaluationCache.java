@@ -0,0 +1,109 @@
+package org.rjo.chess.position;
+
+/**
+ * A fixed-size cache of static evaluations ({@link Position#evaluate()}), keyed by the zobrist hash of a position.
+ * Transpositions reach the same leaf positions many times during a search, and a lookup is much cheaper than an
+ * evaluation.
+ * <p>
+ * Direct-mapped: each position has exactly one slot, a new entry always replaces the old one. As in the
+ * {@link TranspositionTable}, an entry is stored in two <code>long</code>s, the data and the zobrist key xor'ed with the
+ * data, so that the cache can be shared between search threads without locking: an entry which was only partially
+ * written by another thread fails the key check and is ignored. For the same reason, the cache does not keep any
+ * statistics: these are counted by the search threads themselves.
+ *
+ * <pre>
+ *  bits  0-31  score (signed, from white's point of view)
+ *  bit     32  set if the entry is in use
+ * </pre>
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public class EvaluationCache {
+
+	/** default size of the cache in MB */
+	public static final int DEFAULT_SIZE_MB = 4;
+
+	/** returned from {@link #probe(long)} if the position is not in the cache */
+	public static final int NO_SCORE = Integer.MIN_VALUE;
+
+	private static final long SCORE_MASK = 0xFFFFFFFFL;
+	private static final long IN_USE = 1L << 32;
+
+	/** zobrist key xor data */
+	private final long[] keys;
+	/** packed data */
+	private final long[] data;
+	/** number of entries - 1 */
+	private final int indexMask;
+
+	/**
+	 * Creates a cache with the default size.
+	 */
+	public EvaluationCache() {
+		this(DEFAULT_SIZE_MB);
+	}
+
+	/**
+	 * Creates a cache which uses (at most) the given amount of memory.
+	 *
+	 * @param sizeInMB size in MB. The number of entries is rounded down to a power of two.
+	 */
+	public EvaluationCache(int sizeInMB) {
+		if (sizeInMB < 1) {
+			throw new IllegalArgumentException("size must be at least 1 MB, got: " + sizeInMB);
+		}
+		// each entry: 16 bytes
+		long nbrEntries = Long.highestOneBit(((long) sizeInMB << 20) / 16);
+		if (nbrEntries > (1 << 30)) {
+			throw new IllegalArgumentException("size too large: " + sizeInMB + " MB");
+		}
+		this.indexMask = (int) nbrEntries - 1;
+		this.keys = new long[(int) nbrEntries];
+		this.data = new long[(int) nbrEntries];
+	}
+
+	/**
+	 * Empties the cache. Required if the evaluation function changes.
+	 */
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0;
+			data[i] = 0;
+		}
+	}
+
+	/**
+	 * Looks up the given position.
+	 *
+	 * @param zobristHash zobrist hash of the position
+	 * @return the score, or {@link #NO_SCORE} if not present
+	 */
+	public int probe(long zobristHash) {
+		int index = indexOf(zobristHash);
+		long entry = data[index];
+		if (entry != 0 && (keys[index] ^ entry) == zobristHash) {
+			return (int) (entry & SCORE_MASK);
+		}
+		return NO_SCORE;
+	}
+
+	/**
+	 * Stores an evaluation.
+	 *
+	 * @param zobristHash zobrist hash of the position
+	 * @param score the score
+	 */
+	public void store(long zobristHash,
+			int score) {
+		int index = indexOf(zobristHash);
+		long entry = (score & SCORE_MASK) | IN_USE;
+		data[index] = entry;
+		keys[index] = zobristHash ^ entry;
+	}
+
+	private int indexOf(long zobristHash) {
+		// the lower bits of the key (the transposition table uses the upper bits)
+		return (int) zobristHash & indexMask;
+	}
+}
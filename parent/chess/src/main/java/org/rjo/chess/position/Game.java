@@ -28,8 +28,6 @@ public class Game {
 	// this points to the last position stored in 'gameProgress'.
 	private int currentMoveOffset;
 
-	private ZobristMap zobristMap;
-
 	/**
 	 * Constructs a game with the default start position.
 	 */
@@ -47,7 +45,6 @@ public class Game {
 		gameProgress.add(new MovePosition(null, position));
 		moveNbr = 1;
 		currentMoveOffset = 0;
-		zobristMap = new ZobristMap();
 	}
 
 	public void makeMove(Move move) {
@@ -60,10 +57,6 @@ public class Game {
 		}
 	}
 
-	public ZobristMap getZobristMap() {
-		return zobristMap;
-	}
-
 	public Position getPosition() {
 		return gameProgress.get(currentMoveOffset).getPosition();
 	}
@@ -0,0 +1,127 @@
+package org.rjo.chess.position;
+
+import org.rjo.chess.base.Colour;
+import org.rjo.chess.base.bits.LongBitBoard;
+import org.rjo.chess.pieces.Pawn;
+
+/**
+ * Evaluation of the pawn structure: doubled, isolated, backward and passed pawns, and the pawn shield in front of the
+ * king.
+ * <p>
+ * Calculated with set-wise operations (file fills and front spans) on the pawn bitboards, i.e. without looping over
+ * the individual pawns (apart from looking up the rank-dependent bonus of a passed pawn). The result of
+ * {@link #evaluate(long, long)} only depends on the pawns and can therefore be cached in a pawn hash table (see
+ * {@link Position#getPawnHash()}); the king shield also depends on the king's position and is not cached.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public final class PawnStructure {
+
+	/** penalty for each pawn with another pawn of the same colour behind it on the same file */
+	static final int DOUBLED_PAWN = -10;
+	/** penalty for a pawn without pawns of the same colour on the adjacent files */
+	static final int ISOLATED_PAWN = -15;
+	/** penalty for a pawn which cannot be supported by other pawns and whose stop square is attacked by an enemy pawn */
+	static final int BACKWARD_PAWN = -8;
+	/** bonus for a passed pawn, indexed by its rank (from the pawn's point of view, 0 = first rank) */
+	static final int[] PASSED_PAWN = { 0, 5, 10, 20, 35, 60, 100, 0 };
+
+	/** bonus for each pawn directly in front of the king (or diagonally in front) */
+	static final int PAWN_SHIELD_1 = 10;
+	/** bonus for each pawn two squares in front of the king (or diagonally) */
+	static final int PAWN_SHIELD_2 = 5;
+
+	private PawnStructure() {
+	}
+
+	/**
+	 * Evaluates the pawn structure.
+	 *
+	 * @param whitePawns the white pawns
+	 * @param blackPawns the black pawns
+	 * @return the score in centipawns, from white's point of view
+	 */
+	public static int evaluate(long whitePawns,
+			long blackPawns) {
+		return evaluate(Colour.WHITE, whitePawns, blackPawns) - evaluate(Colour.BLACK, blackPawns, whitePawns);
+	}
+
+	/**
+	 * The bonus for the pawns sheltering the king. Only applies if the king is on its first or second rank.
+	 *
+	 * @param colour the king's colour
+	 * @param kingSquare the king's square (bit index)
+	 * @param pawns the pawns of the same colour as the king
+	 * @return the bonus in centipawns (from the point of view of <code>colour</code>)
+	 */
+	public static int kingShield(Colour colour,
+			int kingSquare,
+			long pawns) {
+		if (colour == Colour.WHITE ? kingSquare >= 16 : kingSquare < 48) {
+			return 0;
+		}
+		final long front = forward(colour, LongBitBoard.bit(kingSquare));
+		final long shield1 = front | LongBitBoard.shiftEast(front) | LongBitBoard.shiftWest(front);
+		final long shield2 = forward(colour, shield1);
+		return PAWN_SHIELD_1 * Long.bitCount(pawns & shield1) + PAWN_SHIELD_2 * Long.bitCount(pawns & shield2);
+	}
+
+	/**
+	 * Evaluates the pawns of one side.
+	 *
+	 * @param colour the side
+	 * @param pawns this side's pawns
+	 * @param opponentsPawns the opponent's pawns
+	 * @return the score, from the point of view of <code>colour</code>
+	 */
+	private static int evaluate(Colour colour,
+			long pawns,
+			long opponentsPawns) {
+		final Colour opponentsColour = Colour.oppositeColour(colour);
+		int score = 0;
+
+		// doubled: pawns with a pawn of the same colour behind them
+		score += DOUBLED_PAWN * Long.bitCount(pawns & frontSpan(colour, pawns));
+
+		// isolated: no pawns of the same colour on the adjacent files
+		final long files = LongBitBoard.fileFill(pawns);
+		final long adjacentFiles = LongBitBoard.shiftEast(files) | LongBitBoard.shiftWest(files);
+		score += ISOLATED_PAWN * Long.bitCount(pawns & ~adjacentFiles);
+
+		// backward: the stop square is attacked by an enemy pawn and cannot be defended by an own pawn, now or after
+		// the own pawns have advanced
+		final long attackSpans = fill(colour, Pawn.attacks(colour, pawns));
+		final long stops = forward(colour, pawns);
+		final long backwardStops = stops & Pawn.attacks(opponentsColour, opponentsPawns) & ~attackSpans;
+		score += BACKWARD_PAWN * Long.bitCount(forward(opponentsColour, backwardStops));
+
+		// passed: no enemy pawns in front on the same or the adjacent files
+		final long opponentsFrontSpans = frontSpan(opponentsColour, opponentsPawns);
+		final long blocked = opponentsFrontSpans | LongBitBoard.shiftEast(opponentsFrontSpans)
+				| LongBitBoard.shiftWest(opponentsFrontSpans);
+		for (long passed = pawns & ~blocked; passed != 0; passed = LongBitBoard.clearLowestBit(passed)) {
+			final int rank = LongBitBoard.lowestBit(passed) >>> 3;
+			score += PASSED_PAWN[colour == Colour.WHITE ? rank : 7 - rank];
+		}
+		return score;
+	}
+
+	/** the squares one rank forward from the point of view of <code>colour</code> */
+	private static long forward(Colour colour,
+			long bb) {
+		return colour == Colour.WHITE ? LongBitBoard.shiftNorth(bb) : LongBitBoard.shiftSouth(bb);
+	}
+
+	/** the set bits and all squares in front of them from the point of view of <code>colour</code> */
+	private static long fill(Colour colour,
+			long bb) {
+		return colour == Colour.WHITE ? LongBitBoard.northFill(bb) : LongBitBoard.southFill(bb);
+	}
+
+	/** all squares in front of the set bits from the point of view of <code>colour</code>, excluding the bits */
+	private static long frontSpan(Colour colour,
+			long bb) {
+		return fill(colour, forward(colour, bb));
+	}
+}
@@ -1,10 +1,8 @@
 package org.rjo.chess.position;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -17,12 +15,14 @@ import org.rjo.chess.base.CastlingRightsSummary;
 import org.rjo.chess.base.CastlingRightsSummary.CastlingRights;
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
+import org.rjo.chess.base.bits.MagicBitBoard;
 import org.rjo.chess.base.ray.Ray;
-import org.rjo.chess.base.ray.RayInfo;
 import org.rjo.chess.base.ray.RayType;
 import org.rjo.chess.base.ray.RayUtils;
 import org.rjo.chess.pieces.Bishop;
@@ -38,9 +38,18 @@ import org.rjo.chess.position.PositionCheckState.CheckInfo;
 import org.rjo.chess.position.check.CheckStates;
 
 /**
- * An immutable object which stores the board position after a particular
- * move.<br>
+ * Stores the board position after a particular move.<br>
  * <i>(Previously: Chessboard.java.)</i>
+ * <p>
+ * {@link #move(Move)} returns a new position and leaves this one unchanged. For
+ * a search, {@link #mutableCopy()} returns a copy which is changed in place by
+ * {@link #makeMove(int)} and restored by {@link #unmakeMove()} (every
+ * <code>makeMove</code> must be followed by the matching
+ * <code>unmakeMove</code>, in reverse order).
+ * <p>
+ * Not thread-safe: even the query methods update internal caches (e.g.
+ * {@link #attackedSquares(Colour)}, {@link #isLegal(int)}). An instance must
+ * not be shared between threads; each search thread works on its own copy.
  *
  * @author rich
  * @since 2016-09-04
@@ -63,21 +72,14 @@ public class Position {
 	 * bitboard of all pieces for a particular colour. The dimension indicates the
 	 * colour {white, black}.
 	 */
-	private BitBoard[] allEnemyPieces;
+	private long[] allPieces;
 
 	/**
 	 * bitboard of all pieces on the board (irrespective of colour). Logical NOT of
-	 * this BitBoard gives a bitboard of all empty squares (see
-	 * {@link #emptySquares}.
+	 * this bitboard gives a bitboard of all empty squares (see
+	 * {@link #getEmptySquaresBits()}.
 	 */
-	private BitBoard totalPieces;
-
-	/**
-	 * BitSet of all empty squares. Logical NOT of this BitBoard gives
-	 * {@link #totalPieces}. Only created 'on demand', see
-	 * {@link #getEmptySquares()}.
-	 */
-	private BitSetUnifier emptySquares;
+	private long totalPieces;
 
 	/** Indicates an enpassant square; can be null. */
 	private Square enpassantSquare;
@@ -89,19 +91,68 @@ public class Position {
 	private Colour sideToMove;
 
 	/**
-	 * check information of the previous move.
+	 * check information of the previous move, i.e. whether the side to move is in
+	 * check. <code>null</code> if not yet known: this is only calculated on demand,
+	 * see {@link #isInCheck()}.
 	 */
-	private boolean checkInformation;
+	private Boolean checkInformation;
 
 	/** zobrist value of this position */
 	private long zobristHash;
 
+	/** zobrist value of the pawns only, the key of the pawn hash table */
+	private long pawnHash;
+
 	/** stores the fen of this position */
 	private String fen;
 
 	/** the evaluated score for this position */
 	private PositionScore positionScore;
 
+	/**
+	 * The pinned pieces of each colour, used by {@link #isLegal(int)}. Calculated
+	 * on demand; the bit for the colour ordinal is set in
+	 * <code>pinnedPiecesValid</code> if the value is up to date. Reset after
+	 * each move and when taking back a move.
+	 */
+	private final long[] pinnedPieces = new long[2];
+	private int pinnedPiecesValid;
+
+	/**
+	 * For each colour, the squares from which a piece would check the opponent's
+	 * king (indexed by PieceType ordinal), plus at index
+	 * {@link #DISCOVERED_CHECK} the pieces which would give a discovered check by
+	 * moving off the line to the king. Used by {@link #givesCheck(int)}.
+	 * Calculated on demand and reset in the same way as {@link #pinnedPieces}.
+	 */
+	private final long[][] checkSquares = new long[2][PieceType.values().length + 1];
+	private int checkSquaresValid;
+	private static final int DISCOVERED_CHECK = PieceType.values().length;
+
+	/**
+	 * For each colour, the squares attacked by its pieces, see
+	 * {@link #attackedSquares(Colour)}. Shared by castling, the king moves and the
+	 * mobility; calculated on demand (or as a by-product of
+	 * {@link #mobility(Colour, boolean)}) and reset in the same way as
+	 * {@link #pinnedPieces}.
+	 */
+	private final long[] attackedSquares = new long[2];
+	private int attackedSquaresValid;
+
+	/**
+	 * Scratch buffer for {@link #staticExchangeEvaluation(int)}, which is called
+	 * for every capture in the search. There can be at most 32 captures on one
+	 * square.
+	 */
+	private final int[] seeGain = new int[32];
+
+	/**
+	 * Scratch buffers for the bitboards of each piece type (indexed by colour
+	 * ordinal), which are passed to the position analysis when generating legal
+	 * moves.
+	 */
+	private final long[][] pieceBitboards = new long[2][PieceType.ALL_PIECE_TYPES.length];
+
 	/**
 	 * Which squares lead to check on the opponent's king. One for White's POV, one
 	 * for Black's.
@@ -118,9 +169,74 @@ public class Position {
 	 */
 	private PositionCheckState[] checkState;
 
+	/**
+	 * Sums of the middlegame and endgame piece-square values (see
+	 * {@link Piece#pieceSquareValue(int, boolean)}) of all pieces, from white's
+	 * point of view. Incrementally updated after each move.
+	 */
+	private int middlegameScore;
+	private int endgameScore;
+
+	/**
+	 * The game phase, {@link #MAX_GAME_PHASE} with all pieces on the board down to
+	 * 0 with only kings and pawns, see {@link #PHASE_WEIGHTS}. Incrementally
+	 * updated after each move. Can be larger than MAX_GAME_PHASE after
+	 * promotions.
+	 */
+	private int gamePhase;
+
 	/** squares where the kings are, stored here as optimization */
 	private Square[] kingPosition = new Square[Colour.ALL_COLOURS.length];
 
+	/** piece values for {@link #pieceValue(PieceType)}, indexed by PieceType ordinal */
+	private static final int[] PIECE_VALUES = new int[PieceType.values().length];
+	static {
+		PIECE_VALUES[PieceType.PAWN.ordinal()] = 100;
+		PIECE_VALUES[PieceType.KNIGHT.ordinal()] = 320;
+		PIECE_VALUES[PieceType.BISHOP.ordinal()] = 330;
+		PIECE_VALUES[PieceType.ROOK.ordinal()] = 500;
+		PIECE_VALUES[PieceType.QUEEN.ordinal()] = 900;
+		PIECE_VALUES[PieceType.KING.ordinal()] = 20000;
+	}
+
+	/**
+	 * contribution of each piece to the game phase, indexed by PieceType ordinal.
+	 * Pawns and kings are not counted.
+	 */
+	private static final int[] PHASE_WEIGHTS = new int[PieceType.values().length];
+	static {
+		PHASE_WEIGHTS[PieceType.KNIGHT.ordinal()] = 1;
+		PHASE_WEIGHTS[PieceType.BISHOP.ordinal()] = 1;
+		PHASE_WEIGHTS[PieceType.ROOK.ordinal()] = 2;
+		PHASE_WEIGHTS[PieceType.QUEEN.ordinal()] = 4;
+	}
+
+	/** the game phase at the start of the game, see {@link #getGamePhase()} */
+	public static final int MAX_GAME_PHASE = 24;
+
+	/** weighting of the mobility in {@link #evaluate()} */
+	private static final int MOBILITY_WEIGHTING = 2;
+
+	/** order in which the static exchange evaluation chooses the capturing piece */
+	private static final PieceType[] SEE_ATTACKER_ORDER = new PieceType[] { PieceType.PAWN, PieceType.KNIGHT,
+			PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN, PieceType.KING };
+
+	/**
+	 * maximum number of moves which can be made with {@link #makeMove(int)} without
+	 * a corresponding {@link #unmakeMove()}.
+	 */
+	public static final int MAX_UNDO_DEPTH = 256;
+
+	/**
+	 * Stores the state required to undo a move made with {@link #makeMove(int)}.
+	 * Only set for a mutable position, see {@link #mutableCopy()}. The entries are
+	 * preallocated and reused.
+	 */
+	private UndoInfo[] undoStack;
+
+	/** number of moves currently on the undo stack */
+	private int undoDepth;
+
 	public static Position startPosition() {
 		return new Position(Colour.WHITE);
 	}
@@ -177,6 +293,7 @@ public class Position {
 		NBR_INSTANCES_CREATED++;
 
 		this.zobristHash = Zobrist.INSTANCE.hash(this);
+		this.pawnHash = Zobrist.INSTANCE.pawnHash(this);
 		this.fen = Fen.encode(this);
 		this.checkState = new PositionCheckState[Colour.values().length];
 		if (SystemFlags.USE_CHECK_STATE) {
@@ -195,18 +312,20 @@ public class Position {
 	 */
 	public Position(final Position otherPosn) {
 		pieceMgr = new PieceManager(otherPosn.pieceMgr);
+		if (otherPosn.undoStack != null) {
+			// the pieces of a mutable position are changed in place and cannot be shared
+			pieceMgr.cloneAllPieces();
+		}
 
 		// need to clone here, since these structures are changed incrementally in
 		// updateStructures()
 
-		totalPieces = new BitBoard(otherPosn.totalPieces);
-		emptySquares = null;
+		totalPieces = otherPosn.totalPieces;
 
-		allEnemyPieces = new BitBoard[2];
+		allPieces = otherPosn.allPieces.clone();
 		castling = new CastlingRightsSummary[2];
 		this.checkState = new PositionCheckState[2];
 		for (int i = 0; i < 2; i++) {
-			allEnemyPieces[i] = otherPosn.allEnemyPieces[i]; // cloned on move (updateStructures)
 			// castling rights are cloned on write
 			castling[i] = otherPosn.castling[i];
 			if (SystemFlags.USE_CHECK_STATE) {
@@ -218,9 +337,13 @@ public class Position {
 		}
 		enpassantSquare = otherPosn.enpassantSquare;
 		sideToMove = otherPosn.sideToMove;
+		middlegameScore = otherPosn.middlegameScore;
+		endgameScore = otherPosn.endgameScore;
+		gamePhase = otherPosn.gamePhase;
 
 		NBR_INSTANCES_CREATED++;
 		this.zobristHash = otherPosn.zobristHash;
+		this.pawnHash = otherPosn.pawnHash;
 		// fen is not set here, since will be making a move straight away and should
 		// create it then
 	}
@@ -262,6 +385,13 @@ public class Position {
 		return zobristHash;
 	}
 
+	/**
+	 * @return the zobrist hash of the pawns of both sides
+	 */
+	public long getPawnHash() {
+		return pawnHash;
+	}
+
 	/**
 	 * Returns the position of the king with the requested colour.
 	 *
@@ -281,20 +411,31 @@ public class Position {
 	 */
 	private void initBoard(Set<Piece> whitePieces, Set<Piece> blackPieces) {
 		this.pieceMgr = new PieceManager(whitePieces, blackPieces);
-		allEnemyPieces = new BitBoard[2];
+		allPieces = new long[2];
 		for (Colour colour : Colour.ALL_COLOURS) {
-			allEnemyPieces[colour.ordinal()] = new BitBoard();
 			for (PieceType p : PieceType.ALL_PIECE_TYPES) {
 				Piece piece = pieceMgr.getPiece(colour, p);
 				if (piece != null) {
-					allEnemyPieces[colour.ordinal()].getBitSet().or(piece.getBitBoard().getBitSet());
+					allPieces[colour.ordinal()] |= piece.getBits();
+				}
+			}
+		}
+		totalPieces = allPieces[Colour.WHITE.ordinal()] | allPieces[Colour.BLACK.ordinal()];
+
+		middlegameScore = 0;
+		endgameScore = 0;
+		gamePhase = 0;
+		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
+			for (Colour colour : Colour.ALL_COLOURS) {
+				Piece piece = pieceMgr.getPiece(colour, type);
+				if (piece != null) {
+					int sign = colour == Colour.WHITE ? 1 : -1;
+					middlegameScore += sign * piece.calculatePieceSquareValue(false);
+					endgameScore += sign * piece.calculatePieceSquareValue(true);
+					gamePhase += piece.numberOfPieces() * PHASE_WEIGHTS[type.ordinal()];
 				}
 			}
 		}
-		totalPieces = new BitBoard();
-		totalPieces.getBitSet().or(allEnemyPieces[Colour.WHITE.ordinal()].getBitSet());
-		totalPieces.getBitSet().or(allEnemyPieces[Colour.BLACK.ordinal()].getBitSet());
-		emptySquares = null;
 
 		enpassantSquare = null;
 	}
@@ -306,6 +447,17 @@ public class Position {
 	 */
 	// package private for tests
 	void updateStructures(Move move) {
+		updateStructures(PackedMove.fromMove(move));
+	}
+
+	/**
+	 * As {@link #updateStructures(Move)}, for a move encoded as per
+	 * {@link PackedMove}.
+	 *
+	 * @param move the move
+	 */
+	void updateStructures(int move) {
+
 		// @formatter:off
 		// (f=flip)
 		// White-Move non-capture capture
@@ -321,37 +473,36 @@ public class Position {
 		//
 		// @formatter:on
 
-		final int colourOrdinal = move.getColour().ordinal();
-		final int oppositeColourOrdinal = Colour.oppositeColour(move.getColour()).ordinal();
-		final int moveFromBitIndex = move.from().bitIndex();
-		final int moveToBitIndex = move.to().bitIndex();
+		final Colour colour = PackedMove.colour(move);
+		final int colourOrdinal = colour.ordinal();
+		final int oppositeColourOrdinal = Colour.oppositeColour(colour).ordinal();
 
-		allEnemyPieces[colourOrdinal] = new BitBoard(allEnemyPieces[colourOrdinal]); // clone
-		allEnemyPieces[oppositeColourOrdinal] = new BitBoard(allEnemyPieces[oppositeColourOrdinal]); // clone
+		final long fromBit = LongBitBoard.bit(PackedMove.from(move));
+		final long toBit = LongBitBoard.bit(PackedMove.to(move));
 
 		// update incrementally
-		if (!move.isCapture()) {
-			updateBitSet(allEnemyPieces[colourOrdinal].getBitSet(), move);
-			updateBitSet(totalPieces.getBitSet(), move);
+		if (!PackedMove.isCapture(move)) {
+			long moveBits = fromBit | toBit;
+			if (PackedMove.isCastle(move)) {
+				moveBits |= LongBitBoard.bit(PackedMove.rooksCastlingOrigin(move))
+						| LongBitBoard.bit(PackedMove.rooksCastlingDestination(move));
+			}
+			allPieces[colourOrdinal] ^= moveBits;
+			totalPieces ^= moveBits;
 		} else {
 			// capture move
-			if (!move.isEnpassant()) {
-				allEnemyPieces[colourOrdinal].getBitSet().flip(moveFromBitIndex);
-				allEnemyPieces[colourOrdinal].getBitSet().flip(moveToBitIndex);
-				allEnemyPieces[oppositeColourOrdinal].getBitSet().flip(moveToBitIndex);
-				totalPieces.getBitSet().flip(moveFromBitIndex);
+			if (!PackedMove.isEnpassant(move)) {
+				allPieces[colourOrdinal] ^= fromBit | toBit;
+				allPieces[oppositeColourOrdinal] ^= toBit;
+				totalPieces ^= fromBit;
 			} else {
 				// enpassant
-				int enpassantSquareBitIndex = Square.findMoveFromEnpassantSquare(move.to()).bitIndex();
-				allEnemyPieces[colourOrdinal].getBitSet().flip(moveFromBitIndex);
-				allEnemyPieces[colourOrdinal].getBitSet().flip(moveToBitIndex);
-				allEnemyPieces[oppositeColourOrdinal].getBitSet().flip(enpassantSquareBitIndex);
-				totalPieces.getBitSet().flip(moveFromBitIndex);
-				totalPieces.getBitSet().flip(moveToBitIndex);
-				totalPieces.getBitSet().flip(enpassantSquareBitIndex);
+				long enpassantBit = LongBitBoard.bit(PackedMove.pawnCapturedEnpassant(move));
+				allPieces[colourOrdinal] ^= fromBit | toBit;
+				allPieces[oppositeColourOrdinal] ^= enpassantBit;
+				totalPieces ^= fromBit | toBit | enpassantBit;
 			}
 		}
-		emptySquares = null; // will be recreated on-demand
 	}
 
 	/**
@@ -361,138 +512,588 @@ public class Position {
 	 * @return all moves for this colour.
 	 */
 	public List<Move> findMoves(Colour colour) {
-		return findMoves(colour, this.checkInformation);
+		MoveList moves = new MoveList();
+		findMoves(colour, isInCheck(), true, true, false, moves);
+		// the Move objects always store whether they give check
+		for (int i = 0; i < moves.size(); i++) {
+			moves.set(i, PackedMove.withCheckStatus(moves.get(i), givesCheck(moves.get(i))));
+		}
+		return moves.toMoves();
 	}
 
 	/**
-	 * Find all moves for the given colour from the current position, overriding the
-	 * position's <code>inCheck</code> value.
+	 * Find all moves for the given colour from the current position. The moves,
+	 * encoded as per {@link PackedMove}, are stored in <code>moves</code>, which
+	 * is cleared first. No Move objects are created.
 	 *
-	 * @param colour           the required colour
-	 * @param checkInformation stores whether the king is in check in this position
-	 * @return all moves for this colour.
+	 * @param colour the required colour
+	 * @param moves  will contain all moves for this colour
 	 */
-	private List<Move> findMoves(Colour colour, boolean checkInformation) {
-
-		List<Move> moves = new ArrayList<>(100);
+	public void findMoves(Colour colour, MoveList moves) {
+		moves.clear();
+		findMoves(colour, isInCheck(), true, true, false, moves);
+	}
 
-		var posnInfo = PositionAnalyser.analysePosition(getKingPosition(colour), colour,
-				this.getAllPieces(colour).getBitSet(), getPieceManager().setupBitsets(colour),
-				getPieceManager().setupBitsets(Colour.oppositeColour(colour)), null, true);
+	/**
+	 * Find all captures (including enpassant) and promotions for the given colour
+	 * from the current position. Quiet moves are not generated. The moves, encoded
+	 * as per {@link PackedMove}, are stored in <code>moves</code>, which is cleared
+	 * first.
+	 *
+	 * @param colour the required colour
+	 * @param moves  will contain all captures and promotions for this colour
+	 */
+	public void findCaptures(Colour colour, MoveList moves) {
+		moves.clear();
+		findMoves(colour, isInCheck(), true, false, false, moves);
+	}
 
-		// double check -- king must move
-		// single check -- set up check restriction
-		// otherwise process as normal, but with info about pinned pieces
-		if (posnInfo.isDoubleCheck()) {
-			moves.addAll(getPieces(colour)[PieceType.KING.ordinal()].findMoves(this, checkInformation, posnInfo));
-		} else {
-			for (PieceType type : PieceType.ALL_PIECE_TYPES) {
-				Piece p = getPieces(colour)[type.ordinal()];
-				moves.addAll(p.findMoves(this, checkInformation, posnInfo));
-			}
-		}
+	/**
+	 * Find all pseudo-legal moves for the side to move: moves which obey the rules
+	 * of movement but could leave the king in check. Each move must be verified
+	 * with {@link #isLegal(int)} before it is played. This is cheaper than
+	 * {@link #findMoves(Colour, MoveList)} if, as in a search, many of the moves
+	 * are never played because of a cutoff.
+	 * <p>
+	 * If the king is in check, only legal moves are generated.
+	 *
+	 * @param colour the side to move
+	 * @param moves  will contain the moves for this colour
+	 */
+	public void findPseudoLegalMoves(Colour colour, MoveList moves) {
+		moves.clear();
+		findMoves(colour, isInCheck(), true, true, true, moves);
+	}
 
-		/*
-		 * at this point have found all legal moves. Now need to establish which moves
-		 * leave the opponent's king in check.
-		 */
+	/**
+	 * As {@link #findCaptures(Colour, MoveList)}, but pseudo-legal moves are
+	 * generated, see {@link #findPseudoLegalMoves(Colour, MoveList)}.
+	 *
+	 * @param colour the side to move
+	 * @param moves  will contain the captures and promotions for this colour
+	 */
+	public void findPseudoLegalCaptures(Colour colour, MoveList moves) {
+		moves.clear();
+		findMoves(colour, isInCheck(), true, false, true, moves);
+	}
 
-		final Square opponentsKingsSquare = getKingPosition(colour.oppositeColour());
-		var checkingSquaresBitBoards = PositionAnalyser.findCheckingSquares(opponentsKingsSquare,
-				this.getAllPieces(colour.oppositeColour()), this.getAllPieces(colour));
+	/**
+	 * Find the pseudo-legal quiet moves, i.e. all moves apart from captures
+	 * (including enpassant) and promotions, see
+	 * {@link #findPseudoLegalMoves(Colour, MoveList)}. Together with
+	 * {@link #findPseudoLegalCaptures(Colour, MoveList)}, each move is generated
+	 * exactly once.
+	 *
+	 * @param colour the side to move
+	 * @param moves  will contain the quiet moves for this colour
+	 */
+	public void findPseudoLegalQuietMoves(Colour colour, MoveList moves) {
+		moves.clear();
+		findMoves(colour, isInCheck(), false, true, true, moves);
+	}
 
-		for (Move move : moves) {
-			Piece p = getPieces(colour)[move.getPiece().ordinal()];
-			var isCheck = p.doesMoveLeaveOpponentInCheck(move, getPieces(colour), opponentsKingsSquare,
-					checkingSquaresBitBoards);
-			if (isCheck) {
-				move.setCheck(true);
-				continue;
+	/**
+	 * Checks whether a pseudo-legal move of the side to move (see
+	 * {@link #findPseudoLegalMoves(Colour, MoveList)}) leaves its own king in
+	 * check.
+	 * <ul>
+	 * <li>king moves: the target square must not be attacked (see
+	 * {@link #attackedSquares(Colour)}). When in check, the king is removed from the
+	 * board, since it could otherwise block the checking sliding piece.</li>
+	 * <li>castling: the king must not be in check and the squares it passes must
+	 * not be attacked.</li>
+	 * <li>enpassant: two pieces leave the same rank, therefore the king's square is
+	 * checked for attackers after the move.</li>
+	 * <li>other moves: a pinned piece may only move along the pin ray. When in
+	 * check, the move must capture the checking piece or interpose.</li>
+	 * </ul>
+	 *
+	 * @param move the move, encoded as per {@link PackedMove}
+	 * @return true if the move is legal
+	 */
+	public boolean isLegal(int move) {
+		final Colour colour = PackedMove.colour(move);
+		final long opponentsPieces = allPieces[colour.oppositeColour().ordinal()];
+		final int kingsSquare = kingPosition[colour.ordinal()].bitIndex();
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
+		if (PackedMove.isCastle(move)) {
+			return !isInCheck() && King.isCastlingLegal(this, colour, attackedSquares(colour.oppositeColour()),
+					PackedMove.isCastleKingsSide(move) ? CastlingRights.KINGS_SIDE : CastlingRights.QUEENS_SIDE);
+		}
+		if (from == kingsSquare) {
+			if (!isInCheck()) {
+				return !LongBitBoard.isSet(attackedSquares(colour.oppositeColour()), to);
+			}
+			return (attackersTo(to, totalPieces ^ LongBitBoard.bit(from)) & opponentsPieces
+					& ~LongBitBoard.bit(to)) == 0;
+		}
+		if (PackedMove.isEnpassant(move)) {
+			final long capturedPawn = LongBitBoard.bit(PackedMove.pawnCapturedEnpassant(move));
+			final long occupied = (totalPieces ^ LongBitBoard.bit(from) ^ capturedPawn) | LongBitBoard.bit(to);
+			return (attackersTo(kingsSquare, occupied) & opponentsPieces & ~capturedPawn) == 0;
+		}
+		if (LongBitBoard.isSet(pinnedPieces(colour), from)
+				&& !LongBitBoard.isSet(RayUtils.rayMask(
+						RayUtils.getRay(Square.fromBitIndex(kingsSquare), Square.fromBitIndex(from)).getRayType(),
+						kingsSquare), to)) {
+			return false;
+		}
+		if (isInCheck()) {
+			final long checkers = attackersTo(kingsSquare, totalPieces) & opponentsPieces;
+			if (Long.bitCount(checkers) > 1) {
+				return false;
 			}
+			final int checker = LongBitBoard.lowestBit(checkers);
+			return to == checker || LongBitBoard.isSet(RayUtils.squaresBetween(kingsSquare, checker), to);
+		}
+		return true;
+	}
 
-			// ***********************************************
-			// ... discovered check...
+	/**
+	 * Checks whether a move which was not generated in this position, e.g. the
+	 * move from the transposition table or a killer move from a sibling node, is
+	 * pseudo-legal here, i.e. would be generated by
+	 * {@link #findPseudoLegalMoves(Colour, MoveList)}. Such a move must not be
+	 * played otherwise, since it could corrupt the position (a hash collision, or
+	 * a killer move which refers to different pieces).
+	 * <p>
+	 * Nothing is generated, the move is checked against the bitboards:
+	 * <ul>
+	 * <li>the moving piece must be on the from square, the captured piece (if
+	 * any) on the to square, and the encoding must match, e.g. a pawn reaching the
+	 * last rank must promote.</li>
+	 * <li>pawns: one or two squares forward to empty squares, or a diagonal
+	 * capture; enpassant only to the current enpassant square.</li>
+	 * <li>sliding pieces: the squares in between must be empty.</li>
+	 * <li>castling: the castling rights, and the squares between king and rook
+	 * must be empty.</li>
+	 * </ul>
+	 * As for all pseudo-legal moves, {@link #isLegal(int)} must be called before
+	 * the move is played. If the king is in check, the move need not resolve the
+	 * check.
+	 *
+	 * @param move the move, encoded as per {@link PackedMove}. The check flag is
+	 *             ignored.
+	 * @return true if the move is pseudo-legal in this position
+	 */
+	public boolean isPseudoLegal(int move) {
+		if (move == PackedMove.NONE || PackedMove.colour(move) != sideToMove) {
+			return false;
+		}
+		final Colour colour = sideToMove;
+		final Colour opponentsColour = colour.oppositeColour();
+		final PieceType type = PackedMove.piece(move);
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
+		final long fromBit = LongBitBoard.bit(from);
+		final long toBit = LongBitBoard.bit(to);
+		if ((getPieces(colour)[type.ordinal()].getBits() & fromBit) == 0) {
+			return false;
+		}
+		move = PackedMove.withoutCheck(move);
+
+		if (PackedMove.isCastle(move)) {
+			final CastlingRights rights = PackedMove.isCastleKingsSide(move) ? CastlingRights.KINGS_SIDE
+					: CastlingRights.QUEENS_SIDE;
+			final int castlingMove = rights == CastlingRights.KINGS_SIDE ? PackedMove.castleKingsSide(colour)
+					: PackedMove.castleQueensSide(colour);
+			// whether the king passes through check is tested in isLegal
+			return move == castlingMove && canCastle(colour, rights)
+					&& King.isCastlingLegal(this, colour, LongBitBoard.EMPTY, rights);
+		}
+		if (PackedMove.isEnpassant(move)) {
+			return enpassantSquare != null && to == enpassantSquare.bitIndex()
+					&& move == PackedMove.enpassant(colour, from, to)
+					&& (Pawn.attacks(colour, fromBit) & toBit) != 0;
+		}
 
-			Ray rayToKing;
+		// the encoding must match the captured piece (or an empty square), and the promotion
+		if ((allPieces[colour.ordinal()] & toBit) != 0) {
+			return false;
+		}
+		final PieceType capturedPiece = pieceTypeAt(to, opponentsColour);
+		if (capturedPiece == PieceType.KING) {
+			return false;
+		}
+		final int expectedMove;
+		if (type == PieceType.PAWN && (toBit & (LongBitBoard.RANK_1 | LongBitBoard.RANK_8)) != 0) {
+			final PieceType promotedPiece = PackedMove.promotedPiece(move);
+			if (promotedPiece == null || promotedPiece == PieceType.PAWN || promotedPiece == PieceType.KING) {
+				return false;
+			}
+			expectedMove = PackedMove.promotion(colour, from, to, capturedPiece, promotedPiece);
+		} else {
+			expectedMove = capturedPiece == null ? PackedMove.of(type, colour, from, to)
+					: PackedMove.capture(type, colour, from, to, capturedPiece);
+		}
+		if (move != expectedMove) {
+			return false;
+		}
 
-			// is the move.from() square (or e.p. square) on a ray to the king?
-			if (move.isEnpassant()) {
-				rayToKing = RayUtils.getRay(move.getPawnCapturedEnpassant(), opponentsKingsSquare);
+		// the piece's movement
+		switch (type) {
+		case PAWN:
+			if (capturedPiece != null) {
+				return (Pawn.attacks(colour, fromBit) & toBit) != 0;
+			}
+			final long empty = ~totalPieces;
+			if (colour == Colour.WHITE) {
+				final long oneForward = LongBitBoard.shiftNorth(fromBit) & empty;
+				return ((oneForward | (LongBitBoard.shiftNorth(oneForward) & empty & LongBitBoard.RANK[3])) & toBit) != 0;
 			} else {
-				rayToKing = RayUtils.getRay(move.from(), opponentsKingsSquare);
+				final long oneForward = LongBitBoard.shiftSouth(fromBit) & empty;
+				return ((oneForward | (LongBitBoard.shiftSouth(oneForward) & empty & LongBitBoard.RANK[4])) & toBit) != 0;
 			}
-			if (rayToKing == null) {
-				continue;
+		case KNIGHT:
+			return (Knight.attacks(from) & toBit) != 0;
+		case BISHOP:
+			return (MagicBitBoard.bishopAttacks(from, totalPieces) & toBit) != 0;
+		case ROOK:
+			return (MagicBitBoard.rookAttacks(from, totalPieces) & toBit) != 0;
+		case QUEEN:
+			return ((MagicBitBoard.bishopAttacks(from, totalPieces) | MagicBitBoard.rookAttacks(from, totalPieces))
+					& toBit) != 0;
+		case KING:
+			// as in the move generation, the king never moves next to the opponent's king
+			return (King.attacks(from) & ~King.attacks(kingPosition[opponentsColour.ordinal()].bitIndex()) & toBit) != 0;
+		default:
+			throw new IllegalStateException("unexpected piece type: " + type);
+		}
+	}
+
+	/**
+	 * @param bitIndex the square
+	 * @param colour   colour of the piece
+	 * @return the type of the piece of the given colour on the given square, or
+	 *         null if there is none
+	 */
+	private PieceType pieceTypeAt(int bitIndex, Colour colour) {
+		if (!LongBitBoard.isSet(allPieces[colour.ordinal()], bitIndex)) {
+			return null;
+		}
+		final Piece[] pieces = getPieces(colour);
+		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
+			if (LongBitBoard.isSet(pieces[type.ordinal()].getBits(), bitIndex)) {
+				return type;
 			}
+		}
+		return null;
+	}
 
-			// is the 'next' square towards the king a 'checking' square? (and not occupied
-			// -- could be the case if this is the first opponent's piece on the ray)
-			int nextSquare;
-			if (move.isEnpassant()) {
-				nextSquare = move.getPawnCapturedEnpassant().bitIndex(); // for e.p., use the e.p. square itself
-			} else {
-				nextSquare = rayToKing.squaresFrom(move.from()).next();
+	/**
+	 * The pieces of the given colour which are pinned against their king, i.e. the
+	 * only piece between the king and an enemy sliding piece. Calculated once per
+	 * position and colour.
+	 *
+	 * @param colour the colour of the pinned pieces
+	 * @return bitboard of the pinned pieces
+	 */
+	private long pinnedPieces(Colour colour) {
+		final int ord = colour.ordinal();
+		if ((pinnedPiecesValid & (1 << ord)) == 0) {
+			pinnedPieces[ord] = blockers(kingPosition[ord].bitIndex(), colour.oppositeColour()) & allPieces[ord];
+			pinnedPiecesValid |= 1 << ord;
+		}
+		return pinnedPieces[ord];
+	}
+
+	/**
+	 * The pieces (of either colour) which are the only piece between the given
+	 * king's square and a sliding piece of the given colour. Pieces of the king's
+	 * colour are pinned, pieces of the slider's colour give a discovered check if
+	 * they move off the line.
+	 *
+	 * @param kingsSquare  the king's square
+	 * @param sliderColour colour of the sliding pieces
+	 * @return bitboard of the blocking pieces
+	 */
+	private long blockers(int kingsSquare, Colour sliderColour) {
+		final Piece[] sliders = getPieces(sliderColour);
+		final long queens = sliders[PieceType.QUEEN.ordinal()].getBits();
+		// the sliding pieces which would attack the king on an empty board
+		long snipers = (MagicBitBoard.bishopAttacks(kingsSquare, LongBitBoard.EMPTY)
+				& (sliders[PieceType.BISHOP.ordinal()].getBits() | queens))
+				| (MagicBitBoard.rookAttacks(kingsSquare, LongBitBoard.EMPTY)
+						& (sliders[PieceType.ROOK.ordinal()].getBits() | queens));
+		long blockers = LongBitBoard.EMPTY;
+		for (; snipers != 0; snipers = LongBitBoard.clearLowestBit(snipers)) {
+			long between = RayUtils.squaresBetween(kingsSquare, LongBitBoard.lowestBit(snipers)) & totalPieces;
+			if (Long.bitCount(between) == 1) {
+				blockers |= between;
 			}
-			// shortcircuit if the 'nextSquare' is where the king is... this happens if the
-			// moving piece was adjacent to the opponent's king
-			if (nextSquare != opponentsKingsSquare.bitIndex()) {
-				var bitboardToUse = rayToKing.getRayType().isDiagonal() ? 1 : 0;
-				// for e.p., the 'nextSquare' will be occupied - with the pawn that has been
-				// taken. Therefore don't check for an opponent's piece
-				if (move.isEnpassant()) {
-					if (!checkingSquaresBitBoards[bitboardToUse].get(nextSquare)) {
-						continue;
-					}
-				} else if (!checkingSquaresBitBoards[bitboardToUse].get(nextSquare)
-						|| getAllPieces(sideToMove.oppositeColour()).get(nextSquare)) {
-					continue;
+		}
+		return blockers;
+	}
+
+	/**
+	 * Find all moves for the given colour from the current position, overriding the
+	 * position's <code>inCheck</code> value.
+	 *
+	 * @param colour           the required colour
+	 * @param checkInformation stores whether the king is in check in this position
+	 * @param captures         if true, captures and promotions are generated
+	 * @param quietMoves       if true, all other moves are generated
+	 * @param pseudoLegal      if true, pseudo-legal moves are generated (unless
+	 *                         in check)
+	 * @param moves            the moves for this colour will be appended to this
+	 *                         list
+	 */
+	private void findMoves(Colour colour, boolean checkInformation, boolean captures, boolean quietMoves,
+			boolean pseudoLegal, MoveList moves) {
+
+		// when generating pseudo-legal moves, the position analysis (checks and pins) is not required
+		var posnInfo = pseudoLegal && !checkInformation ? PositionInfo.pseudoLegal(getKingPosition(colour))
+				: PositionAnalyser.analysePosition(getKingPosition(colour), colour, this.getAllPiecesBits(colour),
+						getPieceManager().setupBitboards(colour, pieceBitboards[colour.ordinal()]),
+						getPieceManager().setupBitboards(Colour.oppositeColour(colour),
+								pieceBitboards[Colour.oppositeColour(colour).ordinal()]),
+						null, true);
+
+		// in check -- only generate moves which can get out of check
+		// otherwise process as normal, but with info about pinned pieces
+		if (posnInfo.isKingInCheck()) {
+			findEvasions(colour, checkInformation, posnInfo, captures, quietMoves, moves);
+		} else {
+			for (PieceType type : PieceType.ALL_PIECE_TYPES) {
+				Piece p = getPieces(colour)[type.ordinal()];
+				if (!quietMoves) {
+					p.findCaptures(this, checkInformation, posnInfo, moves);
+				} else if (!captures) {
+					p.findQuietMoves(this, checkInformation, posnInfo, moves);
+				} else {
+					p.findMoves(this, checkInformation, posnInfo, moves);
 				}
 			}
+		}
 
-			// if the next piece on the opposite ray to 'rayToKing' is our piece (of the
-			// correct type) then it's discovered check.
-			// Again, for e.p., use the e.p. square as starting point
-			Iterator<Integer> rayIter;
-			if (move.isEnpassant()) {
-				rayIter = rayToKing.getOpposite().squaresFrom(move.getPawnCapturedEnpassant());
-			} else {
-				rayIter = rayToKing.getOpposite().squaresFrom(move.from());
+		// whether a move gives check is calculated on demand, see givesCheck(int)
+	}
+
+	/**
+	 * Generates the moves which get the king of the given colour out of check.
+	 * Instead of generating all moves and filtering them by the allowed squares,
+	 * works backwards from the squares which resolve the check:
+	 * <ul>
+	 * <li>double check: the king must move.</li>
+	 * <li>capture the checking piece: the pieces which attack it (see
+	 * {@link #attackersTo(int, long)}), plus possibly enpassant.</li>
+	 * <li>interpose: for a check from a distant sliding piece, the pieces which can
+	 * move to the squares in between.</li>
+	 * </ul>
+	 * A pinned piece can never resolve a check, since the pin ray and the check
+	 * ray only meet at the king's square.
+	 *
+	 * @param colour           the side in check
+	 * @param checkInformation whether the king is in check
+	 * @param posnInfo         info about checkers and pinned pieces
+	 * @param captures         if true, captures and promotions are generated
+	 * @param quietMoves       if true, all other moves are generated
+	 * @param moves            the moves will be appended to this list
+	 */
+	private void findEvasions(Colour colour, boolean checkInformation, PositionInfo posnInfo, boolean captures,
+			boolean quietMoves, MoveList moves) {
+		final Piece[] myPieces = getPieces(colour);
+		if (!quietMoves) {
+			myPieces[PieceType.KING.ordinal()].findCaptures(this, checkInformation, posnInfo, moves);
+		} else if (!captures) {
+			myPieces[PieceType.KING.ordinal()].findQuietMoves(this, checkInformation, posnInfo, moves);
+		} else {
+			myPieces[PieceType.KING.ordinal()].findMoves(this, checkInformation, posnInfo, moves);
+		}
+		if (posnInfo.isDoubleCheck()) {
+			return;
+		}
+
+		final int kingsSquare = getKingPosition(colour).bitIndex();
+		final int checker = LongBitBoard.lowestBit(posnInfo.getCheckersBits());
+		final long movablePieces = allPieces[colour.ordinal()] & ~posnInfo.getPinnedPiecesBits()
+				& ~LongBitBoard.bit(kingsSquare);
+
+		// capture the checking piece
+		if (captures) {
+			addEvasions(colour, attackersTo(checker, totalPieces) & movablePieces, checker, moves);
+		}
+		final int forward = colour == Colour.WHITE ? 8 : -8;
+		if (captures && enpassantSquare != null && enpassantSquare.bitIndex() - forward == checker) {
+			long pawns = Pawn.attacks(colour.oppositeColour(), LongBitBoard.bit(enpassantSquare))
+					& myPieces[PieceType.PAWN.ordinal()].getBits() & movablePieces;
+			for (; pawns != 0; pawns = LongBitBoard.clearLowestBit(pawns)) {
+				int move = PackedMove.enpassant(colour, LongBitBoard.lowestBit(pawns), enpassantSquare.bitIndex());
+				// the king could be exposed along the rank after removing both pawns
+				long occupied = (totalPieces ^ LongBitBoard.bit(PackedMove.from(move)) ^ LongBitBoard.bit(checker))
+						| LongBitBoard.bit(enpassantSquare);
+				if ((attackersTo(kingsSquare, occupied) & allPieces[colour.oppositeColour().ordinal()]
+						& ~LongBitBoard.bit(checker)) == 0) {
+					moves.add(move);
+				}
 			}
-			var keepSearching = true;
-			while (keepSearching && rayIter.hasNext()) {
-				var bitIndex = rayIter.next();
-				// ignore if enpassant move and we're currently on the from() square where the
-				// pawn was
-				// this scenario arises when the king, moving pawn, and checking piece are all
-				// on the same ray e.g. 8/8/8/2kpP2Q/8/8/5K2/8
-				if (move.isEnpassant() && bitIndex == move.from().bitIndex()) {
-					continue;
+		}
+
+		// interpose (empty if the checker is adjacent or not a sliding piece)
+		final long knights = myPieces[PieceType.KNIGHT.ordinal()].getBits() & movablePieces;
+		final long queens = myPieces[PieceType.QUEEN.ordinal()].getBits();
+		final long diagonalSliders = (myPieces[PieceType.BISHOP.ordinal()].getBits() | queens) & movablePieces;
+		final long orthogonalSliders = (myPieces[PieceType.ROOK.ordinal()].getBits() | queens) & movablePieces;
+		final long pawns = myPieces[PieceType.PAWN.ordinal()].getBits() & movablePieces;
+		final long fourthRank = LongBitBoard.RANK[colour == Colour.WHITE ? 3 : 4];
+		for (long between = RayUtils.squaresBetween(kingsSquare, checker); between != 0; between = LongBitBoard
+				.clearLowestBit(between)) {
+			final int sq = LongBitBoard.lowestBit(between);
+			final boolean lastRank = sq >>> 3 == (colour == Colour.WHITE ? 7 : 0);
+			long blockers = LongBitBoard.EMPTY;
+			// pawn pushes: one square, or two squares from the starting rank. These are promotions on the last rank
+			if (lastRank ? captures : quietMoves) {
+				final long target = LongBitBoard.bit(sq);
+				long pushes = colour == Colour.WHITE ? LongBitBoard.shiftSouth(target) : LongBitBoard.shiftNorth(target);
+				if ((pushes & totalPieces) == 0 && (target & fourthRank) != 0) {
+					pushes = colour == Colour.WHITE ? LongBitBoard.shiftSouth(pushes) : LongBitBoard.shiftNorth(pushes);
 				}
-				if (this.getAllPieces(colour).get(bitIndex)) {
-					// found one of our pieces
-					Square sq = Square.fromBitIndex(bitIndex);
-					if (rayToKing.getRayType().isDiagonal()) {
-						// diagonal ray --> piece must be a bishop or queen for a discovered check
-						isCheck = this.getPieces(colour)[PieceType.QUEEN.ordinal()].pieceAt(sq)
-								|| this.getPieces(colour)[PieceType.BISHOP.ordinal()].pieceAt(sq);
-					} else {
-						// horiz/vert ray --> piece must be a rook or queen for a discovered check
-						isCheck = this.getPieces(colour)[PieceType.QUEEN.ordinal()].pieceAt(sq)
-								|| this.getPieces(colour)[PieceType.ROOK.ordinal()].pieceAt(sq);
-					}
-					keepSearching = false;
-				} else if (this.getAllPieces(colour.oppositeColour()).get(bitIndex)) {
-					// found an opponent's piece
-					keepSearching = false;
+				blockers = pushes & pawns;
+			}
+			if (quietMoves) {
+				blockers |= Knight.attacks(sq) & knights;
+				blockers |= MagicBitBoard.bishopAttacks(sq, totalPieces) & diagonalSliders;
+				blockers |= MagicBitBoard.rookAttacks(sq, totalPieces) & orthogonalSliders;
+			}
+			addEvasions(colour, blockers, sq, moves);
+		}
+	}
+
+	/**
+	 * Adds moves from each of the given squares to the target square (capture or
+	 * not, promotion for pawns reaching the last rank).
+	 *
+	 * @param colour the side to move
+	 * @param from   bitboard of the pieces to move
+	 * @param to     the target square
+	 * @param moves  the moves will be appended to this list
+	 */
+	private void addEvasions(Colour colour, long from, int to, MoveList moves) {
+		final Square targetSquare = Square.fromBitIndex(to);
+		final PieceType capturedPiece = LongBitBoard.isSet(totalPieces, to)
+				? pieceAt(targetSquare, colour.oppositeColour())
+				: null;
+		final boolean lastRank = to >>> 3 == (colour == Colour.WHITE ? 7 : 0);
+		for (; from != 0; from = LongBitBoard.clearLowestBit(from)) {
+			final int fromSquare = LongBitBoard.lowestBit(from);
+			final PieceType piece = pieceAt(Square.fromBitIndex(fromSquare), colour);
+			if (piece == PieceType.PAWN && lastRank) {
+				for (PieceType type : PieceType.getPieceTypesForPromotion()) {
+					moves.add(PackedMove.promotion(colour, fromSquare, to, capturedPiece, type));
 				}
+			} else if (capturedPiece != null) {
+				moves.add(PackedMove.capture(piece, colour, fromSquare, to, capturedPiece));
+			} else {
+				moves.add(PackedMove.of(piece, colour, fromSquare, to));
 			}
-			if (isCheck) {
-				move.setCheck(true);
-				continue;
+		}
+	}
+
+	/**
+	 * Determines whether the given move checks the opponent's king, either
+	 * directly or by discovered check. If this information is already stored in
+	 * the move (see {@link PackedMove#isCheckKnown(int)}) it is used, otherwise it
+	 * is calculated from the squares which check the opponent's king, see
+	 * {@link #checkSquares(Colour)}. Only required for moves which are actually
+	 * searched, therefore not done when the moves are generated.
+	 *
+	 * @param move a (pseudo-)legal move of the side to move, encoded as per
+	 *             {@link PackedMove}
+	 * @return true if the move gives check
+	 */
+	public boolean givesCheck(int move) {
+		if (PackedMove.isCheckKnown(move)) {
+			return PackedMove.isCheck(move);
+		}
+		final Colour colour = PackedMove.colour(move);
+		final int opponentsKing = kingPosition[colour.oppositeColour().ordinal()].bitIndex();
+		if (PackedMove.isCastle(move) || PackedMove.isPromotion(move) || PackedMove.isEnpassant(move)) {
+			return specialMoveGivesCheck(move, colour, opponentsKing);
+		}
+		final long[] squares = checkSquares(colour);
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
+		if (LongBitBoard.isSet(squares[PackedMove.piece(move).ordinal()], to)) {
+			return true;
+		}
+		// discovered check: the piece leaves the line between the opponent's king and
+		// our sliding piece
+		return LongBitBoard.isSet(squares[DISCOVERED_CHECK], from) && !LongBitBoard.isSet(RayUtils.rayMask(
+				RayUtils.getRay(Square.fromBitIndex(opponentsKing), Square.fromBitIndex(from)).getRayType(),
+				opponentsKing), to);
+	}
+
+	/**
+	 * Castling, promotions and enpassant move or remove more than one piece, or
+	 * change the type of the moving piece, and are not covered by
+	 * {@link #checkSquares(Colour)}. Here the attacks on the opponent's king are
+	 * calculated with the occupancy after the move.
+	 */
+	private boolean specialMoveGivesCheck(int move, Colour colour, int opponentsKing) {
+		final Piece[] myPieces = getPieces(colour);
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
+		long occupied = (totalPieces & ~LongBitBoard.bit(from)) | LongBitBoard.bit(to);
+		// squares of our pieces which are no longer there after the move
+		long vacated = LongBitBoard.bit(from);
+		long directCheck;
+		if (PackedMove.isCastle(move)) {
+			final int rookFrom = PackedMove.rooksCastlingOrigin(move);
+			final int rookTo = PackedMove.rooksCastlingDestination(move);
+			occupied = (occupied & ~LongBitBoard.bit(rookFrom)) | LongBitBoard.bit(rookTo);
+			vacated |= LongBitBoard.bit(rookFrom);
+			directCheck = MagicBitBoard.rookAttacks(rookTo, occupied);
+		} else {
+			if (PackedMove.isEnpassant(move)) {
+				occupied &= ~LongBitBoard.bit(PackedMove.pawnCapturedEnpassant(move));
 			}
+			directCheck = switch (PackedMove.isPromotion(move) ? PackedMove.promotedPiece(move) : PieceType.PAWN) {
+			case PAWN -> Pawn.attacks(colour, LongBitBoard.bit(to));
+			case KNIGHT -> Knight.attacks(to);
+			case BISHOP -> MagicBitBoard.bishopAttacks(to, occupied);
+			case ROOK -> MagicBitBoard.rookAttacks(to, occupied);
+			default -> MagicBitBoard.bishopAttacks(to, occupied) | MagicBitBoard.rookAttacks(to, occupied);
+			};
+		}
+		if (LongBitBoard.isSet(directCheck, opponentsKing)) {
+			return true;
 		}
+		final long queens = myPieces[PieceType.QUEEN.ordinal()].getBits();
+		final long discovered = (MagicBitBoard.bishopAttacks(opponentsKing, occupied)
+				& (myPieces[PieceType.BISHOP.ordinal()].getBits() | queens))
+				| (MagicBitBoard.rookAttacks(opponentsKing, occupied)
+						& (myPieces[PieceType.ROOK.ordinal()].getBits() | queens));
+		return (discovered & ~vacated) != 0;
+	}
 
-		return moves;
+	/**
+	 * For the given colour: the squares from which each piece type checks the
+	 * opponent's king, and the pieces which give a discovered check by moving.
+	 * Calculated once per position and colour.
+	 *
+	 * @param colour the side giving check
+	 * @return array indexed by PieceType ordinal, plus the discovered check
+	 *         candidates at index {@link #DISCOVERED_CHECK}
+	 */
+	private long[] checkSquares(Colour colour) {
+		final int ord = colour.ordinal();
+		final long[] squares = checkSquares[ord];
+		if ((checkSquaresValid & (1 << ord)) == 0) {
+			final int opponentsKing = kingPosition[colour.oppositeColour().ordinal()].bitIndex();
+			// a pawn checks the king from the squares which a pawn on the king's square
+			// would attack
+			squares[PieceType.PAWN.ordinal()] = Pawn.attacks(colour.oppositeColour(), LongBitBoard.bit(opponentsKing));
+			squares[PieceType.KNIGHT.ordinal()] = Knight.attacks(opponentsKing);
+			squares[PieceType.BISHOP.ordinal()] = MagicBitBoard.bishopAttacks(opponentsKing, totalPieces);
+			squares[PieceType.ROOK.ordinal()] = MagicBitBoard.rookAttacks(opponentsKing, totalPieces);
+			squares[PieceType.QUEEN.ordinal()] = squares[PieceType.BISHOP.ordinal()]
+					| squares[PieceType.ROOK.ordinal()];
+			squares[PieceType.KING.ordinal()] = LongBitBoard.EMPTY;
+			squares[DISCOVERED_CHECK] = blockers(opponentsKing, colour) & allPieces[ord];
+			checkSquaresValid |= 1 << ord;
+		}
+		return squares;
 	}
 
 	@SuppressWarnings("unused")
@@ -522,65 +1123,266 @@ public class Position {
 		return newPosn;
 	}
 
+	/**
+	 * Returns a copy of this position which can be changed in place with
+	 * {@link #makeMove(int)} and {@link #unmakeMove()}, avoiding the creation of a
+	 * new Position object for every move. Intended for a search (one copy per
+	 * thread); {@link #move(Move)} is still available and returns an independent
+	 * position.
+	 * <p>
+	 * The incrementally updated check state ({@link SystemFlags#USE_CHECK_STATE})
+	 * is not supported.
+	 *
+	 * @return a mutable copy of this position
+	 */
+	public Position mutableCopy() {
+		if (SystemFlags.USE_CHECK_STATE) {
+			throw new IllegalStateException("makeMove/unmakeMove do not support SystemFlags.USE_CHECK_STATE");
+		}
+		Position posn = new Position(this);
+		posn.pieceMgr.cloneAllPieces();
+		posn.checkInformation = checkInformation;
+		posn.fen = fen;
+		posn.positionScore = positionScore;
+		posn.undoStack = new UndoInfo[MAX_UNDO_DEPTH];
+		for (int i = 0; i < MAX_UNDO_DEPTH; i++) {
+			posn.undoStack[i] = new UndoInfo();
+		}
+		return posn;
+	}
+
+	/**
+	 * Makes the given move in place. The state required to restore the position is
+	 * pushed onto the undo stack. Only allowed for a position created by
+	 * {@link #mutableCopy()}.
+	 *
+	 * @param move the move, encoded as per {@link PackedMove}
+	 */
+	public void makeMove(int move) {
+		if (undoStack == null) {
+			throw new IllegalStateException("position is not mutable, see mutableCopy()");
+		}
+		if (undoDepth == undoStack.length) {
+			throw new IllegalStateException("undo stack is full, " + undoDepth + " moves have been made");
+		}
+		undoStack[undoDepth++].save(this, move);
+		internalMove(move);
+		fen = null;
+		positionScore = null;
+		pinnedPiecesValid = 0;
+		checkSquaresValid = 0;
+		attackedSquaresValid = 0;
+		if (SystemFlags.CHECK_HASH_UPDATE_AFTER_MOVE) {
+			Position posnAfterMove = Fen.decode(Fen.encode(this)).getPosition();
+			if (zobristHash != posnAfterMove.zobristHash) {
+				throw new IllegalStateException(
+						"non-matching zobrist\nmove: " + PackedMove.toString(move) + "\nposn after move:\n" + this);
+			}
+		}
+	}
+
+	/**
+	 * Takes back the last move made with {@link #makeMove(int)}.
+	 */
+	public void unmakeMove() {
+		if (undoStack == null || undoDepth == 0) {
+			throw new IllegalStateException("no move to unmake");
+		}
+		if (undoStack[undoDepth - 1].move == PackedMove.NONE) {
+			throw new IllegalStateException("last move was a null move, see unmakeNullMove()");
+		}
+		UndoInfo undo = undoStack[--undoDepth];
+		final int move = undo.move;
+		final Colour colour = PackedMove.colour(move);
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
+
+		if (PackedMove.isCastle(move)) {
+			pieceMgr.getPiece(colour, PieceType.KING).move(to, from);
+			pieceMgr.getPiece(colour, PieceType.ROOK).move(PackedMove.rooksCastlingDestination(move),
+					PackedMove.rooksCastlingOrigin(move));
+		} else {
+			if (PackedMove.isPromotion(move)) {
+				pieceMgr.getPiece(colour, PackedMove.promotedPiece(move)).removePiece(Square.fromBitIndex(to));
+				pieceMgr.getPiece(colour, PieceType.PAWN).addPiece(Square.fromBitIndex(from));
+			} else {
+				pieceMgr.getPiece(colour, PackedMove.piece(move)).move(to, from);
+			}
+			if (PackedMove.isCapture(move)) {
+				int capturedSquare = PackedMove.isEnpassant(move) ? PackedMove.pawnCapturedEnpassant(move) : to;
+				pieceMgr.getPiece(Colour.oppositeColour(colour), PackedMove.capturedPiece(move))
+						.addPiece(Square.fromBitIndex(capturedSquare));
+			}
+		}
+		undo.restore(this);
+		sideToMove = colour;
+		pinnedPiecesValid = 0;
+		checkSquaresValid = 0;
+		attackedSquaresValid = 0;
+	}
+
+	/**
+	 * Makes a 'null move' in place, i.e. the side to move passes. Used by the null
+	 * move pruning of a search. Must be taken back with {@link #unmakeNullMove()}.
+	 * Only allowed for a position created by {@link #mutableCopy()}, and not if the
+	 * side to move is in check.
+	 */
+	public void makeNullMove() {
+		if (undoStack == null) {
+			throw new IllegalStateException("position is not mutable, see mutableCopy()");
+		}
+		if (undoDepth == undoStack.length) {
+			throw new IllegalStateException("undo stack is full, " + undoDepth + " moves have been made");
+		}
+		if (isInCheck()) {
+			throw new IllegalStateException("cannot make a null move when in check");
+		}
+		undoStack[undoDepth++].save(this, PackedMove.NONE);
+		zobristHash = Zobrist.INSTANCE.updateForNullMove(zobristHash, enpassantSquare);
+		enpassantSquare = null;
+		sideToMove = Colour.oppositeColour(sideToMove);
+		fen = null;
+		positionScore = null;
+	}
+
+	/**
+	 * Takes back the null move made with {@link #makeNullMove()}.
+	 */
+	public void unmakeNullMove() {
+		if (undoStack == null || undoDepth == 0 || undoStack[undoDepth - 1].move != PackedMove.NONE) {
+			throw new IllegalStateException("no null move to unmake");
+		}
+		undoStack[--undoDepth].restore(this);
+		sideToMove = Colour.oppositeColour(sideToMove);
+	}
+
 	/**
 	 * Performs the given move, updating internal data structures.
 	 *
 	 * @param move the move
 	 */
 	private void internalMove(Move move) {
-		if (move.getColour() != sideToMove) {
-			throw new IllegalArgumentException("move is for '" + move.getColour() + "' but sideToMove=" + sideToMove);
+		internalMove(PackedMove.fromMove(move));
+	}
+
+	/**
+	 * Performs the given move, updating internal data structures.
+	 *
+	 * @param move the move, encoded as per {@link PackedMove}
+	 */
+	private void internalMove(int move) {
+		final Colour colour = PackedMove.colour(move);
+		if (colour != sideToMove) {
+			throw new IllegalArgumentException("move is for '" + colour + "' but sideToMove=" + sideToMove);
 		}
+		final Colour opponentsColour = Colour.oppositeColour(sideToMove);
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
+		final PieceType movingPiece = PackedMove.piece(move);
 
 		// update hash before the castling rights / enpassant square are changed
 		zobristHash = Zobrist.INSTANCE.update(zobristHash, move, castling, enpassantSquare);
+		pawnHash = Zobrist.INSTANCE.updatePawnHash(pawnHash, move);
+		updatePieceSquareScore(move);
 
-		if (move.isCastleKingsSide() || move.isCastleQueensSide()) {
-			pieceMgr.getClonedPiece(sideToMove, move.getPiece()).move(move);
-			pieceMgr.getClonedPiece(sideToMove, PieceType.ROOK).move(move.getRooksCastlingMove());
+		if (PackedMove.isCastle(move)) {
+			pieceMgr.getClonedPiece(sideToMove, PieceType.KING).move(from, to);
+			pieceMgr.getClonedPiece(sideToMove, PieceType.ROOK).move(PackedMove.rooksCastlingOrigin(move),
+					PackedMove.rooksCastlingDestination(move));
 			// castling rights are reset later on
 		} else {
-			if (!move.isCapture() && getTotalPieces().get(move.to().bitIndex())) {
-				throw new IllegalArgumentException("square " + move.to() + " is not empty. Move=" + move);
+			if (!PackedMove.isCapture(move) && LongBitBoard.isSet(totalPieces, to)) {
+				throw new IllegalArgumentException(
+						"square " + Square.fromBitIndex(to) + " is not empty. Move=" + PackedMove.toString(move));
 			}
-			// update structures for the moving piece
-			pieceMgr.getClonedPiece(sideToMove, move.getPiece()).move(move);
 			// capture: remove the captured piece
-			if (move.isCapture()) {
-				if (move.isEnpassant()) {
-					pieceMgr.getClonedPiece(Colour.oppositeColour(sideToMove), move.getCapturedPiece())
-							.removePiece(Square.findMoveFromEnpassantSquare(move.to()));
-				} else {
-					pieceMgr.getClonedPiece(Colour.oppositeColour(sideToMove), move.getCapturedPiece())
-							.removePiece(move.to());
-				}
+			if (PackedMove.isCapture(move)) {
+				int capturedSquare = PackedMove.isEnpassant(move) ? PackedMove.pawnCapturedEnpassant(move) : to;
+				pieceMgr.getClonedPiece(opponentsColour, PackedMove.capturedPiece(move))
+						.removePiece(Square.fromBitIndex(capturedSquare));
 			}
-			// promotion: add the promoted piece
-			if (move.isPromotion()) {
-				pieceMgr.getClonedPiece(sideToMove, move.getPromotedPiece()).addPiece(move.to());
+			// update structures for the moving piece
+			// promotion: remove the pawn and add the promoted piece
+			if (PackedMove.isPromotion(move)) {
+				pieceMgr.getClonedPiece(sideToMove, PieceType.PAWN).removePiece(Square.fromBitIndex(from));
+				pieceMgr.getClonedPiece(sideToMove, PackedMove.promotedPiece(move)).addPiece(Square.fromBitIndex(to));
+			} else {
+				pieceMgr.getClonedPiece(sideToMove, movingPiece).move(from, to);
 			}
 		}
 		updateStructures(move);
 		// update the locally held position of the king
-		if (move.getPiece() == PieceType.KING) {
-			kingPosition[sideToMove.ordinal()] = move.to();
+		if (movingPiece == PieceType.KING) {
+			kingPosition[sideToMove.ordinal()] = Square.fromBitIndex(to);
 		}
 		if (SystemFlags.USE_CHECK_STATE) {
-			updateCheckStateAfterMove(move, getKingPosition(sideToMove),
-					getKingPosition(Colour.oppositeColour(sideToMove)));
+			updateCheckStateAfterMove(PackedMove.toMove(move), getKingPosition(sideToMove),
+					getKingPosition(opponentsColour));
 		}
 
 		updateCastlingRightsAfterMove(move);
-		if (move.isPawnMoveTwoSquaresForward()) {
-			enpassantSquare = Square.findEnpassantSquareFromMove(move.to());
+		if (PackedMove.isPawnMoveTwoSquaresForward(move)) {
+			enpassantSquare = Square.fromBitIndex((from + to) >>> 1);
 		} else {
 			enpassantSquare = null;
 		}
-		if (move.getPiece() == PieceType.KING) {
-			kingPosition[sideToMove.ordinal()] = move.to();
+		// if not known, this will be calculated if required
+		checkInformation = PackedMove.isCheckKnown(move) ? PackedMove.isCheck(move) : null;
+		sideToMove = opponentsColour;
+	}
+
+	/**
+	 * Updates {@link #middlegameScore}, {@link #endgameScore} and
+	 * {@link #gamePhase} for the given move, which has not yet been made.
+	 *
+	 * @param move the move, encoded as per {@link PackedMove}
+	 */
+	private void updatePieceSquareScore(int move) {
+		final int sign = PackedMove.colour(move) == Colour.WHITE ? 1 : -1;
+		middlegameScore += sign * pieceSquareDelta(move, false);
+		endgameScore += sign * pieceSquareDelta(move, true);
+		if (PackedMove.isCapture(move)) {
+			gamePhase -= PHASE_WEIGHTS[PackedMove.capturedPiece(move).ordinal()];
 		}
-		checkInformation = move.isCheck();
-		sideToMove = Colour.oppositeColour(sideToMove);
+		if (PackedMove.isPromotion(move)) {
+			gamePhase += PHASE_WEIGHTS[PackedMove.promotedPiece(move).ordinal()];
+		}
+	}
+
+	/**
+	 * The change in the piece-square values caused by the given move, which has not
+	 * yet been made.
+	 *
+	 * @param move    the move, encoded as per {@link PackedMove}
+	 * @param endgame whether to use the endgame or middlegame piece-square values
+	 * @return the change, from the point of view of the side making the move
+	 */
+	private int pieceSquareDelta(int move, boolean endgame) {
+		final Colour colour = PackedMove.colour(move);
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
+		int delta;
+		if (PackedMove.isCastle(move)) {
+			Piece king = pieceMgr.getPiece(colour, PieceType.KING);
+			Piece rook = pieceMgr.getPiece(colour, PieceType.ROOK);
+			delta = king.pieceSquareValue(to, endgame) - king.pieceSquareValue(from, endgame)
+					+ rook.pieceSquareValue(PackedMove.rooksCastlingDestination(move), endgame)
+					- rook.pieceSquareValue(PackedMove.rooksCastlingOrigin(move), endgame);
+		} else {
+			if (PackedMove.isPromotion(move)) {
+				delta = pieceMgr.getPiece(colour, PackedMove.promotedPiece(move)).pieceSquareValue(to, endgame)
+						- pieceMgr.getPiece(colour, PieceType.PAWN).pieceSquareValue(from, endgame);
+			} else {
+				Piece piece = pieceMgr.getPiece(colour, PackedMove.piece(move));
+				delta = piece.pieceSquareValue(to, endgame) - piece.pieceSquareValue(from, endgame);
+			}
+			if (PackedMove.isCapture(move)) {
+				int capturedSquare = PackedMove.isEnpassant(move) ? PackedMove.pawnCapturedEnpassant(move) : to;
+				delta += pieceMgr.getPiece(Colour.oppositeColour(colour), PackedMove.capturedPiece(move))
+						.pieceSquareValue(capturedSquare, endgame);
+			}
+		}
+		return delta;
 	}
 
 	/**
@@ -593,7 +1395,16 @@ public class Position {
 		this.checkInformation = inCheck;
 	}
 
+	/**
+	 * @return true if the king of the side to move is in check. Calculated on
+	 *         demand if the move leading to this position did not store this
+	 *         information.
+	 */
 	public boolean isInCheck() {
+		if (checkInformation == null) {
+			checkInformation = (attackersTo(kingPosition[sideToMove.ordinal()].bitIndex(), totalPieces)
+					& allPieces[sideToMove.oppositeColour().ordinal()]) != 0;
+		}
 		return checkInformation;
 	}
 
@@ -622,60 +1433,164 @@ public class Position {
 	 * @return a value in centipawns
 	 */
 	public int evaluate() {
+		return evaluate((EvaluationCache) null);
+	}
+
+	/**
+	 * As {@link #evaluate()}, using the given pawn hash table for the pawn
+	 * structure.
+	 *
+	 * @param pawnHashTable cache of the pawn structure scores, keyed by
+	 *                      {@link #getPawnHash()}. May be null.
+	 * @return a value in centipawns
+	 */
+	public int evaluate(EvaluationCache pawnHashTable) {
 		/*
 		 * materialScore = kingWt * (wK-bK) + queenWt * (wQ-bQ) + rookWt * (wR-bR) +
 		 * knightWt* (wN-bN) + bishopWt* (wB-bB) + pawnWt * (wP-bP) mobilityScore =
 		 * mobilityWt * (wMobility-bMobility)
 		 */
-		int materialScore = 0;
-		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
-			int pieceScore = 0;
-			Piece piece = getPieces(Colour.WHITE)[type.ordinal()];
-			if (piece != null) {
-				pieceScore += piece.calculatePieceSquareValue();
+		int materialScore = materialScore();
+
+		int mobilityScore = MOBILITY_WEIGHTING
+				* (mobility(Colour.WHITE, SystemFlags.SAFE_MOBILITY) - mobility(Colour.BLACK, SystemFlags.SAFE_MOBILITY));
+		// return (mobilityScore + materialScore) * (getSideToMove() == Colour.WHITE ? 1
+		// : -1);
+		return (mobilityScore + materialScore + pawnStructureScore(pawnHashTable) + kingShieldScore());
+	}
+
+	/**
+	 * The pawn structure part of {@link #evaluate()}, see
+	 * {@link PawnStructure#evaluate(long, long)}.
+	 *
+	 * @param pawnHashTable cache of the pawn structure scores, keyed by
+	 *                      {@link #getPawnHash()}. May be null.
+	 * @return a value in centipawns, from white's point of view
+	 */
+	public int pawnStructureScore(EvaluationCache pawnHashTable) {
+		int score = pawnHashTable == null ? EvaluationCache.NO_SCORE : pawnHashTable.probe(pawnHash);
+		if (score == EvaluationCache.NO_SCORE) {
+			score = PawnStructure.evaluate(getPieces(Colour.WHITE)[PieceType.PAWN.ordinal()].getBits(),
+					getPieces(Colour.BLACK)[PieceType.PAWN.ordinal()].getBits());
+			if (pawnHashTable != null) {
+				pawnHashTable.store(pawnHash, score);
 			}
-			piece = getPieces(Colour.BLACK)[type.ordinal()];
-			if (piece != null) {
-				pieceScore -= piece.calculatePieceSquareValue();
+		}
+		return score;
+	}
+
+	/**
+	 * The king shield part of {@link #evaluate()}. Tapers off towards the endgame.
+	 *
+	 * @return a value in centipawns, from white's point of view
+	 */
+	private int kingShieldScore() {
+		int shield = PawnStructure.kingShield(Colour.WHITE, kingPosition[Colour.WHITE.ordinal()].bitIndex(),
+				getPieces(Colour.WHITE)[PieceType.PAWN.ordinal()].getBits())
+				- PawnStructure.kingShield(Colour.BLACK, kingPosition[Colour.BLACK.ordinal()].bitIndex(),
+						getPieces(Colour.BLACK)[PieceType.PAWN.ordinal()].getBits());
+		return shield * Math.min(gamePhase, MAX_GAME_PHASE) / MAX_GAME_PHASE;
+	}
+
+	/**
+	 * The material of the given side, excluding pawns and king. If this is zero,
+	 * the side is prone to zugzwang.
+	 *
+	 * @param colour the side
+	 * @return value of the pieces in centipawns, see {@link #pieceValue(PieceType)}
+	 */
+	public int nonPawnMaterial(Colour colour) {
+		Piece[] pieces = getPieces(colour);
+		int material = 0;
+		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
+			if (type != PieceType.PAWN && type != PieceType.KING && pieces[type.ordinal()] != null) {
+				material += pieces[type.ordinal()].numberOfPieces() * pieceValue(type);
 			}
-			materialScore += pieceScore;
 		}
+		return material;
+	}
 
-		// mobility
-		//
-		// the other side (who has just moved) cannot be in check
-		// if enpassant square is set, this can only apply to the sidetomove
-		int whiteMobility, blackMobility;
-		Square prevEnpassantSquare = null;
-		if (getSideToMove() != Colour.WHITE) {
-			prevEnpassantSquare = getEnpassantSquare();
-			enpassantSquare = null;
+	/**
+	 * The (pseudo) mobility of the given side: the number of squares attacked by
+	 * its pieces which are not occupied by its own pieces, plus the number of pawn
+	 * moves. Calculated from attack bitboards; pins, checks and castling are not
+	 * taken into account.
+	 *
+	 * @param colour          the side
+	 * @param safeSquaresOnly if true, squares attacked by enemy pawns are not
+	 *                        counted for the pieces (see
+	 *                        {@link SystemFlags#SAFE_MOBILITY})
+	 * @return the mobility
+	 */
+	public int mobility(Colour colour, boolean safeSquaresOnly) {
+		final Piece[] pieces = getPieces(colour);
+		final Colour opponentsColour = Colour.oppositeColour(colour);
+		long targets = ~allPieces[colour.ordinal()];
+		if (safeSquaresOnly) {
+			targets &= ~Pawn.attacks(opponentsColour, getPieces(opponentsColour)[PieceType.PAWN.ordinal()].getBits());
 		}
-		// the sidetomove could be in check; for simplicity this is assumed, i.e.
-		// 'kingInCheck'==TRUE
-		List<Move> moves = findMoves(Colour.WHITE, getSideToMove() == Colour.WHITE);
-		if (getSideToMove() != Colour.WHITE) {
-			enpassantSquare = prevEnpassantSquare;
+		int mobility = 0;
+		// the union of the attacks, stored as the attack map of this colour
+		long attacked = 0;
+		for (long bb = pieces[PieceType.KNIGHT.ordinal()].getBits(); bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+			final long attacks = Knight.attacks(LongBitBoard.lowestBit(bb));
+			mobility += Long.bitCount(attacks & targets);
+			attacked |= attacks;
 		}
-		whiteMobility = moves.size();
-
-		if (getSideToMove() != Colour.BLACK) {
-			prevEnpassantSquare = getEnpassantSquare();
-			enpassantSquare = null;
+		final long queens = pieces[PieceType.QUEEN.ordinal()].getBits();
+		for (long bb = pieces[PieceType.BISHOP.ordinal()].getBits() | queens; bb != 0; bb = LongBitBoard
+				.clearLowestBit(bb)) {
+			final long attacks = MagicBitBoard.bishopAttacks(LongBitBoard.lowestBit(bb), totalPieces);
+			mobility += Long.bitCount(attacks & targets);
+			attacked |= attacks;
 		}
-		// the sidetomove could be in check; for simplicity this is assumed, i.e.
-		// 'kingInCheck'==TRUE
-		moves = findMoves(Colour.BLACK, getSideToMove() == Colour.BLACK);
-		if (getSideToMove() != Colour.BLACK) {
-			enpassantSquare = prevEnpassantSquare;
+		for (long bb = pieces[PieceType.ROOK.ordinal()].getBits() | queens; bb != 0; bb = LongBitBoard
+				.clearLowestBit(bb)) {
+			final long attacks = MagicBitBoard.rookAttacks(LongBitBoard.lowestBit(bb), totalPieces);
+			mobility += Long.bitCount(attacks & targets);
+			attacked |= attacks;
 		}
-		blackMobility = moves.size();
+		final long kingAttacks = King.attacks(kingPosition[colour.ordinal()].bitIndex());
+		mobility += Long.bitCount(kingAttacks & targets);
+		// pawns: single pushes and captures
+		final long pawns = pieces[PieceType.PAWN.ordinal()].getBits();
+		final long pawnAttacks = Pawn.attacks(colour, pawns);
+		final long pushes = colour == Colour.WHITE ? pawns << 8 : pawns >>> 8;
+		mobility += Long.bitCount(pushes & ~totalPieces)
+				+ Long.bitCount(pawnAttacks & allPieces[opponentsColour.ordinal()]);
+
+		final int ord = colour.ordinal();
+		attackedSquares[ord] = attacked | kingAttacks | pawnAttacks;
+		attackedSquaresValid |= 1 << ord;
+		return mobility;
+	}
 
-		final int MOBILITY_WEIGHTING = 2;
-		int mobilityScore = MOBILITY_WEIGHTING * (whiteMobility - blackMobility);
-		// return (mobilityScore + materialScore) * (getSideToMove() == Colour.WHITE ? 1
-		// : -1);
-		return (mobilityScore + materialScore);
+	/**
+	 * The material and piece-square part of {@link #evaluate()}, without the
+	 * (expensive) mobility. Can be used as a cheap estimate of the evaluation,
+	 * e.g. to decide whether the full evaluation is required at all. Constant time,
+	 * since the piece-square values are maintained incrementally.
+	 * <p>
+	 * The middlegame and endgame piece-square values are interpolated according to
+	 * the game phase ('tapered evaluation').
+	 *
+	 * @return a value in centipawns, from white's point of view
+	 */
+	public int materialScore() {
+		final int phase = Math.min(gamePhase, MAX_GAME_PHASE);
+		return (middlegameScore * phase + endgameScore * (MAX_GAME_PHASE - phase)) / MAX_GAME_PHASE;
+	}
+
+	/**
+	 * The game phase, calculated from the pieces (excluding pawns and kings) still
+	 * on the board: {@link #MAX_GAME_PHASE} at the start of the game, 0 in a pure
+	 * pawn ending. Maintained incrementally.
+	 *
+	 * @return the game phase, which can be larger than MAX_GAME_PHASE after
+	 *         promotions
+	 */
+	public int getGamePhase() {
+		return gamePhase;
 	}
 
 	/**
@@ -684,15 +1599,15 @@ public class Position {
 	 * <p>
 	 * The data structure must be cloned before being changed!
 	 */
-	private void updateCastlingRightsAfterMove(Move move) {
+	private void updateCastlingRightsAfterMove(int move) {
 		int mySide = sideToMove.ordinal();
 		if (castling[mySide].cannotCastle()) {
 			// no-op, couldn't castle before
 		} else {
 			CastlingRightsSummary newRights = null;
-			if (PieceType.KING == move.getPiece()) {
+			if (PieceType.KING == PackedMove.piece(move)) {
 				newRights = CastlingRightsSummary.NO_RIGHTS;
-			} else if (PieceType.ROOK == move.getPiece()) {
+			} else if (PieceType.ROOK == PackedMove.piece(move)) {
 				// remove castling rights if rook has moved
 				if (CastlingRightsSummary.kingsSideCastlingRightsGoneAfterMove(castling[mySide], sideToMove, move)) {
 					newRights = new CastlingRightsSummary(castling[mySide]);
@@ -704,7 +1619,6 @@ public class Position {
 				}
 			}
 			if (newRights != null) {
-				move.setPreviousCastlingRights(castling[mySide]);
 				castling[mySide] = newRights;
 				// logDebug("move: " + move + ", sideToMove: " + sideToMove + ", castling=" +
 				// castling[mySide]);
@@ -712,7 +1626,7 @@ public class Position {
 		}
 		// update OPPONENT's castling rights if necessary
 		final int opponentsSide = Colour.oppositeColour(sideToMove).ordinal();
-		if (move.isCapture() && castling[opponentsSide].canCastle()) {
+		if (PackedMove.isCapture(move) && castling[opponentsSide].canCastle()) {
 			CastlingRightsSummary newRights = null;
 			if (CastlingRightsSummary.opponentKingsSideCastlingRightsGoneAfterMove(castling[opponentsSide], sideToMove,
 					move)) {
@@ -724,7 +1638,6 @@ public class Position {
 				newRights.removeQueensSideCastlingRight();
 			}
 			if (newRights != null) {
-				move.setPreviousCastlingRights(castling[opponentsSide]);
 				castling[opponentsSide] = newRights;
 				// logDebug("move: " + move + ", sideToMove: " + sideToMove + ", opponent's
 				// castling=" + castling[opponentsSide]);
@@ -761,8 +1674,10 @@ public class Position {
 					state.setCheckIfCapture(rayType, relevantSquare);
 				}
 				// squares further away from king set to NO_CHECK
-				rayToKing.getOpposite().streamSquaresFrom(relevantSquare)
-						.forEach(sq -> state.setToNotCheck(sq, rayType));
+				for (long bb = RayUtils.rayMask(rayType.getOpposite(), relevantSquare.bitIndex()); bb != 0; bb = LongBitBoard
+						.clearLowestBit(bb)) {
+					state.setToNotCheck(LongBitBoard.lowestBit(bb), rayType);
+				}
 			}
 			//
 			// process ray between my king and move.from()
@@ -777,8 +1692,10 @@ public class Position {
 					state.setCheck(rayType, relevantSquare);
 				}
 				// squares further away from king set to UNKNOWN
-				rayToKing.getOpposite().streamSquaresFrom(relevantSquare)
-						.forEach(sq -> state.setToUnknownState(sq, rayType));
+				for (long bb = RayUtils.rayMask(rayType.getOpposite(), relevantSquare.bitIndex()); bb != 0; bb = LongBitBoard
+						.clearLowestBit(bb)) {
+					state.setToUnknownState(LongBitBoard.lowestBit(bb), rayType);
+				}
 			}
 		}
 		//
@@ -791,16 +1708,20 @@ public class Position {
 		if (rayToKing != null) {
 			RayType rayType = rayToKing.getRayType();
 			// squares further away from king set to UNKNOWN
-			rayToKing.getOpposite().streamSquaresFrom(relevantSquare)
-					.forEach(sq -> stateOfMovingSide.setToUnknownState(sq, rayType));
+			for (long bb = RayUtils.rayMask(rayType.getOpposite(), relevantSquare.bitIndex()); bb != 0; bb = LongBitBoard
+					.clearLowestBit(bb)) {
+				stateOfMovingSide.setToUnknownState(LongBitBoard.lowestBit(bb), rayType);
+			}
 		}
 		relevantSquare = move.to();
 		rayToKing = RayUtils.getRay(relevantSquare, opponentsKing);
 		if (rayToKing != null) {
 			RayType rayType = rayToKing.getRayType();
 			// squares further away from king set to NO_CHECK
-			rayToKing.getOpposite().streamSquaresFrom(relevantSquare)
-					.forEach(sq -> stateOfMovingSide.setToNotCheck(sq, rayType));
+			for (long bb = RayUtils.rayMask(rayType.getOpposite(), relevantSquare.bitIndex()); bb != 0; bb = LongBitBoard
+					.clearLowestBit(bb)) {
+				stateOfMovingSide.setToNotCheck(LongBitBoard.lowestBit(bb), rayType);
+			}
 		}
 
 		if (SystemFlags.DEBUG_CHECK_STATE) {
@@ -821,7 +1742,7 @@ public class Position {
 		Colour opponentsColour = Colour.oppositeColour(sideToMove);
 		Square opponentsKingsSquare = getKingPosition(opponentsColour);
 		PositionCheckState state = checkState[sideToMove.ordinal()];
-		BitSetUnifier emptySquares = getEmptySquares();
+		long emptySquares = getEmptySquaresBits();
 		state.stream().filter(x -> x.getRight().getState() != CheckStates.UNKNOWN).forEach(x -> {
 			Square startSquare = Square.fromBitIndex(x.getLeft());
 			CheckInfo info = x.getRight();
@@ -833,15 +1754,12 @@ public class Position {
 				if (info.getState() != CheckStates.NOT_CHECK) {
 					throw new IllegalStateException("null ray but checkstate != NOT_CHECK");
 				}
-				isCheck = Bishop.attacksSquare(emptySquares, startSquare, opponentsKingsSquare,
-						new PositionCheckState(), false, false);
+				isCheck = Bishop.attacksSquare(emptySquares, startSquare, opponentsKingsSquare);
 				if (!isCheck) {
-					isCheck = Rook.attacksSquare(emptySquares, startSquare, opponentsKingsSquare,
-							new PositionCheckState(), false, false);
+					isCheck = Rook.attacksSquare(emptySquares, startSquare, opponentsKingsSquare);
 				}
 				if (!isCheck) {
-					isCheck = Queen.attacksSquare(emptySquares, startSquare, opponentsKingsSquare,
-							new PositionCheckState(), false, false);
+					isCheck = Queen.attacksSquare(emptySquares, startSquare, opponentsKingsSquare);
 				}
 
 				isCheck = false; // TODO workaround
@@ -849,12 +1767,10 @@ public class Position {
 			} else {
 				if (info.getRayType().isDiagonal()) {
 					// bishop/queen
-					isCheck = SlidingPiece.attacksSquareDiagonally(emptySquares, startSquare, opponentsKingsSquare,
-							new PositionCheckState(), false, false);
+					isCheck = SlidingPiece.attacksSquareDiagonally(emptySquares, startSquare, opponentsKingsSquare);
 				} else {
 					// rook/queen
-					isCheck = SlidingPiece.attacksSquareRankOrFile(emptySquares, startSquare, opponentsKingsSquare,
-							new PositionCheckState(), false, false);
+					isCheck = SlidingPiece.attacksSquareRankOrFile(emptySquares, startSquare, opponentsKingsSquare);
 				}
 			}
 			switch (info.getState()) {
@@ -926,23 +1842,6 @@ public class Position {
 		return sb.toString();
 	}
 
-	/**
-	 * Updates the given bitset to represent the move. The from and to squares will
-	 * be flipped. If castling then the rook's move is also taken into a/c.
-	 *
-	 * @param bitset the bitset to be updated.
-	 * @param move   the move. NB only non-capture moves are supported by this
-	 *               method!
-	 */
-	private void updateBitSet(BitSetUnifier bitset, Move move) {
-		bitset.flip(move.from().bitIndex());
-		bitset.flip(move.to().bitIndex());
-		if (move.isCastleKingsSide() || move.isCastleQueensSide()) {
-			bitset.flip(move.getRooksCastlingMove().from().bitIndex());
-			bitset.flip(move.getRooksCastlingMove().to().bitIndex());
-		}
-	}
-
 	/**
 	 * Access to the pieces of a given colour.
 	 *
@@ -954,36 +1853,51 @@ public class Position {
 	}
 
 	/**
-	 * Access to a BitBoard of all the pieces of a given colour.
+	 * Access to a bitboard of all the pieces of a given colour.
 	 *
 	 * @param colour the required colour
-	 * @return a BitBoard containing all the pieces of a given colour.
+	 * @return a bitboard containing all the pieces of a given colour.
 	 */
-	public BitBoard getAllPieces(Colour colour) {
-		return allEnemyPieces[colour.ordinal()];
+	public long getAllPiecesBits(Colour colour) {
+		return allPieces[colour.ordinal()];
 	}
 
 	/**
-	 * Access to a BitBoard of all the pieces irrespective of colour. Logical NOT of
-	 * this BitBoard gives a bitboard of all empty squares.
+	 * Access to a bitboard of all the pieces irrespective of colour. Logical NOT of
+	 * this bitboard gives a bitboard of all empty squares.
 	 *
-	 * @return a BitBoard containing all the pieces irrespective of colour.
+	 * @return a bitboard containing all the pieces irrespective of colour.
 	 */
-	public BitBoard getTotalPieces() {
+	public long getTotalPiecesBits() {
 		return totalPieces;
 	}
 
 	/**
-	 * returns the bitset of all empty squares (logical NOT of
-	 * {@link #getTotalPieces()}). The bitset will be created on first usage.
+	 * @return a bitboard of all empty squares (logical NOT of {@link #getTotalPiecesBits()}).
+	 */
+	public long getEmptySquaresBits() {
+		return ~totalPieces;
+	}
+
+	/**
+	 * Access to a BitBoard of all the pieces of a given colour. A new object is
+	 * returned on each call; prefer {@link #getAllPiecesBits(Colour)}.
 	 *
-	 * @return the bitset of all empty squares.
+	 * @param colour the required colour
+	 * @return a BitBoard containing all the pieces of a given colour.
 	 */
-	public BitSetUnifier getEmptySquares() {
-		if (emptySquares == null) {
-			emptySquares = getTotalPieces().flip();
-		}
-		return emptySquares;
+	public BitBoard getAllPieces(Colour colour) {
+		return new BitBoard(allPieces[colour.ordinal()]);
+	}
+
+	/**
+	 * Access to a BitBoard of all the pieces irrespective of colour. A new object is
+	 * returned on each call; prefer {@link #getTotalPiecesBits()}.
+	 *
+	 * @return a BitBoard containing all the pieces irrespective of colour.
+	 */
+	public BitBoard getTotalPieces() {
+		return new BitBoard(totalPieces);
 	}
 
 	public PieceManager getPieceManager() {
@@ -997,7 +1911,7 @@ public class Position {
 	public void debug() {
 		for (Colour colour : Colour.ALL_COLOURS) {
 			System.out.println(colour + " all pieces");
-			System.out.println(allEnemyPieces[colour.ordinal()].display());
+			System.out.println(LongBitBoard.display(allPieces[colour.ordinal()]));
 			System.out.println("---");
 		}
 		System.out.println("pieces");
@@ -1009,7 +1923,7 @@ public class Position {
 			}
 		}
 		System.out.println("totalPieces");
-		System.out.println(totalPieces.display());
+		System.out.println(LongBitBoard.display(totalPieces));
 		System.out.println("---");
 
 	}
@@ -1040,18 +1954,168 @@ public class Position {
 	 * @return true if this square is attacked by the opponent
 	 */
 	public boolean squareIsAttacked(Square targetSquare, Colour opponentsColour) {
-		Piece[] opponentsPieces = getPieces(opponentsColour);
-		// iterate over the pieces
-		// TODO instead of treating queens separately, could 'merge' them with the rooks
-		// and the bishops
-		BitSetUnifier emptySquares = getEmptySquares();
-		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
-			Piece piece = opponentsPieces[type.ordinal()];
-			if (piece != null && piece.attacksSquare(emptySquares, targetSquare)) {
-				return true;
+		return (attackersTo(targetSquare.bitIndex(), totalPieces) & allPieces[opponentsColour.ordinal()]) != 0;
+	}
+
+	/**
+	 * Returns all squares attacked by the pieces of the given colour in this
+	 * position, i.e. {@link #attackedSquares(Colour, long)} for the current
+	 * occupancy. Calculated at most once per position and colour, and shared by
+	 * all callers (castling, king moves, mobility).
+	 *
+	 * @param colour the attacking side
+	 * @return bitboard of the attacked squares, including squares occupied by the
+	 *         attacker's own pieces
+	 */
+	public long attackedSquares(Colour colour) {
+		final int ord = colour.ordinal();
+		if ((attackedSquaresValid & (1 << ord)) == 0) {
+			attackedSquares[ord] = attackedSquares(colour, totalPieces);
+			attackedSquaresValid |= 1 << ord;
+		}
+		return attackedSquares[ord];
+	}
+
+	/**
+	 * Returns all squares attacked by the pieces of the given colour, for the given
+	 * occupancy. E.g. to find the squares where the opponent's king may move to,
+	 * call with the opponent's king removed from the occupied squares, so that the
+	 * squares 'behind' the king (as seen from a sliding piece) are also included.
+	 *
+	 * @param colour   the attacking side
+	 * @param occupied the occupied squares
+	 * @return bitboard of the attacked squares, including squares occupied by the
+	 *         attacker's own pieces
+	 */
+	public long attackedSquares(Colour colour, long occupied) {
+		final Piece[] pieces = getPieces(colour);
+		long attacked = Pawn.attacks(colour, pieces[PieceType.PAWN.ordinal()].getBits())
+				| King.attacks(kingPosition[colour.ordinal()].bitIndex());
+		for (long bb = pieces[PieceType.KNIGHT.ordinal()].getBits(); bb != 0; bb = LongBitBoard.clearLowestBit(bb)) {
+			attacked |= Knight.attacks(LongBitBoard.lowestBit(bb));
+		}
+		final long queens = pieces[PieceType.QUEEN.ordinal()].getBits();
+		for (long bb = pieces[PieceType.BISHOP.ordinal()].getBits() | queens; bb != 0; bb = LongBitBoard
+				.clearLowestBit(bb)) {
+			attacked |= MagicBitBoard.bishopAttacks(LongBitBoard.lowestBit(bb), occupied);
+		}
+		for (long bb = pieces[PieceType.ROOK.ordinal()].getBits() | queens; bb != 0; bb = LongBitBoard
+				.clearLowestBit(bb)) {
+			attacked |= MagicBitBoard.rookAttacks(LongBitBoard.lowestBit(bb), occupied);
+		}
+		return attacked;
+	}
+
+	/**
+	 * Returns the pieces of both colours which attack the given square, for the
+	 * given occupancy. Sliding pieces 'see through' squares which are not set in
+	 * <code>occupied</code>; this allows x-ray attacks to be found by removing
+	 * pieces from the occupancy.
+	 *
+	 * @param bitIndex the square
+	 * @param occupied the occupied squares
+	 * @return bitboard of the attacking pieces (of both colours). Pieces which are
+	 *         not in <code>occupied</code> are not removed.
+	 */
+	public long attackersTo(int bitIndex, long occupied) {
+		Piece[] white = getPieces(Colour.WHITE);
+		Piece[] black = getPieces(Colour.BLACK);
+		long diagonalSliders = white[PieceType.BISHOP.ordinal()].getBits() | white[PieceType.QUEEN.ordinal()].getBits()
+				| black[PieceType.BISHOP.ordinal()].getBits() | black[PieceType.QUEEN.ordinal()].getBits();
+		long straightSliders = white[PieceType.ROOK.ordinal()].getBits() | white[PieceType.QUEEN.ordinal()].getBits()
+				| black[PieceType.ROOK.ordinal()].getBits() | black[PieceType.QUEEN.ordinal()].getBits();
+		long square = LongBitBoard.bit(bitIndex);
+		// a white pawn attacks the square if a black pawn on the square would attack the white pawn, and vice versa
+		return (Pawn.attacks(Colour.BLACK, square) & white[PieceType.PAWN.ordinal()].getBits())
+				| (Pawn.attacks(Colour.WHITE, square) & black[PieceType.PAWN.ordinal()].getBits())
+				| (Knight.attacks(bitIndex)
+						& (white[PieceType.KNIGHT.ordinal()].getBits() | black[PieceType.KNIGHT.ordinal()].getBits()))
+				| (King.attacks(bitIndex)
+						& (white[PieceType.KING.ordinal()].getBits() | black[PieceType.KING.ordinal()].getBits()))
+				| (MagicBitBoard.bishopAttacks(bitIndex, occupied) & diagonalSliders)
+				| (MagicBitBoard.rookAttacks(bitIndex, occupied) & straightSliders);
+	}
+
+	/**
+	 * Static exchange evaluation: the material balance (from the point of view of
+	 * the side making the move) of the sequence of captures on the target square of
+	 * <code>move</code>, where each side always recaptures with its least valuable
+	 * piece and can stop capturing at any time. Uses the 'swap' algorithm, see
+	 * https://www.chessprogramming.org/SEE_-_The_Swap_Algorithm.
+	 * <p>
+	 * Pins and checks are not taken into account.
+	 *
+	 * @param move the move (a capture or promotion; for other moves the result is
+	 *             the expected loss of the moving piece, i.e. 0 or negative)
+	 * @return the material gain (centipawns)
+	 */
+	public int staticExchangeEvaluation(int move) {
+		final int to = PackedMove.to(move);
+		final int[] gain = seeGain;
+		int d = 0;
+		long occupied = totalPieces & ~LongBitBoard.bit(PackedMove.from(move));
+		if (PackedMove.isEnpassant(move)) {
+			occupied &= ~LongBitBoard.bit(PackedMove.pawnCapturedEnpassant(move));
+		}
+		gain[0] = PackedMove.isCapture(move) ? pieceValue(PackedMove.capturedPiece(move)) : 0;
+		// value of the piece which now stands on the target square
+		int valueOnSquare = pieceValue(PackedMove.piece(move));
+		if (PackedMove.isPromotion(move)) {
+			int promotedValue = pieceValue(PackedMove.promotedPiece(move));
+			gain[0] += promotedValue - valueOnSquare;
+			valueOnSquare = promotedValue;
+		}
+		Colour sideToCapture = PackedMove.colour(move).oppositeColour();
+		long attackers = attackersTo(to, occupied) & occupied;
+		while (true) {
+			d++;
+			// speculative: the gain if the piece on the square is captured
+			gain[d] = valueOnSquare - gain[d - 1];
+			if (Math.max(-gain[d - 1], gain[d]) < 0) {
+				// neither side can improve by continuing
+				break;
 			}
+			long myAttackers = attackers & allPieces[sideToCapture.ordinal()];
+			if (myAttackers == 0) {
+				break;
+			}
+			// least valuable attacker
+			PieceType attackerType = null;
+			long attacker = 0;
+			for (PieceType type : SEE_ATTACKER_ORDER) {
+				long bb = myAttackers & getPieces(sideToCapture)[type.ordinal()].getBits();
+				if (bb != 0) {
+					attackerType = type;
+					attacker = Long.lowestOneBit(bb);
+					break;
+				}
+			}
+			if (attackerType == PieceType.KING
+					&& (attackers & allPieces[sideToCapture.oppositeColour().ordinal()]) != 0) {
+				// the king cannot capture a defended piece
+				break;
+			}
+			occupied &= ~attacker;
+			// add any x-ray attackers behind the piece which has just captured
+			attackers = attackersTo(to, occupied) & occupied;
+			valueOnSquare = pieceValue(attackerType);
+			sideToCapture = sideToCapture.oppositeColour();
 		}
-		return false;
+		while (--d > 0) {
+			gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+		}
+		return gain[0];
+	}
+
+	/**
+	 * The value of a piece as used by the static exchange evaluation and for move
+	 * ordering.
+	 *
+	 * @param type the piece type
+	 * @return value in centipawns
+	 */
+	public static int pieceValue(PieceType type) {
+		return PIECE_VALUES[type.ordinal()];
 	}
 
 	/**
@@ -1074,12 +2138,9 @@ public class Position {
 			return false;
 		}
 
-		// set up the emptySquares and myPieces bitsets *after* this move
-		BitSetUnifier emptySquares = (BitSetUnifier) posn.getEmptySquares().clone();// need a clone
-		BitSetUnifier myPieces = posn.getAllPieces(colour).cloneBitSet();
-
-		emptySquares.set(moveFromIndex);
-		myPieces.clear(moveFromIndex);
+		// set up the emptySquares and myPieces bitboards *after* this move
+		long emptySquares = LongBitBoard.set(posn.getEmptySquaresBits(), moveFromIndex);
+		long myPieces = LongBitBoard.clear(posn.getAllPiecesBits(colour), moveFromIndex);
 
 		// 1) do not need to set 'move.to()' -- if we're moving on the same ray, then it
 		// will be check already
@@ -1095,23 +2156,21 @@ public class Position {
 	 * @param myColour             my colour
 	 * @param cb                   the chessboard -- required for pieceAt()
 	 * @param emptySquares         the empty squares
-	 * @param myPieces             BitSet of my pieces
+	 * @param myPieces             bitboard of my pieces
 	 * @param opponentsKingsSquare where the opponent's king is
 	 * @param moveFromSquare       the square where the piece moved from
 	 * @return true if the move from square <code>moveFromSquare</code> leads to a
 	 *         discovered check on the king.
 	 */
-	public static boolean discoveredCheck(Colour myColour, Position cb, BitSetUnifier emptySquares,
-			BitSetUnifier myPieces, Square opponentsKingsSquare, Square moveFromSquare) {
+	public static boolean discoveredCheck(Colour myColour, Position cb, long emptySquares, long myPieces,
+			Square opponentsKingsSquare, Square moveFromSquare) {
 		// if moveFromSquare is on a ray to kingsSquare,
 		// then inspect this ray for a checking bishop/queen/rook
 		Ray ray = RayUtils.getRay(opponentsKingsSquare, moveFromSquare);
 		if (ray != null) {
-			// TODO optimization: only interested in my pieces here
-			RayInfo info = RayUtils.findFirstPieceOnRay(myColour, emptySquares, myPieces, ray,
-					opponentsKingsSquare.bitIndex());
-			if (info.foundPiece() && (info.getColour() == myColour)) {
-				PieceType firstPieceFound = cb.pieceAt(Square.fromBitIndex(info.getIndexOfPiece()), myColour);
+			int bitIndex = RayUtils.firstBlocker(ray.getRayType(), opponentsKingsSquare.bitIndex(), ~emptySquares);
+			if (bitIndex != -1 && LongBitBoard.isSet(myPieces, bitIndex)) {
+				PieceType firstPieceFound = cb.pieceAt(Square.fromBitIndex(bitIndex), myColour);
 				return ray.isRelevantPieceForDiscoveredCheck(firstPieceFound);
 			}
 		}
@@ -1125,22 +2184,21 @@ public class Position {
 	 * @param kingsColour       my colour
 	 * @param cb                the chessboard -- required for pieceAt()
 	 * @param emptySquares      the empty squares
-	 * @param kingsColourPieces BitSet of the pieces of the king's colour
+	 * @param kingsColourPieces bitboard of the pieces of the king's colour
 	 * @param kingsSquare       where the opponent's king is
 	 * @param moveFromSquare    the square where the piece moved from
 	 * @return true if the move from square <code>moveFromSquare</code> leads to a
 	 *         discovered check on the king.
 	 */
-	public static boolean kingInCheck(Colour kingsColour, Position cb, BitSetUnifier emptySquares,
-			BitSetUnifier kingsColourPieces, Square kingsSquare, Square moveFromSquare) {
+	public static boolean kingInCheck(Colour kingsColour, Position cb, long emptySquares, long kingsColourPieces,
+			Square kingsSquare, Square moveFromSquare) {
 		// if moveFromSquare is on a ray to kingsSquare,
 		// then inspect this ray for a checking bishop/queen/rook
 		Ray ray = RayUtils.getRay(kingsSquare, moveFromSquare);
 		if (ray != null) {
-			RayInfo info = RayUtils.findFirstPieceOnRay(kingsColour, emptySquares, kingsColourPieces, ray,
-					kingsSquare.bitIndex());
-			if (info.foundPiece() && (info.getColour() != kingsColour)) {
-				PieceType firstPieceFound = cb.pieceAt(Square.fromBitIndex(info.getIndexOfPiece()),
+			int bitIndex = RayUtils.firstBlocker(ray.getRayType(), kingsSquare.bitIndex(), ~emptySquares);
+			if (bitIndex != -1 && !LongBitBoard.isSet(kingsColourPieces, bitIndex)) {
+				PieceType firstPieceFound = cb.pieceAt(Square.fromBitIndex(bitIndex),
 						Colour.oppositeColour(kingsColour));
 				return ray.isRelevantPieceForDiscoveredCheck(firstPieceFound);
 			}
@@ -1196,4 +2254,63 @@ public class Position {
 		}
 	}
 
+	/**
+	 * The state of a position before a move was made with {@link #makeMove(int)}.
+	 */
+	private static final class UndoInfo {
+		private int move;
+		private long zobristHash;
+		private long pawnHash;
+		private final long[] allPieces = new long[2];
+		private long totalPieces;
+		private final CastlingRightsSummary[] castling = new CastlingRightsSummary[2];
+		private Square enpassantSquare;
+		private int middlegameScore;
+		private int endgameScore;
+		private int gamePhase;
+		private final Square[] kingPosition = new Square[2];
+		private Boolean checkInformation;
+		private String fen;
+		private PositionScore positionScore;
+
+		void save(Position posn, int move) {
+			this.move = move;
+			zobristHash = posn.zobristHash;
+			pawnHash = posn.pawnHash;
+			allPieces[0] = posn.allPieces[0];
+			allPieces[1] = posn.allPieces[1];
+			totalPieces = posn.totalPieces;
+			// castling rights are cloned on write, therefore the reference can be stored
+			castling[0] = posn.castling[0];
+			castling[1] = posn.castling[1];
+			enpassantSquare = posn.enpassantSquare;
+			middlegameScore = posn.middlegameScore;
+			endgameScore = posn.endgameScore;
+			gamePhase = posn.gamePhase;
+			kingPosition[0] = posn.kingPosition[0];
+			kingPosition[1] = posn.kingPosition[1];
+			checkInformation = posn.checkInformation;
+			fen = posn.fen;
+			positionScore = posn.positionScore;
+		}
+
+		void restore(Position posn) {
+			posn.zobristHash = zobristHash;
+			posn.pawnHash = pawnHash;
+			posn.allPieces[0] = allPieces[0];
+			posn.allPieces[1] = allPieces[1];
+			posn.totalPieces = totalPieces;
+			posn.castling[0] = castling[0];
+			posn.castling[1] = castling[1];
+			posn.enpassantSquare = enpassantSquare;
+			posn.middlegameScore = middlegameScore;
+			posn.endgameScore = endgameScore;
+			posn.gamePhase = gamePhase;
+			posn.kingPosition[0] = kingPosition[0];
+			posn.kingPosition[1] = kingPosition[1];
+			posn.checkInformation = checkInformation;
+			posn.fen = fen;
+			posn.positionScore = positionScore;
+		}
+	}
 }
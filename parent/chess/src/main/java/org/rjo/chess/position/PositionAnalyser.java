@@ -1,13 +1,11 @@
 package org.rjo.chess.position;
 
-import java.util.Iterator;
+import java.util.Arrays;
 
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetUnifier;
-import org.rjo.chess.base.ray.Ray;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.base.ray.RayType;
 import org.rjo.chess.base.ray.RayUtils;
 import org.rjo.chess.pieces.Knight;
@@ -54,11 +52,13 @@ public class PositionAnalyser {
 	 *                          false, search stops after the first one.
 	 * @return an object containing a list of pieces checking the king (list is
 	 *         empty if the king is not in check) and a list of pieces which are
-	 *         pinned against the king. If friendlyPieces==null, pinned info will
-	 *         not be returned
+	 *         pinned against the king, also as bitboards together with the
+	 *         squares each pinned piece may move to (see
+	 *         {@link PositionInfo#getPinMask(int)}). If friendlyPieces==null,
+	 *         pinned info will not be returned
 	 */
-	public static PositionInfo analysePosition(Square kingsSquare, Colour kingsColour, BitSetUnifier allFriendlyPieces,
-			BitSetUnifier[] friendlyPieces, BitSetUnifier[] enemyPieces, RayType rayToExamine, boolean findAllChecks) {
+	public static PositionInfo analysePosition(Square kingsSquare, Colour kingsColour, long allFriendlyPieces,
+			long[] friendlyPieces, long[] enemyPieces, RayType rayToExamine, boolean findAllChecks) {
 
 		var boardInfo = new PositionInfo(kingsSquare);
 		boolean optimizedRaySearch = rayToExamine != null;
@@ -89,7 +89,7 @@ public class PositionAnalyser {
 			}
 		}
 
-		BitBoard allEnemyPieces = createBitboardContainingAllPieces(enemyPieces);
+		long allEnemyPieces = createBitboardContainingAllPieces(enemyPieces);
 
 		RayType[] raysToCheck;
 		if (optimizedRaySearch) {
@@ -98,46 +98,30 @@ public class PositionAnalyser {
 			raysToCheck = RayType.values();
 		}
 
+		long occupied = allFriendlyPieces | allEnemyPieces;
+		long diagonalAttackers = enemyPieces[PieceType.QUEEN.ordinal()] | enemyPieces[PieceType.BISHOP.ordinal()];
+		long orthogonalAttackers = enemyPieces[PieceType.QUEEN.ordinal()] | enemyPieces[PieceType.ROOK.ordinal()];
+
 		// look along each ray, starting from king's square
 		for (RayType rayType : raysToCheck) {
-			Ray ray = RayUtils.getRay(rayType);
-			boolean keepSearching = true; // we terminate early if we've found 2 checks
-			Iterator<Integer> rayIter = ray.squaresFrom(kingsSquare);
-			while (keepSearching && rayIter.hasNext()) {
-				int bitIndex = rayIter.next();
-				// stop search for a checker if a friendly piece is on this ray; however,
-				// process to see if this is pinned (if friendlyPieces has been supplied)
-				if (allFriendlyPieces.get(bitIndex)) {
-					if (friendlyPieces != null
-							&& pieceIsPinned(allFriendlyPieces, allEnemyPieces, enemyPieces, rayType, rayIter)) {
-						boardInfo.addPinnedPiece(rayType, findPieceAt(bitIndex, friendlyPieces), bitIndex);
-					}
-					break;
-				}
-				// an enemy piece is relevant for diagonal (queen/bishop) or file (queen/rook)
-				if (allEnemyPieces.get(bitIndex)) {
-					if (rayType.isDiagonal()) {
-						if (enemyPieces[PieceType.QUEEN.ordinal()].get(bitIndex)) {
-							boardInfo.addChecker(rayType, PieceType.QUEEN, bitIndex);
-							keepSearching = !findAllChecks || boardInfo.isDoubleCheck();
-						} else if (enemyPieces[PieceType.BISHOP.ordinal()].get(bitIndex)) {
-							boardInfo.addChecker(rayType, PieceType.BISHOP, bitIndex);
-							keepSearching = !findAllChecks || boardInfo.isDoubleCheck();
-						}
-					} else // !rayType.isDiagonal()
-					{
-						if (enemyPieces[PieceType.QUEEN.ordinal()].get(bitIndex)) {
-							boardInfo.addChecker(rayType, PieceType.QUEEN, bitIndex);
-							keepSearching = !findAllChecks || boardInfo.isDoubleCheck();
-						} else if (enemyPieces[PieceType.ROOK.ordinal()].get(bitIndex)) {
-							boardInfo.addChecker(rayType, PieceType.ROOK, bitIndex);
-							keepSearching = !findAllChecks || boardInfo.isDoubleCheck();
-						}
-					}
-					break;
+			int bitIndex = RayUtils.firstBlocker(rayType, kingsSquare.bitIndex(), occupied);
+			if (bitIndex == -1) {
+				continue;
+			}
+			long attackers = rayType.isDiagonal() ? diagonalAttackers : orthogonalAttackers;
+			// a friendly piece stops the search for a checker on this ray; however,
+			// process to see if this is pinned (if friendlyPieces has been supplied)
+			if (LongBitBoard.isSet(allFriendlyPieces, bitIndex)) {
+				if (friendlyPieces != null && pieceIsPinned(occupied, attackers, rayType, bitIndex)) {
+					boardInfo.addPinnedPiece(rayType, findPieceAt(bitIndex, friendlyPieces), bitIndex);
 				}
 			}
-
+			// an enemy piece is relevant for diagonal (queen/bishop) or file (queen/rook)
+			else if (LongBitBoard.isSet(attackers, bitIndex)) {
+				PieceType checker = LongBitBoard.isSet(enemyPieces[PieceType.QUEEN.ordinal()], bitIndex) ? PieceType.QUEEN
+						: rayType.isDiagonal() ? PieceType.BISHOP : PieceType.ROOK;
+				boardInfo.addChecker(rayType, checker, bitIndex);
+			}
 		}
 		boardInfo.calculateRestrictedSquares();
 		return boardInfo;
@@ -154,10 +138,10 @@ public class PositionAnalyser {
 	 * @param pieces bitsets of all pieces for one side.
 	 * @return a bitboard reflecting the positions of all pieces of one side
 	 */
-	public static BitBoard createBitboardContainingAllPieces(BitSetUnifier[] pieces) {
-		BitBoard allPieces = new BitBoard();
+	public static long createBitboardContainingAllPieces(long[] pieces) {
+		long allPieces = 0;
 		for (PieceType pt : PieceType.ALL_PIECE_TYPES) {
-			allPieces.getBitSet().or(pieces[pt.ordinal()]);
+			allPieces |= pieces[pt.ordinal()];
 		}
 		return allPieces;
 	}
@@ -175,39 +159,21 @@ public class PositionAnalyser {
 	 * @return bitsets of check-relevant squares. First bitset is for rooks/queens,
 	 *         second for bishops/queens.
 	 */
-	public static BitBoard[] findCheckingSquares(Square kingsSquare, BitBoard allFriendlyPieces,
-			BitBoard allEnemyPieces) {
-
-		var raysToCheck = RayType.values();
+	public static long[] findCheckingSquares(Square kingsSquare, long allFriendlyPieces,
+			long allEnemyPieces) {
 
-		var rookBitSet = new BitBoard();
-		var bishopBitSet = new BitBoard();
+		long[] checkingSquares = new long[2];
+		long occupied = allFriendlyPieces | allEnemyPieces;
 
 		// look along each ray, starting from king's square
-		for (RayType rayType : raysToCheck) {
-			// decide which output bitset to use
-			BitBoard output;
-			if (rayType.isDiagonal()) {
-				output = bishopBitSet;
-			} else {
-				output = rookBitSet;
-			}
-			Ray ray = RayUtils.getRay(rayType);
-			Iterator<Integer> rayIter = ray.squaresFrom(kingsSquare);
-			while (rayIter.hasNext()) {
-				int bitIndex = rayIter.next();
-				// stop at first enemy piece ...
-				// ... or first friendly piece (its square will be included though)
-				if (allEnemyPieces.get(bitIndex)) {
-					break;
-				}
-				output.set(bitIndex);
-				if (allFriendlyPieces.get(bitIndex)) {
-					break;
-				}
-			}
+		for (RayType rayType : RayType.values()) {
+			// decide which output bitboard to use
+			int output = rayType.isDiagonal() ? 1 : 0;
+			// stop at first enemy piece (not included) or first friendly piece (included)
+			checkingSquares[output] |= RayUtils.squaresUpToFirstBlocker(rayType, kingsSquare.bitIndex(), occupied)
+					& ~allEnemyPieces;
 		}
-		return new BitBoard[] { rookBitSet, bishopBitSet };
+		return checkingSquares;
 	}
 
 	/**
@@ -217,58 +183,31 @@ public class PositionAnalyser {
 	 * @param pieces   bitsets of pieces
 	 * @return the type of piece at the location
 	 */
-	private static PieceType findPieceAt(int bitIndex, BitSetUnifier[] pieces) {
+	private static PieceType findPieceAt(int bitIndex, long[] pieces) {
 		for (PieceType pt : PieceType.ALL_PIECE_TYPES_EXCEPT_KING) {
-			if (pieces[pt.ordinal()].get(bitIndex)) {
+			if (LongBitBoard.isSet(pieces[pt.ordinal()], bitIndex)) {
 				return pt;
 			}
 		}
 		throw new IllegalArgumentException(String.format("no piece found at %d (%s) for bitmaps: %s", bitIndex,
-				Square.fromBitIndex(bitIndex), pieces));
+				Square.fromBitIndex(bitIndex), Arrays.toString(pieces)));
 	}
 
 	/**
 	 * This method is called when one of our pieces has been found on a ray from our
 	 * king. It now checks to see if there is an enemy piece further along the ray
 	 * which is pinning our piece. If so, returns true.
-	 * <p>
-	 * NB there is no need to know which of our pieces has been found or even on
-	 * what square.
 	 *
-	 * @param friendlyPieces our pieces
-	 * @param allEnemyPieces their pieces as a bitboard
-	 * @param enemyPieces    their pieces
-	 * @param rayType        type of ray
-	 * @param rayIter        the iterator along the ray in question
+	 * @param occupied  all pieces
+	 * @param attackers enemy pieces which can pin along this ray (queen and
+	 *                  bishops or rooks)
+	 * @param rayType   type of ray
+	 * @param bitIndex  where our piece is
 	 * @return true if there is an enemy piece pinning our piece.
 	 */
-	private static boolean pieceIsPinned(BitSetUnifier friendlyPieces, BitBoard allEnemyPieces,
-			BitSetUnifier[] enemyPieces, RayType rayType, Iterator<Integer> rayIter) {
-		while (rayIter.hasNext()) {
-			int bitIndex = rayIter.next();
-			// stop search if we've found another of our pieces on the ray
-			if (friendlyPieces.get(bitIndex)) {
-				return false;
-			} else if (allEnemyPieces.get(bitIndex)) {
-				if (rayType.isDiagonal()) {
-					if (enemyPieces[PieceType.QUEEN.ordinal()].get(bitIndex)) {
-						return true;
-					} else if (enemyPieces[PieceType.BISHOP.ordinal()].get(bitIndex)) {
-						return true;
-					}
-					break; // found an enemy's piece, but it's not a pinner
-				} else // !rayType.isDiagonal
-				{
-					if (enemyPieces[PieceType.QUEEN.ordinal()].get(bitIndex)) {
-						return true;
-					} else if (enemyPieces[PieceType.ROOK.ordinal()].get(bitIndex)) {
-						return true;
-					}
-					break; // found an enemy's piece, but it's not a pinner
-				}
-			}
-		}
-		return false;
+	private static boolean pieceIsPinned(long occupied, long attackers, RayType rayType, int bitIndex) {
+		int nextPiece = RayUtils.firstBlocker(rayType, bitIndex, occupied);
+		return nextPiece != -1 && LongBitBoard.isSet(attackers, nextPiece);
 	}
 
 }
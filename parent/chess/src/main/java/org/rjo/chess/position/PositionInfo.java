@@ -1,13 +1,14 @@
 package org.rjo.chess.position;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
+import org.rjo.chess.base.Colour;
+import org.rjo.chess.base.MoveList;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitBoard;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.base.ray.RayType;
 import org.rjo.chess.base.ray.RayUtils;
 
@@ -36,12 +37,23 @@ public class PositionInfo {
 	 * bitboard of all squares from the checking piece(s) to the king. This represents the squares where a piece could
 	 * interpose (or take the attacker) to block the check. Default is all-set, i.e. all squares are allowed.
 	 */
-	private BitBoard squaresToBlockCheck;
+	private long squaresToBlockCheck = LongBitBoard.ALL;
 	/**
 	 * squares in this bitset represent the squares where the king <B>cannot</B> move since it would still be in check.
 	 * Default is empty, i.e. no restriction.
 	 */
-	private BitBoard restrictedSquaresForKing; // default is no restriction
+	private long restrictedSquaresForKing = LongBitBoard.EMPTY; // default is no restriction
+	/** bitboard of the checking pieces */
+	private long checkersBits;
+	/** bitboard of the pinned pieces */
+	private long pinnedPiecesBits;
+	/**
+	 * For each ray from the king (indexed by RayType ordinal) along which a piece is pinned: the squares of this ray. The
+	 * pinned piece can only move to these squares (up to and including the pinning piece).
+	 */
+	private final long[] pinMasks = new long[RayType.values().length];
+	/** if true, the position has not been analysed and the moves need not be legal */
+	private boolean pseudoLegal;
 
 	public PositionInfo(Square kingsSquare) {
 		this.kingsSquare = kingsSquare;
@@ -49,27 +61,52 @@ public class PositionInfo {
 		this.pinnedPieces = new ArrayList<>();
 	}
 
+	/**
+	 * Info for the generation of pseudo-legal moves, see {@link Position#findPseudoLegalMoves(Colour, MoveList)}. Only
+	 * allowed if the king is not in check. The position is not analysed, i.e. no pinned pieces are stored, and the king
+	 * generator does not need to exclude attacked squares.
+	 *
+	 * @param kingsSquare where the king is
+	 * @return a PositionInfo without any restrictions
+	 */
+	public static PositionInfo pseudoLegal(Square kingsSquare) {
+		PositionInfo posnInfo = new PositionInfo(kingsSquare);
+		posnInfo.pseudoLegal = true;
+		return posnInfo;
+	}
+
+	/**
+	 * @return true if pseudo-legal moves are being generated, i.e. the moves will be checked with
+	 *         {@link Position#isLegal(int)} before being played
+	 */
+	public boolean isPseudoLegal() {
+		return pseudoLegal;
+	}
+
 	public void addChecker(RayType ray,
 			PieceType piece,
 			Square square) {
-		checkers.add(new PieceInfo(ray, piece, square));
+		addChecker(ray, piece, square.bitIndex());
 	}
 
 	public void addChecker(RayType ray,
 			PieceType piece,
 			int bitIndex) {
 		checkers.add(new PieceInfo(ray, piece, bitIndex));
+		checkersBits |= LongBitBoard.bit(bitIndex);
 	}
 
 	public void addChecker(PieceType piece,
 			int bitIndex) {
-		checkers.add(new PieceInfo(null, piece, bitIndex));
+		addChecker(null, piece, bitIndex);
 	}
 
 	public void addPinnedPiece(RayType ray,
 			PieceType piece,
 			int bitIndex) {
 		pinnedPieces.add(new PieceInfo(ray, piece, bitIndex));
+		pinnedPiecesBits |= LongBitBoard.bit(bitIndex);
+		pinMasks[ray.ordinal()] = RayUtils.rayMask(ray, kingsSquare.bitIndex());
 	}
 
 	public List<PieceInfo> getCheckers() {
@@ -80,6 +117,42 @@ public class PositionInfo {
 		return pinnedPieces;
 	}
 
+	/**
+	 * @return bitboard of the pieces checking the king
+	 */
+	public long getCheckersBits() {
+		return checkersBits;
+	}
+
+	/**
+	 * @return bitboard of the pieces which are pinned against the king
+	 */
+	public long getPinnedPiecesBits() {
+		return pinnedPiecesBits;
+	}
+
+	/**
+	 * The squares where the piece on the given square can move to without exposing the king: for a pinned piece the squares
+	 * along the pin ray, for any other piece all squares.
+	 * <p>
+	 * Usage: possibleMoves &= boardInfo.getPinMask(bitIndex);
+	 *
+	 * @param bitIndex where the piece is
+	 * @return bitboard of the allowed squares
+	 */
+	public long getPinMask(int bitIndex) {
+		if (!LongBitBoard.isSet(pinnedPiecesBits, bitIndex)) {
+			return LongBitBoard.ALL;
+		}
+		// at most one piece can be pinned along each ray, therefore the masks don't overlap
+		for (long pinMask : pinMasks) {
+			if (LongBitBoard.isSet(pinMask, bitIndex)) {
+				return pinMask;
+			}
+		}
+		throw new IllegalStateException("no pin ray found for pinned piece at " + Square.fromBitIndex(bitIndex));
+	}
+
 	public boolean isKingInCheck() {
 		return checkers.size() >= 1;
 	}
@@ -109,50 +182,37 @@ public class PositionInfo {
 	 */
 	public void calculateRestrictedSquares() {
 		if (isKingInCheck()) {
-			squaresToBlockCheck = BitBoard.empty();
-			restrictedSquaresForKing = BitBoard.empty();
+			squaresToBlockCheck = LongBitBoard.EMPTY;
+			restrictedSquaresForKing = LongBitBoard.EMPTY;
 			for (PieceInfo pieceInfo : checkers) {
 				if (pieceInfo.ray == null) {
 					// knight or pawn giving check
-					squaresToBlockCheck.set(pieceInfo.getBitIndex());
+					squaresToBlockCheck |= LongBitBoard.bit(pieceInfo.getBitIndex());
 				} else {
 					// normally the square of the checking piece itself is included in both bitsets.
 					// 'restrictedSquaresForKing' excludes this square if adjacent to king since the king could move there and take the piece
-					squaresToBlockCheck.set(pieceInfo.getBitIndex());
+					squaresToBlockCheck |= LongBitBoard.bit(pieceInfo.getBitIndex());
 					if (!Square.fromBitIndex(pieceInfo.getBitIndex()).isAdjacentTo(kingsSquare)) {
-						restrictedSquaresForKing.set(pieceInfo.getBitIndex());
-					}
-					Iterator<Integer> iter = RayUtils.getRay(pieceInfo.ray.getOpposite()).squaresFrom(pieceInfo.getBitIndex());
-					boolean reachedKingsSquare = false;
-					while (iter.hasNext()) {
-						int sq = iter.next();
-						if (sq == kingsSquare.bitIndex()) {
-							reachedKingsSquare = true;
-							break;
-						}
-						squaresToBlockCheck.set(sq);
-						restrictedSquaresForKing.set(sq);
-					}
-					if (reachedKingsSquare) {
-						// process squares 'after' the king
-						while (iter.hasNext()) {
-							restrictedSquaresForKing.set(iter.next());
-						}
+						restrictedSquaresForKing |= LongBitBoard.bit(pieceInfo.getBitIndex());
 					}
+					long between = RayUtils.squaresBetween(pieceInfo.getBitIndex(), kingsSquare.bitIndex());
+					squaresToBlockCheck |= between;
+					// the squares 'after' the king are also not available to the king
+					restrictedSquaresForKing |= between | RayUtils.rayMask(pieceInfo.ray.getOpposite(), kingsSquare.bitIndex());
 				}
 			}
 		} else {
-			squaresToBlockCheck = BitBoard.allSet();
-			restrictedSquaresForKing = BitBoard.empty();
+			squaresToBlockCheck = LongBitBoard.ALL;
+			restrictedSquaresForKing = LongBitBoard.EMPTY;
 		}
 	}
 
 	/**
 	 * A bitset of all the squares where pieces <B>must</B> interpose to block a check (or take the attacking piece).
 	 * <p>
-	 * Usage: possibleMoves.and(boardInfo.getSquaresToBlockCheck().getBitSet());
+	 * Usage: possibleMoves &= boardInfo.getSquaresToBlockCheck();
 	 */
-	public BitBoard getSquaresToBlockCheck() {
+	public long getSquaresToBlockCheck() {
 		return squaresToBlockCheck;
 	}
 
@@ -166,9 +226,9 @@ public class PositionInfo {
 	 * the attacker.</li>
 	 * </ul>
 	 * <p>
-	 * Usage: possibleSquares.andNot(boardInfo.getCheckRestrictedSquaresForKing().getBitSet());
+	 * Usage: possibleSquares &= ~boardInfo.getCheckRestrictedSquaresForKing();
 	 */
-	public BitBoard getCheckRestrictedSquaresForKing() {
+	public long getCheckRestrictedSquaresForKing() {
 		return restrictedSquaresForKing;
 	}
 
@@ -177,8 +237,8 @@ public class PositionInfo {
 		StringBuilder sb = new StringBuilder();
 		sb.append("PositionInfo [kingsSquare=").append(kingsSquare);
 		sb.append(", checkers: ").append(checkers).append(", pins: ").append(pinnedPieces);
-		sb.append(", restrictedSquaresForKing:\n").append(restrictedSquaresForKing);
-		sb.append(", squaresToBlockCheck:\n").append(squaresToBlockCheck);
+		sb.append(", restrictedSquaresForKing:\n").append(LongBitBoard.display(restrictedSquaresForKing));
+		sb.append(", squaresToBlockCheck:\n").append(LongBitBoard.display(squaresToBlockCheck));
 		sb.append("]");
 		return sb.toString();
 	}
@@ -0,0 +1,273 @@
+package org.rjo.chess.position;
+
+import org.rjo.chess.base.PackedMove;
+
+/**
+ * A fixed-size transposition table, storing search results keyed by the zobrist hash of a position.
+ * <p>
+ * The table consists of a power-of-two number of buckets. Each bucket has two entries: the first is 'depth-preferred'
+ * (only replaced by a result from a deeper search, or by a result from a newer search), the second is 'always-replace'.
+ * The memory used therefore stays constant, however long the game or analysis session.
+ * <p>
+ * An entry is stored in two <code>long</code>s: the data (see below) and the zobrist key xor'ed with the data. An
+ * entry which was only partially written (by another thread) fails the key check and is ignored.
+ *
+ * <pre>
+ *  bits  0-25  best move (see {@link PackedMove}, without the check bits), or PackedMove.NONE
+ *  bits 26-45  score (signed)
+ *  bits 46-53  depth
+ *  bits 54-55  bound type (BoundType ordinal + 1; 0 == empty)
+ *  bits 56-63  age (of the search which stored the entry)
+ * </pre>
+ *
+ * The best move is stored without the information whether it gives check (see {@link PackedMove#withoutCheck(int)}):
+ * the check-known flag (bit 26) does not fit, and the check flag is cheap to recalculate.
+ * <p>
+ * Mate scores are stored relative to the position in question ('mate in n from here') and converted back to scores
+ * relative to the root on retrieval.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public class TranspositionTable {
+
+	/** indicates the type of the score stored in the table */
+	public enum BoundType {
+		/** the score is exact */
+		EXACT,
+		/** the score is a lower bound (fail high) */
+		LOWER_BOUND,
+		/** the score is an upper bound (fail low) */
+		UPPER_BOUND
+	}
+
+	/** default size of the table in MB */
+	public static final int DEFAULT_SIZE_MB = 16;
+
+	/** returned from {@link #probe(long)} if no entry was found */
+	public static final long NO_ENTRY = 0L;
+
+	/** scores (in absolute terms) at least this large are treated as mate scores */
+	public static final int MATE_SCORE_THRESHOLD = 90000;
+
+	private static final BoundType[] BOUND_TYPES = BoundType.values();
+
+	private static final int MOVE_BITS = 26;
+	private static final int SCORE_SHIFT = 26;
+	private static final int SCORE_BITS = 20;
+	private static final int DEPTH_SHIFT = 46;
+	private static final int BOUND_SHIFT = 54;
+	private static final int AGE_SHIFT = 56;
+
+	private static final long MOVE_MASK = (1L << MOVE_BITS) - 1;
+	private static final long SCORE_MASK = (1L << SCORE_BITS) - 1;
+	private static final long DEPTH_MASK = 0xFF;
+	private static final long BOUND_MASK = 0x3;
+	private static final long AGE_MASK = 0xFF;
+
+	/** zobrist key xor data; two entries per bucket */
+	private final long[] keys;
+	/** packed data; two entries per bucket */
+	private final long[] data;
+	/** number of buckets - 1 */
+	private final int bucketMask;
+
+	/** age of the current search */
+	private int age;
+
+	/**
+	 * Creates a table with the default size.
+	 */
+	public TranspositionTable() {
+		this(DEFAULT_SIZE_MB);
+	}
+
+	/**
+	 * Creates a table which uses (at most) the given amount of memory.
+	 *
+	 * @param sizeInMB size in MB. The number of buckets is rounded down to a power of two.
+	 */
+	public TranspositionTable(int sizeInMB) {
+		if (sizeInMB < 1) {
+			throw new IllegalArgumentException("size must be at least 1 MB, got: " + sizeInMB);
+		}
+		// each bucket: 2 entries of 16 bytes
+		long nbrBuckets = Long.highestOneBit(((long) sizeInMB << 20) / 32);
+		if (nbrBuckets > (1 << 29)) {
+			throw new IllegalArgumentException("size too large: " + sizeInMB + " MB");
+		}
+		this.bucketMask = (int) nbrBuckets - 1;
+		this.keys = new long[(int) nbrBuckets * 2];
+		this.data = new long[(int) nbrBuckets * 2];
+	}
+
+	/**
+	 * Empties the table.
+	 */
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0;
+			data[i] = 0;
+		}
+		age = 0;
+	}
+
+	/**
+	 * Must be called at the start of each new search. Entries from previous searches will be replaced in preference.
+	 */
+	public void newSearch() {
+		age = (age + 1) & (int) AGE_MASK;
+	}
+
+	/**
+	 * Looks up the given position.
+	 *
+	 * @param zobristHash zobrist hash of the position
+	 * @return the packed entry, or {@link #NO_ENTRY} if not present. Use the static accessors to unpack.
+	 */
+	public long probe(long zobristHash) {
+		int index = indexOf(zobristHash);
+		for (int i = index; i < index + 2; i++) {
+			long entry = data[i];
+			if (entry != NO_ENTRY && (keys[i] ^ entry) == zobristHash) {
+				return entry;
+			}
+		}
+		return NO_ENTRY;
+	}
+
+	/**
+	 * Stores a search result.
+	 *
+	 * @param zobristHash zobrist hash of the position
+	 * @param move the best move found (encoded as per {@link PackedMove}), or PackedMove.NONE. The check bits are not
+	 *           stored.
+	 * @param score the score, relative to the root
+	 * @param depth the depth to which the position was searched
+	 * @param boundType type of the score
+	 * @param ply distance of the position from the root, used to convert mate scores
+	 */
+	public void store(long zobristHash,
+			int move,
+			int score,
+			int depth,
+			BoundType boundType,
+			int ply) {
+		int index = indexOf(zobristHash);
+		// replace the depth-preferred entry if it's for the same position, is older, or was searched less deeply
+		long existing = data[index];
+		int slot;
+		if (existing == NO_ENTRY || (keys[index] ^ existing) == zobristHash || age(existing) != age
+				|| depth >= depth(existing)) {
+			slot = index;
+		} else {
+			slot = index + 1;
+		}
+		move = PackedMove.withoutCheck(move);
+		// keep the best move of a previous search of this position if there is no new one
+		if (move == PackedMove.NONE) {
+			long previous = data[slot];
+			if (previous != NO_ENTRY && (keys[slot] ^ previous) == zobristHash) {
+				move = move(previous);
+			}
+		}
+		long entry = pack(move, scoreToTable(score, ply), depth, boundType, age);
+		data[slot] = entry;
+		keys[slot] = zobristHash ^ entry;
+	}
+
+	/**
+	 * Returns an estimate of how full the table is, considering only entries from the current search.
+	 *
+	 * @return fill rate in permill
+	 */
+	public int hashfull() {
+		int sample = Math.min(1000, data.length);
+		int used = 0;
+		for (int i = 0; i < sample; i++) {
+			if (data[i] != NO_ENTRY && age(data[i]) == age) {
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
+	/**
+	 * @param entry a packed entry
+	 * @return the best move (without check information), or PackedMove.NONE
+	 */
+	public static int move(long entry) {
+		return (int) (entry & MOVE_MASK);
+	}
+
+	/**
+	 * @param entry a packed entry
+	 * @param ply distance of the current position from the root
+	 * @return the score, relative to the root
+	 */
+	public static int score(long entry,
+			int ply) {
+		// sign-extend
+		int score = (int) (entry << (64 - SCORE_SHIFT - SCORE_BITS) >> (64 - SCORE_BITS));
+		return scoreFromTable(score, ply);
+	}
+
+	/**
+	 * @param entry a packed entry
+	 * @return the search depth
+	 */
+	public static int depth(long entry) {
+		return (int) ((entry >>> DEPTH_SHIFT) & DEPTH_MASK);
+	}
+
+	/**
+	 * @param entry a packed entry
+	 * @return the type of the score
+	 */
+	public static BoundType boundType(long entry) {
+		return BOUND_TYPES[(int) ((entry >>> BOUND_SHIFT) & BOUND_MASK) - 1];
+	}
+
+	private static int age(long entry) {
+		return (int) ((entry >>> AGE_SHIFT) & AGE_MASK);
+	}
+
+	private static long pack(int move,
+			int score,
+			int depth,
+			BoundType boundType,
+			int age) {
+		if (depth < 0 || depth > DEPTH_MASK) {
+			throw new IllegalArgumentException("invalid depth: " + depth);
+		}
+		return (move & MOVE_MASK) | ((score & SCORE_MASK) << SCORE_SHIFT) | ((long) depth << DEPTH_SHIFT)
+				| ((long) (boundType.ordinal() + 1) << BOUND_SHIFT) | ((long) age << AGE_SHIFT);
+	}
+
+	/** mate scores are stored as 'mate in n from this position' */
+	private static int scoreToTable(int score,
+			int ply) {
+		if (score >= MATE_SCORE_THRESHOLD) {
+			return score + ply;
+		} else if (score <= -MATE_SCORE_THRESHOLD) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	/** converts a mate score back to 'mate in n from the root' */
+	private static int scoreFromTable(int score,
+			int ply) {
+		if (score >= MATE_SCORE_THRESHOLD) {
+			return score - ply;
+		} else if (score <= -MATE_SCORE_THRESHOLD) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	private int indexOf(long zobristHash) {
+		// the bucket is chosen using the upper 32 bits of the key
+		return ((int) (zobristHash >>> 32) & bucketMask) << 1;
+	}
+}
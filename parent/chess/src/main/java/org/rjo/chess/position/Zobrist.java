@@ -5,6 +5,7 @@ import java.util.Random;
 import org.rjo.chess.base.CastlingRightsSummary;
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.CastlingRightsSummary.CastlingRights;
@@ -138,6 +139,50 @@ public class Zobrist {
 		return hash;
 	}
 
+	/**
+	 * Calculates the zobrist hash of the pawns of the given position, ignoring all other pieces, the side to move etc.
+	 * Used as the key of the pawn hash table.
+	 *
+	 * @param posn the position
+	 * @return the pawn hash
+	 */
+	public long pawnHash(Position posn) {
+		long hash = 0;
+		for (Colour colour : Colour.ALL_COLOURS) {
+			for (Square square : posn.getPieces(colour)[PieceType.PAWN.ordinal()].getLocations()) {
+				hash ^= squareValues[colour.ordinal()][PieceType.PAWN.ordinal()][square.bitIndex()];
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns a new pawn hash (see {@link #pawnHash(Position)}) after <code>move</code>. Only pawn moves and captures of
+	 * pawns change the value.
+	 *
+	 * @param pawnHash the pawn hash
+	 * @param move the move, encoded as per {@link PackedMove}
+	 * @return the updated pawn hash
+	 */
+	public long updatePawnHash(long pawnHash,
+			int move) {
+		final int pawn = PieceType.PAWN.ordinal();
+		final Colour sideToMove = PackedMove.colour(move);
+		if (PackedMove.piece(move) == PieceType.PAWN) {
+			pawnHash ^= squareValues[sideToMove.ordinal()][pawn][PackedMove.from(move)];
+			// a promoted pawn disappears
+			if (!PackedMove.isPromotion(move)) {
+				pawnHash ^= squareValues[sideToMove.ordinal()][pawn][PackedMove.to(move)];
+			}
+		}
+		if (PackedMove.isCapture(move) && PackedMove.capturedPiece(move) == PieceType.PAWN) {
+			final int capturedSquare = PackedMove.isEnpassant(move) ? PackedMove.pawnCapturedEnpassant(move)
+					: PackedMove.to(move);
+			pawnHash ^= squareValues[Colour.oppositeColour(sideToMove).ordinal()][pawn][capturedSquare];
+		}
+		return pawnHash;
+	}
+
 	/**
 	 * Returns a new Zobrist hash after <code>move</code>. The fact that the xor-operation is own inverse and can be undone
 	 * by using the same xor-operation again, allows a fast incremental update of the hash key.
@@ -152,26 +197,44 @@ public class Zobrist {
 			Move move,
 			CastlingRightsSummary[] castling,
 			Square enpassantSquare) {
+		return update(hash, PackedMove.fromMove(move), castling, enpassantSquare);
+	}
+
+	/**
+	 * As {@link #update(long, Move, CastlingRightsSummary[], Square)}, for a move encoded as per {@link PackedMove}.
+	 *
+	 * @param hash the zobrist hash
+	 * @param move the move
+	 * @param castling castling rights before <code>move</code>
+	 * @param enpassantSquare enpassant square before <code>move</code>
+	 * @return the updated hash
+	 */
+	public long update(long hash,
+			int move,
+			CastlingRightsSummary[] castling,
+			Square enpassantSquare) {
+
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
 
 		// remove piece at move.from()
-		PieceType movingPiece = move.getPiece();
-		Colour sideToMove = move.getColour();
-		hash ^= squareValues[sideToMove.ordinal()][movingPiece.ordinal()][move.from().bitIndex()];
+		PieceType movingPiece = PackedMove.piece(move);
+		Colour sideToMove = PackedMove.colour(move);
+		hash ^= squareValues[sideToMove.ordinal()][movingPiece.ordinal()][from];
 
-		if (move.isCapture()) {
+		if (PackedMove.isCapture(move)) {
 			// xor with captured piece at move.to()
-			final PieceType capturedPiece = move.getCapturedPiece();
+			final PieceType capturedPiece = PackedMove.capturedPiece(move);
 			final Colour opponentsColour = Colour.oppositeColour(sideToMove);
-			if (move.isEnpassant()) {
-				Square sq = Square.findMoveFromEnpassantSquare(move.to());
-				hash ^= squareValues[opponentsColour.ordinal()][capturedPiece.ordinal()][sq.bitIndex()];
+			if (PackedMove.isEnpassant(move)) {
+				hash ^= squareValues[opponentsColour.ordinal()][capturedPiece.ordinal()][PackedMove.pawnCapturedEnpassant(move)];
 			} else {
-				hash ^= squareValues[opponentsColour.ordinal()][capturedPiece.ordinal()][move.to().bitIndex()];
+				hash ^= squareValues[opponentsColour.ordinal()][capturedPiece.ordinal()][to];
 			}
-			if (move.isPromotion()) {
-				hash ^= squareValues[sideToMove.ordinal()][move.getPromotedPiece().ordinal()][move.to().bitIndex()];
+			if (PackedMove.isPromotion(move)) {
+				hash ^= squareValues[sideToMove.ordinal()][PackedMove.promotedPiece(move).ordinal()][to];
 			} else {
-				hash ^= squareValues[sideToMove.ordinal()][movingPiece.ordinal()][move.to().bitIndex()];
+				hash ^= squareValues[sideToMove.ordinal()][movingPiece.ordinal()][to];
 			}
 
 			// update OPPONENT's castling rights if necessary
@@ -191,34 +254,33 @@ public class Zobrist {
 		// non-capture
 		else {
 			// add piece at move.to()
-			if (move.isPromotion()) {
-				hash ^= squareValues[sideToMove.ordinal()][move.getPromotedPiece().ordinal()][move.to().bitIndex()];
+			if (PackedMove.isPromotion(move)) {
+				hash ^= squareValues[sideToMove.ordinal()][PackedMove.promotedPiece(move).ordinal()][to];
 			} else {
-				hash ^= squareValues[sideToMove.ordinal()][movingPiece.ordinal()][move.to().bitIndex()];
+				hash ^= squareValues[sideToMove.ordinal()][movingPiece.ordinal()][to];
 			}
 		}
 
 		// cater for rook's move if castling
-		if (move.isCastleKingsSide() || move.isCastleQueensSide()) {
-			Move rooksMove = move.getRooksCastlingMove();
-			hash ^= squareValues[sideToMove.ordinal()][PieceType.ROOK.ordinal()][rooksMove.from().bitIndex()];
-			hash ^= squareValues[sideToMove.ordinal()][PieceType.ROOK.ordinal()][rooksMove.to().bitIndex()];
+		if (PackedMove.isCastle(move)) {
+			hash ^= squareValues[sideToMove.ordinal()][PieceType.ROOK.ordinal()][PackedMove.rooksCastlingOrigin(move)];
+			hash ^= squareValues[sideToMove.ordinal()][PieceType.ROOK.ordinal()][PackedMove.rooksCastlingDestination(move)];
 
 			// both king's and queen's side castling rights have now gone (if they were present)
 			hash = rehashIfKingsSideCastlingPresent(hash, sideToMove, castling[sideToMove.ordinal()]);
 			hash = rehashIfQueensSideCastlingPresent(hash, sideToMove, castling[sideToMove.ordinal()]);
 		} else {
 			// enpassant if pawn move to 4th rank from 2nd rank
-			if (move.isPawnMoveTwoSquaresForward()) {
-				hash ^= enpassantValues[move.to().file()];
+			if (PackedMove.isPawnMoveTwoSquaresForward(move)) {
+				hash ^= enpassantValues[to & 7];
 			}
 			// remove castling rights (if set) on king move
-			else if (move.getPiece() == PieceType.KING) {
+			else if (movingPiece == PieceType.KING) {
 				hash = rehashIfKingsSideCastlingPresent(hash, sideToMove, castling[sideToMove.ordinal()]);
 				hash = rehashIfQueensSideCastlingPresent(hash, sideToMove, castling[sideToMove.ordinal()]);
 			}
 			// remove castling rights (if set) on rook move
-			else if (move.getPiece() == PieceType.ROOK) {
+			else if (movingPiece == PieceType.ROOK) {
 				if (CastlingRightsSummary.kingsSideCastlingRightsGoneAfterMove(castling[sideToMove.ordinal()], sideToMove, move)) {
 					hash ^= castlingValues[sideToMove.ordinal()][CastlingRights.KINGS_SIDE.ordinal()];
 				}
@@ -239,6 +301,22 @@ public class Zobrist {
 		return hash;
 	}
 
+	/**
+	 * Returns a new Zobrist hash after a 'null move', i.e. the side to move passes. Only the side to move and the
+	 * enpassant square change.
+	 *
+	 * @param hash the zobrist hash
+	 * @param enpassantSquare enpassant square before the null move
+	 * @return the updated hash
+	 */
+	public long updateForNullMove(long hash,
+			Square enpassantSquare) {
+		if (enpassantSquare != null) {
+			hash ^= enpassantValues[enpassantSquare.file()];
+		}
+		return hash ^ blackToMove;
+	}
+
 	private long rehashIfKingsSideCastlingPresent(long hash,
 			Colour sideToMove,
 			CastlingRightsSummary castling) {
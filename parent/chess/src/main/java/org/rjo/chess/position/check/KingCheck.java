@@ -2,9 +2,10 @@ package org.rjo.chess.position.check;
 
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.base.ray.Ray;
 import org.rjo.chess.base.ray.RayUtils;
 import org.rjo.chess.position.Position;
@@ -21,8 +22,8 @@ import org.rjo.chess.position.PositionAnalyser;
  */
 public class KingCheck {
 
-	private BitSetUnifier friendlyPieces;
-	private BitSetUnifier[] enemyPieces;
+	private long friendlyPieces;
+	private long[] enemyPieces;
 	private Square myKing;
 	private Colour myColour;
 	private Colour opponentsColour;
@@ -32,8 +33,8 @@ public class KingCheck {
 		this.posn = posn;
 		this.myColour = Colour.oppositeColour(opponentsColour);
 		this.opponentsColour = opponentsColour;
-		friendlyPieces = posn.getAllPieces(myColour).getBitSet();
-		enemyPieces = posn.getPieceManager().setupBitsets(opponentsColour);
+		friendlyPieces = posn.getAllPiecesBits(myColour);
+		enemyPieces = posn.getPieceManager().setupBitboards(opponentsColour);
 		this.myKing = myKing;
 	}
 
@@ -70,33 +71,45 @@ public class KingCheck {
 	 */
 	public static boolean isKingInCheck(Position posn, Move move, Colour opponentsColour, Square king,
 			boolean kingIsAlreadyInCheck) {
+		return isKingInCheck(posn, PackedMove.fromMove(move), opponentsColour, king, kingIsAlreadyInCheck);
+	}
+
+	/**
+	 * Checks if my king is in check after <code>move</code>.
+	 *
+	 * @param posn                 the chessboard
+	 * @param move                 the move (see {@link PackedMove})
+	 * @param opponentsColour      this colour's pieces will be inspected to see if
+	 *                             they check my king
+	 * @param king                 where my king is
+	 * @param kingIsAlreadyInCheck true if the king was already in check before the
+	 *                             <code>move</code>
+	 * @return true if this move leaves the king in check (i.e. is an illegal move)
+	 */
+	public static boolean isKingInCheck(Position posn, int move, Colour opponentsColour, Square king,
+			boolean kingIsAlreadyInCheck) {
 
 		// short circuit if king was not in check beforehand (therefore only
 		// need to check for a pinned piece) and the moving piece's original square is
 		// not on a ray to the king
-		if (!kingIsAlreadyInCheck && move.getPiece() != PieceType.KING) {
-			if (null == RayUtils.getRay(king, move.from())) {
+		if (!kingIsAlreadyInCheck && PackedMove.piece(move) != PieceType.KING) {
+			if (null == RayUtils.getRay(king, Square.fromBitIndex(PackedMove.from(move)))) {
 				return false;
 			}
 		}
 
-		BitSetUnifier friendlyPieces = posn.getAllPieces(Colour.oppositeColour(opponentsColour)).getBitSet();
-		BitSetUnifier[] enemyPieces = posn.getPieceManager().setupBitsets(opponentsColour);
+		long friendlyPieces = posn.getAllPiecesBits(Colour.oppositeColour(opponentsColour));
+		long[] enemyPieces = posn.getPieceManager().setupBitboards(opponentsColour);
 
-		if (kingIsAlreadyInCheck) {
-			return isKingInCheckAfterMove_PreviouslyWasInCheck(king, Colour.oppositeColour(opponentsColour),
-					friendlyPieces, enemyPieces, move);
-		} else {
-			return isKingInCheckAfterMove_PreviouslyNotInCheck(king, Colour.oppositeColour(opponentsColour),
-					friendlyPieces, enemyPieces, move);
-		}
+		return isKingInCheckAfterMove(king, Colour.oppositeColour(opponentsColour), friendlyPieces, enemyPieces, move,
+				kingIsAlreadyInCheck);
 	}
 
 	/**
 	 * Returns true if the king would be in check after <code>move</code>.
 	 * <p>
 	 * Helper-Method, delegates to
-	 * {@link #isKingInCheckAfterMove(Square, Colour, BitSetUnifier, BitSetUnifier[], Move, boolean)}
+	 * {@link #isKingInCheckAfterMove(Square, Colour, long, long[], Move, boolean)}
 	 * with last parameter==true.
 	 * <p>
 	 * <b>Use this procedure if the king was already in check before the given
@@ -106,15 +119,15 @@ public class KingCheck {
 	 *                       the king has moved, this value will be ignored and the
 	 *                       king's new square will be calculated.
 	 * @param kingsColour    colour of the king.
-	 * @param friendlyPieces bitset indicating location of the friendly pieces
+	 * @param friendlyPieces bitboard indicating location of the friendly pieces
 	 *                       (pre-move).
-	 * @param enemyPieces    bitsets indicating location of the enemy pieces
+	 * @param enemyPieces    bitboards indicating location of the enemy pieces
 	 *                       (pre-move).
 	 * @param move           the move to make
 	 * @return true if the king would be in check after the move.
 	 */
 	public static boolean isKingInCheckAfterMove_PreviouslyWasInCheck(Square kingsSquare, Colour kingsColour,
-			BitSetUnifier friendlyPieces, BitSetUnifier[] enemyPieces, Move move) {
+			long friendlyPieces, long[] enemyPieces, Move move) {
 		return isKingInCheckAfterMove(kingsSquare, kingsColour, friendlyPieces, enemyPieces, move, true);
 	}
 
@@ -122,7 +135,7 @@ public class KingCheck {
 	 * Returns true if the king would be in check after <code>move</code>.
 	 * <p>
 	 * Helper-Method, delegates to
-	 * {@link #isKingInCheckAfterMove(Square, Colour, BitSetUnifier, BitSetUnifier[], Move, boolean)}
+	 * {@link #isKingInCheckAfterMove(Square, Colour, long, long[], Move, boolean)}
 	 * with last parameter==false.
 	 * <p>
 	 * <b>Use this procedure if the king was NOT in check before the given move.</b>
@@ -131,15 +144,15 @@ public class KingCheck {
 	 *                       the king has moved, this value will be ignored and the
 	 *                       king's new square will be calculated.
 	 * @param kingsColour    colour of the king.
-	 * @param friendlyPieces bitset indicating location of the friendly pieces
+	 * @param friendlyPieces bitboard indicating location of the friendly pieces
 	 *                       (pre-move).
-	 * @param enemyPieces    bitsets indicating location of the enemy pieces
+	 * @param enemyPieces    bitboards indicating location of the enemy pieces
 	 *                       (pre-move).
 	 * @param move           the move to make
 	 * @return true if the king would be in check after the move.
 	 */
 	public static boolean isKingInCheckAfterMove_PreviouslyNotInCheck(Square kingsSquare, Colour kingsColour,
-			BitSetUnifier friendlyPieces, BitSetUnifier[] enemyPieces, Move move) {
+			long friendlyPieces, long[] enemyPieces, Move move) {
 		return isKingInCheckAfterMove(kingsSquare, kingsColour, friendlyPieces, enemyPieces, move, false);
 	}
 
@@ -160,57 +173,64 @@ public class KingCheck {
 	 *                       the king has moved, this value will be ignored and the
 	 *                       new king's square will be calculated.
 	 * @param kingsColour    colour of the king.
-	 * @param friendlyPieces bitset indicating location of the friendly pieces
+	 * @param friendlyPieces bitboard indicating location of the friendly pieces
 	 *                       (pre-move).
-	 * @param enemyPieces    bitsets indicating location of the enemy pieces
+	 * @param enemyPieces    bitboards indicating location of the enemy pieces
 	 *                       (pre-move).
 	 * @param move           the move to make
 	 * @param kingWasInCheck indicates that the king was in check before this move.
 	 *                       Therefore, cannot use the optimized ray search.
 	 * @return true if the king would be in check after the move.
 	 */
-	public static boolean isKingInCheckAfterMove(Square kingsSquare, Colour kingsColour, BitSetUnifier friendlyPieces,
-			BitSetUnifier[] enemyPieces, Move move, boolean kingWasInCheck) {
+	public static boolean isKingInCheckAfterMove(Square kingsSquare, Colour kingsColour, long friendlyPieces,
+			long[] enemyPieces, Move move, boolean kingWasInCheck) {
+		return isKingInCheckAfterMove(kingsSquare, kingsColour, friendlyPieces, enemyPieces, PackedMove.fromMove(move),
+				kingWasInCheck);
+	}
+
+	/**
+	 * As {@link #isKingInCheckAfterMove(Square, Colour, long, long[], Move, boolean)},
+	 * for a move encoded as per {@link PackedMove}.
+	 */
+	public static boolean isKingInCheckAfterMove(Square kingsSquare, Colour kingsColour, long friendlyPieces,
+			long[] enemyPieces, int move, boolean kingWasInCheck) {
 
 		boolean kingMoved = false;
 		Ray rayFromKingToMoveOrigin = null;
+		final int from = PackedMove.from(move);
+		final int to = PackedMove.to(move);
 
 		// update 'kingsSquare' if king has moved
-		if (move.getPiece() == PieceType.KING) {
-			kingsSquare = move.to();
+		if (PackedMove.piece(move) == PieceType.KING) {
+			kingsSquare = Square.fromBitIndex(to);
 			kingMoved = true;
 		}
 		if (!(kingMoved || kingWasInCheck)) {
 			// can optimize by only searching the ray given by the direction kingsSquare ->
 			// move.from()
-			rayFromKingToMoveOrigin = RayUtils.getRay(kingsSquare, move.from());
+			rayFromKingToMoveOrigin = RayUtils.getRay(kingsSquare, Square.fromBitIndex(from));
 			if (rayFromKingToMoveOrigin == null) {
 				return false;
 			}
 		}
 
-		friendlyPieces = (BitSetUnifier) friendlyPieces.clone();
-		friendlyPieces.set(move.to().bitIndex());
-		friendlyPieces.clear(move.from().bitIndex());
+		friendlyPieces = LongBitBoard.set(friendlyPieces, to);
+		friendlyPieces = LongBitBoard.clear(friendlyPieces, from);
 
 		// may not be strictly necessary, but is consistent
-		if (move.isCastleKingsSide() || move.isCastleQueensSide()) {
-			friendlyPieces.set(move.getRooksCastlingMove().to().bitIndex());
-			friendlyPieces.clear(move.getRooksCastlingMove().from().bitIndex());
+		if (PackedMove.isCastle(move)) {
+			int rooksFrom = PackedMove.isCastleKingsSide(move) ? to + 1 : to - 2;
+			friendlyPieces = LongBitBoard.set(friendlyPieces, PackedMove.rooksCastlingDestination(move));
+			friendlyPieces = LongBitBoard.clear(friendlyPieces, rooksFrom);
 		}
 
-		if (move.isCapture()) {
-			// need to modify BitSet for the opponent's captured piece,
-			// therefore clone and resave in 'enemyPieces'
-			BitSetUnifier opponentsCapturedPiece = (BitSetUnifier) enemyPieces[move.getCapturedPiece().ordinal()]
-					.clone();
-			enemyPieces[move.getCapturedPiece().ordinal()] = opponentsCapturedPiece;
-			// .. and remove captured piece
-			Square capturedPieceSquare = move.to();
-			if (move.isEnpassant()) {
-				capturedPieceSquare = Square.findMoveFromEnpassantSquare(move.to());
-			}
-			opponentsCapturedPiece.clear(capturedPieceSquare.bitIndex());
+		if (PackedMove.isCapture(move)) {
+			// need to remove the opponent's captured piece,
+			// therefore clone 'enemyPieces' so as not to change the caller's array
+			enemyPieces = enemyPieces.clone();
+			int capturedPieceSquare = PackedMove.isEnpassant(move) ? PackedMove.pawnCapturedEnpassant(move) : to;
+			int capturedPiece = PackedMove.capturedPiece(move).ordinal();
+			enemyPieces[capturedPiece] = LongBitBoard.clear(enemyPieces[capturedPiece], capturedPieceSquare);
 		}
 
 		// no optimizations if the king moved or was in check beforehand
@@ -142,9 +142,9 @@ public class BishopMoveTest extends AbstractMoveTest {
 		Piece whiteBishop = game.getPosition().getPieces(Colour.WHITE)[PieceType.BISHOP.ordinal()];
 		Position posn = game.getPosition();
 		for (Square sq : new Square[] { Square.c7, Square.b6, Square.a5, Square.e7, Square.f6, Square.g5, Square.h4 }) {
-			assertTrue(whiteBishop.attacksSquare(posn.getTotalPieces().flip(), sq), "square " + sq);
+			assertTrue(whiteBishop.attacksSquare(posn.getEmptySquaresBits(), sq), "square " + sq);
 		}
-		assertFalse(whiteBishop.attacksSquare(posn.getTotalPieces().flip(), Square.c4));
+		assertFalse(whiteBishop.attacksSquare(posn.getEmptySquaresBits(), Square.c4));
 	}
 
 	@Test
@@ -159,15 +159,15 @@ public class KnightMoveTest extends AbstractMoveTest {
 	public void attacksSquare() {
 		setupGame("4k3/8/8/8/3N4/5p2/8/4K3 w - - 0 0");
 		whiteKnight = game.getPosition().getPieces(Colour.WHITE)[PieceType.KNIGHT.ordinal()];
-		assertTrue(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.c2));
-		assertTrue(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.b3));
-		assertTrue(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.b5));
-		assertTrue(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.c6));
-		assertTrue(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.e6));
-		assertTrue(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.f5));
-		assertTrue(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.f3));
-		assertTrue(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.e2));
-		assertFalse(whiteKnight.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.c5));
+		assertTrue(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.c2));
+		assertTrue(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.b3));
+		assertTrue(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.b5));
+		assertTrue(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.c6));
+		assertTrue(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.e6));
+		assertTrue(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.f5));
+		assertTrue(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.f3));
+		assertTrue(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.e2));
+		assertFalse(whiteKnight.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.c5));
 	}
 
 }
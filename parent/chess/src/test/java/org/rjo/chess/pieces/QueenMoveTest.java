@@ -85,9 +85,9 @@ public class QueenMoveTest extends AbstractMoveTest {
 		Piece whiteQueen = game.getPosition().getPieces(Colour.WHITE)[PieceType.QUEEN.ordinal()];
 		for (Square sq : new Square[] { Square.e8, Square.e6, Square.d7, Square.c7, Square.b7, Square.a7, Square.f7,
 				Square.g7, Square.h7 }) {
-			assertTrue(whiteQueen.attacksSquare(game.getPosition().getTotalPieces().flip(), sq), "square " + sq);
+			assertTrue(whiteQueen.attacksSquare(game.getPosition().getEmptySquaresBits(), sq), "square " + sq);
 		}
-		assertFalse(whiteQueen.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.c4));
+		assertFalse(whiteQueen.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.c4));
 	}
 
 	@Test
@@ -109,9 +109,9 @@ public class QueenMoveTest extends AbstractMoveTest {
 		Piece whiteQueen = game.getPosition().getPieces(Colour.WHITE)[PieceType.QUEEN.ordinal()];
 
 		for (Square sq : new Square[] { Square.c7, Square.b6, Square.a5, Square.e7, Square.f6, Square.g5, Square.h4 }) {
-			assertTrue(whiteQueen.attacksSquare(game.getPosition().getTotalPieces().flip(), sq), "square " + sq);
+			assertTrue(whiteQueen.attacksSquare(game.getPosition().getEmptySquaresBits(), sq), "square " + sq);
 		}
-		assertFalse(whiteQueen.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.c4));
+		assertFalse(whiteQueen.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.c4));
 	}
 
 }
@@ -144,9 +144,9 @@ public class RookMoveTest extends AbstractMoveTest {
 		var whiteRook = game.getPosition().getPieces(Colour.WHITE)[PieceType.ROOK.ordinal()];
 		for (Square sq : new Square[] { Square.e8, Square.e6, Square.d7, Square.c7, Square.b7, Square.a7, Square.f7,
 				Square.g7, Square.h7 }) {
-			assertTrue(whiteRook.attacksSquare(game.getPosition().getTotalPieces().flip(), sq), "square " + sq);
+			assertTrue(whiteRook.attacksSquare(game.getPosition().getEmptySquaresBits(), sq), "square " + sq);
 		}
-		assertFalse(whiteRook.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.c4));
+		assertFalse(whiteRook.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.c4));
 	}
 
 }
@@ -85,6 +85,19 @@ public class WhitePawnTest extends AbstractMoveTest {
 		TestUtil.checkMoves(findPawnMoves(), "b5-b6", "b5xc6", "d5-d6", "d5xc6");
 	}
 
+	@Test
+	public void enpassantExposesKing() {
+		// after b5xc6 both pawns have left the fifth rank
+		setupGame("8/8/8/KPp4r/8/8/8/4k3 w - c6 0 0");
+		TestUtil.checkMoves(findPawnMoves(), "b5-b6");
+	}
+
+	@Test
+	public void enpassantCapturesChecker() {
+		setupGame("8/8/8/2pP4/1K6/8/8/4k3 w - c6 0 0");
+		TestUtil.checkMoves(findPawnMoves(), "d5xc6");
+	}
+
 	@Test
 	public void checkRight() {
 		setupGame("8/4k3/8/3P4/8/8/8/4K3 w - - 0 0");
@@ -126,8 +139,8 @@ public class WhitePawnTest extends AbstractMoveTest {
 	public void attacksSquare() {
 		setupGame("8/5k2/8/3P4/8/8/8/4K3 w - - 0 0");
 		var pawn = game.getPosition().getPieces(Colour.WHITE)[PieceType.PAWN.ordinal()];
-		assertTrue(pawn.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.e6));
-		assertFalse(pawn.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.d6));
-		assertFalse(pawn.attacksSquare(game.getPosition().getTotalPieces().flip(), Square.e7));
+		assertTrue(pawn.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.e6));
+		assertFalse(pawn.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.d6));
+		assertFalse(pawn.attacksSquare(game.getPosition().getEmptySquaresBits(), Square.e7));
 	}
 }
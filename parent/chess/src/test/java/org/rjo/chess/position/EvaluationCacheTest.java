@@ -0,0 +1,45 @@
+package org.rjo.chess.position;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class EvaluationCacheTest {
+
+	@Test
+	public void storeAndProbe() {
+		EvaluationCache cache = new EvaluationCache(1);
+		Position posn = Fen.decode("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1").getPosition();
+		long key = posn.getZobristHash();
+		assertEquals(EvaluationCache.NO_SCORE, cache.probe(key));
+		cache.store(key, posn.evaluate());
+		assertEquals(posn.evaluate(), cache.probe(key));
+		// negative scores and zero
+		cache.store(key, -1234);
+		assertEquals(-1234, cache.probe(key));
+		cache.store(key, 0);
+		assertEquals(0, cache.probe(key));
+		cache.clear();
+		assertEquals(EvaluationCache.NO_SCORE, cache.probe(key));
+	}
+
+	@Test
+	public void differentKeySameSlot() {
+		EvaluationCache cache = new EvaluationCache(1);
+		// same lower bits, i.e. same slot
+		long key1 = 0x1234_5678_0000_0001L;
+		long key2 = 0x8765_4321_0000_0001L;
+		cache.store(key1, 50);
+		assertEquals(EvaluationCache.NO_SCORE, cache.probe(key2));
+		// always replaced
+		cache.store(key2, 60);
+		assertEquals(60, cache.probe(key2));
+		assertEquals(EvaluationCache.NO_SCORE, cache.probe(key1));
+	}
+
+	@Test
+	public void invalidSize() {
+		assertThrows(IllegalArgumentException.class, () -> new EvaluationCache(0));
+	}
+}
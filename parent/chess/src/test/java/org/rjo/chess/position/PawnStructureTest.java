@@ -0,0 +1,71 @@
+package org.rjo.chess.position;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.Colour;
+import org.rjo.chess.base.Square;
+import org.rjo.chess.base.bits.LongBitBoard;
+
+public class PawnStructureTest {
+
+	@Test
+	public void startPosition() {
+		assertEquals(0, PawnStructure.evaluate(LongBitBoard.RANK[1], LongBitBoard.RANK[6]));
+	}
+
+	@Test
+	public void doubledAndIsolated() {
+		long white = LongBitBoard.of(Square.a2, Square.a3);
+		long black = LongBitBoard.of(Square.a7);
+		assertEquals(PawnStructure.DOUBLED_PAWN + 2 * PawnStructure.ISOLATED_PAWN - PawnStructure.ISOLATED_PAWN,
+				PawnStructure.evaluate(white, black));
+	}
+
+	@Test
+	public void passedPawn() {
+		long black = LongBitBoard.of(Square.h7);
+		assertEquals(PawnStructure.PASSED_PAWN[5] - PawnStructure.PASSED_PAWN[4],
+				PawnStructure.evaluate(LongBitBoard.of(Square.e6), black) - PawnStructure.evaluate(LongBitBoard.of(Square.e5), black));
+		// a pawn on an adjacent file in front: neither pawn is passed, both are isolated
+		assertEquals(0, PawnStructure.evaluate(LongBitBoard.of(Square.e5), LongBitBoard.of(Square.d7)));
+	}
+
+	@Test
+	public void backwardPawn() {
+		// d3 cannot advance safely and cannot be supported; c4 is passed. Black's e5 is isolated and also backward
+		long white = LongBitBoard.of(Square.c4, Square.d3);
+		long black = LongBitBoard.of(Square.e5);
+		assertEquals(PawnStructure.BACKWARD_PAWN + PawnStructure.PASSED_PAWN[3]
+				- (PawnStructure.ISOLATED_PAWN + PawnStructure.BACKWARD_PAWN), PawnStructure.evaluate(white, black));
+	}
+
+	@Test
+	public void kingShield() {
+		assertEquals(3 * PawnStructure.PAWN_SHIELD_1, PawnStructure.kingShield(Colour.WHITE, Square.e1.bitIndex(), LongBitBoard.RANK[1]));
+		long pawns = LongBitBoard.of(Square.f2, Square.g2, Square.h3);
+		assertEquals(2 * PawnStructure.PAWN_SHIELD_1 + PawnStructure.PAWN_SHIELD_2,
+				PawnStructure.kingShield(Colour.WHITE, Square.g1.bitIndex(), pawns));
+		// king has left the back ranks
+		assertEquals(0, PawnStructure.kingShield(Colour.WHITE, Square.g3.bitIndex(), pawns));
+		pawns = LongBitBoard.of(Square.f7, Square.g6, Square.h7);
+		assertEquals(2 * PawnStructure.PAWN_SHIELD_1 + PawnStructure.PAWN_SHIELD_2,
+				PawnStructure.kingShield(Colour.BLACK, Square.g8.bitIndex(), pawns));
+	}
+
+	@Test
+	public void pawnHashTable() {
+		EvaluationCache pawnHashTable = new EvaluationCache(1);
+		Position posn = Fen.decode("4k3/p4ppp/8/3P4/8/8/PP3PPP/4K3 w - - 0 1").getPosition();
+		int score = posn.pawnStructureScore(null);
+		assertEquals(score, posn.pawnStructureScore(pawnHashTable));
+		assertEquals(score, pawnHashTable.probe(posn.getPawnHash()));
+		// a different position with the same pawns uses the same entry
+		Position otherPosn = Fen.decode("3qk3/p4ppp/8/3P4/8/8/PP3PPP/3QK3 b - - 0 1").getPosition();
+		assertEquals(posn.getPawnHash(), otherPosn.getPawnHash());
+		assertEquals(score, otherPosn.pawnStructureScore(pawnHashTable));
+		// the score is taken from the table, not recalculated
+		pawnHashTable.store(posn.getPawnHash(), score + 1);
+		assertEquals(score + 1, otherPosn.pawnStructureScore(pawnHashTable));
+	}
+}
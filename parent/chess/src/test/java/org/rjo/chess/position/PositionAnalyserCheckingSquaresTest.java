@@ -11,7 +11,7 @@ import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.bits.BitBoard;
-import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 
 /**
  * Tests for {@link PositionAnalyser}.
@@ -31,19 +31,17 @@ public class PositionAnalyserCheckingSquaresTest {
 		var kingsSquare = game.getPosition().getKingPosition(kingsColour);
 		var friendlyPieces = setupBitsets(game.getPosition(), kingsColour);
 		var enemyPieces = setupBitsets(game.getPosition(), kingsColour.oppositeColour());
-		BitBoard[] outputBitboards = PositionAnalyser.findCheckingSquares(kingsSquare,
+		long[] outputBitboards = PositionAnalyser.findCheckingSquares(kingsSquare,
 				PositionAnalyser.createBitboardContainingAllPieces(friendlyPieces),
 				PositionAnalyser.createBitboardContainingAllPieces(enemyPieces));
-		BitSetUnifier allSquares = (BitSetUnifier) outputBitboards[0].getBitSet().clone();
-		allSquares.or(outputBitboards[1].getBitSet());
-		BitBoard allSquaresBB = new BitBoard(allSquares);
+		BitBoard allSquaresBB = new BitBoard(outputBitboards[0] | outputBitboards[1]);
 		for (Square expectedCheck : expectedRookChecks) {
-			assertTrue(outputBitboards[0].get(expectedCheck),
+			assertTrue(LongBitBoard.isSet(outputBitboards[0], expectedCheck.bitIndex()),
 					String.format("square %s is not rook-check\n%schecks found:\n%s)", expectedCheck,
 							game.getPosition(), allSquaresBB));
 		}
 		for (Square expectedCheck : expectedBishopChecks) {
-			assertTrue(outputBitboards[1].get(expectedCheck),
+			assertTrue(LongBitBoard.isSet(outputBitboards[1], expectedCheck.bitIndex()),
 					String.format("square %s is not bishop-check\n%schecks found:\n%s", expectedCheck,
 							game.getPosition(), allSquaresBB));
 		}
@@ -82,10 +80,10 @@ public class PositionAnalyserCheckingSquaresTest {
 						new Square[] { Square.d8, Square.c8, Square.b8, Square.a8, }, new Square[] {} }, });
 	}
 
-	private BitSetUnifier[] setupBitsets(Position posn, Colour colour) {
-		BitSetUnifier[] pieces = new BitSetUnifier[PieceType.ALL_PIECE_TYPES.length];
+	private long[] setupBitsets(Position posn, Colour colour) {
+		long[] pieces = new long[PieceType.ALL_PIECE_TYPES.length];
 		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
-			pieces[type.ordinal()] = posn.getPieces(colour)[type.ordinal()].getBitBoard().getBitSet();
+			pieces[type.ordinal()] = posn.getPieces(colour)[type.ordinal()].getBits();
 		}
 		return pieces;
 	}
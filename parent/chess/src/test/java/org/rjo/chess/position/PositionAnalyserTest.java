@@ -7,12 +7,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Optional;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.base.ray.RayType;
 import org.rjo.chess.position.PositionInfo.PieceInfo;
 
@@ -103,14 +104,39 @@ public class PositionAnalyserTest {
 								new PieceInfo(RayType.NORTHEAST, PieceType.PAWN, Square.f5) } }, });
 	}
 
-	private BitSetUnifier getAllPieces(Position posn, Colour colour) {
-		return posn.getAllPieces(colour).getBitSet();
+	@Test
+	public void pinMasks() {
+		var posn = Fen.decode("3r4/4k3/6b1/3N1P2/8/q1RK4/8/8 w - - 10 10").getPosition();
+		var posnInfo = PositionAnalyser.analysePosition(posn.getKingPosition(Colour.WHITE), Colour.WHITE,
+				getAllPieces(posn, Colour.WHITE), setupBitsets(posn, Colour.WHITE), setupBitsets(posn, Colour.BLACK), null,
+				true);
+		assertEquals(LongBitBoard.EMPTY, posnInfo.getCheckersBits());
+		assertEquals(LongBitBoard.of(Square.c3, Square.d5, Square.f5), posnInfo.getPinnedPiecesBits());
+		assertEquals(LongBitBoard.of(Square.c3, Square.b3, Square.a3), posnInfo.getPinMask(Square.c3.bitIndex()));
+		assertEquals(LongBitBoard.of(Square.d4, Square.d5, Square.d6, Square.d7, Square.d8),
+				posnInfo.getPinMask(Square.d5.bitIndex()));
+		assertEquals(LongBitBoard.of(Square.e4, Square.f5, Square.g6, Square.h7), posnInfo.getPinMask(Square.f5.bitIndex()));
+		// not pinned
+		assertEquals(LongBitBoard.ALL, posnInfo.getPinMask(Square.a1.bitIndex()));
 	}
 
-	private BitSetUnifier[] setupBitsets(Position posn, Colour colour) {
-		BitSetUnifier[] pieces = new BitSetUnifier[PieceType.ALL_PIECE_TYPES.length];
+	@Test
+	public void checkersBits() {
+		var posn = Fen.decode("8/4k3/b7/8/4P3/3K4/8/4n3 w - - 10 10").getPosition();
+		var posnInfo = PositionAnalyser.analysePosition(posn.getKingPosition(Colour.WHITE), Colour.WHITE,
+				getAllPieces(posn, Colour.WHITE), setupBitsets(posn, Colour.WHITE), setupBitsets(posn, Colour.BLACK), null,
+				true);
+		assertEquals(LongBitBoard.of(Square.a6, Square.e1), posnInfo.getCheckersBits());
+	}
+
+	private long getAllPieces(Position posn, Colour colour) {
+		return posn.getAllPiecesBits(colour);
+	}
+
+	private long[] setupBitsets(Position posn, Colour colour) {
+		long[] pieces = new long[PieceType.ALL_PIECE_TYPES.length];
 		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
-			pieces[type.ordinal()] = posn.getPieces(colour)[type.ordinal()].getBitBoard().getBitSet();
+			pieces[type.ordinal()] = posn.getPieces(colour)[type.ordinal()].getBits();
 		}
 		return pieces;
 	}
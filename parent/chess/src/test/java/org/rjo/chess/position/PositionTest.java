@@ -4,24 +4,31 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.rjo.chess.Perft;
+import org.rjo.chess.TestUtil;
 import org.rjo.chess.base.CastlingRightsSummary.CastlingRights;
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.bits.BitSetFactory;
 import org.rjo.chess.base.bits.BitSetUnifier;
+import org.rjo.chess.base.bits.LongBitBoard;
 import org.rjo.chess.base.ray.RayInfo;
 import org.rjo.chess.base.ray.RayType;
 import org.rjo.chess.base.ray.RayUtils;
@@ -379,6 +386,433 @@ public class PositionTest {
 		assertMoveNotPresent(moves, "O-O");
 	}
 
+	@Test
+	public void findMovesIntoMoveList() {
+		// 'kiwipete': castling, enpassant, pins, promotions are all nearby
+		Game game = Fen.decode("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		MoveList moveList = new MoveList();
+		moveList.add(PackedMove.NONE); // list gets cleared
+		game.getPosition().findMoves(Colour.WHITE, moveList);
+		List<Move> moves = game.getPosition().findMoves(Colour.WHITE);
+		assertEquals(48, moveList.size());
+		assertEquals(moves.size(), moveList.size());
+		for (int i = 0; i < moveList.size(); i++) {
+			assertEquals(moves.get(i).toString(), PackedMove.toString(moveList.get(i)));
+		}
+	}
+
+	@Test
+	public void makeAndUnmakeMove() {
+		// castling, enpassant, promotions with and without capture
+		for (String fen : new String[] { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1" }) {
+			Position posn = Fen.decode(fen).getPosition();
+			checkMakeAndUnmake(posn, posn.mutableCopy(), 2);
+		}
+	}
+
+	@Test
+	public void findCaptures() {
+		// includes a position in check and one with enpassant
+		for (String fen : new String[] { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+				"r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3", "4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1",
+				"4k3/8/5n2/8/8/8/4q3/3RK3 w - - 0 1" }) {
+			Position posn = Fen.decode(fen).getPosition();
+			MoveList allMoves = new MoveList();
+			posn.findMoves(posn.getSideToMove(), allMoves);
+			MoveList captures = new MoveList();
+			posn.findCaptures(posn.getSideToMove(), captures);
+			int expected = 0;
+			for (int i = 0; i < allMoves.size(); i++) {
+				int move = allMoves.get(i);
+				if (PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+					expected++;
+					assertTrue(captures.contains(move), fen + ": missing " + PackedMove.toString(move));
+				}
+			}
+			assertEquals(expected, captures.size(), fen + ": " + captures);
+		}
+	}
+
+	@Test
+	public void findPseudoLegalQuietMoves() {
+		// includes positions in check (the last one: interpose on the last rank, with and without promotion), with castling,
+		// enpassant and promotions
+		for (String fen : new String[] { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+				"r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3", "4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1",
+				"4k3/8/5n2/8/8/8/4q3/3RK3 w - - 0 1", "r6K/1P6/4N3/8/8/8/8/k7 w - - 0 1" }) {
+			Position posn = Fen.decode(fen).getPosition();
+			MoveList allMoves = new MoveList();
+			posn.findPseudoLegalMoves(posn.getSideToMove(), allMoves);
+			MoveList captures = new MoveList();
+			posn.findPseudoLegalCaptures(posn.getSideToMove(), captures);
+			MoveList quietMoves = new MoveList();
+			posn.findPseudoLegalQuietMoves(posn.getSideToMove(), quietMoves);
+			// each move is generated exactly once
+			for (int i = 0; i < allMoves.size(); i++) {
+				int move = allMoves.get(i);
+				boolean quiet = !PackedMove.isCapture(move) && !PackedMove.isPromotion(move);
+				assertEquals(quiet, quietMoves.contains(move), fen + ": " + PackedMove.toString(move));
+				assertEquals(!quiet, captures.contains(move), fen + ": " + PackedMove.toString(move));
+			}
+			assertEquals(allMoves.size(), captures.size() + quietMoves.size(), fen + ": " + quietMoves);
+		}
+	}
+
+	@Test
+	public void attackersTo() {
+		Position posn = Position.startPosition();
+		long expected = LongBitBoard.bit(Square.e2.bitIndex()) | LongBitBoard.bit(Square.g2.bitIndex())
+				| LongBitBoard.bit(Square.g1.bitIndex());
+		assertEquals(expected, posn.attackersTo(Square.f3.bitIndex(), posn.getTotalPiecesBits()));
+		// both colours; the queen on d1 only attacks d3 if the pawn on d2 is removed from the occupancy
+		posn = Fen.decode("3qk3/8/8/8/8/8/3P4/3QK3 w - - 0 1").getPosition();
+		long occupied = posn.getTotalPiecesBits();
+		assertEquals(LongBitBoard.bit(Square.d1.bitIndex()) | LongBitBoard.bit(Square.e1.bitIndex())
+				| LongBitBoard.bit(Square.d8.bitIndex()), posn.attackersTo(Square.d2.bitIndex(), occupied));
+		assertEquals(LongBitBoard.bit(Square.d8.bitIndex()), posn.attackersTo(Square.d3.bitIndex(), occupied));
+		occupied = LongBitBoard.clear(occupied, Square.d2.bitIndex());
+		assertEquals(LongBitBoard.bit(Square.d1.bitIndex()) | LongBitBoard.bit(Square.d8.bitIndex()),
+				posn.attackersTo(Square.d3.bitIndex(), occupied));
+	}
+
+	@Test
+	public void staticExchangeEvaluation() {
+		// undefended pawn
+		Position posn = Fen.decode("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1").getPosition();
+		assertEquals(100, posn.staticExchangeEvaluation(
+				PackedMove.capture(PieceType.ROOK, Colour.WHITE, Square.e1.bitIndex(), Square.e5.bitIndex(), PieceType.PAWN)));
+		// defended pawn, with x-ray attackers on both sides
+		posn = Fen.decode("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1").getPosition();
+		assertEquals(-220, posn.staticExchangeEvaluation(
+				PackedMove.capture(PieceType.KNIGHT, Colour.WHITE, Square.d3.bitIndex(), Square.e5.bitIndex(), PieceType.PAWN)));
+		// queen takes pawn defended by a pawn
+		posn = Fen.decode("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1").getPosition();
+		assertEquals(-800, posn.staticExchangeEvaluation(
+				PackedMove.capture(PieceType.QUEEN, Colour.WHITE, Square.d1.bitIndex(), Square.d5.bitIndex(), PieceType.PAWN)));
+		// enpassant
+		posn = Fen.decode("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").getPosition();
+		assertEquals(100, posn.staticExchangeEvaluation(PackedMove.enpassant(Colour.WHITE, Square.e5.bitIndex(), Square.d6.bitIndex())));
+		// the king can only recapture an undefended piece
+		int rxd7 = PackedMove.capture(PieceType.ROOK, Colour.WHITE, Square.d2.bitIndex(), Square.d7.bitIndex(), PieceType.ROOK);
+		posn = Fen.decode("4k3/3r4/8/8/8/8/3R4/4K3 w - - 0 1").getPosition();
+		assertEquals(0, posn.staticExchangeEvaluation(rxd7));
+		posn = Fen.decode("4k3/3r4/8/8/8/8/3R4/3RK3 w - - 0 1").getPosition();
+		assertEquals(500, posn.staticExchangeEvaluation(rxd7));
+	}
+
+	/** checks that makeMove/unmakeMove on the mutable position give the same results as Position#move */
+	private void checkMakeAndUnmake(Position posn, Position mutablePosn, int depth) {
+		String fen = posn.getFen();
+		MoveList moves = new MoveList();
+		mutablePosn.findMoves(mutablePosn.getSideToMove(), moves);
+		assertEquals(posn.findMoves(posn.getSideToMove()).size(), moves.size(), fen);
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			Position posnAfterMove = posn.move(PackedMove.toMove(move));
+			mutablePosn.makeMove(move);
+			assertEquals(posnAfterMove.getFen(), mutablePosn.getFen(), fen + ", move " + PackedMove.toString(move));
+			assertEquals(posnAfterMove.getZobristHash(), mutablePosn.getZobristHash(), fen + ", move " + PackedMove.toString(move));
+			// the incrementally updated score must match the score of a newly set up position
+			int expectedScore = Fen.decode(posnAfterMove.getFen()).getPosition().materialScore();
+			assertEquals(expectedScore, posnAfterMove.materialScore(), fen + ", move " + PackedMove.toString(move));
+			assertEquals(expectedScore, mutablePosn.materialScore(), fen + ", move " + PackedMove.toString(move));
+			int expectedPhase = Fen.decode(posnAfterMove.getFen()).getPosition().getGamePhase();
+			assertEquals(expectedPhase, posnAfterMove.getGamePhase(), fen + ", move " + PackedMove.toString(move));
+			assertEquals(expectedPhase, mutablePosn.getGamePhase(), fen + ", move " + PackedMove.toString(move));
+			// ditto for the pawn hash
+			long expectedPawnHash = Zobrist.INSTANCE.pawnHash(posnAfterMove);
+			assertEquals(expectedPawnHash, posnAfterMove.getPawnHash(), fen + ", move " + PackedMove.toString(move));
+			assertEquals(expectedPawnHash, mutablePosn.getPawnHash(), fen + ", move " + PackedMove.toString(move));
+			if (depth > 1) {
+				checkMakeAndUnmake(posnAfterMove, mutablePosn, depth - 1);
+			}
+			mutablePosn.unmakeMove();
+			assertEquals(fen, mutablePosn.getFen());
+			assertEquals(posn.materialScore(), mutablePosn.materialScore());
+			assertEquals(posn.getZobristHash(), mutablePosn.getZobristHash());
+			assertEquals(posn.getPawnHash(), mutablePosn.getPawnHash());
+		}
+	}
+
+	@Test
+	public void makeAndUnmakeNullMove() {
+		Position posn = Fen.decode("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").getPosition().mutableCopy();
+		String fen = posn.getFen();
+		long hash = posn.getZobristHash();
+		posn.makeNullMove();
+		assertEquals(Colour.BLACK, posn.getSideToMove());
+		assertNull(posn.getEnpassantSquare());
+		assertEquals(Fen.decode("4k3/8/8/3pP3/8/8/8/4K3 b - - 0 1").getPosition().getZobristHash(), posn.getZobristHash());
+		assertThrows(IllegalStateException.class, () -> posn.unmakeMove());
+		posn.unmakeNullMove();
+		assertEquals(fen, posn.getFen());
+		assertEquals(hash, posn.getZobristHash());
+		assertEquals(Zobrist.INSTANCE.pawnHash(posn), posn.getPawnHash());
+		assertThrows(IllegalStateException.class, () -> posn.unmakeNullMove());
+		// not allowed in check
+		Position inCheck = Fen.decode("4k3/8/8/8/8/8/4q3/3RK3 w - - 0 1").getPosition().mutableCopy();
+		assertThrows(IllegalStateException.class, () -> inCheck.makeNullMove());
+	}
+
+	@Test
+	public void materialScore() {
+		assertEquals(0, Position.startPosition().materialScore());
+		// white is a queen up; the material score is the evaluation without mobility and pawn structure
+		Position posn = Fen.decode("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1").getPosition();
+		assertTrue(posn.materialScore() > 600, "material score " + posn.materialScore());
+		assertTrue(posn.evaluate() > posn.materialScore() + posn.pawnStructureScore(null));
+	}
+
+	@Test
+	public void checkEvasions() {
+		// rook check along the e-file: king moves or interpose, castling not allowed
+		Position posn = Fen.decode("4r1k1/8/8/8/8/8/3B1PN1/R3K3 w Q - 0 1").getPosition();
+		TestUtil.checkMoves(posn.findMoves(Colour.WHITE), "Ke1-d1", "Ke1-f1", "Bd2-e3", "Ng2-e3");
+		MoveList captures = new MoveList();
+		posn.findCaptures(Colour.WHITE, captures);
+		assertEquals(0, captures.size());
+
+		// interpose by promotion, which is also generated when only looking for captures
+		posn = Fen.decode("r6K/2P5/8/8/8/8/8/k7 w - - 0 1").getPosition();
+		TestUtil.checkMoves(posn.findMoves(Colour.WHITE), "Kh8-g7", "Kh8-h7", "c7-c8=Q", "c7-c8=R", "c7-c8=B",
+				"c7-c8=N");
+		posn.findCaptures(Colour.WHITE, captures);
+		assertEquals(4, captures.size());
+
+		// capture the checking piece, unless the knight is pinned (checkmate)
+		posn = Fen.decode("4r1k1/8/8/8/8/2N5/4q3/4K3 w - - 0 1").getPosition();
+		TestUtil.checkMoves(posn.findMoves(Colour.WHITE), "Nc3xe2");
+		posn = Fen.decode("4r1k1/8/8/b7/8/2N5/4q3/4K3 w - - 0 1").getPosition();
+		TestUtil.checkMoves(posn.findMoves(Colour.WHITE));
+	}
+
+	@Test
+	public void pseudoLegalMoves() {
+		String[] fens = { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+				"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8" };
+		for (String fen : fens) {
+			Position posn = Fen.decode(fen).getPosition().mutableCopy();
+			checkPseudoLegalMoves(posn, 2);
+		}
+	}
+
+	/** the legal moves must be exactly the pseudo-legal moves which pass isLegal, recursively to the given depth */
+	private void checkPseudoLegalMoves(Position posn, int depth) {
+		MoveList legalMoves = new MoveList();
+		posn.findMoves(posn.getSideToMove(), legalMoves);
+		MoveList pseudoLegalMoves = new MoveList();
+		posn.findPseudoLegalMoves(posn.getSideToMove(), pseudoLegalMoves);
+		int nbrLegalMoves = 0;
+		for (int i = 0; i < pseudoLegalMoves.size(); i++) {
+			int move = pseudoLegalMoves.get(i);
+			if (posn.isLegal(move)) {
+				nbrLegalMoves++;
+				assertTrue(legalMoves.contains(move), "move " + PackedMove.toString(move) + " is not legal\n" + posn);
+			} else {
+				assertFalse(legalMoves.contains(move), "legal move " + PackedMove.toString(move) + " rejected\n" + posn);
+			}
+		}
+		assertEquals(legalMoves.size(), nbrLegalMoves, posn.toString());
+		if (depth > 1) {
+			for (int i = 0; i < legalMoves.size(); i++) {
+				posn.makeMove(legalMoves.get(i));
+				checkPseudoLegalMoves(posn, depth - 1);
+				posn.unmakeMove();
+			}
+		}
+	}
+
+	@Test
+	public void isPseudoLegal() {
+		String[] fens = { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+				"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "8/8/8/KPp4k/8/8/8/8 w - c6 0 1" };
+		for (String fen : fens) {
+			Position posn = Fen.decode(fen).getPosition().mutableCopy();
+			// moves from other positions of the tree serve as hash moves or killer moves which may not fit
+			Set<Integer> candidates = new HashSet<>();
+			collectPseudoLegalMoves(posn, 2, candidates);
+			checkIsPseudoLegal(posn, 2, candidates);
+		}
+		Position posn = Position.startPosition();
+		assertFalse(posn.isPseudoLegal(PackedMove.NONE));
+		// wrong colour
+		assertFalse(posn.isPseudoLegal(PackedMove.of(PieceType.PAWN, Colour.BLACK, Square.e7.bitIndex(), Square.e5.bitIndex())));
+		assertTrue(posn.isPseudoLegal(PackedMove.of(PieceType.PAWN, Colour.WHITE, Square.e2.bitIndex(), Square.e4.bitIndex())));
+		// the check flag is ignored
+		assertTrue(posn.isPseudoLegal(
+				PackedMove.withCheck(PackedMove.of(PieceType.KNIGHT, Colour.WHITE, Square.g1.bitIndex(), Square.f3.bitIndex()))));
+		// blocked slider, wrong piece
+		assertFalse(posn.isPseudoLegal(PackedMove.of(PieceType.BISHOP, Colour.WHITE, Square.f1.bitIndex(), Square.c4.bitIndex())));
+		assertFalse(posn.isPseudoLegal(PackedMove.of(PieceType.QUEEN, Colour.WHITE, Square.e2.bitIndex(), Square.e4.bitIndex())));
+	}
+
+	private void collectPseudoLegalMoves(Position posn, int depth, Set<Integer> moves) {
+		MoveList pseudoLegalMoves = new MoveList();
+		posn.findPseudoLegalMoves(posn.getSideToMove(), pseudoLegalMoves);
+		for (int i = 0; i < pseudoLegalMoves.size(); i++) {
+			moves.add(PackedMove.withoutCheck(pseudoLegalMoves.get(i)));
+		}
+		if (depth > 1) {
+			MoveList legalMoves = new MoveList();
+			posn.findMoves(posn.getSideToMove(), legalMoves);
+			for (int i = 0; i < legalMoves.size(); i++) {
+				posn.makeMove(legalMoves.get(i));
+				collectPseudoLegalMoves(posn, depth - 1, moves);
+				posn.unmakeMove();
+			}
+		}
+	}
+
+	/**
+	 * isPseudoLegal must accept exactly the generated pseudo-legal moves, recursively to the given depth. When in
+	 * check, only the evasions are generated, which must be accepted.
+	 */
+	private void checkIsPseudoLegal(Position posn, int depth, Set<Integer> candidates) {
+		MoveList pseudoLegalMoves = new MoveList();
+		posn.findPseudoLegalMoves(posn.getSideToMove(), pseudoLegalMoves);
+		for (int i = 0; i < pseudoLegalMoves.size(); i++) {
+			int move = pseudoLegalMoves.get(i);
+			assertTrue(posn.isPseudoLegal(move), "move " + PackedMove.toString(move) + " rejected\n" + posn);
+		}
+		if (!posn.isInCheck()) {
+			for (int move : candidates) {
+				assertEquals(pseudoLegalMoves.contains(move), posn.isPseudoLegal(move),
+						"move " + PackedMove.toString(move) + "\n" + posn);
+			}
+		}
+		if (depth > 1) {
+			MoveList legalMoves = new MoveList();
+			posn.findMoves(posn.getSideToMove(), legalMoves);
+			for (int i = 0; i < legalMoves.size(); i++) {
+				posn.makeMove(legalMoves.get(i));
+				checkIsPseudoLegal(posn, depth - 1, candidates);
+				posn.unmakeMove();
+			}
+		}
+	}
+
+	@Test
+	public void sharedAttackedSquares() {
+		String[] fens = { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1" };
+		for (String fen : fens) {
+			Position posn = Fen.decode(fen).getPosition().mutableCopy();
+			checkAttackedSquares(posn, 2);
+		}
+	}
+
+	/**
+	 * the cached attack maps (calculated on demand or by the mobility) must match a fresh calculation, recursively to the
+	 * given depth, i.e. also after making and unmaking moves
+	 */
+	private void checkAttackedSquares(Position posn, int depth) {
+		for (Colour colour : Colour.ALL_COLOURS) {
+			long expected = posn.attackedSquares(colour, posn.getTotalPiecesBits());
+			if (colour == Colour.WHITE) {
+				posn.mobility(colour, false);
+			}
+			assertEquals(expected, posn.attackedSquares(colour), colour + "\n" + posn);
+			for (Square sq : Square.values()) {
+				assertEquals(LongBitBoard.isSet(expected, sq.bitIndex()), posn.squareIsAttacked(sq, colour));
+			}
+		}
+		if (depth > 0) {
+			MoveList moves = new MoveList();
+			posn.findMoves(posn.getSideToMove(), moves);
+			for (int i = 0; i < moves.size(); i++) {
+				posn.makeMove(moves.get(i));
+				checkAttackedSquares(posn, depth - 1);
+				posn.unmakeMove();
+				assertEquals(posn.attackedSquares(posn.getSideToMove(), posn.getTotalPiecesBits()),
+						posn.attackedSquares(posn.getSideToMove()), posn.toString());
+			}
+		}
+	}
+
+	@Test
+	public void givesCheck() {
+		String[] fens = { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+				"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+				// discovered checks, castling with check, enpassant with discovered check
+				"8/8/8/1k6/8/1N6/1R6/4K2R w K - 0 1", "5k2/8/8/8/8/8/8/4K2R w K - 0 1",
+				"8/8/8/KPp4k/8/8/8/8 w - c6 0 1", "5k2/8/8/2pP4/8/B7/8/4K3 w - c6 0 1" };
+		for (String fen : fens) {
+			Position posn = Fen.decode(fen).getPosition().mutableCopy();
+			checkGivesCheck(posn, 2);
+		}
+	}
+
+	/** givesCheck must match the check status after making the move, recursively to the given depth */
+	private void checkGivesCheck(Position posn, int depth) {
+		MoveList moves = new MoveList();
+		posn.findMoves(posn.getSideToMove(), moves);
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			assertFalse(PackedMove.isCheckKnown(move), "check status should be calculated lazily");
+			boolean givesCheck = posn.givesCheck(move);
+			posn.makeMove(move);
+			assertEquals(posn.isInCheck(), givesCheck, "move " + PackedMove.toString(move) + "\n" + posn);
+			if (depth > 1) {
+				checkGivesCheck(posn, depth - 1);
+			}
+			posn.unmakeMove();
+		}
+	}
+
+	@Test
+	public void taperedEvaluation() {
+		assertEquals(Position.MAX_GAME_PHASE, Position.startPosition().getGamePhase());
+		assertEquals(4, Fen.decode("r3k3/pppppppp/8/8/8/8/PPPPPPPP/1N2KB2 w - - 0 1").getPosition().getGamePhase());
+		// pawn ending: only the endgame values count, the king belongs in the centre
+		Position kingInCentre = Fen.decode("4k3/8/8/8/4K3/8/4P3/8 w - - 0 1").getPosition();
+		Position kingOnBackRank = Fen.decode("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1").getPosition();
+		assertEquals(0, kingInCentre.getGamePhase());
+		assertTrue(kingInCentre.materialScore() > kingOnBackRank.materialScore());
+		// ... whereas with all pieces on the board the king should stay at home
+		kingInCentre = Fen.decode("rnbqkbnr/pppppppp/8/8/4K3/8/PPPPPPPP/RNBQ1BNR w kq - 0 1").getPosition();
+		assertTrue(kingInCentre.materialScore() < Position.startPosition().materialScore());
+	}
+
+	@Test
+	public void mobility() {
+		// knights and single pawn pushes
+		Position posn = Position.startPosition();
+		assertEquals(12, posn.mobility(Colour.WHITE, false));
+		assertEquals(12, posn.mobility(Colour.BLACK, true));
+		// knight attacks 8 squares (incl. the pawn on e6), king 5; f5 is attacked by the pawn
+		posn = Fen.decode("4k3/8/4p3/8/3N4/8/8/4K3 w - - 0 1").getPosition();
+		assertEquals(13, posn.mobility(Colour.WHITE, false));
+		assertEquals(12, posn.mobility(Colour.WHITE, true));
+		assertEquals(6, posn.mobility(Colour.BLACK, true));
+	}
+
+	@Test
+	public void nonPawnMaterial() {
+		Position posn = Position.startPosition();
+		assertEquals(2 * 320 + 2 * 330 + 2 * 500 + 900, posn.nonPawnMaterial(Colour.WHITE));
+		posn = Fen.decode("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1").getPosition();
+		assertEquals(900, posn.nonPawnMaterial(Colour.WHITE));
+		assertEquals(0, posn.nonPawnMaterial(Colour.BLACK));
+	}
+
+	@Test
+	public void makeMoveNeedsMutablePosition() {
+		Position posn = Position.startPosition();
+		assertThrows(IllegalStateException.class,
+				() -> posn.makeMove(PackedMove.of(PieceType.PAWN, Colour.WHITE, Square.e2.bitIndex(), Square.e4.bitIndex())));
+		assertThrows(IllegalStateException.class, () -> posn.mutableCopy().unmakeMove());
+	}
+
 	@Test
 	public void eval() {
 		Game game = Fen.decode("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KkQq - 0 1");
@@ -429,10 +863,8 @@ public class PositionTest {
 		Game game = Fen.decode("r3k2r/p3r2p/8/1P6/B1p1b3/8/P6P/R3K2R b - - 0 0");
 		// now move: Be4-f5 (discovered check)
 		// need to manipulate chessboard to remove the bishop at e4
-		BitSetUnifier emptySquares = game.getPosition().getTotalPieces().flip();
-		emptySquares.set(Square.e4.bitIndex());
-		BitSetUnifier myPieces = game.getPosition().getAllPieces(Colour.BLACK).getBitSet();
-		myPieces.clear(Square.e4.bitIndex());
+		long emptySquares = LongBitBoard.set(game.getPosition().getEmptySquaresBits(), Square.e4.bitIndex());
+		long myPieces = LongBitBoard.clear(game.getPosition().getAllPiecesBits(Colour.BLACK), Square.e4.bitIndex());
 		assertTrue(Position.discoveredCheck(Colour.BLACK, game.getPosition(), emptySquares, myPieces, Square.e1,
 				Square.e4));
 	}
@@ -442,10 +874,8 @@ public class PositionTest {
 		Game game = Fen.decode("r3k2r/p3r2p/8/1P6/B1p1b3/8/P6P/R3K2R w - - 0 0");
 		// now move: b5-b6 (discovered check)
 		// need to manipulate chessboard to remove the pawn at b5
-		BitSetUnifier emptySquares = game.getPosition().getTotalPieces().flip();
-		emptySquares.set(Square.b5.bitIndex());
-		BitSetUnifier myPieces = game.getPosition().getAllPieces(Colour.WHITE).getBitSet();
-		myPieces.clear(Square.b5.bitIndex());
+		long emptySquares = LongBitBoard.set(game.getPosition().getEmptySquaresBits(), Square.b5.bitIndex());
+		long myPieces = LongBitBoard.clear(game.getPosition().getAllPiecesBits(Colour.WHITE), Square.b5.bitIndex());
 		assertTrue(Position.discoveredCheck(Colour.WHITE, game.getPosition(), emptySquares, myPieces, Square.e8,
 				Square.b5));
 	}
@@ -455,10 +885,8 @@ public class PositionTest {
 		Game game = Fen.decode("r3k2r/p3n2p/8/1P6/B1p1b3/8/P6P/R3K2R b - - 0 0");
 		// now move: Be4-f5 (not discovered check)
 		// need to manipulate chessboard to remove the bishop at e4
-		BitSetUnifier emptySquares = game.getPosition().getTotalPieces().flip();
-		emptySquares.set(Square.e4.bitIndex());
-		BitSetUnifier myPieces = game.getPosition().getAllPieces(Colour.BLACK).getBitSet();
-		myPieces.clear(Square.e4.bitIndex());
+		long emptySquares = LongBitBoard.set(game.getPosition().getEmptySquaresBits(), Square.e4.bitIndex());
+		long myPieces = LongBitBoard.clear(game.getPosition().getAllPiecesBits(Colour.BLACK), Square.e4.bitIndex());
 		assertFalse(Position.discoveredCheck(Colour.BLACK, game.getPosition(), emptySquares, myPieces, Square.e1,
 				Square.e4));
 	}
@@ -0,0 +1,89 @@
+package org.rjo.chess.position;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.Colour;
+import org.rjo.chess.base.PackedMove;
+import org.rjo.chess.base.PieceType;
+import org.rjo.chess.base.Square;
+import org.rjo.chess.position.TranspositionTable.BoundType;
+
+public class TranspositionTableTest {
+
+	private static final int MOVE = PackedMove.of(PieceType.KNIGHT, Colour.WHITE, Square.g1.bitIndex(), Square.f3.bitIndex());
+
+	@Test
+	public void storeAndProbe() {
+		TranspositionTable tt = new TranspositionTable(1);
+		long key = Position.startPosition().getZobristHash();
+		assertEquals(TranspositionTable.NO_ENTRY, tt.probe(key));
+		tt.store(key, MOVE, -123, 5, BoundType.LOWER_BOUND, 2);
+		long entry = tt.probe(key);
+		assertEquals(MOVE, TranspositionTable.move(entry));
+		assertEquals(-123, TranspositionTable.score(entry, 2));
+		assertEquals(5, TranspositionTable.depth(entry));
+		assertEquals(BoundType.LOWER_BOUND, TranspositionTable.boundType(entry));
+		// different key, same bucket
+		assertEquals(TranspositionTable.NO_ENTRY, tt.probe(key ^ 1));
+		tt.clear();
+		assertEquals(TranspositionTable.NO_ENTRY, tt.probe(key));
+	}
+
+	@Test
+	public void mateScoresAreAdjustedByPly() {
+		TranspositionTable tt = new TranspositionTable(1);
+		// mate found 7 plies from the root, stored at ply 3 --> mate in 4 from this position
+		tt.store(1234L, PackedMove.NONE, 99000 - 7, 10, BoundType.EXACT, 3);
+		// same position reached at ply 5 --> mate 9 plies from the root
+		assertEquals(99000 - 9, TranspositionTable.score(tt.probe(1234L), 5));
+		tt.store(5678L, PackedMove.NONE, -99000 + 7, 10, BoundType.EXACT, 3);
+		assertEquals(-99000 + 9, TranspositionTable.score(tt.probe(5678L), 5));
+	}
+
+	@Test
+	public void depthPreferredAndAlwaysReplace() {
+		TranspositionTable tt = new TranspositionTable(1);
+		// all keys map to the same bucket (same upper 32 bits)
+		long deep = 0x1234_5678_0000_0001L;
+		long shallow1 = 0x1234_5678_0000_0002L;
+		long shallow2 = 0x1234_5678_0000_0003L;
+		tt.store(deep, MOVE, 10, 8, BoundType.EXACT, 0);
+		tt.store(shallow1, MOVE, 20, 2, BoundType.EXACT, 0);
+		tt.store(shallow2, MOVE, 30, 3, BoundType.EXACT, 0);
+		// the deep entry survives, the second shallow entry replaced the first
+		assertEquals(10, TranspositionTable.score(tt.probe(deep), 0));
+		assertEquals(TranspositionTable.NO_ENTRY, tt.probe(shallow1));
+		assertEquals(30, TranspositionTable.score(tt.probe(shallow2), 0));
+
+		// in a new search, the old deep entry can be replaced
+		tt.newSearch();
+		tt.store(shallow1, PackedMove.NONE, 40, 1, BoundType.UPPER_BOUND, 0);
+		assertEquals(TranspositionTable.NO_ENTRY, tt.probe(deep));
+		assertEquals(40, TranspositionTable.score(tt.probe(shallow1), 0));
+	}
+
+	@Test
+	public void bestMoveIsKeptIfNoneSupplied() {
+		TranspositionTable tt = new TranspositionTable(1);
+		tt.store(42L, MOVE, 10, 4, BoundType.EXACT, 0);
+		tt.store(42L, PackedMove.NONE, -10, 5, BoundType.UPPER_BOUND, 0);
+		assertEquals(MOVE, TranspositionTable.move(tt.probe(42L)));
+		assertEquals(5, TranspositionTable.depth(tt.probe(42L)));
+	}
+
+	@Test
+	public void moveIsStoredWithoutCheck() {
+		TranspositionTable tt = new TranspositionTable(1);
+		tt.store(42L, PackedMove.withCheck(MOVE), 10, 4, BoundType.EXACT, 0);
+		assertEquals(MOVE, TranspositionTable.move(tt.probe(42L)));
+		tt.store(43L, PackedMove.withCheckStatus(MOVE, false), 10, 4, BoundType.EXACT, 0);
+		assertEquals(MOVE, TranspositionTable.move(tt.probe(43L)));
+	}
+
+	@Test
+	public void invalidSize() {
+		assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+	}
+}
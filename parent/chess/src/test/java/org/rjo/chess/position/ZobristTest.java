@@ -36,6 +36,16 @@ public class ZobristTest {
 		assertNotEquals(zob1.hash(posn), zob2.hash(posn));
 	}
 
+	@Test
+	public void pawnHashOnlyDependsOnPawns() {
+		Position posn = Fen.decode("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1").getPosition();
+		Position samePawns = Fen.decode("4k3/pppppppp/8/8/8/8/PPPPPPPP/4K3 b - - 0 1").getPosition();
+		Position otherPawns = Fen.decode("4k3/pppppppp/8/8/4P3/8/PPPP1PPP/4K3 b - e3 0 1").getPosition();
+		assertEquals(Zobrist.INSTANCE.pawnHash(posn), Zobrist.INSTANCE.pawnHash(samePawns));
+		assertNotEquals(Zobrist.INSTANCE.pawnHash(posn), Zobrist.INSTANCE.pawnHash(otherPawns));
+		assertEquals(posn.getPawnHash(), Zobrist.INSTANCE.pawnHash(posn));
+	}
+
 	@Test
 	public void incrementalSimpleMove() {
 		checkMove(Fen.decode("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 0").getPosition(),
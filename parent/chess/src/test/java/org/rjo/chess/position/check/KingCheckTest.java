@@ -2,7 +2,6 @@ package org.rjo.chess.position.check;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.apache.commons.lang3.time.StopWatch;
@@ -12,7 +11,6 @@ import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
-import org.rjo.chess.base.bits.BitSetUnifier;
 import org.rjo.chess.position.Fen;
 import org.rjo.chess.position.Game;
 import org.rjo.chess.position.Position;
@@ -24,8 +22,8 @@ import org.rjo.chess.position.Position;
  */
 public class KingCheckTest {
 	private Game game;
-	private BitSetUnifier[] whitePieces;
-	private BitSetUnifier[] blackPieces;
+	private long[] whitePieces;
+	private long[] blackPieces;
 
 	private void setup(String fen) {
 		game = Fen.decode(fen);
@@ -75,12 +73,12 @@ public class KingCheckTest {
 
 	/**
 	 * the 'friendlyPieces' bitset must not get changed by the call to
-	 * {@link KingCheck#isKingInCheckAfterMove_PreviouslyNotInCheck(Square, Colour, BitSetUnifier, BitSetUnifier[], Move)}.
+	 * {@link KingCheck#isKingInCheckAfterMove_PreviouslyNotInCheck(Square, Colour, long, long[], Move)}.
 	 */
 	@Test
 	public void friendlyPiecesDoesNotGetChangedAfterMove() {
 		setup("3bq3/pp2k3/8/rn3b2/4P3/3K1Pr1/8/8 w - - 10 10");
-		BitSetUnifier friendlyPieces = getWhitePieces(game.getPosition());
+		long friendlyPieces = getWhitePieces(game.getPosition());
 		Move move = new Move(PieceType.PAWN, Colour.WHITE, Square.e4, Square.e5);
 		assertTrue(KingCheck.isKingInCheckAfterMove_PreviouslyNotInCheck(Square.d3, Colour.WHITE, friendlyPieces,
 				blackPieces, move));
@@ -89,19 +87,18 @@ public class KingCheckTest {
 
 	/**
 	 * the 'enemyPieces' bitset must not get changed by the call to
-	 * {@link KingCheck#isKingInCheckAfterMove_PreviouslyNotInCheck(Square, Colour, BitSetUnifier, BitSetUnifier[], Move)}.
+	 * {@link KingCheck#isKingInCheckAfterMove_PreviouslyNotInCheck(Square, Colour, long, long[], Move)}.
 	 */
 	@Test
 	public void enemyPiecesNotChangedAfterCaptureMove() {
 		setup("3r4/4k3/8/r7/4P3/8/2Kb4/8 w - - 10 10");
-		BitSetUnifier bishopBitSet = game.getPosition().getPieces(Colour.BLACK)[PieceType.BISHOP.ordinal()]
-				.getBitBoard().getBitSet();
+		long bishops = game.getPosition().getPieces(Colour.BLACK)[PieceType.BISHOP.ordinal()].getBits();
 		Move move = new Move(PieceType.KING, Colour.WHITE, Square.c2, Square.d2, PieceType.BISHOP);
 		assertTrue(KingCheck.isKingInCheckAfterMove_PreviouslyNotInCheck(Square.d2, Colour.WHITE,
 				getWhitePieces(game.getPosition()), blackPieces, move));
-		// should be same object
-		assertSame(bishopBitSet,
-				game.getPosition().getPieces(Colour.BLACK)[PieceType.BISHOP.ordinal()].getBitBoard().getBitSet());
+		// neither the piece nor the supplied array should have changed
+		assertEquals(bishops, game.getPosition().getPieces(Colour.BLACK)[PieceType.BISHOP.ordinal()].getBits());
+		assertEquals(bishops, blackPieces[PieceType.BISHOP.ordinal()]);
 	}
 
 	//
@@ -190,14 +187,14 @@ public class KingCheckTest {
 		}
 	}
 
-	private BitSetUnifier getWhitePieces(Position chessboard) {
-		return chessboard.getAllPieces(Colour.WHITE).getBitSet();
+	private long getWhitePieces(Position chessboard) {
+		return chessboard.getAllPiecesBits(Colour.WHITE);
 	}
 
-	private BitSetUnifier[] setupBitsets(Position posn, Colour colour) {
-		BitSetUnifier[] pieces = new BitSetUnifier[PieceType.ALL_PIECE_TYPES.length];
+	private long[] setupBitsets(Position posn, Colour colour) {
+		long[] pieces = new long[PieceType.ALL_PIECE_TYPES.length];
 		for (PieceType type : PieceType.ALL_PIECE_TYPES) {
-			pieces[type.ordinal()] = posn.getPieces(colour)[type.ordinal()].getBitBoard().getBitSet();
+			pieces[type.ordinal()] = posn.getPieces(colour)[type.ordinal()].getBits();
 		}
 		return pieces;
 	}
@@ -4,19 +4,20 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.eval.Line;
 import org.rjo.chess.base.eval.MoveInfo;
 import org.rjo.chess.base.eval.SearchResult;
 import org.rjo.chess.position.Position;
-import org.rjo.chess.position.ZobristMap;
-import org.rjo.chess.position.ZobristMap.ZobristInfo;
+import org.rjo.chess.position.TranspositionTable;
+import org.rjo.chess.position.TranspositionTable.BoundType;
 
 public class AlphaBeta3 implements SearchStrategy {
 	private static final Logger LOG = LogManager.getLogger(AlphaBeta3.class);
@@ -26,55 +27,193 @@ public class AlphaBeta3 implements SearchStrategy {
 
 	private static boolean USE_ZOBRIST = true;
 
-	private static int count = 0;
-
 	/** whether to order the moves or not -- mainly for tests */
 	public static boolean ORDER_MOVES = true;
 
-	private int startDepth = 4;
+	/** initial width of the aspiration window (centipawns) */
+	private static final int ASPIRATION_WINDOW = 50;
+	/** aspiration windows are used from this iteration depth onwards */
+	private static final int ASPIRATION_MIN_DEPTH = 3;
+	/** once the window has been widened to this size, a full window is used */
+	private static final int ASPIRATION_MAX_WINDOW = 1000;
+	/** assumed branching factor if it can't be measured yet */
+	private static final double DEFAULT_BRANCHING_FACTOR = 5.0;
+	/** the clock is checked every (TIME_CHECK_INTERVAL+1) nodes */
+	private static final int TIME_CHECK_INTERVAL = 255;
+
+	/** maximum distance from the root, including the quiescence search */
+	private static final int MAX_PLY = 128;
+	/** safety margin for delta pruning in the quiescence search (centipawns) */
+	private static final int DELTA_MARGIN = 200;
+
+	/** one list per ply for the quiescence search */
+	private final MoveList[] quiescenceMoves = MoveList.createPerPly(MAX_PLY);
+
+	/** killers, history, countermoves */
+	private final MoveOrdering moveOrdering = new MoveOrdering(MAX_PLY);
+	/** returns the moves in stages (hash move, good captures, killers, quiet moves, losing captures) */
+	private final MovePicker[] movePickers = MovePicker.createPerPly(moveOrdering, MAX_PLY);
+	/** the move made at each ply of the current line */
+	private final int[] moveAtPly = new int[MAX_PLY];
+
+	/** maximum depth of the iterative deepening */
+	private int maxDepth = 4;
+
+	/** depth of the current iteration */
+	private int startDepth;
+
+	/** best move at the root from the previous iteration, is searched first */
+	private int rootBestMove;
+
+	private TimeManager timeManager = TimeManager.unlimited();
 
 	private PrintStream outputStream;
 
-	private ZobristMap zobristMap;
+	private TranspositionTable transpositionTable;
 
-	// how many times moves were made, i.e. new positions created
-	private static int NBR_NODES_SEARCHED;
+	// how many times moves were made, i.e. new positions created. Per instance, i.e. per search thread.
+	private int nbrNodesSearched;
 	// how many times 'evaluate' was called
-	private static int NBR_POSNS_EVALUATED;
+	private int nbrPosnsEvaluated;
+
+	/** set to abandon the current search, see {@link #stop()} */
+	private volatile boolean stopped;
 
-	/** constructor for tests that don't want the zobrist map */
+	/** constructor for tests: uses a new transposition table */
 	public AlphaBeta3(PrintStream out) {
-		this(out, new ZobristMap());
+		this(out, new TranspositionTable());
 	}
 
-	public AlphaBeta3(PrintStream out, ZobristMap zobristMap) {
+	public AlphaBeta3(PrintStream out, TranspositionTable transpositionTable) {
 		this.outputStream = out;
-		this.zobristMap = zobristMap;
+		this.transpositionTable = transpositionTable;
 	}
 
 	@Override
 	public MoveInfo findMove(Position posn) {
-		NBR_NODES_SEARCHED = 0;
-		NBR_POSNS_EVALUATED = 0;
-		MoveTree moveTree = new MoveTree(null, null, startDepth, 0, 0);
-		// if white currently to move, want to maximize. Otherwise minimize.
-		MiniMax type = (posn.getSideToMove() == Colour.WHITE) ? MiniMax.MAX : MiniMax.MIN;
-
-		long start = System.currentTimeMillis();
-		SearchResult result = alphabeta(posn, startDepth, MIN_VAL, MAX_VAL, new Line(), moveTree, type);
-		long duration = System.currentTimeMillis() - start;
-		LOG.debug(moveTree.toString());
-		LOG.info("evaluated {} nodes, {} posns, time: {}, result: {}", NBR_NODES_SEARCHED, NBR_POSNS_EVALUATED, timeTaken(duration), result);
+		transpositionTable.newSearch();
+		SearchResult result = search(posn);
 		MoveInfo moveInfo = new MoveInfo();
 		moveInfo.setMove(result.getLine().get().getMoves().pop());
 		return moveInfo;
 	}
 
+	/**
+	 * Searches the given position using iterative deepening, i.e. to depth 1, 2, ... up to the maximum depth or until the
+	 * time manager decides to stop. Unlike {@link #findMove(Position)}, the transposition table is not informed of a new
+	 * search. This allows several instances to search the same position in parallel, sharing the table (see
+	 * {@link LazySmp}).
+	 *
+	 * @param posn the position
+	 * @return the result of the last completed iteration. Not meaningful if the search was stopped from outside.
+	 */
+	SearchResult search(Position posn) {
+		nbrNodesSearched = 0;
+		nbrPosnsEvaluated = 0;
+		stopped = false;
+		rootBestMove = PackedMove.NONE;
+		moveOrdering.newSearch();
+		timeManager.start();
+		// if white currently to move, want to maximize. Otherwise minimize.
+		MiniMax type = (posn.getSideToMove() == Colour.WHITE) ? MiniMax.MAX : MiniMax.MIN;
+		// the moves are made and unmade in place on a copy of the position
+		Position searchPosn = posn.mutableCopy();
+
+		SearchResult bestResult = null;
+		int nodesInLastIteration = 0;
+		// leave room for the quiescence search
+		final int depthLimit = Math.min(maxDepth, MAX_PLY / 2);
+		for (int depth = 1; depth <= depthLimit; depth++) {
+			startDepth = depth;
+			long iterationStart = System.currentTimeMillis();
+			int nodesAtStart = nbrNodesSearched;
+			MoveTree moveTree = new MoveTree(null, null, startDepth, 0, 0);
+			SearchResult result = aspirationSearch(searchPosn, type, bestResult, moveTree);
+			LOG.debug("{}", moveTree);
+			if (stopped && bestResult != null) {
+				// use the result of the last completed iteration
+				break;
+			}
+			bestResult = result;
+			if (result.getLine().isPresent() && !result.getLine().get().getMoves().isEmpty()) {
+				rootBestMove = PackedMove.fromMove(result.getLine().get().getMoves().peekFirst());
+			}
+			long iterationTime = System.currentTimeMillis() - iterationStart;
+			int nodesInIteration = nbrNodesSearched - nodesAtStart;
+			LOG.info("depth {}: {} nodes, {} posns, time: {}, result: {}", depth, nodesInIteration, nbrPosnsEvaluated,
+					timeTaken(iterationTime), result);
+			if (stopped) {
+				break;
+			}
+			double branchingFactor = nodesInLastIteration == 0 ? DEFAULT_BRANCHING_FACTOR
+					: (1.0 * nodesInIteration) / nodesInLastIteration;
+			nodesInLastIteration = nodesInIteration;
+			if (depth < depthLimit && !timeManager.canStartIteration(iterationTime, branchingFactor)) {
+				LOG.info("not enough time for depth {}: elapsed {}ms, last iteration {}ms, branching factor {}", depth + 1,
+						timeManager.elapsed(), iterationTime, String.format("%.1f", branchingFactor));
+				break;
+			}
+		}
+		return bestResult;
+	}
+
+	/**
+	 * Searches the root position at the current iteration depth. From {@link #ASPIRATION_MIN_DEPTH} onwards, the search
+	 * starts with a narrow window around the previous iteration's score. If the score falls outside the window, the
+	 * window is widened on that side and the position is searched again.
+	 *
+	 * @param posn the position
+	 * @param type whether max or min at the root
+	 * @param previousResult result of the previous iteration, or null
+	 * @param moveTree for debugging
+	 * @return the result
+	 */
+	private SearchResult aspirationSearch(Position posn,
+			MiniMax type,
+			SearchResult previousResult,
+			MoveTree moveTree) {
+		int min = MIN_VAL;
+		int max = MAX_VAL;
+		int window = ASPIRATION_WINDOW;
+		if (previousResult != null && startDepth >= ASPIRATION_MIN_DEPTH && !isMateScore(previousResult.getScore())) {
+			min = Math.max(MIN_VAL, previousResult.getScore() - window);
+			max = Math.min(MAX_VAL, previousResult.getScore() + window);
+		}
+		while (true) {
+			SearchResult result = alphabeta(posn, startDepth, min, max, new Line(), moveTree, type);
+			if (stopped) {
+				return result;
+			}
+			int score = result.getScore();
+			window *= 2;
+			if (score <= min && min > MIN_VAL) {
+				LOG.debug("depth {}: fail low ({} <= {}), re-searching", startDepth, score, min);
+				min = window > ASPIRATION_MAX_WINDOW ? MIN_VAL : Math.max(MIN_VAL, score - window);
+			} else if (score >= max && max < MAX_VAL) {
+				LOG.debug("depth {}: fail high ({} >= {}), re-searching", startDepth, score, max);
+				max = window > ASPIRATION_MAX_WINDOW ? MAX_VAL : Math.min(MAX_VAL, score + window);
+			} else {
+				return result;
+			}
+		}
+	}
+
+	private static boolean isMateScore(int score) {
+		return Math.abs(score) >= TranspositionTable.MATE_SCORE_THRESHOLD;
+	}
+
+	/**
+	 * Abandons the current search (called from another thread). The search returns as soon as possible.
+	 */
+	void stop() {
+		stopped = true;
+	}
+
 	/**
 	 * the minimax value of n, searched to depth d. If the value is less than min, returns min. If greater than max, returns
 	 * max.
 	 *
-	 * @param posn current game position
+	 * @param posn current game position. Mutable, moves are made and unmade in place.
 	 * @param depth current depth
 	 * @param min current min ("alpha")
 	 * @param max current max ("beta")
@@ -90,49 +229,81 @@ public class AlphaBeta3 implements SearchStrategy {
 			Line line,
 			MoveTree moveTree,
 			MiniMax evaluationType) {
+		final int ply = startDepth - depth;
+		// the first iteration is always completed, to have a move to play
+		if (startDepth > 1 && (nbrNodesSearched & TIME_CHECK_INTERVAL) == 0 && timeManager.hardLimitReached()) {
+			stopped = true;
+		}
 		if (depth == 0) {
-			NBR_POSNS_EVALUATED++;
-			int score = posn.evaluate();
-			LOG.debug("depth 0: evaluating posn currentLine: {}, score {}", line, score);
+			int score = quiesce(posn, ply, min, max, evaluationType);
+			LOG.debug("depth 0: quiescence search for currentLine: {}, score {}", line, score);
 			return new SearchResult(score, startDepth, line);
 		}
 
+		// probe the transposition table. (Not at the root, since a move is required there.)
+		int hashMove = PackedMove.NONE;
+		if (USE_ZOBRIST) {
+			long entry = transpositionTable.probe(posn.getZobristHash());
+			if (entry != TranspositionTable.NO_ENTRY) {
+				hashMove = TranspositionTable.move(entry);
+				if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+					int score = TranspositionTable.score(entry, ply);
+					BoundType boundType = TranspositionTable.boundType(entry);
+					if (boundType == BoundType.EXACT || (boundType == BoundType.LOWER_BOUND && score >= max)
+							|| (boundType == BoundType.UPPER_BOUND && score <= min)) {
+						LOG.debug("{}: depth {}, hash hit {} for {}", evaluationType, depth, score, posn.getZobristHash());
+						// use the current line, since the line is not stored in the table
+						return new SearchResult(score, startDepth, line);
+					}
+				}
+			}
+		}
+
+		if (ply == 0 && rootBestMove != PackedMove.NONE) {
+			// the best move of the previous iteration is searched first
+			hashMove = rootBestMove;
+		}
+
+		final int originalMin = min;
+		final int originalMax = max;
+		int bestMove = PackedMove.NONE;
 		Line currentBestLine = null;
-		List<Move> moves = posn.findMoves(posn.getSideToMove());
-		LOG.debug("{}: depth {}, currentLine: {}, min {}, max {}, moves: {}", evaluationType, depth, line, min, max, moves);
+		// the moves are generated lazily: at a cut-off, the remaining stages are never generated
+		final MovePicker movePicker = movePickers[ply];
 		if (ORDER_MOVES) {
-			moves = orderMoves(posn, moves);
-			LOG.debug("{}: sorted moves: {}", evaluationType, moves);
+			movePicker.init(posn, hashMove, ply, ply > 0 ? moveAtPly[ply - 1] : PackedMove.NONE);
+		} else {
+			movePicker.initUnordered(posn);
 		}
+		LOG.debug("{}: depth {}, currentLine: {}, min {}, max {}", evaluationType, depth, line, min, max);
+		int nbrLegalMoves = 0;
 		switch (evaluationType) {
 
 		case MAX:
-			for (Move move : moves) {
+			for (int packedMove = movePicker.next(); packedMove != PackedMove.NONE; packedMove = movePicker.next()) {
+				if (!posn.isLegal(packedMove)) {
+					continue;
+				}
+				nbrLegalMoves++;
+				if (stopped) {
+					break;
+				}
+				// the Move objects (for the line and the move tree) store whether they give check
+				packedMove = PackedMove.withCheckStatus(packedMove, posn.givesCheck(packedMove));
+				Move move = PackedMove.toMove(packedMove);
 				MoveTree moveEntry = new MoveTree(MiniMax.MAX, move, depth, min, max);
 				moveTree.addEntry(moveEntry);
-				Position newPosn = posn.move(move);
+				posn.makeMove(packedMove);
+				moveAtPly[ply] = packedMove;
 				line.addMove(move, startDepth);
-				NBR_NODES_SEARCHED++;
+				nbrNodesSearched++;
 				LOG.debug("max(): depth {}, checking move {}, currentLine: {}, min {}, max {}", depth, move, line, min, max);
-				Optional<ZobristInfo> previouslyProcessedPosition = zobristMap.checkZobrist(newPosn);
-				SearchResult result = null;
-				boolean foundZobrist = false;
-				if (USE_ZOBRIST && previouslyProcessedPosition.isPresent() && previouslyProcessedPosition.get().getDepth() >= depth) {
-					// TODO need to check for sideToMove?
-					LOG.debug("max(): depth {}, zobrist hit {}", newPosn.getZobristHash());
-					result = previouslyProcessedPosition.get().getSearchResult();
-					// use the current line, not the line stored in the zobrist map
-					result.setLine(Optional.of(line));
-					foundZobrist = true;
-				} else {
-					result = alphabeta(newPosn, depth - 1, min, max, line, moveEntry, MiniMax.MIN);
-				}
+				SearchResult result = alphabeta(posn, depth - 1, min, max, line, moveEntry, MiniMax.MIN);
+				posn.unmakeMove();
 				moveEntry.setScore(result.getScore());
-				if (USE_ZOBRIST && !foundZobrist) {
-					zobristMap.updateZobristMap(newPosn, depth, result);
-				}
 				if (result.getScore() > min) {
 					min = result.getScore();
+					bestMove = packedMove;
 					moveEntry.addEvaluation(EvalType.BESTSOFAR);
 					if (result.getLine().isPresent()) {
 						currentBestLine = new Line(result.getLine().get());
@@ -146,35 +317,50 @@ public class AlphaBeta3 implements SearchStrategy {
 				if (max <= min) {
 					LOG.debug("max(): beta cut-off");
 					moveEntry.addEvaluation(EvalType.BETA_CUTOFF);
+					moveOrdering.cutoff(packedMove, ply > 0 ? moveAtPly[ply - 1] : PackedMove.NONE, ply, depth);
 					break; /* beta cut-off */
 				}
 			}
-			if (moves.isEmpty()) {
+			if (nbrLegalMoves == 0) {
 				if (posn.isInCheck()) {
 					LOG.debug("max(): found mate at depth {}, currentLine: {}", depth, line);
 					// favour a mate in 5 rather than mate in 3
-					return new SearchResult(MIN_VAL + (10 - depth), line, line.getMoves().size(), startDepth);// need to remain above MIN_VAL (??)
+					return new SearchResult(MIN_VAL + 1 + ply, line, line.getMoves().size(), startDepth);// need to remain above MIN_VAL (??)
 				} else {
 					// statemate: evaluate as 0
 					return new SearchResult(0, startDepth, line);
 				}
 			}
+			storeResult(posn, bestMove, min, depth, min >= max ? BoundType.LOWER_BOUND
+					: min <= originalMin ? BoundType.UPPER_BOUND : BoundType.EXACT, ply);
 			// is possible to get here without having set 'currentBestLine'
 			// e.g. have tried all possibilities but they were all outside of the [min,max] range
 			return new SearchResult(min, startDepth, currentBestLine);
 
 		case MIN:
-			for (Move move : moves) {
+			for (int packedMove = movePicker.next(); packedMove != PackedMove.NONE; packedMove = movePicker.next()) {
+				if (!posn.isLegal(packedMove)) {
+					continue;
+				}
+				nbrLegalMoves++;
+				if (stopped) {
+					break;
+				}
+				packedMove = PackedMove.withCheckStatus(packedMove, posn.givesCheck(packedMove));
+				Move move = PackedMove.toMove(packedMove);
 				MoveTree moveEntry = new MoveTree(MiniMax.MIN, move, depth, min, max);
 				moveTree.addEntry(moveEntry);
-				Position newPosn = posn.move(move);
+				posn.makeMove(packedMove);
+				moveAtPly[ply] = packedMove;
 				line.addMove(move, startDepth);
-				NBR_NODES_SEARCHED++;
+				nbrNodesSearched++;
 				LOG.debug("min(): depth {}, checking move {}, currentLine: {}, min {}, max {}", depth, move, line, min, max);
-				SearchResult result = alphabeta(newPosn, depth - 1, min, max, line, moveTree, MiniMax.MAX);
+				SearchResult result = alphabeta(posn, depth - 1, min, max, line, moveTree, MiniMax.MAX);
+				posn.unmakeMove();
 				moveEntry.setScore(result.getScore());
 				if (result.getScore() < max) {
 					max = result.getScore();
+					bestMove = packedMove;
 					moveEntry.addEvaluation(EvalType.BESTSOFAR);
 					if (result.getLine().isPresent()) {
 						currentBestLine = new Line(result.getLine().get());
@@ -188,21 +374,23 @@ public class AlphaBeta3 implements SearchStrategy {
 				if (max <= min) {
 					LOG.debug("min(): alpha cut-off");
 					moveEntry.addEvaluation(EvalType.ALPHA_CUTOFF);
-
+					moveOrdering.cutoff(packedMove, ply > 0 ? moveAtPly[ply - 1] : PackedMove.NONE, ply, depth);
 					break; /* alpha cut-off */
 				}
 			}
-			if (moves.isEmpty()) /* no possible moves -- checkmate or statemate */ {
+			if (nbrLegalMoves == 0) /* no possible moves -- checkmate or statemate */ {
 				// test for checkmate or stalemate
 				if (posn.isInCheck()) {
 					LOG.debug("min(): found mate at depth {}, currentLine: {}", depth, line);
 					// return a higher score for a mate in 3 compared to a mate in 5
-					return new SearchResult(MAX_VAL - (10 - depth), line, line.getMoves().size(), startDepth); // need to remain below MAX_VAL
+					return new SearchResult(MAX_VAL - 1 - ply, line, line.getMoves().size(), startDepth); // need to remain below MAX_VAL
 				} else {
 					// statemate: evaluate as 0
 					return new SearchResult(0, startDepth, line);
 				}
 			}
+			storeResult(posn, bestMove, max, depth, max <= min ? BoundType.UPPER_BOUND
+					: max >= originalMax ? BoundType.LOWER_BOUND : BoundType.EXACT, ply);
 			// is possible to get here without having set 'currentBestLine'
 			// e.g. have tried all possibilities but they were all outside of the [min,max] range
 			return new SearchResult(max, startDepth, currentBestLine);
@@ -212,43 +400,100 @@ public class AlphaBeta3 implements SearchStrategy {
 	}
 
 	/**
-	 * Sorts the given move lists according to various heuristics.
+	 * Quiescence search: only captures and promotions are searched until a 'quiet' position is reached, to avoid the
+	 * horizon effect at the leaves of the main search. The side to move can 'stand pat', i.e. accept the static evaluation
+	 * instead of capturing. Captures which cannot raise the score to within {@link #DELTA_MARGIN} of the bound are skipped
+	 * (delta pruning). If the side to move is in check, all moves are searched.
+	 * <p>
+	 * As in {@link #alphabeta(Position, int, int, int, Line, MoveTree, MiniMax)}, scores are from white's point of view.
 	 *
-	 * @param posn the current position
-	 * @param moves all available moves
-	 * @return a sorted list of available moves (hopefully, better moves first)
+	 * @param posn the position (mutable)
+	 * @param ply distance from the root
+	 * @param min current min ("alpha")
+	 * @param max current max ("beta")
+	 * @param evaluationType whether max or min
+	 * @return the score
 	 */
-	private List<Move> orderMoves(Position posn,
-			List<Move> moves) {
-
-		List<Move> captures = new ArrayList<>(moves.size());
-		List<Move> nonCaptures = new ArrayList<>(moves.size());
-		for (Move move : moves) {
-			if (move.isCapture()) {
-				captures.add(move);
+	private int quiesce(Position posn,
+			int ply,
+			int min,
+			int max,
+			MiniMax evaluationType) {
+		if (ply >= MAX_PLY - 1) {
+			nbrPosnsEvaluated++;
+			return posn.evaluate();
+		}
+		final boolean inCheck = posn.isInCheck();
+		final MoveList moves = quiescenceMoves[ply];
+		int standPat = 0;
+		if (inCheck) {
+			posn.findMoves(posn.getSideToMove(), moves);
+			if (moves.isEmpty()) {
+				return evaluationType == MiniMax.MAX ? MIN_VAL + 1 + ply : MAX_VAL - 1 - ply;
+			}
+		} else {
+			nbrPosnsEvaluated++;
+			standPat = posn.evaluate();
+			if (evaluationType == MiniMax.MAX) {
+				if (standPat >= max) {
+					return standPat;
+				}
+				min = Math.max(min, standPat);
 			} else {
-				nonCaptures.add(move);
+				if (standPat <= min) {
+					return standPat;
+				}
+				max = Math.min(max, standPat);
 			}
+			posn.findCaptures(posn.getSideToMove(), moves);
 		}
-		captures = orderCaptures(posn, captures);
-		nonCaptures = orderNonCaptures(posn, nonCaptures);
 
-		// ... and return
-		captures.addAll(nonCaptures);
-		return captures;
-	}
-
-	// for captures: Most Valuable Victim - Least Valuable Aggressor or Static Exchange Evaluation (SEE)
-	// http://chessprogramming.wikispaces.com/MVV-LVA
-	private List<Move> orderCaptures(Position posn,
-			List<Move> moves) {
-		return moves;
+		for (int i = 0; i < moves.size(); i++) {
+			if (stopped) {
+				break;
+			}
+			int move = MoveOrdering.pickBestCapture(moves, i);
+			if (!inCheck && !PackedMove.isPromotion(move)) {
+				// delta pruning: even winning the captured piece would not be enough
+				int gain = Position.pieceValue(PackedMove.capturedPiece(move)) + DELTA_MARGIN;
+				if (evaluationType == MiniMax.MAX ? standPat + gain <= min : standPat - gain >= max) {
+					continue;
+				}
+				// losing captures are not searched
+				if (posn.staticExchangeEvaluation(move) < 0) {
+					continue;
+				}
+			}
+			posn.makeMove(move);
+			nbrNodesSearched++;
+			int score = quiesce(posn, ply + 1, min, max, evaluationType == MiniMax.MAX ? MiniMax.MIN : MiniMax.MAX);
+			posn.unmakeMove();
+			if (evaluationType == MiniMax.MAX) {
+				min = Math.max(min, score);
+			} else {
+				max = Math.min(max, score);
+			}
+			if (max <= min) {
+				break;
+			}
+		}
+		return evaluationType == MiniMax.MAX ? min : max;
 	}
 
-	// for non-captures: history heuristic
-	private List<Move> orderNonCaptures(Position posn,
-			List<Move> moves) {
-		return moves;
+	/**
+	 * Stores the result of searching <code>posn</code> in the transposition table. The scores are always from white's
+	 * point of view, therefore the bound type does not depend on whether this was a MAX or MIN node.
+	 */
+	private void storeResult(Position posn,
+			int bestMove,
+			int score,
+			int depth,
+			BoundType boundType,
+			int ply) {
+		// the result of a stopped search is incomplete
+		if (USE_ZOBRIST && !stopped) {
+			transpositionTable.store(posn.getZobristHash(), bestMove, score, depth, boundType, ply);
+		}
 	}
 
 	//	/*
@@ -314,17 +559,22 @@ public class AlphaBeta3 implements SearchStrategy {
 
 	@Override
 	public int getCurrentNbrNodesSearched() {
-		return NBR_NODES_SEARCHED;
+		return nbrNodesSearched;
 	}
 
 	@Override
 	public int getCurrentDepth() {
-		return startDepth;
+		return maxDepth;
 	}
 
 	@Override
 	public void incrementDepth(int increment) {
-		startDepth += increment;
+		maxDepth += increment;
+	}
+
+	@Override
+	public void setTimeManager(TimeManager timeManager) {
+		this.timeManager = timeManager;
 	}
 
 	enum MiniMax {
@@ -375,7 +625,10 @@ public class AlphaBeta3 implements SearchStrategy {
 		}
 
 		public void addEntry(MoveTree moveTree) {
-			this.followingMoves.add(moveTree);
+			// the tree is only needed for debugging; otherwise would use too much memory in a deep search
+			if (LOG.isDebugEnabled()) {
+				this.followingMoves.add(moveTree);
+			}
 		}
 
 		@Override
@@ -0,0 +1,155 @@
+package org.rjo.chess.eval;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.rjo.chess.base.PackedMove;
+import org.rjo.chess.base.eval.MoveInfo;
+import org.rjo.chess.position.EvaluationCache;
+import org.rjo.chess.position.Position;
+import org.rjo.chess.position.TranspositionTable;
+
+/**
+ * A parallel search using 'Lazy SMP': several threads search the same position, each with its own
+ * {@link PrincipalVariationSearch} instance, sharing only the transposition table and the evaluation cache. The helper
+ * threads fill the table with results which the main thread can use. Every second helper searches one ply deeper, so that the threads don't
+ * all search the same nodes in the same order.
+ * <p>
+ * The main thread's result is reported. All searchers share one stop flag, so the helpers are stopped as soon as the
+ * main thread has finished or has reached its time limit.
+ * <p>
+ * See https://www.chessprogramming.org/Lazy_SMP.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public class LazySmp implements SearchStrategy {
+	private static final Logger LOG = LogManager.getLogger(LazySmp.class);
+
+	private final TranspositionTable transpositionTable;
+
+	/** one per thread; searchers[0] is used by the main thread */
+	private final PrincipalVariationSearch[] searchers;
+
+	/**
+	 * @param out output stream for the main thread's UCI output
+	 * @param transpositionTable the (shared) transposition table
+	 * @param evaluationCache the (shared) evaluation cache
+	 * @param nbrThreads total number of threads, including the main thread
+	 */
+	public LazySmp(PrintStream out, TranspositionTable transpositionTable, EvaluationCache evaluationCache,
+			int nbrThreads) {
+		if (nbrThreads < 1) {
+			throw new IllegalArgumentException("nbrThreads must be >= 1, got: " + nbrThreads);
+		}
+		this.transpositionTable = transpositionTable;
+		this.searchers = new PrincipalVariationSearch[nbrThreads];
+		AtomicBoolean stopped = new AtomicBoolean();
+		searchers[0] = new PrincipalVariationSearch(out, transpositionTable, evaluationCache, stopped);
+		PrintStream nullStream = new PrintStream(OutputStream.nullOutputStream());
+		for (int i = 1; i < nbrThreads; i++) {
+			searchers[i] = new PrincipalVariationSearch(nullStream, transpositionTable, evaluationCache, stopped);
+			// staggered depths
+			searchers[i].incrementDepth(i % 2);
+		}
+	}
+
+	@Override
+	public MoveInfo findMove(Position posn) {
+		transpositionTable.newSearch();
+		// before any thread is started, so that a stop cannot be overwritten
+		for (PrincipalVariationSearch searcher : searchers) {
+			searcher.prepare();
+		}
+
+		Thread[] helpers = new Thread[searchers.length - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			final PrincipalVariationSearch searcher = searchers[i + 1];
+			helpers[i] = new Thread(() -> searcher.search(posn), "lazysmp-helper-" + (i + 1));
+			helpers[i].setDaemon(true);
+			helpers[i].start();
+		}
+
+		int bestMove;
+		try {
+			bestMove = searchers[0].search(posn);
+		} finally {
+			// stops all helpers, since the stop flag is shared
+			searchers[0].stop();
+			for (Thread helper : helpers) {
+				try {
+					helper.join();
+				} catch (InterruptedException e) {
+					LOG.warn("interrupted whilst waiting for helper thread {}", helper.getName());
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		LOG.info("{} threads searched {} nodes", searchers.length, getCurrentNbrNodesSearched());
+
+		MoveInfo moveInfo = new MoveInfo();
+		moveInfo.setMove(PackedMove.toMove(PackedMove.withCheckStatus(bestMove, posn.givesCheck(bestMove))));
+		moveInfo.setLine(searchers[0].getLine());
+		return moveInfo;
+	}
+
+	/**
+	 * @return the total number of nodes searched by all threads
+	 */
+	@Override
+	public int getCurrentNbrNodesSearched() {
+		int nbrNodes = 0;
+		for (PrincipalVariationSearch searcher : searchers) {
+			nbrNodes += searcher.getCurrentNbrNodesSearched();
+		}
+		return nbrNodes;
+	}
+
+	/**
+	 * @return score of the main thread's last completed iteration, from the point of view of the side to move
+	 */
+	int getScore() {
+		return searchers[0].getScore();
+	}
+
+	/**
+	 * @return depth of the main thread's search
+	 */
+	@Override
+	public int getCurrentDepth() {
+		return searchers[0].getCurrentDepth();
+	}
+
+	/**
+	 * Only the main thread's search is time-limited, the helper threads are stopped together with it.
+	 */
+	@Override
+	public void setTimeManager(TimeManager timeManager) {
+		searchers[0].setTimeManager(timeManager);
+	}
+
+	@Override
+	public void setNullMovePruning(boolean enabled) {
+		for (PrincipalVariationSearch searcher : searchers) {
+			searcher.setNullMovePruning(enabled);
+		}
+	}
+
+	@Override
+	public void setLateMoveReductions(boolean enabled) {
+		for (PrincipalVariationSearch searcher : searchers) {
+			searcher.setLateMoveReductions(enabled);
+		}
+	}
+
+	@Override
+	public void incrementDepth(int increment) {
+		for (PrincipalVariationSearch searcher : searchers) {
+			searcher.incrementDepth(increment);
+		}
+	}
+
+}
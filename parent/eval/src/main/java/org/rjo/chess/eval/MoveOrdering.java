@@ -0,0 +1,185 @@
+package org.rjo.chess.eval;
+
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
+import org.rjo.chess.base.PieceType;
+import org.rjo.chess.position.Position;
+
+/**
+ * The move ordering heuristics of a search: MVV-LVA for captures; killer moves, countermoves and the history heuristic
+ * for quiet moves. See https://www.chessprogramming.org/Killer_Heuristic and
+ * https://www.chessprogramming.org/History_Heuristic.
+ * <p>
+ * Not thread-safe: each search thread has its own instance.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+class MoveOrdering {
+
+	/** history values are halved when one of them exceeds this value */
+	static final int MAX_HISTORY = 1 << 20;
+	// ordering of quiet moves: killers, then the countermove, then by history value
+	static final int KILLER_SCORE = 3 * MAX_HISTORY;
+	static final int COUNTERMOVE_SCORE = 2 * MAX_HISTORY;
+
+	/** killer moves: two per ply, quiet moves which caused a cut-off in a sibling node */
+	private final int[][] killers;
+	/** history heuristic ('butterfly board'): indexed by colour, from square, to square */
+	private final int[][][] history = new int[2][64][64];
+	/** countermoves: the quiet move which refuted a move, indexed by colour, from square, to square of that move */
+	private final int[][][] counterMoves = new int[2][64][64];
+
+	/**
+	 * @param maxPly maximum distance from the root
+	 */
+	MoveOrdering(int maxPly) {
+		this.killers = new int[maxPly][2];
+	}
+
+	/**
+	 * Prepares the heuristics for a new search. The killer moves refer to plies of the previous search and are cleared;
+	 * the history values are retained, but with less weight.
+	 */
+	void newSearch() {
+		for (int[] killersAtPly : killers) {
+			killersAtPly[0] = PackedMove.NONE;
+			killersAtPly[1] = PackedMove.NONE;
+		}
+		ageHistory();
+	}
+
+	/**
+	 * @param ply distance from the root
+	 * @param i 0 for the most recent killer move, 1 for the other
+	 * @return the killer move, or PackedMove.NONE
+	 */
+	int killer(int ply,
+			int i) {
+		return killers[ply][i];
+	}
+
+	/**
+	 * @param previousMove the opponent's previous move, or PackedMove.NONE at the root
+	 * @return the countermove to <code>previousMove</code>, or PackedMove.NONE
+	 */
+	int counterMove(int previousMove) {
+		if (previousMove == PackedMove.NONE) {
+			return PackedMove.NONE;
+		}
+		return counterMoves[PackedMove.colour(previousMove).ordinal()][PackedMove.from(previousMove)][PackedMove
+				.to(previousMove)];
+	}
+
+	/**
+	 * Scores a quiet move. Killer moves score {@link #KILLER_SCORE} or more, the countermove
+	 * {@link #COUNTERMOVE_SCORE}, all other moves their history value (less than {@link #COUNTERMOVE_SCORE}).
+	 *
+	 * @param move the move
+	 * @param ply distance from the root
+	 * @param counterMove see {@link #counterMove(int)}
+	 * @return the score; higher is better
+	 */
+	int quietMoveScore(int move,
+			int ply,
+			int counterMove) {
+		move = PackedMove.withoutCheck(move);
+		if (move == killers[ply][0]) {
+			return KILLER_SCORE + 1;
+		} else if (move == killers[ply][1]) {
+			return KILLER_SCORE;
+		} else if (move == counterMove) {
+			return COUNTERMOVE_SCORE;
+		}
+		return historyScore(move);
+	}
+
+	/**
+	 * @param move a quiet move
+	 * @return its history value
+	 */
+	int historyScore(int move) {
+		return history[PackedMove.colour(move).ordinal()][PackedMove.from(move)][PackedMove.to(move)];
+	}
+
+	/**
+	 * Called when a move causes a cut-off. If it is a quiet move, it is stored as a killer move for this ply and as the
+	 * countermove to the previous move, and its history value is increased.
+	 *
+	 * @param move the move
+	 * @param previousMove the opponent's previous move, or PackedMove.NONE at the root
+	 * @param ply distance from the root
+	 * @param depth remaining depth
+	 */
+	void cutoff(int move,
+			int previousMove,
+			int ply,
+			int depth) {
+		if (PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+			return;
+		}
+		move = PackedMove.withoutCheck(move);
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		if (previousMove != PackedMove.NONE) {
+			counterMoves[PackedMove.colour(previousMove).ordinal()][PackedMove.from(previousMove)][PackedMove
+					.to(previousMove)] = move;
+		}
+		int[] historyFrom = history[PackedMove.colour(move).ordinal()][PackedMove.from(move)];
+		historyFrom[PackedMove.to(move)] += depth * depth;
+		if (historyFrom[PackedMove.to(move)] > MAX_HISTORY) {
+			ageHistory();
+		}
+	}
+
+	private void ageHistory() {
+		for (int[][] historyColour : history) {
+			for (int[] historyFrom : historyColour) {
+				for (int to = 0; to < historyFrom.length; to++) {
+					historyFrom[to] /= 2;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The MVV-LVA score of a capture: the most valuable victim first and, for the same victim, the least valuable
+	 * attacker first. A promotion counts as capturing the promoted piece.
+	 * See https://www.chessprogramming.org/MVV-LVA.
+	 *
+	 * @param move the move
+	 * @return the score; higher is better
+	 */
+	static int mvvLva(int move) {
+		int victim = PackedMove.isCapture(move) ? Position.pieceValue(PackedMove.capturedPiece(move)) : 0;
+		if (PackedMove.isPromotion(move)) {
+			victim += Position.pieceValue(PackedMove.promotedPiece(move));
+		}
+		// the king counts as a queen, the values of the victims are at least 10 apart
+		int attacker = Math.min(Position.pieceValue(PackedMove.piece(move)), Position.pieceValue(PieceType.QUEEN));
+		return victim * 16 - attacker / 100;
+	}
+
+	/**
+	 * Selection sort, one step at a time: moves the move with the highest MVV-LVA score from index <code>i</code>
+	 * onwards to index <code>i</code>.
+	 *
+	 * @return the move now at index <code>i</code>
+	 */
+	static int pickBestCapture(MoveList moves,
+			int i) {
+		int best = i;
+		int bestScore = mvvLva(moves.get(i));
+		for (int j = i + 1; j < moves.size(); j++) {
+			int score = mvvLva(moves.get(j));
+			if (score > bestScore) {
+				best = j;
+				bestScore = score;
+			}
+		}
+		moves.swap(i, best);
+		return moves.get(i);
+	}
+}
@@ -0,0 +1,276 @@
+package org.rjo.chess.eval;
+
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
+import org.rjo.chess.position.Position;
+
+/**
+ * Returns the moves of a position one at a time, in stages, so that work is only done if no cut-off has occurred
+ * before:
+ * <ol>
+ * <li>the hash move (from the transposition table), if it is pseudo-legal in this position;</li>
+ * <li>captures and promotions which don't lose material (see {@link Position#staticExchangeEvaluation(int)}), by
+ * MVV-LVA;</li>
+ * <li>the killer moves of this ply, if they are pseudo-legal in this position;</li>
+ * <li>the remaining quiet moves, by countermove and history value (see {@link MoveOrdering});</li>
+ * <li>the captures which lose material.</li>
+ * </ol>
+ * Most nodes are cut nodes, where the hash move or a capture causes a cut-off: then the quiet moves are never
+ * generated. The moves are pseudo-legal, i.e. must be checked with {@link Position#isLegal(int)} before being played.
+ * <p>
+ * One instance per ply is intended to be reused for all nodes at that ply. Not thread-safe.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+class MovePicker {
+
+	// scores returned by score(), for the moves which are not scored by MoveOrdering.quietMoveScore
+	static final int HASH_MOVE_SCORE = 1 << 30;
+	static final int GOOD_CAPTURE_SCORE = 1 << 29;
+	static final int LOSING_CAPTURE_SCORE = -(1 << 29);
+
+	private enum Stage {
+		HASH_MOVE, GENERATE_CAPTURES, GOOD_CAPTURES, KILLERS, GENERATE_QUIETS, QUIETS, BAD_CAPTURES, DONE,
+		// without move ordering
+		GENERATE_ALL, ALL;
+	}
+
+	private final MoveOrdering moveOrdering;
+
+	// the score arrays grow with the move lists, see scoreArray
+	private final MoveList captures = new MoveList();
+	private int[] captureScores = new int[MoveList.DEFAULT_CAPACITY];
+	private final MoveList quiets = new MoveList();
+	private int[] quietScores = new int[MoveList.DEFAULT_CAPACITY];
+	/** the losing captures are stored here, during the GOOD_CAPTURES stage */
+	private final MoveList badCaptures = new MoveList();
+
+	private Position posn;
+	private int hashMove;
+	private int ply;
+	private int counterMove;
+	private final int[] killers = new int[2];
+
+	private Stage stage;
+	/** index into the list of the current stage */
+	private int index;
+	/** score of the last returned move */
+	private int score;
+
+	/**
+	 * @param moveOrdering the heuristics of the search
+	 */
+	MovePicker(MoveOrdering moveOrdering) {
+		this.moveOrdering = moveOrdering;
+	}
+
+	/**
+	 * Creates one move picker per ply.
+	 *
+	 * @param moveOrdering the heuristics of the search
+	 * @param maxPly maximum number of plies
+	 * @return array of <code>maxPly</code> move pickers
+	 */
+	static MovePicker[] createPerPly(MoveOrdering moveOrdering,
+			int maxPly) {
+		MovePicker[] pickers = new MovePicker[maxPly];
+		for (int i = 0; i < maxPly; i++) {
+			pickers[i] = new MovePicker(moveOrdering);
+		}
+		return pickers;
+	}
+
+	/**
+	 * Prepares the picker for a new node.
+	 *
+	 * @param posn the position; must not be changed (apart from make/unmake) while moves are being picked
+	 * @param hashMove the best move from the transposition table, or PackedMove.NONE
+	 * @param ply distance from the root
+	 * @param previousMove the opponent's previous move, or PackedMove.NONE at the root
+	 */
+	void init(Position posn,
+			int hashMove,
+			int ply,
+			int previousMove) {
+		this.posn = posn;
+		this.hashMove = PackedMove.withoutCheck(hashMove);
+		this.ply = ply;
+		this.counterMove = moveOrdering.counterMove(previousMove);
+		this.killers[0] = moveOrdering.killer(ply, 0);
+		this.killers[1] = moveOrdering.killer(ply, 1);
+		this.stage = Stage.HASH_MOVE;
+		this.index = 0;
+	}
+
+	/**
+	 * Prepares the picker for a new node, without move ordering: all moves are returned in the order in which they were
+	 * generated (mainly for tests).
+	 *
+	 * @param posn the position
+	 */
+	void initUnordered(Position posn) {
+		this.posn = posn;
+		this.stage = Stage.GENERATE_ALL;
+		this.score = 0;
+	}
+
+	/**
+	 * @return the next move, or PackedMove.NONE if there are no more moves
+	 */
+	int next() {
+		while (true) {
+			switch (stage) {
+			case HASH_MOVE:
+				stage = Stage.GENERATE_CAPTURES;
+				if (hashMove != PackedMove.NONE && posn.isPseudoLegal(hashMove)) {
+					score = HASH_MOVE_SCORE;
+					return hashMove;
+				}
+				break;
+			case GENERATE_CAPTURES:
+				posn.findPseudoLegalCaptures(posn.getSideToMove(), captures);
+				badCaptures.clear();
+				captureScores = scoreArray(captureScores, captures.size());
+				for (int i = 0; i < captures.size(); i++) {
+					captureScores[i] = MoveOrdering.mvvLva(captures.get(i));
+				}
+				index = 0;
+				stage = Stage.GOOD_CAPTURES;
+				break;
+			case GOOD_CAPTURES:
+				while (index < captures.size()) {
+					int move = pickBest(captures, captureScores, index++);
+					if (isHashMove(move)) {
+						continue;
+					}
+					if (posn.staticExchangeEvaluation(move) < 0) {
+						badCaptures.add(move);
+						continue;
+					}
+					score = GOOD_CAPTURE_SCORE + MoveOrdering.mvvLva(move);
+					return move;
+				}
+				index = 0;
+				stage = Stage.KILLERS;
+				break;
+			case KILLERS:
+				while (index < killers.length) {
+					int killer = killers[index++];
+					if (killer != PackedMove.NONE && !isHashMove(killer) && posn.isPseudoLegal(killer)) {
+						score = MoveOrdering.KILLER_SCORE + killers.length - index;
+						return killer;
+					}
+				}
+				stage = Stage.GENERATE_QUIETS;
+				break;
+			case GENERATE_QUIETS:
+				generateQuiets();
+				index = 0;
+				stage = Stage.QUIETS;
+				break;
+			case QUIETS:
+				if (index < quiets.size()) {
+					int move = pickBest(quiets, quietScores, index);
+					score = quietScores[index++];
+					return move;
+				}
+				index = 0;
+				stage = Stage.BAD_CAPTURES;
+				break;
+			case BAD_CAPTURES:
+				if (index < badCaptures.size()) {
+					int move = badCaptures.get(index++);
+					score = LOSING_CAPTURE_SCORE + MoveOrdering.mvvLva(move);
+					return move;
+				}
+				stage = Stage.DONE;
+				break;
+			case DONE:
+				return PackedMove.NONE;
+			case GENERATE_ALL:
+				posn.findPseudoLegalMoves(posn.getSideToMove(), quiets);
+				index = 0;
+				stage = Stage.ALL;
+				break;
+			case ALL:
+				if (index < quiets.size()) {
+					return quiets.get(index++);
+				}
+				stage = Stage.DONE;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * The move ordering score of the move last returned by {@link #next()}: {@link #HASH_MOVE_SCORE} for the hash move,
+	 * around {@link #GOOD_CAPTURE_SCORE} or {@link #LOSING_CAPTURE_SCORE} for captures, otherwise as per
+	 * {@link MoveOrdering#quietMoveScore(int, int, int)}.
+	 *
+	 * @return the score
+	 */
+	int score() {
+		return score;
+	}
+
+	/**
+	 * Generates the quiet moves, i.e. all moves apart from captures and promotions (see
+	 * {@link Position#findPseudoLegalQuietMoves(org.rjo.chess.base.Colour, MoveList)}), without the hash move and the
+	 * killer moves, which have already been returned.
+	 */
+	private void generateQuiets() {
+		posn.findPseudoLegalQuietMoves(posn.getSideToMove(), quiets);
+		quietScores = scoreArray(quietScores, quiets.size());
+		int size = 0;
+		for (int i = 0; i < quiets.size(); i++) {
+			int move = quiets.get(i);
+			int moveWithoutCheck = PackedMove.withoutCheck(move);
+			if (moveWithoutCheck == hashMove || moveWithoutCheck == killers[0] || moveWithoutCheck == killers[1]) {
+				continue;
+			}
+			quiets.set(size, move);
+			quietScores[size] = moveOrdering.quietMoveScore(move, ply, counterMove);
+			size++;
+		}
+		quiets.truncate(size);
+	}
+
+	/**
+	 * The move lists grow if necessary (see {@link MoveList#add(int)}), so the score arrays must as well.
+	 *
+	 * @return <code>scores</code>, or a new array if it is too small for <code>size</code> moves
+	 */
+	private static int[] scoreArray(int[] scores,
+			int size) {
+		return size <= scores.length ? scores : new int[Math.max(size, scores.length * 2)];
+	}
+
+	private boolean isHashMove(int move) {
+		return PackedMove.withoutCheck(move) == hashMove;
+	}
+
+	/**
+	 * Selection sort, one step at a time: moves the move with the highest score from index <code>i</code> onwards to index
+	 * <code>i</code>. Since a cut-off often occurs after the first few moves, this is cheaper than sorting all moves.
+	 *
+	 * @return the move now at index <code>i</code>
+	 */
+	private static int pickBest(MoveList moves,
+			int[] scores,
+			int i) {
+		int best = i;
+		for (int j = i + 1; j < moves.size(); j++) {
+			if (scores[j] > scores[best]) {
+				best = j;
+			}
+		}
+		if (best != i) {
+			moves.swap(i, best);
+			int tmp = scores[i];
+			scores[i] = scores[best];
+			scores[best] = tmp;
+		}
+		return moves.get(i);
+	}
+}
@@ -3,6 +3,8 @@ package org.rjo.chess.eval;
 import java.util.List;
 
 import org.rjo.chess.base.Move;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
 import org.rjo.chess.base.eval.MoveInfo;
 import org.rjo.chess.position.Position;
 
@@ -29,11 +31,15 @@ public class Negamax implements SearchStrategy {
 		int max = MIN_INT;
 		MoveInfo moveInfo = new MoveInfo();
 		long overallStartTime = System.currentTimeMillis();
+		// the moves are made and unmade in place on a copy of the position
+		Position searchPosn = posn.mutableCopy();
+		MoveList[] moveLists = MoveList.createPerPly(Math.max(depth, 1));
 		List<Move> moves = posn.findMoves(posn.getSideToMove());
 		for (Move move : moves) {
 			long startTime = System.currentTimeMillis();
-			Position posnAfterMove = posn.move(move);
-			int score = -negaMax(depth - 1, posnAfterMove);
+			searchPosn.makeMove(PackedMove.fromMove(move));
+			int score = -negaMax(depth - 1, searchPosn, moveLists);
+			searchPosn.unmakeMove();
 			// System.out.println(Fen.encode(game) + ", score=" + score +
 			// ",depth=" + depth + ",max=" + max);
 			if (score > max) {
@@ -49,17 +55,26 @@ public class Negamax implements SearchStrategy {
 		return moveInfo;
 	}
 
+	/**
+	 * @param depth remaining depth
+	 * @param posn the position. Mutable, moves are made and unmade in place.
+	 * @param moveLists a preallocated move list for each ply. moveLists[depth-1] is used at this level.
+	 * @return the score
+	 */
 	private int negaMax(int depth,
-			Position posn) {
+			Position posn,
+			MoveList[] moveLists) {
 		if (depth == 0) {
 			nbrNodesEvaluated++;
 			return posn.evaluate();
 		}
 		int max = MIN_INT;
-		List<Move> moves = posn.findMoves(posn.getSideToMove());
-		for (Move move : moves) {
-			Position posnAfterMove = posn.move(move);
-			int score = -negaMax(depth - 1, posnAfterMove);
+		MoveList moves = moveLists[depth - 1];
+		posn.findMoves(posn.getSideToMove(), moves);
+		for (int i = 0; i < moves.size(); i++) {
+			posn.makeMove(moves.get(i));
+			int score = -negaMax(depth - 1, posn, moveLists);
+			posn.unmakeMove();
 			// System.out
 			// .println(game.getSideToMove() + ": " + move + ", score=" + score
 			// + ",depth=" + depth + ",max=" + max);
@@ -0,0 +1,717 @@
+package org.rjo.chess.eval;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.rjo.chess.base.Colour;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
+import org.rjo.chess.base.eval.Line;
+import org.rjo.chess.base.eval.MoveInfo;
+import org.rjo.chess.position.EvaluationCache;
+import org.rjo.chess.position.Position;
+import org.rjo.chess.position.TranspositionTable;
+import org.rjo.chess.position.TranspositionTable.BoundType;
+
+/**
+ * Principal variation search in negamax form: the scores are always from the point of view of the side to move, so
+ * that there is only one code path for both sides. The first move at each node is searched with the full window; all
+ * other moves are first searched with a null window (a 'scout' search) to prove that they are no better, and only
+ * re-searched with the full window if this fails. See https://www.chessprogramming.org/Principal_Variation_Search.
+ * <p>
+ * Uses iterative deepening with aspiration windows, a transposition table, a quiescence search, and the move ordering
+ * heuristics in {@link MoveOrdering}. The principal variation is collected in a triangular array; moves are handled
+ * throughout as ints (see {@link PackedMove}).
+ * <p>
+ * Selectivity (both can be switched off):
+ * <ul>
+ * <li>null move pruning: if the side to move could pass and still reach beta, the node is pruned. In endgames with
+ * little material (zugzwang is likely) the cut-off must be verified by a reduced search without null move. See
+ * https://www.chessprogramming.org/Null_Move_Pruning.</li>
+ * <li>late move reductions: quiet moves late in the move ordering are searched with reduced depth, and re-searched to
+ * the full depth if they unexpectedly beat alpha. See https://www.chessprogramming.org/Late_Move_Reductions.</li>
+ * </ul>
+ * Close to the leaves, the cheap material and piece-square score ({@link Position#materialScore()}) is used for
+ * frontier pruning: reverse futility pruning, razoring, and futility pruning of quiet moves. See
+ * https://www.chessprogramming.org/Futility_Pruning and https://www.chessprogramming.org/Razoring. The same score
+ * avoids the full evaluation in the quiescence search if it is clearly outside the window ('lazy evaluation'). Full
+ * evaluations are cached in an {@link EvaluationCache}; a second, smaller, instance of which is used (per search
+ * thread) as the pawn hash table, see {@link Position#getPawnHash()}.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public class PrincipalVariationSearch implements SearchStrategy {
+	private static final Logger LOG = LogManager.getLogger(PrincipalVariationSearch.class);
+
+	/** larger than any score */
+	static final int INFINITY = 99999;
+	/** score for being mated at the root; a mate n plies from the root scores <code>MATE - n</code> */
+	static final int MATE = INFINITY - 1;
+
+	/** maximum distance from the root, including the quiescence search */
+	private static final int MAX_PLY = 128;
+	/** initial width of the aspiration window (centipawns) */
+	private static final int ASPIRATION_WINDOW = 50;
+	/** aspiration windows are used from this iteration depth onwards */
+	private static final int ASPIRATION_MIN_DEPTH = 3;
+	/** once the window has been widened to this size, a full window is used */
+	private static final int ASPIRATION_MAX_WINDOW = 1000;
+	/** assumed branching factor if it can't be measured yet */
+	private static final double DEFAULT_BRANCHING_FACTOR = 5.0;
+	/** the clock is checked every (TIME_CHECK_INTERVAL+1) nodes */
+	private static final int TIME_CHECK_INTERVAL = 255;
+	/** safety margin for delta pruning in the quiescence search (centipawns) */
+	private static final int DELTA_MARGIN = 200;
+
+	/** null move pruning is only tried with at least this remaining depth */
+	private static final int NULL_MOVE_MIN_DEPTH = 3;
+	/** depth reduction for the null move search, one more for remaining depths above NULL_MOVE_DEEP_DEPTH */
+	private static final int NULL_MOVE_REDUCTION = 2;
+	private static final int NULL_MOVE_DEEP_DEPTH = 6;
+	/** a null move cut-off is verified if the side to move has at most this much non-pawn material */
+	private static final int NULL_MOVE_VERIFICATION_MATERIAL = 500;
+
+	/** late move reductions are only applied with at least this remaining depth */
+	private static final int LMR_MIN_DEPTH = 3;
+	/**
+	 * the first (legal, searched) moves are never reduced; moves from twice this index are reduced by an extra ply
+	 */
+	private static final int LMR_MIN_MOVE_INDEX = 3;
+	/** quiet moves with at least this history value are reduced by one ply less */
+	private static final int LMR_HISTORY_THRESHOLD = 512;
+
+	/** reverse futility pruning up to this remaining depth; the margin is per ply */
+	private static final int REVERSE_FUTILITY_MAX_DEPTH = 3;
+	private static final int REVERSE_FUTILITY_MARGIN = 120;
+	/** futility pruning and razoring up to this remaining depth; the margins are per ply */
+	private static final int FUTILITY_MAX_DEPTH = 2;
+	private static final int FUTILITY_MARGIN = 200;
+	private static final int RAZOR_MARGIN = 300;
+	/** the full evaluation differs from the material score by less than this (in practice) */
+	private static final int LAZY_EVAL_MARGIN = 150;
+
+	private final PrintStream outputStream;
+	private final TranspositionTable transpositionTable;
+	private final EvaluationCache evaluationCache;
+	/** caches the pawn structure scores, not shared between threads */
+	private final EvaluationCache pawnHashTable = new EvaluationCache(1);
+
+	/** maximum depth of the iterative deepening */
+	private int maxDepth = 4;
+
+	private TimeManager timeManager = TimeManager.unlimited();
+
+	/** set to abandon the current search, see {@link #stop()}. Shared by the searchers of a {@link LazySmp} */
+	private final AtomicBoolean stopped;
+
+	private boolean nullMovePruning = true;
+	private boolean lateMoveReductions = true;
+	private boolean frontierPruning = true;
+
+	private int nbrNodesSearched;
+	private int nbrPosnsEvaluated;
+	/** counted here and not in the evaluation cache, which is shared between threads */
+	private int nbrEvaluationCacheHits;
+	// statistics for the selectivity
+	private int nbrNullMoveCutoffs;
+	private int nbrNullMoveVerifications;
+	private int nbrReducedMoves;
+	private int nbrReSearches;
+	private int nbrReverseFutilityCutoffs;
+	private int nbrRazorCutoffs;
+	private int nbrFutilityPrunes;
+	private int nbrLazyEvaluations;
+
+	/** one list of moves per ply for the quiescence search */
+	private final MoveList[] moveLists = MoveList.createPerPly(MAX_PLY);
+
+	/** triangular array: pv[ply] stores the principal variation from <code>ply</code> onwards */
+	private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+	private final int[] pvLength = new int[MAX_PLY];
+
+	/** the move made at each ply of the current line */
+	private final int[] moveAtPly = new int[MAX_PLY];
+
+	private final MoveOrdering moveOrdering = new MoveOrdering(MAX_PLY);
+	/** move ordering: hash move, captures which don't lose material, killers, quiet moves, losing captures */
+	private final MovePicker[] movePickers = MovePicker.createPerPly(moveOrdering, MAX_PLY);
+
+	/** principal variation and score of the last completed iteration */
+	private int[] principalVariation = new int[0];
+	private int score;
+
+	/** constructor for tests: uses a new transposition table and evaluation cache */
+	public PrincipalVariationSearch(PrintStream out) {
+		this(out, new TranspositionTable(), new EvaluationCache());
+	}
+
+	/**
+	 * @param out output stream for the UCI output
+	 * @param transpositionTable the transposition table
+	 * @param evaluationCache the evaluation cache. Both can be shared with other searches running in parallel.
+	 */
+	public PrincipalVariationSearch(PrintStream out, TranspositionTable transpositionTable,
+			EvaluationCache evaluationCache) {
+		this(out, transpositionTable, evaluationCache, new AtomicBoolean());
+	}
+
+	/**
+	 * @param out output stream for the UCI output
+	 * @param transpositionTable the transposition table
+	 * @param evaluationCache the evaluation cache
+	 * @param stopped the stop flag. Searches sharing the flag are all stopped together.
+	 */
+	PrincipalVariationSearch(PrintStream out, TranspositionTable transpositionTable, EvaluationCache evaluationCache,
+			AtomicBoolean stopped) {
+		this.outputStream = out;
+		this.transpositionTable = transpositionTable;
+		this.evaluationCache = evaluationCache;
+		this.stopped = stopped;
+	}
+
+	@Override
+	public MoveInfo findMove(Position posn) {
+		transpositionTable.newSearch();
+		prepare();
+		search(posn);
+		MoveInfo moveInfo = new MoveInfo();
+		// the search does not store whether a move gives check
+		int bestMove = principalVariation[0];
+		moveInfo.setMove(PackedMove.toMove(PackedMove.withCheckStatus(bestMove, posn.givesCheck(bestMove))));
+		moveInfo.setLine(getLine());
+		return moveInfo;
+	}
+
+	/**
+	 * Resets the stop flag. Must be called before {@link #search(Position)}, and before any other thread can call
+	 * {@link #stop()} for this search: otherwise the stop could be lost.
+	 */
+	void prepare() {
+		stopped.set(false);
+	}
+
+	/**
+	 * Searches the given position using iterative deepening, up to the maximum depth or until the time manager decides to
+	 * stop. {@link #prepare()} must have been called beforehand. Unlike {@link #findMove(Position)}, the transposition
+	 * table is not informed of a new search, which allows several instances to search in parallel sharing the table (see
+	 * {@link LazySmp}).
+	 * <p>
+	 * The first iteration is always completed when the time runs out, to have a move to play. A stop from outside (see
+	 * {@link #stop()}) is honoured immediately.
+	 *
+	 * @param posn the position
+	 * @return the best move (see {@link PackedMove}) of the last completed iteration, or PackedMove.NONE if there are no
+	 *         legal moves or the search was stopped from outside before the first iteration was completed.
+	 */
+	int search(Position posn) {
+		nbrNodesSearched = 0;
+		nbrPosnsEvaluated = 0;
+		nbrEvaluationCacheHits = 0;
+		nbrNullMoveCutoffs = 0;
+		nbrNullMoveVerifications = 0;
+		nbrReducedMoves = 0;
+		nbrReSearches = 0;
+		nbrReverseFutilityCutoffs = 0;
+		nbrRazorCutoffs = 0;
+		nbrFutilityPrunes = 0;
+		nbrLazyEvaluations = 0;
+		principalVariation = new int[0];
+		score = 0;
+		moveOrdering.newSearch();
+		timeManager.start();
+		// the moves are made and unmade in place on a copy of the position
+		Position searchPosn = posn.mutableCopy();
+
+		// leave room for the quiescence search
+		final int depthLimit = Math.min(maxDepth, MAX_PLY / 2);
+		int nodesInLastIteration = 0;
+		for (int depth = 1; depth <= depthLimit && !stopped.get(); depth++) {
+			long iterationStart = System.currentTimeMillis();
+			int nodesAtStart = nbrNodesSearched;
+			int iterationScore = aspirationSearch(searchPosn, depth);
+			if (stopped.get()) {
+				// use the result of the last completed iteration
+				break;
+			}
+			score = iterationScore;
+			principalVariation = Arrays.copyOf(pv[0], pvLength[0]);
+			long iterationTime = System.currentTimeMillis() - iterationStart;
+			int nodesInIteration = nbrNodesSearched - nodesAtStart;
+			printUCI(depth, timeManager.elapsed());
+			LOG.info("depth {}: {} nodes, {} posns, time: {}ms, score {}, pv {}", depth, nodesInIteration, nbrPosnsEvaluated,
+					iterationTime, score, getLine());
+			LOG.info("null move cut-offs {} (verified {}), reduced moves {} (re-searched {})", nbrNullMoveCutoffs,
+					nbrNullMoveVerifications, nbrReducedMoves, nbrReSearches);
+			LOG.info("reverse futility cut-offs {}, razoring cut-offs {}, futile moves {}, lazy evaluations {}",
+					nbrReverseFutilityCutoffs, nbrRazorCutoffs, nbrFutilityPrunes, nbrLazyEvaluations);
+			LOG.info("evaluation cache hits {} of {} probes", nbrEvaluationCacheHits,
+					nbrEvaluationCacheHits + nbrPosnsEvaluated);
+			if (stopped.get() || principalVariation.length == 0) {
+				break;
+			}
+			double branchingFactor = nodesInLastIteration == 0 ? DEFAULT_BRANCHING_FACTOR
+					: (1.0 * nodesInIteration) / nodesInLastIteration;
+			nodesInLastIteration = nodesInIteration;
+			if (depth < depthLimit && !timeManager.canStartIteration(iterationTime, branchingFactor)) {
+				LOG.info("not enough time for depth {}: elapsed {}ms, last iteration {}ms", depth + 1, timeManager.elapsed(),
+						iterationTime);
+				break;
+			}
+		}
+		return principalVariation.length == 0 ? PackedMove.NONE : principalVariation[0];
+	}
+
+	/**
+	 * Searches the root position to the given depth. From {@link #ASPIRATION_MIN_DEPTH} onwards, the search starts with a
+	 * narrow window around the previous iteration's score, which is widened on the failing side if necessary.
+	 */
+	private int aspirationSearch(Position posn,
+			int depth) {
+		int alpha = -INFINITY;
+		int beta = INFINITY;
+		int window = ASPIRATION_WINDOW;
+		if (depth >= ASPIRATION_MIN_DEPTH && !isMateScore(score)) {
+			alpha = Math.max(-INFINITY, score - window);
+			beta = Math.min(INFINITY, score + window);
+		}
+		while (true) {
+			int result = pvs(posn, depth, 0, alpha, beta, false);
+			if (stopped.get()) {
+				return result;
+			}
+			window *= 2;
+			if (result <= alpha && alpha > -INFINITY) {
+				LOG.debug("depth {}: fail low ({} <= {}), re-searching", depth, result, alpha);
+				alpha = window > ASPIRATION_MAX_WINDOW ? -INFINITY : Math.max(-INFINITY, result - window);
+			} else if (result >= beta && beta < INFINITY) {
+				LOG.debug("depth {}: fail high ({} >= {}), re-searching", depth, result, beta);
+				beta = window > ASPIRATION_MAX_WINDOW ? INFINITY : Math.min(INFINITY, result + window);
+			} else {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * The principal variation search.
+	 *
+	 * @param posn the position (mutable)
+	 * @param depth remaining depth
+	 * @param ply distance from the root
+	 * @param alpha lower bound
+	 * @param beta upper bound
+	 * @param nullMoveAllowed false directly after a null move, and for the verification search
+	 * @return the score from the point of view of the side to move (fail-soft, i.e. may lie outside [alpha,beta])
+	 */
+	private int pvs(Position posn,
+			int depth,
+			int ply,
+			int alpha,
+			int beta,
+			boolean nullMoveAllowed) {
+		pvLength[ply] = ply;
+		// the first iteration is always completed, to have a move to play
+		if (principalVariation.length > 0 && (nbrNodesSearched & TIME_CHECK_INTERVAL) == 0
+				&& timeManager.hardLimitReached()) {
+			stopped.set(true);
+		}
+		if (depth <= 0 || ply >= MAX_PLY - 1) {
+			return quiesce(posn, ply, alpha, beta);
+		}
+
+		final boolean pvNode = beta - alpha > 1;
+		int hashMove = PackedMove.NONE;
+		long entry = transpositionTable.probe(posn.getZobristHash());
+		if (entry != TranspositionTable.NO_ENTRY) {
+			hashMove = TranspositionTable.move(entry);
+			// no cut-offs at pv nodes, otherwise the principal variation would be truncated
+			if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+				int ttScore = TranspositionTable.score(entry, ply);
+				BoundType boundType = TranspositionTable.boundType(entry);
+				if (boundType == BoundType.EXACT || (boundType == BoundType.LOWER_BOUND && ttScore >= beta)
+						|| (boundType == BoundType.UPPER_BOUND && ttScore <= alpha)) {
+					return ttScore;
+				}
+			}
+		}
+		final boolean inCheck = posn.isInCheck();
+		final Colour sideToMove = posn.getSideToMove();
+
+		// frontier pruning, based on the material score
+		boolean futile = false;
+		int futilityScore = -INFINITY;
+		if (frontierPruning && !pvNode && !inCheck && depth <= REVERSE_FUTILITY_MAX_DEPTH && !isMateScore(alpha)
+				&& !isMateScore(beta)) {
+			int staticEval = materialScore(posn);
+			// reverse futility pruning: even after a margin, the position is still too good
+			if (staticEval - REVERSE_FUTILITY_MARGIN * depth >= beta) {
+				nbrReverseFutilityCutoffs++;
+				return staticEval - REVERSE_FUTILITY_MARGIN * depth;
+			}
+			if (depth <= FUTILITY_MAX_DEPTH) {
+				// razoring: hopeless position, unless the quiescence search finds something
+				if (staticEval + RAZOR_MARGIN * depth < alpha) {
+					int razorScore = quiesce(posn, ply, alpha, alpha + 1);
+					if (stopped.get()) {
+						return 0;
+					}
+					if (razorScore <= alpha) {
+						nbrRazorCutoffs++;
+						return razorScore;
+					}
+				}
+				// futility pruning: quiet moves will not reach alpha
+				futilityScore = staticEval + FUTILITY_MARGIN * depth;
+				futile = futilityScore <= alpha;
+			}
+		}
+
+		// null move pruning: the side to move passes; if the reduced search still reaches beta, the node is pruned
+		if (nullMovePruning && nullMoveAllowed && !pvNode && !inCheck && depth >= NULL_MOVE_MIN_DEPTH && !isMateScore(beta)
+				&& posn.nonPawnMaterial(sideToMove) > 0) {
+			int reducedDepth = depth - 1 - (depth > NULL_MOVE_DEEP_DEPTH ? NULL_MOVE_REDUCTION + 1 : NULL_MOVE_REDUCTION);
+			posn.makeNullMove();
+			moveAtPly[ply] = PackedMove.NONE;
+			nbrNodesSearched++;
+			int nullScore = -pvs(posn, reducedDepth, ply + 1, -beta, -beta + 1, false);
+			posn.unmakeNullMove();
+			if (stopped.get()) {
+				return 0;
+			}
+			if (nullScore >= beta) {
+				boolean cutoff = true;
+				if (posn.nonPawnMaterial(sideToMove) <= NULL_MOVE_VERIFICATION_MATERIAL) {
+					// zugzwang is likely: verify with a search of the same depth, without null move
+					nbrNullMoveVerifications++;
+					cutoff = pvs(posn, reducedDepth, ply, beta - 1, beta, false) >= beta;
+					if (stopped.get()) {
+						return 0;
+					}
+				}
+				if (cutoff) {
+					nbrNullMoveCutoffs++;
+					// a mate score would be unproven
+					return isMateScore(nullScore) ? beta : nullScore;
+				}
+			}
+		}
+
+		if (ply == 0 && principalVariation.length > 0) {
+			// the best move of the previous iteration is searched first
+			hashMove = principalVariation[0];
+		}
+
+		final int originalAlpha = alpha;
+		final int previousMove = ply > 0 ? moveAtPly[ply - 1] : PackedMove.NONE;
+		// pseudo-legal moves, generated in stages: legality is only checked for the moves which are actually searched
+		final MovePicker movePicker = movePickers[ply];
+		movePicker.init(posn, hashMove, ply, previousMove);
+		int bestScore = -INFINITY;
+		int bestMove = PackedMove.NONE;
+		int nbrLegalMoves = 0;
+		// legal moves which have been searched, i.e. not counting illegal or futile moves
+		int movesSearched = 0;
+		for (int move = movePicker.next(); move != PackedMove.NONE; move = movePicker.next()) {
+			if (!posn.isLegal(move)) {
+				continue;
+			}
+			nbrLegalMoves++;
+			if (futile && nbrLegalMoves > 1 && !PackedMove.isCapture(move) && !PackedMove.isPromotion(move)) {
+				// stored in the move, so that makeMove need not calculate it again
+				move = PackedMove.withCheckStatus(move, posn.givesCheck(move));
+				if (!PackedMove.isCheck(move)) {
+					nbrFutilityPrunes++;
+					bestScore = Math.max(bestScore, futilityScore);
+					continue;
+				}
+			}
+			posn.makeMove(move);
+			moveAtPly[ply] = move;
+			nbrNodesSearched++;
+			int score;
+			if (nbrLegalMoves == 1) {
+				score = -pvs(posn, depth - 1, ply + 1, -beta, -alpha, true);
+			} else {
+				int reduction = 0;
+				if (lateMoveReductions && depth >= LMR_MIN_DEPTH && movesSearched >= LMR_MIN_MOVE_INDEX && !inCheck
+						&& !PackedMove.isCapture(move) && !PackedMove.isPromotion(move) && !posn.isInCheck()
+						&& movePicker.score() < MoveOrdering.COUNTERMOVE_SCORE) {
+					reduction = lateMoveReduction(depth, movesSearched, movePicker.score());
+				}
+				// scout search with a null window (reduced for late moves); re-search if the move turns out to be better
+				score = -pvs(posn, depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+				if (reduction > 0) {
+					nbrReducedMoves++;
+					if (score > alpha) {
+						nbrReSearches++;
+						score = -pvs(posn, depth - 1, ply + 1, -alpha - 1, -alpha, true);
+					}
+				}
+				if (score > alpha && score < beta) {
+					score = -pvs(posn, depth - 1, ply + 1, -beta, -alpha, true);
+				}
+			}
+			posn.unmakeMove();
+			movesSearched++;
+			if (stopped.get()) {
+				return 0;
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					updatePv(ply, move);
+					if (alpha >= beta) {
+						moveOrdering.cutoff(move, previousMove, ply, depth);
+						break;
+					}
+				}
+			}
+		}
+		if (nbrLegalMoves == 0) {
+			// checkmate or stalemate
+			return inCheck ? -(MATE - ply) : 0;
+		}
+
+		BoundType boundType = bestScore >= beta ? BoundType.LOWER_BOUND
+				: bestScore > originalAlpha ? BoundType.EXACT : BoundType.UPPER_BOUND;
+		transpositionTable.store(posn.getZobristHash(), boundType == BoundType.UPPER_BOUND ? PackedMove.NONE : bestMove,
+				bestScore, depth, boundType, ply);
+		return bestScore;
+	}
+
+	/**
+	 * Quiescence search: only captures and promotions are searched (all moves if in check), with stand pat, delta pruning
+	 * and SEE pruning. See {@link AlphaBeta3} for details.
+	 */
+	private int quiesce(Position posn,
+			int ply,
+			int alpha,
+			int beta) {
+		pvLength[ply] = ply;
+		if (ply >= MAX_PLY - 1) {
+			return evaluate(posn);
+		}
+		final boolean inCheck = posn.isInCheck();
+		final MoveList moves = moveLists[ply];
+		int bestScore;
+		int standPat = 0;
+		if (inCheck) {
+			posn.findMoves(posn.getSideToMove(), moves);
+			if (moves.isEmpty()) {
+				return -(MATE - ply);
+			}
+			bestScore = -INFINITY;
+		} else {
+			standPat = lazyEvaluate(posn, alpha, beta);
+			if (standPat >= beta) {
+				return standPat;
+			}
+			alpha = Math.max(alpha, standPat);
+			bestScore = standPat;
+			posn.findPseudoLegalCaptures(posn.getSideToMove(), moves);
+		}
+
+		for (int i = 0; i < moves.size(); i++) {
+			if (stopped.get()) {
+				break;
+			}
+			int move = MoveOrdering.pickBestCapture(moves, i);
+			if (!inCheck && !PackedMove.isPromotion(move)) {
+				// delta pruning: even winning the captured piece would not be enough
+				if (standPat + Position.pieceValue(PackedMove.capturedPiece(move)) + DELTA_MARGIN <= alpha) {
+					continue;
+				}
+				// losing captures are not searched
+				if (posn.staticExchangeEvaluation(move) < 0) {
+					continue;
+				}
+			}
+			// only required for the pseudo-legal captures, the evasions are legal
+			if (!inCheck && !posn.isLegal(move)) {
+				continue;
+			}
+			posn.makeMove(move);
+			nbrNodesSearched++;
+			int score = -quiesce(posn, ply + 1, -beta, -alpha);
+			posn.unmakeMove();
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		return bestScore;
+	}
+
+	/** static evaluation from the point of view of the side to move; uses the evaluation cache and pawn hash table */
+	private int evaluate(Position posn) {
+		int eval = evaluationCache.probe(posn.getZobristHash());
+		if (eval == EvaluationCache.NO_SCORE) {
+			nbrPosnsEvaluated++;
+			eval = posn.evaluate(pawnHashTable);
+			evaluationCache.store(posn.getZobristHash(), eval);
+		} else {
+			nbrEvaluationCacheHits++;
+		}
+		return posn.getSideToMove() == Colour.WHITE ? eval : -eval;
+	}
+
+	/** material score (see {@link Position#materialScore()}) from the point of view of the side to move */
+	private static int materialScore(Position posn) {
+		int materialScore = posn.materialScore();
+		return posn.getSideToMove() == Colour.WHITE ? materialScore : -materialScore;
+	}
+
+	/**
+	 * Static evaluation, which is only carried out in full if the material score is within a margin of the window.
+	 *
+	 * @return the material score if it is clearly outside the window, otherwise the full evaluation. From the point of
+	 *         view of the side to move.
+	 */
+	private int lazyEvaluate(Position posn,
+			int alpha,
+			int beta) {
+		int materialScore = materialScore(posn);
+		if (materialScore - LAZY_EVAL_MARGIN >= beta || materialScore + LAZY_EVAL_MARGIN <= alpha) {
+			nbrLazyEvaluations++;
+			return materialScore;
+		}
+		return evaluate(posn);
+	}
+
+	/**
+	 * The depth reduction for a quiet move which is not a killer move or the countermove.
+	 *
+	 * @param depth remaining depth
+	 * @param moveIndex number of legal moves already searched at this node
+	 * @param historyScore the move's history value
+	 * @return the reduction, at least 0; the reduced depth is at least 1
+	 */
+	private static int lateMoveReduction(int depth,
+			int moveIndex,
+			int historyScore) {
+		int reduction = moveIndex >= 2 * LMR_MIN_MOVE_INDEX ? 2 : 1;
+		if (historyScore >= LMR_HISTORY_THRESHOLD) {
+			reduction--;
+		}
+		return Math.min(reduction, depth - 2);
+	}
+
+	/** the principal variation at <code>ply</code> is <code>move</code> followed by the principal variation at ply+1 */
+	private void updatePv(int ply,
+			int move) {
+		pv[ply][ply] = move;
+		System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - (ply + 1));
+		pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+	}
+
+	private static boolean isMateScore(int score) {
+		return Math.abs(score) >= TranspositionTable.MATE_SCORE_THRESHOLD;
+	}
+
+	private void printUCI(int depth,
+			long timeMs) {
+		StringBuilder sb = new StringBuilder(100);
+		sb.append("info depth ").append(depth).append(" score ");
+		if (isMateScore(score)) {
+			// mate in x moves, not plies; negative if we're being mated
+			int plies = MATE - Math.abs(score);
+			sb.append("mate ").append(score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+		} else {
+			sb.append("cp ").append(score);
+		}
+		sb.append(" nodes ").append(nbrNodesSearched).append(" time ").append(timeMs).append(" pv");
+		for (int move : principalVariation) {
+			sb.append(' ').append(PackedMove.toMove(move).toUCIString());
+		}
+		outputStream.println(sb.toString());
+	}
+
+	/**
+	 * @return the principal variation of the last completed iteration
+	 */
+	Line getLine() {
+		Line line = new Line();
+		for (int move : principalVariation) {
+			line.addMove(PackedMove.toMove(move), principalVariation.length);
+		}
+		return line;
+	}
+
+	/**
+	 * @return the score of the last completed iteration, from the point of view of the side to move
+	 */
+	int getScore() {
+		return score;
+	}
+
+	/**
+	 * Abandons the current search, and all other searches sharing the same stop flag.
+	 */
+	void stop() {
+		stopped.set(true);
+	}
+
+	@Override
+	public int getCurrentNbrNodesSearched() {
+		return nbrNodesSearched;
+	}
+
+	@Override
+	public int getCurrentDepth() {
+		return maxDepth;
+	}
+
+	@Override
+	public void incrementDepth(int increment) {
+		maxDepth += increment;
+	}
+
+	@Override
+	public void setTimeManager(TimeManager timeManager) {
+		this.timeManager = timeManager;
+	}
+
+	@Override
+	public void setNullMovePruning(boolean enabled) {
+		this.nullMovePruning = enabled;
+	}
+
+	@Override
+	public void setLateMoveReductions(boolean enabled) {
+		this.lateMoveReductions = enabled;
+	}
+
+	int getNbrNullMoveCutoffs() {
+		return nbrNullMoveCutoffs;
+	}
+
+	int getNbrReducedMoves() {
+		return nbrReducedMoves;
+	}
+
+	/**
+	 * Switches frontier pruning (reverse futility pruning, razoring, futility pruning) on or off.
+	 */
+	void setFrontierPruning(boolean enabled) {
+		this.frontierPruning = enabled;
+	}
+
+	int getNbrFrontierPrunes() {
+		return nbrReverseFutilityCutoffs + nbrRazorCutoffs + nbrFutilityPrunes;
+	}
+
+	int getNbrPosnsEvaluated() {
+		return nbrPosnsEvaluated;
+	}
+}
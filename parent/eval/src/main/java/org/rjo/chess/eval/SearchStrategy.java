@@ -11,6 +11,30 @@ public interface SearchStrategy {
 
 	void incrementDepth(int increment);
 
+	/**
+	 * Sets the time limits for the following searches. By default, the time is not limited (the search depth is).
+	 *
+	 * @param timeManager the time manager
+	 */
+	default void setTimeManager(@SuppressWarnings("unused") TimeManager timeManager) {
+	}
+
+	/**
+	 * Switches null move pruning on or off, if supported by the search.
+	 *
+	 * @param enabled true to enable null move pruning
+	 */
+	default void setNullMovePruning(@SuppressWarnings("unused") boolean enabled) {
+	}
+
+	/**
+	 * Switches late move reductions on or off, if supported by the search.
+	 *
+	 * @param enabled true to enable late move reductions
+	 */
+	default void setLateMoveReductions(@SuppressWarnings("unused") boolean enabled) {
+	}
+
 	/**
 	 * @return current number of nodes that have been searched
 	 */
@@ -0,0 +1,121 @@
+package org.rjo.chess.eval;
+
+/**
+ * Decides how long a search may take.
+ * <p>
+ * There are two budgets: the <b>soft</b> budget is the time we'd like to use for this move, the <b>hard</b> budget is
+ * never exceeded (apart from the time between two checks of the clock): the search is abandoned once it is reached.
+ * <p>
+ * A new iteration of the iterative deepening is only started if the soft budget has not been used up and the iteration
+ * is likely to finish within the hard budget. The estimate is the time taken by the last iteration multiplied by the
+ * measured effective branching factor.
+ *
+ * @author rich
+ * @since 2026-10-17
+ */
+public class TimeManager {
+
+	/** moves to go, if not specified in the time control */
+	static final int DEFAULT_MOVES_TO_GO = 30;
+
+	/** safety margin, to allow for communication overhead with the GUI */
+	static final long MOVE_OVERHEAD_MS = 50;
+
+	/** the hard budget is at most this multiple of the soft budget */
+	static final int HARD_LIMIT_FACTOR = 4;
+
+	private final long softLimitMs;
+	private final long hardLimitMs;
+
+	private long startTime;
+
+	private TimeManager(long softLimitMs, long hardLimitMs) {
+		this.softLimitMs = softLimitMs;
+		this.hardLimitMs = hardLimitMs;
+	}
+
+	/**
+	 * @return a time manager which never stops the search
+	 */
+	public static TimeManager unlimited() {
+		return new TimeManager(Long.MAX_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param moveTimeMs exact time for this move (uci: movetime)
+	 * @return a time manager for a fixed time per move
+	 */
+	public static TimeManager forMoveTime(long moveTimeMs) {
+		long limit = Math.max(1, moveTimeMs - MOVE_OVERHEAD_MS);
+		return new TimeManager(limit, limit);
+	}
+
+	/**
+	 * @param remainingMs time left on our clock
+	 * @param incrementMs increment per move
+	 * @param movesToGo number of moves to the next time control, or 0 if not known
+	 * @return a time manager for the given clock
+	 */
+	public static TimeManager forClock(long remainingMs,
+			long incrementMs,
+			int movesToGo) {
+		if (remainingMs < 0 || incrementMs < 0 || movesToGo < 0) {
+			throw new IllegalArgumentException(
+					"invalid clock: remaining " + remainingMs + ", increment " + incrementMs + ", movesToGo " + movesToGo);
+		}
+		long available = Math.max(1, remainingMs - MOVE_OVERHEAD_MS);
+		int moves = movesToGo == 0 ? DEFAULT_MOVES_TO_GO : movesToGo;
+		long soft = available / moves + (incrementMs * 3) / 4;
+		// never use more than a third of the remaining time for one move (or all of it, if this is the last move before the time control)
+		long hard = Math.min(soft * HARD_LIMIT_FACTOR, movesToGo == 1 ? available : available / 3);
+		hard = Math.max(1, hard);
+		return new TimeManager(Math.min(soft, hard), hard);
+	}
+
+	/**
+	 * Starts the clock for the current search.
+	 */
+	public void start() {
+		startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return time elapsed (in ms) since {@link #start()}
+	 */
+	public long elapsed() {
+		return System.currentTimeMillis() - startTime;
+	}
+
+	/**
+	 * @return true if the search must be stopped now
+	 */
+	public boolean hardLimitReached() {
+		return hardLimitMs != Long.MAX_VALUE && elapsed() >= hardLimitMs;
+	}
+
+	/**
+	 * Decides whether the next iteration should be started.
+	 *
+	 * @param lastIterationMs how long the last iteration took
+	 * @param branchingFactor the measured effective branching factor, i.e. the ratio of the number of nodes searched in
+	 *           the last two iterations
+	 * @return true if the next iteration should be started
+	 */
+	public boolean canStartIteration(long lastIterationMs,
+			double branchingFactor) {
+		if (softLimitMs == Long.MAX_VALUE) {
+			return true;
+		}
+		long elapsed = elapsed();
+		long predicted = (long) (lastIterationMs * branchingFactor);
+		return elapsed < softLimitMs && elapsed + predicted <= hardLimitMs;
+	}
+
+	long getSoftLimit() {
+		return softLimitMs;
+	}
+
+	long getHardLimit() {
+		return hardLimitMs;
+	}
+}
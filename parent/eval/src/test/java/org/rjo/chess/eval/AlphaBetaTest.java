@@ -1,6 +1,7 @@
 package org.rjo.chess.eval;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import org.junit.jupiter.api.Test;
 import org.rjo.chess.base.eval.MoveInfo;
@@ -15,7 +16,11 @@ public class AlphaBetaTest {
 		SearchStrategy strat = new AlphaBeta3(System.out);
 		strat.incrementDepth(2);
 		MoveInfo m = strat.findMove(game.getPosition());
-		assertEquals("Ke3-d3", m.getMove().toString());
+		// Ke3-d3 was previously returned due to hash hits being used regardless of the search window.
+		// A full search (without transposition table) also found Ke3-d2.
+		// Since the evaluation includes the pawn structure, advancing the passed f-pawn was preferred;
+		// with the tapered evaluation, centralising the king in this endgame is preferred.
+		assertEquals("Ke3-d4", m.getMove().toString());
 	}
 
 	@Test
@@ -25,7 +30,18 @@ public class AlphaBetaTest {
 		strat.incrementDepth(1);
 		// AlphaBeta3.ORDER_MOVES = false;
 		MoveInfo m = strat.findMove(game.getPosition());
-		assertEquals("Qd8-f6", m.getMove().toString());
+		// was Qd8-f6 before the quiescence search; Ng8-f6 is now preferred at every depth
+		assertEquals("Ng8-f6", m.getMove().toString());
+	}
+
+	@Test
+	public void quiescenceSearchAvoidsDefendedPawn() {
+		Game game = Fen.decode("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1");
+		SearchStrategy strat = new AlphaBeta3(System.out);
+		// depth 1: without the quiescence search, Qd1xd5 would look like it wins a pawn
+		strat.incrementDepth(-3);
+		MoveInfo m = strat.findMove(game.getPosition());
+		assertNotEquals("Qd1xd5", m.getMove().toString());
 	}
 
 	// mate in 1 Qc1-h6 posns evaluated:25191
@@ -0,0 +1,88 @@
+package org.rjo.chess.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.Colour;
+import org.rjo.chess.base.Move;
+import org.rjo.chess.base.eval.MoveInfo;
+import org.rjo.chess.position.EvaluationCache;
+import org.rjo.chess.position.Fen;
+import org.rjo.chess.position.Game;
+import org.rjo.chess.position.TranspositionTable;
+
+public class LazySmpTest {
+
+	private static final String MIDDLEGAME = "rnbqk1nr/pppp1ppp/8/3P4/8/2N5/PP1QPPPP/R3KBNR b KQkq - 2 7";
+
+	@Test
+	public void mateInOne() {
+		Game game = Fen.decode("4r1k1/3R2pp/2N3p1/2p5/6PK/r7/6P1/2q5 b - - 67 34");
+		SearchStrategy strat = new LazySmp(System.out, new TranspositionTable(), new EvaluationCache(), 4);
+		strat.incrementDepth(1);
+		assertEquals(5, strat.getCurrentDepth());
+		MoveInfo m = strat.findMove(game.getPosition());
+		assertEquals("Qc1-h6+", m.getMove().toString());
+	}
+
+	@Test
+	public void sameMoveAsSingleThreadedSearch() {
+		// with only one thread, the search is deterministic
+		Game game = Fen.decode(MIDDLEGAME);
+		PrincipalVariationSearch singleThreaded = new PrincipalVariationSearch(System.out);
+		singleThreaded.incrementDepth(1);
+		MoveInfo expected = singleThreaded.findMove(game.getPosition());
+		LazySmp strat = new LazySmp(System.out, new TranspositionTable(), new EvaluationCache(), 1);
+		strat.incrementDepth(1);
+		MoveInfo m = strat.findMove(game.getPosition());
+		assertEquals(expected.getMove().toString(), m.getMove().toString());
+		assertEquals(expected.getLine().toString(), m.getLine().toString());
+		assertEquals(singleThreaded.getScore(), strat.getScore());
+	}
+
+	@Test
+	public void legalMoveWithSeveralThreads() {
+		// which move is chosen depends on the helper threads: Ng8-f6 and d7-d6 are within a few centipawns
+		Game game = Fen.decode(MIDDLEGAME);
+		PrincipalVariationSearch singleThreaded = new PrincipalVariationSearch(System.out);
+		singleThreaded.incrementDepth(1);
+		singleThreaded.findMove(game.getPosition());
+		LazySmp strat = new LazySmp(System.out, new TranspositionTable(), new EvaluationCache(), 3);
+		strat.incrementDepth(1);
+		MoveInfo m = strat.findMove(game.getPosition());
+		List<String> legalMoves = game.getPosition().findMoves(Colour.BLACK).stream().map(Move::toString)
+				.collect(Collectors.toList());
+		assertTrue(legalMoves.contains(m.getMove().toString()), m.getMove() + " not in " + legalMoves);
+		assertTrue(Math.abs(strat.getScore() - singleThreaded.getScore()) <= 100,
+				"score " + strat.getScore() + ", single-threaded " + singleThreaded.getScore());
+	}
+
+	@Test
+	public void helpersStopWithMainThread() {
+		Game game = Fen.decode("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+		SearchStrategy strat = new LazySmp(System.out, new TranspositionTable(), new EvaluationCache(), 16);
+		strat.incrementDepth(60);
+		// the main thread often finishes before all helpers have started
+		for (int i = 0; i < 20; i++) {
+			strat.setTimeManager(TimeManager.forMoveTime(55));
+			// some leeway for slow machines
+			MoveInfo m = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> strat.findMove(game.getPosition()),
+					"search " + i);
+			assertNotNull(m.getMove());
+		}
+	}
+
+	@Test
+	public void invalidNbrThreads() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new LazySmp(System.out, new TranspositionTable(), new EvaluationCache(), 0));
+	}
+}
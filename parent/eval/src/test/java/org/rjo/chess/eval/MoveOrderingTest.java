@@ -0,0 +1,107 @@
+package org.rjo.chess.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.Colour;
+import org.rjo.chess.base.PackedMove;
+import org.rjo.chess.base.PieceType;
+import org.rjo.chess.base.Square;
+
+public class MoveOrderingTest {
+
+	private static final int NF3 = PackedMove.of(PieceType.KNIGHT, Colour.WHITE, Square.g1.bitIndex(),
+			Square.f3.bitIndex());
+	private static final int E4 = PackedMove.of(PieceType.PAWN, Colour.WHITE, Square.e2.bitIndex(),
+			Square.e4.bitIndex());
+	private static final int D4 = PackedMove.of(PieceType.PAWN, Colour.WHITE, Square.d2.bitIndex(),
+			Square.d4.bitIndex());
+	private static final int NC6 = PackedMove.of(PieceType.KNIGHT, Colour.BLACK, Square.b8.bitIndex(),
+			Square.c6.bitIndex());
+	private static final int E5 = PackedMove.of(PieceType.PAWN, Colour.BLACK, Square.e7.bitIndex(),
+			Square.e5.bitIndex());
+
+	@Test
+	public void killerStoredAndShifted() {
+		MoveOrdering moveOrdering = new MoveOrdering(4);
+		moveOrdering.cutoff(NF3, PackedMove.NONE, 1, 1);
+		assertEquals(NF3, moveOrdering.killer(1, 0));
+		assertEquals(PackedMove.NONE, moveOrdering.killer(1, 1));
+		moveOrdering.cutoff(E4, PackedMove.NONE, 1, 1);
+		assertEquals(E4, moveOrdering.killer(1, 0));
+		assertEquals(NF3, moveOrdering.killer(1, 1));
+		moveOrdering.cutoff(D4, PackedMove.NONE, 1, 1);
+		assertEquals(D4, moveOrdering.killer(1, 0));
+		assertEquals(E4, moveOrdering.killer(1, 1));
+		// other plies are unaffected
+		assertEquals(PackedMove.NONE, moveOrdering.killer(0, 0));
+		assertEquals(MoveOrdering.KILLER_SCORE + 1, moveOrdering.quietMoveScore(D4, 1, PackedMove.NONE));
+		assertEquals(MoveOrdering.KILLER_SCORE, moveOrdering.quietMoveScore(E4, 1, PackedMove.NONE));
+	}
+
+	@Test
+	public void duplicateKillerNotStoredTwice() {
+		MoveOrdering moveOrdering = new MoveOrdering(4);
+		moveOrdering.cutoff(NF3, PackedMove.NONE, 0, 1);
+		moveOrdering.cutoff(E4, PackedMove.NONE, 0, 1);
+		moveOrdering.cutoff(E4, PackedMove.NONE, 0, 1);
+		assertEquals(E4, moveOrdering.killer(0, 0));
+		assertEquals(NF3, moveOrdering.killer(0, 1));
+		// the check bit is ignored
+		moveOrdering.cutoff(PackedMove.withCheck(E4), PackedMove.NONE, 0, 1);
+		assertEquals(E4, moveOrdering.killer(0, 0));
+		assertEquals(NF3, moveOrdering.killer(0, 1));
+	}
+
+	@Test
+	public void capturesAreNotStored() {
+		MoveOrdering moveOrdering = new MoveOrdering(4);
+		int capture = PackedMove.capture(PieceType.PAWN, Colour.WHITE, Square.e4.bitIndex(), Square.d5.bitIndex(),
+				PieceType.PAWN);
+		moveOrdering.cutoff(capture, E5, 0, 3);
+		assertEquals(PackedMove.NONE, moveOrdering.killer(0, 0));
+		assertEquals(PackedMove.NONE, moveOrdering.counterMove(E5));
+		assertEquals(0, moveOrdering.historyScore(capture));
+	}
+
+	@Test
+	public void historyIncreasedAndAged() {
+		MoveOrdering moveOrdering = new MoveOrdering(4);
+		moveOrdering.cutoff(NF3, PackedMove.NONE, 0, 3);
+		moveOrdering.cutoff(NF3, PackedMove.NONE, 0, 4);
+		assertEquals(9 + 16, moveOrdering.historyScore(NF3));
+		assertEquals(0, moveOrdering.historyScore(E4));
+		assertEquals(9 + 16, moveOrdering.quietMoveScore(NF3, 1, PackedMove.NONE));
+
+		// exceeding MAX_HISTORY halves all history values
+		int depth = (int) Math.sqrt(MoveOrdering.MAX_HISTORY) + 1;
+		moveOrdering.cutoff(E4, PackedMove.NONE, 0, depth);
+		assertEquals(depth * depth / 2, moveOrdering.historyScore(E4));
+		assertEquals((9 + 16) / 2, moveOrdering.historyScore(NF3));
+
+		// as does a new search, which also clears the killers
+		moveOrdering.newSearch();
+		assertEquals(depth * depth / 4, moveOrdering.historyScore(E4));
+		assertEquals((9 + 16) / 4, moveOrdering.historyScore(NF3));
+		assertEquals(PackedMove.NONE, moveOrdering.killer(0, 0));
+		assertEquals(PackedMove.NONE, moveOrdering.killer(0, 1));
+	}
+
+	@Test
+	public void counterMoveLookedUpByPreviousMove() {
+		MoveOrdering moveOrdering = new MoveOrdering(4);
+		moveOrdering.cutoff(NF3, E5, 1, 1);
+		moveOrdering.cutoff(D4, NC6, 2, 1);
+		assertEquals(NF3, moveOrdering.counterMove(E5));
+		assertEquals(D4, moveOrdering.counterMove(NC6));
+		// the check bit of the previous move is irrelevant
+		assertEquals(NF3, moveOrdering.counterMove(PackedMove.withCheck(E5)));
+		assertEquals(PackedMove.NONE, moveOrdering.counterMove(PackedMove.NONE));
+		// the countermove scores below the killers
+		assertEquals(MoveOrdering.COUNTERMOVE_SCORE, moveOrdering.quietMoveScore(NF3, 3, NF3));
+		assertEquals(MoveOrdering.KILLER_SCORE + 1, moveOrdering.quietMoveScore(NF3, 1, NF3));
+		// no countermove is stored at the root
+		moveOrdering.cutoff(E4, PackedMove.NONE, 0, 1);
+		assertEquals(NF3, moveOrdering.counterMove(E5));
+	}
+}
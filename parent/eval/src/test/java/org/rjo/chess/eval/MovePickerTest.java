@@ -0,0 +1,116 @@
+package org.rjo.chess.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.MoveList;
+import org.rjo.chess.base.PackedMove;
+import org.rjo.chess.base.Square;
+import org.rjo.chess.position.Fen;
+import org.rjo.chess.position.Position;
+
+public class MovePickerTest {
+
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	@Test
+	public void allMovesOnce() {
+		for (String fen : new String[] { KIWIPETE, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+				// in check
+				"4k3/8/8/8/8/8/3q4/R3K2R w KQ - 0 1" }) {
+			Position posn = Fen.decode(fen).getPosition();
+			MovePicker movePicker = new MovePicker(new MoveOrdering(4));
+			movePicker.init(posn, PackedMove.NONE, 0, PackedMove.NONE);
+			assertEquals(sorted(pseudoLegalMoves(posn)), sorted(pickAll(movePicker)), fen);
+		}
+	}
+
+	@Test
+	public void stages() {
+		Position posn = Fen.decode(KIWIPETE).getPosition();
+		MoveOrdering moveOrdering = new MoveOrdering(4);
+		int killer = findMove(posn, Square.a2, Square.a3);
+		moveOrdering.cutoff(killer, PackedMove.NONE, 0, 1);
+		int hashMove = findMove(posn, Square.e5, Square.f7);
+
+		MovePicker movePicker = new MovePicker(moveOrdering);
+		movePicker.init(posn, hashMove, 0, PackedMove.NONE);
+		List<Integer> moves = new ArrayList<>();
+		List<Integer> scores = new ArrayList<>();
+		for (int move = movePicker.next(); move != PackedMove.NONE; move = movePicker.next()) {
+			moves.add(PackedMove.withoutCheck(move));
+			scores.add(movePicker.score());
+		}
+		assertEquals(hashMove, moves.get(0).intValue());
+		assertEquals(MovePicker.HASH_MOVE_SCORE, scores.get(0).intValue());
+		// the killer move follows the captures which don't lose material
+		int killerIndex = moves.indexOf(killer);
+		assertTrue(killerIndex > 1);
+		assertTrue(scores.get(killerIndex - 1) >= MovePicker.GOOD_CAPTURE_SCORE);
+		assertTrue(scores.get(killerIndex + 1) < MoveOrdering.KILLER_SCORE);
+		// the losing captures come last (e.g. Qf3xf6, defended by the bishop and the queen)
+		int losingCapture = findMove(posn, Square.f3, Square.f6);
+		assertTrue(scores.get(moves.indexOf(losingCapture)) < 0);
+		for (int i = 1; i < scores.size(); i++) {
+			assertTrue(scores.get(i) <= scores.get(i - 1), "move ordering at index " + i);
+		}
+		assertEquals(sorted(pseudoLegalMoves(posn)), sorted(moves));
+	}
+
+	@Test
+	public void invalidHashMoveAndKillers() {
+		Position posn = Fen.decode(KIWIPETE).getPosition();
+		MoveOrdering moveOrdering = new MoveOrdering(4);
+		// moves from another position: the bishop on d2 has gone, a black pawn is on b3 instead of b4
+		Position otherPosn = Fen.decode("r3k2r/p1ppqpb1/bn2pnp1/3PN3/4P3/1pN2Q1p/PPP1BPPP/R3K2R w KQkq - 0 1")
+				.getPosition();
+		int killer = findMove(otherPosn, Square.e1, Square.d2);
+		moveOrdering.cutoff(killer, PackedMove.NONE, 0, 1);
+		int hashMove = findMove(otherPosn, Square.c2, Square.b3);
+		MovePicker movePicker = new MovePicker(moveOrdering);
+		movePicker.init(posn, hashMove, 0, PackedMove.NONE);
+		List<Integer> moves = pickAll(movePicker);
+		assertEquals(sorted(pseudoLegalMoves(posn)), sorted(moves));
+	}
+
+	private static List<Integer> pickAll(MovePicker movePicker) {
+		List<Integer> moves = new ArrayList<>();
+		for (int move = movePicker.next(); move != PackedMove.NONE; move = movePicker.next()) {
+			moves.add(PackedMove.withoutCheck(move));
+		}
+		return moves;
+	}
+
+	private static List<Integer> pseudoLegalMoves(Position posn) {
+		MoveList moveList = new MoveList();
+		posn.findPseudoLegalMoves(posn.getSideToMove(), moveList);
+		List<Integer> moves = new ArrayList<>();
+		for (int i = 0; i < moveList.size(); i++) {
+			moves.add(PackedMove.withoutCheck(moveList.get(i)));
+		}
+		return moves;
+	}
+
+	private static int findMove(Position posn,
+			Square from,
+			Square to) {
+		for (int move : pseudoLegalMoves(posn)) {
+			if (PackedMove.from(move) == from.bitIndex() && PackedMove.to(move) == to.bitIndex()) {
+				return move;
+			}
+		}
+		throw new IllegalArgumentException("move " + from + "-" + to + " not found");
+	}
+
+	private static List<Integer> sorted(List<Integer> moves) {
+		List<Integer> sortedMoves = new ArrayList<>(moves);
+		Collections.sort(sortedMoves);
+		return sortedMoves;
+	}
+}
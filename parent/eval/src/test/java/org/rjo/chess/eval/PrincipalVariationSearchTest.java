@@ -0,0 +1,93 @@
+package org.rjo.chess.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.eval.MoveInfo;
+import org.rjo.chess.position.Fen;
+import org.rjo.chess.position.Game;
+
+public class PrincipalVariationSearchTest {
+
+	@Test
+	public void mateInOne() {
+		Game game = Fen.decode("4r1k1/3R2pp/2N3p1/2p5/6PK/r7/6P1/2q5 b - - 67 34");
+		PrincipalVariationSearch strat = new PrincipalVariationSearch(System.out);
+		strat.incrementDepth(1);
+		MoveInfo m = strat.findMove(game.getPosition());
+		assertEquals("Qc1-h6+", m.getMove().toString());
+		// mate after one ply
+		assertEquals(PrincipalVariationSearch.MATE - 1, strat.getScore());
+	}
+
+	@Test
+	public void sameMoveAsAlphaBeta() {
+		for (String fen : new String[] { "rnbqk1nr/pppp1ppp/8/3P4/8/2N5/PP1QPPPP/R3KBNR b KQkq - 2 7",
+				"8/5n2/8/8/pk6/4K3/P3NP2/8 w - - 0 15" }) {
+			Game game = Fen.decode(fen);
+			SearchStrategy pvs = new PrincipalVariationSearch(System.out);
+			SearchStrategy alphaBeta = new AlphaBeta3(System.out);
+			assertEquals(alphaBeta.findMove(game.getPosition()).getMove().toString(),
+					pvs.findMove(game.getPosition()).getMove().toString(), fen);
+		}
+	}
+
+	@Test
+	public void quiescenceSearchAvoidsDefendedPawn() {
+		Game game = Fen.decode("4k3/8/4p3/3p4/8/8/8/3QK3 w - - 0 1");
+		SearchStrategy strat = new PrincipalVariationSearch(System.out);
+		strat.incrementDepth(-3);
+		MoveInfo m = strat.findMove(game.getPosition());
+		assertNotEquals("Qd1xd5", m.getMove().toString());
+	}
+
+	@Test
+	public void principalVariation() {
+		Game game = Fen.decode("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+		PrincipalVariationSearch strat = new PrincipalVariationSearch(System.out);
+		MoveInfo m = strat.findMove(game.getPosition());
+		assertFalse(strat.getLine().getMoves().isEmpty());
+		// the line starts with the move which was played
+		assertEquals(m.getMove().toString(), strat.getLine().getMoves().peekFirst().toString());
+	}
+
+	@Test
+	public void selectivityReducesNodes() {
+		Game game = Fen.decode("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+		PrincipalVariationSearch fullWidth = new PrincipalVariationSearch(System.out);
+		fullWidth.incrementDepth(1);
+		fullWidth.setNullMovePruning(false);
+		fullWidth.setLateMoveReductions(false);
+		fullWidth.findMove(game.getPosition());
+		assertEquals(0, fullWidth.getNbrNullMoveCutoffs());
+		assertEquals(0, fullWidth.getNbrReducedMoves());
+
+		PrincipalVariationSearch selective = new PrincipalVariationSearch(System.out);
+		selective.incrementDepth(1);
+		selective.findMove(game.getPosition());
+		assertTrue(selective.getNbrNullMoveCutoffs() > 0);
+		assertTrue(selective.getNbrReducedMoves() > 0);
+		assertTrue(selective.getCurrentNbrNodesSearched() < fullWidth.getCurrentNbrNodesSearched(),
+				selective.getCurrentNbrNodesSearched() + " >= " + fullWidth.getCurrentNbrNodesSearched());
+	}
+
+	@Test
+	public void frontierPruningReducesEvaluations() {
+		Game game = Fen.decode("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+		PrincipalVariationSearch withoutPruning = new PrincipalVariationSearch(System.out);
+		withoutPruning.incrementDepth(1);
+		withoutPruning.setFrontierPruning(false);
+		MoveInfo expected = withoutPruning.findMove(game.getPosition());
+
+		PrincipalVariationSearch withPruning = new PrincipalVariationSearch(System.out);
+		withPruning.incrementDepth(1);
+		MoveInfo m = withPruning.findMove(game.getPosition());
+		assertEquals(expected.getMove().toString(), m.getMove().toString());
+		assertTrue(withPruning.getNbrFrontierPrunes() > 0);
+		assertTrue(withPruning.getNbrPosnsEvaluated() < withoutPruning.getNbrPosnsEvaluated(),
+				withPruning.getNbrPosnsEvaluated() + " >= " + withoutPruning.getNbrPosnsEvaluated());
+	}
+}
@@ -0,0 +1,68 @@
+package org.rjo.chess.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.eval.SearchResult;
+import org.rjo.chess.position.Fen;
+import org.rjo.chess.position.Game;
+
+public class TimeManagerTest {
+
+	@Test
+	public void clockWithoutMovesToGo() {
+		TimeManager tm = TimeManager.forClock(60050, 1000, 0);
+		// 60000ms / 30 moves + 3/4 of the increment
+		assertEquals(2750, tm.getSoftLimit());
+		assertEquals(2750 * TimeManager.HARD_LIMIT_FACTOR, tm.getHardLimit());
+	}
+
+	@Test
+	public void hardLimitIsAtMostAThirdOfRemainingTime() {
+		TimeManager tm = TimeManager.forClock(3050, 0, 2);
+		assertEquals(1000, tm.getHardLimit());
+		assertEquals(1000, tm.getSoftLimit());
+		// last move before the time control: can use all the time
+		tm = TimeManager.forClock(3050, 0, 1);
+		assertEquals(3000, tm.getSoftLimit());
+		assertEquals(3000, tm.getHardLimit());
+	}
+
+	@Test
+	public void iterationPrediction() {
+		TimeManager tm = TimeManager.forMoveTime(1050);
+		tm.start();
+		assertTrue(tm.canStartIteration(10, 4.0));
+		// would take 2000ms
+		assertFalse(tm.canStartIteration(500, 4.0));
+		assertFalse(tm.hardLimitReached());
+
+		tm = TimeManager.unlimited();
+		tm.start();
+		assertTrue(tm.canStartIteration(Long.MAX_VALUE / 8, 4.0));
+		assertFalse(tm.hardLimitReached());
+	}
+
+	@Test
+	public void invalidClock() {
+		assertThrows(IllegalArgumentException.class, () -> TimeManager.forClock(-1, 0, 0));
+	}
+
+	@Test
+	public void searchStopsWithinTimeLimit() {
+		Game game = Fen.decode("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+		AlphaBeta3 strategy = new AlphaBeta3(System.out);
+		strategy.incrementDepth(60);
+		strategy.setTimeManager(TimeManager.forMoveTime(550));
+		long start = System.currentTimeMillis();
+		SearchResult result = strategy.search(game.getPosition());
+		long duration = System.currentTimeMillis() - start;
+		assertTrue(result.getLine().isPresent());
+		assertFalse(result.getLine().get().getMoves().isEmpty());
+		// some leeway for slow machines
+		assertTrue(duration < 2000, "search took " + duration + "ms");
+	}
+}
@@ -105,6 +105,7 @@ public class Position {
    // if kingInCheck==TRUE, then either directCheckSquare or discoveredCheckSquare (or both) will be set
    private boolean kingInCheck; // TRUE if the king is now in check (i.e. the move leading to this posn has checked the king)
    private List<PieceSquareInfo> checkSquares; // set to the square(s) of the piece(s) delivering a check
+   private Move checkingMove; // if set, kingInCheck and checkSquares have yet to be taken from this move (see Move#isCheck)
    // debugging info
    private Position previousPosn; // stores the previous position
    private Move currentMove; // stores the move made from the previous position to get to this position
@@ -150,6 +151,7 @@ public class Position {
       this.sideToMove = prevPosn.sideToMove;
       this.kingInCheck = prevPosn.kingInCheck;
       this.checkSquares = prevPosn.checkSquares;
+      this.checkingMove = prevPosn.checkingMove;
       this.board = prevPosn.board.clone();
       this.previousPosn = prevPosn;
       this.currentMove = move;
@@ -268,7 +270,7 @@ public class Position {
          case 5 -> sb.append("   enpassant square: ").append(enpassantSquare);
          case 4 -> sb.append("   hash (zobrist): ").append(hashCode());
          case 3 -> {
-            if (kingInCheck) {
+            if (isKingInCheck()) {
                sb.append("   king in check: ").append(checkSquares);
             } else {
                sb.append("   king not in check");
@@ -393,7 +395,8 @@ public class Position {
       }
 
       this.sideToMove = this.sideToMove.opposite();
-      this.setKingInCheck(move.getCheckSquares());
+      // whether the move checks the king is only calculated when required
+      this.checkingMove = move;
    }
 
    /**
@@ -484,9 +487,17 @@ public class Position {
       return moveGenerator.findMoves(this, sideToMove);
    }
 
-   public boolean isKingInCheck() { return kingInCheck; }
+   public boolean isKingInCheck() {
+      resolveCheck();
+      return kingInCheck;
+   }
+
+   private void resolveCheck() {
+      if (checkingMove != null) { setKingInCheck(checkingMove.getCheckSquares()); }
+   }
 
    public void setKingInCheck(List<PieceSquareInfo> checkSquares) {
+      this.checkingMove = null;
       if (checkSquares == null || checkSquares.isEmpty()) {
          this.kingInCheck = false;
          this.checkSquares = null;
@@ -500,7 +511,10 @@ public class Position {
       setKingInCheck(Arrays.asList(checkSquares));
    }
 
-   public List<PieceSquareInfo> getCheckSquares() { return checkSquares; }
+   public List<PieceSquareInfo> getCheckSquares() {
+      resolveCheck();
+      return checkSquares;
+   }
 
    /**
     * @return a FEN string for this position (FEN is incomplete, missing half moves and clock info).
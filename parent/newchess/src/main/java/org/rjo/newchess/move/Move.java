@@ -2,6 +2,7 @@ package org.rjo.newchess.move;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.rjo.newchess.board.Board.Square;
 import org.rjo.newchess.game.Position.PieceSquareInfo;
@@ -28,6 +29,7 @@ public class Move {
    // following fields are set after constructor call
    private boolean check; // whether this move is a check
    private List<PieceSquareInfo> checkSquares; // set to the square(s) of the piece(s) delivering a check
+   private Supplier<List<PieceSquareInfo>> checkCalculator; // if set, 'check' and 'checkSquares' have not been calculated yet
 
    /**
     * Base Constructor.
@@ -321,15 +323,38 @@ public class Move {
    public void setCheck(List<PieceSquareInfo> checkSquares) {
       check = true;
       this.checkSquares = checkSquares;
+      this.checkCalculator = null;
    }
 
    public void setCheck(PieceSquareInfo... checkSquares) {
       setCheck(Arrays.asList(checkSquares));
    }
 
-   public boolean isCheck() { return check; }
+   /**
+    * Defers the calculation of whether this move checks the opponent's king until {@link #isCheck()} or {@link #getCheckSquares()} is first called.
+    * Most generated moves are never played (cutoffs, or leaf nodes of perft), so this work would otherwise be wasted.
+    * 
+    * @param checkCalculator returns the square(s) of the piece(s) delivering a check, or an empty list
+    */
+   public void setCheckCalculator(Supplier<List<PieceSquareInfo>> checkCalculator) { this.checkCalculator = checkCalculator; }
 
-   public List<PieceSquareInfo> getCheckSquares() { return checkSquares; }
+   private void calculateCheck() {
+      if (checkCalculator != null) {
+         List<PieceSquareInfo> squares = checkCalculator.get();
+         checkCalculator = null;
+         if (!squares.isEmpty()) { setCheck(squares); }
+      }
+   }
+
+   public boolean isCheck() {
+      calculateCheck();
+      return check;
+   }
+
+   public List<PieceSquareInfo> getCheckSquares() {
+      calculateCheck();
+      return checkSquares;
+   }
 
    public boolean isPawnTwoSquaresForward() { return pawnTwoSquaresForward; }
 
@@ -219,14 +219,13 @@ public class MoveGenerator implements MoveGeneratorI {
       allMoves.addAll(kingMoves);
 
       // ***
-      // now process checks against _opposing_ king
+      // checks against the _opposing_ king are only calculated on demand, see Move#isCheck
       // ***
       RayCacheInfo[] squaresAttackingOpponentsKing = new RayCacheInfo[64]; // this stores the result of processed
-      // squares (for sliding pieces)
+      // squares (for sliding pieces), shared between all moves of this position
       int opponentsKingsSquare = posn.getKingsSquare(colour.opposite());
       for (Move m : allMoves) {
-         List<PieceSquareInfo> checkSquares = isOpponentsKingInCheckAfterMove(posn, m, opponentsKingsSquare, colour.opposite(), squaresAttackingOpponentsKing);
-         if (!checkSquares.isEmpty()) { m.setCheck(checkSquares); }
+         m.setCheckCalculator(() -> isOpponentsKingInCheckAfterMove(posn, m, opponentsKingsSquare, colour.opposite(), squaresAttackingOpponentsKing));
       }
 
       return allMoves;
@@ -1092,9 +1091,9 @@ public class MoveGenerator implements MoveGeneratorI {
       /**
        * stores the ray to the target square or null. Only set if 'state' != NO_RAY_TO_KING
        */
-      Ray rayBetween;
+      final Ray rayBetween;
       /** whether there's a clear path to the target */
-      RayCacheState state;
+      final RayCacheState state;
 
       private RayCacheInfo(Ray rayBetween, RayCacheState state) {
          this.rayBetween = rayBetween;
@@ -4,10 +4,14 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.rjo.newchess.board.Board.Square;
+import org.rjo.newchess.game.Position.PieceSquareInfo;
 import org.rjo.newchess.piece.Colour;
 import org.rjo.newchess.piece.Piece;
 import org.rjo.newchess.piece.Pieces;
@@ -120,4 +124,27 @@ public class MoveTest {
       assertFalse(m.isQueenssideCastling());
       assertEquals(0, m.getSquareOfPawnCapturedEnpassant());
    }
+
+   @Test
+   public void checkIsCalculatedOnDemand() {
+      Move m = Move.createMove(Square.a5, WHITE_PAWN, Square.a6);
+      AtomicInteger nbrCalls = new AtomicInteger();
+      m.setCheckCalculator(() -> {
+         nbrCalls.incrementAndGet();
+         return List.of(new PieceSquareInfo(WHITE_PAWN, Square.a6.index()));
+      });
+      assertEquals(0, nbrCalls.get());
+      assertTrue(m.isCheck());
+      assertEquals(1, m.getCheckSquares().size());
+      assertEquals(1, nbrCalls.get());
+      // no check
+      m = Move.createMove(Square.a5, WHITE_PAWN, Square.a6);
+      m.setCheckCalculator(() -> {
+         nbrCalls.incrementAndGet();
+         return List.of();
+      });
+      assertFalse(m.isCheck());
+      assertFalse(m.isCheck());
+      assertEquals(2, nbrCalls.get());
+   }
 }
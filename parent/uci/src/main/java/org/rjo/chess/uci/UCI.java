@@ -1,8 +1,6 @@
 package org.rjo.chess.uci;
 
 import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Scanner;
 
 import org.rjo.chess.base.Colour;
@@ -10,13 +8,14 @@ import org.rjo.chess.base.Move;
 import org.rjo.chess.base.PieceType;
 import org.rjo.chess.base.Square;
 import org.rjo.chess.base.eval.MoveInfo;
-import org.rjo.chess.eval.AlphaBeta3;
+import org.rjo.chess.eval.LazySmp;
+import org.rjo.chess.eval.PrincipalVariationSearch;
 import org.rjo.chess.eval.SearchStrategy;
-import org.rjo.chess.pieces.King;
-import org.rjo.chess.pieces.Piece;
+import org.rjo.chess.eval.TimeManager;
+import org.rjo.chess.position.EvaluationCache;
 import org.rjo.chess.position.Fen;
 import org.rjo.chess.position.Game;
-import org.rjo.chess.position.Position;
+import org.rjo.chess.position.TranspositionTable;
 
 /**
  * Starts threads for a UCI-conform interface and the engine.
@@ -24,6 +23,13 @@ import org.rjo.chess.position.Position;
  * @author rich
  */
 public class UCI {
+	private static final int MAX_THREADS = 128;
+	/** maximum size of the transposition table in MB, see option "Hash" */
+	private static final int MAX_HASH_SIZE_MB = 4096;
+
+	/** maximum depth of the iterative deepening if the search is limited by time */
+	private static final int MAX_SEARCH_DEPTH = 64;
+
 	private Game game;
 
 	private MoveInfo moveinfo;
@@ -31,6 +37,19 @@ public class UCI {
 	// set after "processCommandPosition" to store the last move from the uci string
 	private Move lastMove;
 
+	// number of search threads, see option "Threads"
+	private int nbrThreads = 1;
+	// selectivity of the search, see options "NullMovePruning" and "LateMoveReductions"
+	private boolean nullMovePruning = true;
+	private boolean lateMoveReductions = true;
+
+	// size of the transposition table in MB, see option "Hash"
+	private int hashSizeMB = TranspositionTable.DEFAULT_SIZE_MB;
+	// kept for all searches of a game (a new Game is created for every 'position' command), cleared by 'ucinewgame'.
+	// Created on demand
+	private TranspositionTable transpositionTable;
+	private EvaluationCache evaluationCache;
+
 	public static void main(String[] args) {
 		UCI uci = new UCI();
 		uci.run();
@@ -91,9 +110,15 @@ public class UCI {
 			case "stop":
 				processCommandStop();
 				break;
+			case "setoption":
+				processCommandSetOption(lineScanner);
+				break;
 			case "position":
 				processCommandPosition(lineScanner);
 				break;
+			case "ucinewgame":
+				processCommandUciNewGame();
+				break;
 			case "quit":
 				finished = true;
 				break;
@@ -111,18 +136,25 @@ public class UCI {
 	}
 
 	private void processCommandGo(Scanner lineScanner) {
-		boolean infinite = lineScanner.hasNext() && "infinite".equals(lineScanner.next());
+		GoParameters params = GoParameters.parse(lineScanner);
 
-		SearchStrategy strategy = new AlphaBeta3(System.out, game.getZobristMap());
+		SearchStrategy strategy;
+		if (nbrThreads > 1) {
+			strategy = new LazySmp(System.out, getTranspositionTable(), getEvaluationCache(), nbrThreads);
+		} else {
+			strategy = new PrincipalVariationSearch(System.out, getTranspositionTable(), getEvaluationCache());
+		}
+		strategy.setNullMovePruning(nullMovePruning);
+		strategy.setLateMoveReductions(lateMoveReductions);
 
 		// UCI reporter thread
 		UciReporter uciReporter = new UciReporter(strategy, System.out);
 		new Thread(uciReporter).start();
 
-		moveinfo = _findMove(strategy);
+		moveinfo = _findMove(strategy, params);
 
 		uciReporter.setStop(true);
-		if (!infinite) {
+		if (!params.infinite) {
 			System.out.println("bestmove " + moveinfo.getMove().toUCIString());
 		}
 	}
@@ -133,65 +165,42 @@ public class UCI {
 	}
 
 	private MoveInfo _findMove(SearchStrategy strategy) {
+		return _findMove(strategy, new GoParameters());
+	}
 
-		Map<PieceType, Integer>[] pieceCounts = analysePosition(game.getPosition());
+	private MoveInfo _findMove(SearchStrategy strategy, GoParameters params) {
 
-		int nbrPieces = 0;
-		for (Colour colour : Colour.ALL_COLOURS) {
-			nbrPieces += pieceCounts[colour.ordinal()].values().stream().mapToInt(Integer::intValue).sum();
+		int nbrPieces = Long.bitCount(game.getPosition().getTotalPiecesBits());
+		if (params.depth > 0) {
+			strategy.incrementDepth(params.depth - strategy.getCurrentDepth());
+		} else if (params.isTimeLimited()) {
+			// iterative deepening until the time manager stops the search
+			strategy.incrementDepth(MAX_SEARCH_DEPTH - strategy.getCurrentDepth());
+		} else {
+			// simplistic way to increase the search depth if fewer pieces on the board
+			strategy.incrementDepth((32 - nbrPieces) / 12);
 		}
-		// simplistic way to increase the search depth if fewer pieces on the board
-		strategy.incrementDepth((32 - nbrPieces) / 12);
+		strategy.setTimeManager(params.createTimeManager(game.getPosition().getSideToMove()));
 		System.out.println("set strategy depth to " + strategy.getCurrentDepth());
 
-		King.IN_ENDGAME = inEndgame(pieceCounts);
-
-		// can clear the zobrist map if the last move was a pawn move
-		if (lastMove.getPiece() == PieceType.PAWN) {
-			game.getZobristMap().clear();
-		}
-
 		return strategy.findMove(game.getPosition());
 	}
 
-	private Map<PieceType, Integer>[] analysePosition(Position position) {
-		@SuppressWarnings("unchecked")
-		Map<PieceType, Integer>[] pieceCounts = new HashMap[Colour.ALL_COLOURS.length];
-		for (Colour colour : Colour.ALL_COLOURS) {
-			final Piece[] pieces = position.getPieces(colour);
-			Map<PieceType, Integer> counts = new HashMap<>();
-			counts.put(PieceType.KING, 1); // always one king ;-)
-			for (PieceType pieceType : PieceType.ALL_PIECE_TYPES_EXCEPT_KING) {
-				counts.put(pieceType, pieces[pieceType.ordinal()].numberOfPieces());
-			}
-			pieceCounts[colour.ordinal()] = counts;
+	private void processCommandStop() {
+		if (moveinfo != null) {
+			System.out.println("bestmove " + moveinfo.getMove().toUCIString());
 		}
-		return pieceCounts;
 	}
 
 	/**
-	 * Are we in an endgame?
-	 *
-	 * @param pieceCounts counts of pieces still present
-	 * @return true if considerered to be in an endgame
+	 * The next search will be from a different game: the results of the previous searches are discarded.
 	 */
-	private boolean inEndgame(Map<PieceType, Integer>[] pieceCounts) {
-		// in endgame if each side has <= 13 material points
-		boolean inEndgame = true;
-		for (Colour colour : Colour.ALL_COLOURS) {
-			int points = (9 * pieceCounts[colour.ordinal()].get(PieceType.QUEEN)) +
-					(5 * pieceCounts[colour.ordinal()].get(PieceType.ROOK)) +
-					(3 * pieceCounts[colour.ordinal()].get(PieceType.BISHOP)) +
-					(3 * pieceCounts[colour.ordinal()].get(PieceType.KNIGHT)) +
-					pieceCounts[colour.ordinal()].get(PieceType.PAWN);
-			inEndgame = inEndgame && (points <= 13);
+	private void processCommandUciNewGame() {
+		if (transpositionTable != null) {
+			transpositionTable.clear();
 		}
-		return inEndgame;
-	}
-
-	private void processCommandStop() {
-		if (moveinfo != null) {
-			System.out.println("bestmove " + moveinfo.getMove().toUCIString());
+		if (evaluationCache != null) {
+			evaluationCache.clear();
 		}
 	}
 
@@ -288,9 +297,158 @@ public class UCI {
 	private void processCommandUci() {
 		System.out.println("id name bulldog 1.0");
 		System.out.println("id author rjo67");
+		System.out.println("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+		System.out.println("option name Hash type spin default " + TranspositionTable.DEFAULT_SIZE_MB + " min 1 max "
+				+ MAX_HASH_SIZE_MB);
+		System.out.println("option name NullMovePruning type check default true");
+		System.out.println("option name LateMoveReductions type check default true");
 		System.out.println("uciok");
 	}
 
+	private void processCommandSetOption(Scanner lineScanner) {
+		// setoption name <id> [value <x>]
+		if (!lineScanner.hasNext() || !"name".equals(lineScanner.next()) || !lineScanner.hasNext()) {
+			System.out.println("setoption: missing name");
+			return;
+		}
+		String name = lineScanner.next();
+		if ("Threads".equalsIgnoreCase(name) && lineScanner.hasNext() && "value".equals(lineScanner.next())
+				&& lineScanner.hasNextInt()) {
+			nbrThreads = Math.max(1, Math.min(MAX_THREADS, lineScanner.nextInt()));
+		} else if ("Hash".equalsIgnoreCase(name) && lineScanner.hasNext() && "value".equals(lineScanner.next())
+				&& lineScanner.hasNextInt()) {
+			hashSizeMB = Math.max(1, Math.min(MAX_HASH_SIZE_MB, lineScanner.nextInt()));
+			// allocated with the new size before the next search
+			transpositionTable = null;
+		} else if ("NullMovePruning".equalsIgnoreCase(name) && lineScanner.hasNext() && "value".equals(lineScanner.next())
+				&& lineScanner.hasNextBoolean()) {
+			nullMovePruning = lineScanner.nextBoolean();
+		} else if ("LateMoveReductions".equalsIgnoreCase(name) && lineScanner.hasNext()
+				&& "value".equals(lineScanner.next()) && lineScanner.hasNextBoolean()) {
+			lateMoveReductions = lineScanner.nextBoolean();
+		} else {
+			System.out.println("unrecognised option: " + name);
+		}
+	}
+
+	TranspositionTable getTranspositionTable() {
+		if (transpositionTable == null) {
+			transpositionTable = new TranspositionTable(hashSizeMB);
+		}
+		return transpositionTable;
+	}
+
+	EvaluationCache getEvaluationCache() {
+		if (evaluationCache == null) {
+			evaluationCache = new EvaluationCache();
+		}
+		return evaluationCache;
+	}
+
+	/* for tests */
+	int getHashSizeMB() {
+		return hashSizeMB;
+	}
+
+	int getNbrThreads() {
+		return nbrThreads;
+	}
+
+	boolean isNullMovePruning() {
+		return nullMovePruning;
+	}
+
+	boolean isLateMoveReductions() {
+		return lateMoveReductions;
+	}
+
+	/**
+	 * The parameters of the 'go' command which are supported.
+	 */
+	static class GoParameters {
+		long[] time = new long[2]; // indexed by colour; -1 == not specified
+		long[] increment = new long[2];
+		int movesToGo;
+		long moveTime = -1;
+		int depth;
+		boolean infinite;
+
+		GoParameters() {
+			time[0] = time[1] = -1;
+		}
+
+		/**
+		 * Parses the parameters of a 'go' command. Unknown parameters are ignored.
+		 *
+		 * @param lineScanner positioned after 'go'
+		 * @return the parameters
+		 */
+		static GoParameters parse(Scanner lineScanner) {
+			GoParameters params = new GoParameters();
+			while (lineScanner.hasNext()) {
+				String token = lineScanner.next();
+				switch (token) {
+				case "infinite":
+					params.infinite = true;
+					break;
+				case "wtime":
+					params.time[Colour.WHITE.ordinal()] = nextLong(lineScanner, token);
+					break;
+				case "btime":
+					params.time[Colour.BLACK.ordinal()] = nextLong(lineScanner, token);
+					break;
+				case "winc":
+					params.increment[Colour.WHITE.ordinal()] = Math.max(0, nextLong(lineScanner, token));
+					break;
+				case "binc":
+					params.increment[Colour.BLACK.ordinal()] = Math.max(0, nextLong(lineScanner, token));
+					break;
+				case "movestogo":
+					params.movesToGo = (int) Math.max(0, nextLong(lineScanner, token));
+					break;
+				case "movetime":
+					params.moveTime = nextLong(lineScanner, token);
+					break;
+				case "depth":
+					params.depth = (int) Math.min(MAX_SEARCH_DEPTH, nextLong(lineScanner, token));
+					break;
+				default:
+					System.out.println("go: ignoring '" + token + "'");
+				}
+			}
+			return params;
+		}
+
+		/** returns -1 if the value is missing; negative values are treated as 0 */
+		private static long nextLong(Scanner lineScanner,
+				String name) {
+			if (!lineScanner.hasNextLong()) {
+				System.out.println("go: missing value for '" + name + "'");
+				return -1;
+			}
+			return Math.max(0, lineScanner.nextLong());
+		}
+
+		boolean isTimeLimited() {
+			return !infinite && (moveTime >= 0 || time[0] >= 0 || time[1] >= 0);
+		}
+
+		/**
+		 * @param sideToMove the side to move
+		 * @return a time manager for the search
+		 */
+		TimeManager createTimeManager(Colour sideToMove) {
+			if (infinite) {
+				return TimeManager.unlimited();
+			} else if (moveTime >= 0) {
+				return TimeManager.forMoveTime(moveTime);
+			} else if (time[sideToMove.ordinal()] >= 0) {
+				return TimeManager.forClock(time[sideToMove.ordinal()], increment[sideToMove.ordinal()], movesToGo);
+			}
+			return TimeManager.unlimited();
+		}
+	}
+
 	static class NullOutputStream extends OutputStream {
 		@Override
 		public void write(@SuppressWarnings("unused") int arg0) {
@@ -1,11 +1,22 @@
 package org.rjo.chess.uci;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Scanner;
 
 import org.junit.jupiter.api.Test;
+import org.rjo.chess.base.Colour;
 import org.rjo.chess.base.Move;
+import org.rjo.chess.position.EvaluationCache;
 import org.rjo.chess.position.Fen;
 import org.rjo.chess.position.Game;
+import org.rjo.chess.position.Position;
+import org.rjo.chess.position.TranspositionTable;
 
 public class UciTest {
 	@Test
@@ -53,4 +64,86 @@ public class UciTest {
 		g.makeMove(m);
 		assertEquals("4R1k1/8/8/8/6PK/r7/8/8 b - - 68 34", Fen.encode(g));
 	}
+
+	@Test
+	public void setOptionThreads() {
+		UCI uci = UCI.testInterface("setoption name Threads value 8");
+		assertEquals(8, uci.getNbrThreads());
+		uci = UCI.testInterface("setoption name Threads value 0");
+		assertEquals(1, uci.getNbrThreads());
+	}
+
+	@Test
+	public void setOptionHash() {
+		UCI uci = UCI.testInterface("setoption name Hash value 32");
+		assertEquals(32, uci.getHashSizeMB());
+		uci = UCI.testInterface("setoption name Hash value 0");
+		assertEquals(1, uci.getHashSizeMB());
+	}
+
+	@Test
+	public void transpositionTableKeptBetweenSearches() {
+		UCI uci = new UCI();
+		process(uci, "position startpos");
+		process(uci, "go depth 2");
+		TranspositionTable transpositionTable = uci.getTranspositionTable();
+		EvaluationCache evaluationCache = uci.getEvaluationCache();
+		long startPosition = Position.startPosition().getZobristHash();
+		assertNotEquals(TranspositionTable.NO_ENTRY, transpositionTable.probe(startPosition));
+		process(uci, "position startpos moves e2e4");
+		process(uci, "go depth 2");
+		assertSame(transpositionTable, uci.getTranspositionTable());
+		assertSame(evaluationCache, uci.getEvaluationCache());
+		// cleared, but not reallocated
+		process(uci, "ucinewgame");
+		assertSame(transpositionTable, uci.getTranspositionTable());
+		assertEquals(TranspositionTable.NO_ENTRY, transpositionTable.probe(startPosition));
+		// a new size requires a new table
+		process(uci, "setoption name Hash value 1");
+		assertNotSame(transpositionTable, uci.getTranspositionTable());
+	}
+
+	private static void process(UCI uci,
+			String cmd) {
+		try (Scanner lineScanner = new Scanner(cmd)) {
+			uci.processLine(lineScanner);
+		}
+	}
+
+	@Test
+	public void setOptionSelectivity() {
+		UCI uci = UCI.testInterface("setoption name NullMovePruning value false");
+		assertFalse(uci.isNullMovePruning());
+		assertTrue(uci.isLateMoveReductions());
+		uci = UCI.testInterface("setoption name LateMoveReductions value false");
+		assertTrue(uci.isNullMovePruning());
+		assertFalse(uci.isLateMoveReductions());
+	}
+
+	@Test
+	public void parseGoParameters() {
+		UCI.GoParameters params;
+		try (Scanner sc = new Scanner("wtime 60000 btime 30000 winc 1000 movestogo 20")) {
+			params = UCI.GoParameters.parse(sc);
+		}
+		assertEquals(60000, params.time[Colour.WHITE.ordinal()]);
+		assertEquals(30000, params.time[Colour.BLACK.ordinal()]);
+		assertEquals(1000, params.increment[Colour.WHITE.ordinal()]);
+		assertEquals(0, params.increment[Colour.BLACK.ordinal()]);
+		assertEquals(20, params.movesToGo);
+		assertTrue(params.isTimeLimited());
+		assertFalse(params.infinite);
+
+		try (Scanner sc = new Scanner("depth 6")) {
+			params = UCI.GoParameters.parse(sc);
+		}
+		assertEquals(6, params.depth);
+		assertFalse(params.isTimeLimited());
+
+		try (Scanner sc = new Scanner("infinite")) {
+			params = UCI.GoParameters.parse(sc);
+		}
+		assertTrue(params.infinite);
+		assertFalse(params.isTimeLimited());
+	}
 }